@@ -23,6 +23,7 @@ import java.awt.Toolkit;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.net.MalformedURLException;
@@ -64,6 +65,7 @@ import com.sldeditor.generated.Version;
 import com.sldeditor.map.MapRender;
 import com.sldeditor.rendertransformation.RenderTransformManager;
 import com.sldeditor.ui.detail.GraphicPanelFieldManager;
+import com.sldeditor.ui.detail.config.PanelConfigPreloader;
 import com.sldeditor.ui.iface.PopulateDetailsInterface;
 import com.sldeditor.ui.layout.UILayoutFactory;
 import com.sldeditor.ui.layout.UILayoutInterface;
@@ -107,6 +109,9 @@ public class SLDEditor extends JPanel implements SLDEditorInterface, LoadSLDInte
     /** The Constant APPLICATION_ICON_MEDIUM. */
     private static final String APPLICATION_ICON_MEDIUM = "/icon/AppImage.png";
 
+    /** The file recording the panel configuration files that have been validated. */
+    private static final String PANEL_CONFIG_SNAPSHOT = "./panelconfig.snapshot";
+
     /** The frame. */
     private static JFrame frame = null;
 
@@ -154,6 +159,9 @@ public class SLDEditor extends JPanel implements SLDEditorInterface, LoadSLDInte
         final String filename = tmpFilename;
         final List<String> extensionArgList = tmpExtensionArgList;
 
+        // Parse the panel configuration files while the user interface is created
+        PanelConfigPreloader.preload(new File(PANEL_CONFIG_SNAPSHOT));
+
         // Schedule a job for the event dispatch thread:
         // creating and showing this application's GUI.
         javax.swing.SwingUtilities.invokeLater(new Runnable() {
@@ -312,6 +320,10 @@ public class SLDEditor extends JPanel implements SLDEditorInterface, LoadSLDInte
         frame.pack();
         frame.setVisible(true);
 
+        long timeToFirstWindow = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+        ConsoleManager.getInstance().information(SLDEditor.class,
+                String.format("%s %d ms", Localisation.getField(SLDEditor.class, "SLDEditor.timeToFirstWindow"), timeToFirstWindow));
+
         return sldEditor;
     }
 
@@ -0,0 +1,248 @@
+/*
+ * SLD Editor - The Open Source Java SLD Editor
+ *
+ * Copyright (C) 2016, SCISYS UK Limited
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sldeditor.map;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.geotools.data.DataUtilities;
+import org.geotools.data.FeatureSource;
+import org.geotools.data.Query;
+import org.geotools.data.collection.ListFeatureCollection;
+import org.geotools.feature.FeatureIterator;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.Geometry;
+
+/**
+ * Class that creates a spatially stratified sample of a feature source so that
+ * large data sources can be previewed interactively.
+ * <p>The data extent is divided into a grid and each grid cell is offered
+ * an equal share of the maximum number of features, so sparse areas are not
+ * swamped by dense ones. The share unused by sparse cells is given to the
+ * dense cells so the sample is as close to the maximum as possible.
+ * <p>The feature source is read twice, so sample off the event dispatch thread.
+ * 
+ * @author Robert Ward (SCISYS)
+ */
+public class FeatureSampler {
+
+    /** The Constant DEFAULT_MAX_FEATURES. */
+    public static final int DEFAULT_MAX_FEATURES = 10000;
+
+    /** The Constant GRID_SIZE, number of cells along each axis. */
+    private static final int GRID_SIZE = 32;
+
+    /** The Constant RANDOM_SEED, fixed so the same data always gives the same sample. */
+    private static final long RANDOM_SEED = 42L;
+
+    /**
+     * Private default constructor.
+     */
+    private FeatureSampler()
+    {
+    }
+
+    /**
+     * Creates a sample of the feature source, if the feature source contains no more
+     * than the maximum number of features it is returned unchanged.
+     *
+     * @param source the source
+     * @param bounds the bounds of the source
+     * @param maxFeatures the maximum number of features
+     * @return the sampled feature source
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public static FeatureSource<SimpleFeatureType, SimpleFeature> sample(FeatureSource<SimpleFeatureType, SimpleFeature> source,
+            ReferencedEnvelope bounds,
+            int maxFeatures) throws IOException
+    {
+        if((source == null) || (bounds == null) || (maxFeatures <= 0))
+        {
+            return source;
+        }
+
+        // A count of -1 means it is too expensive to calculate
+        int count = source.getCount(Query.ALL);
+        if((count >= 0) && (count <= maxFeatures))
+        {
+            return source;
+        }
+
+        // First pass counts the features in each cell
+        int cellCount = GRID_SIZE * GRID_SIZE;
+        int[] cellFeatureCount = new int[cellCount];
+
+        FeatureIterator<SimpleFeature> iterator = source.getFeatures().features();
+        try
+        {
+            while(iterator.hasNext())
+            {
+                cellFeatureCount[getCell(iterator.next(), bounds)] ++;
+            }
+        }
+        finally
+        {
+            iterator.close();
+        }
+
+        int[] cellQuota = calculateQuotas(cellFeatureCount, maxFeatures);
+
+        // Second pass picks an unbiased sample of each cell's quota using reservoir sampling
+        List<List<SimpleFeature>> cellSampleList = new ArrayList<List<SimpleFeature>>(cellCount);
+        for(int cell = 0; cell < cellCount; cell ++)
+        {
+            cellSampleList.add(new ArrayList<SimpleFeature>(cellQuota[cell]));
+        }
+        int[] cellSeenCount = new int[cellCount];
+        Random random = new Random(RANDOM_SEED);
+
+        iterator = source.getFeatures().features();
+        try
+        {
+            while(iterator.hasNext())
+            {
+                SimpleFeature feature = iterator.next();
+
+                int cell = getCell(feature, bounds);
+                int quota = cellQuota[cell];
+                if(quota > 0)
+                {
+                    List<SimpleFeature> cellSample = cellSampleList.get(cell);
+                    int seen = cellSeenCount[cell] ++;
+                    if(cellSample.size() < quota)
+                    {
+                        cellSample.add(feature);
+                    }
+                    else
+                    {
+                        int index = random.nextInt(seen + 1);
+                        if(index < quota)
+                        {
+                            cellSample.set(index, feature);
+                        }
+                    }
+                }
+            }
+        }
+        finally
+        {
+            iterator.close();
+        }
+
+        List<SimpleFeature> sampleList = new ArrayList<SimpleFeature>();
+        for(List<SimpleFeature> cellSample : cellSampleList)
+        {
+            sampleList.addAll(cellSample);
+        }
+
+        return DataUtilities.source(new ListFeatureCollection(source.getSchema(), sampleList));
+    }
+
+    /**
+     * Calculate the number of features to take from each cell.
+     * <p>Each cell is offered an equal share of the maximum, the share a cell cannot use
+     * because it contains fewer features is shared out between the remaining cells
+     * in further passes until the maximum is reached or every feature is included.
+     *
+     * @param cellFeatureCount the number of features in each cell
+     * @param maxFeatures the maximum number of features
+     * @return the quota for each cell
+     */
+    private static int[] calculateQuotas(int[] cellFeatureCount, int maxFeatures)
+    {
+        int[] cellQuota = new int[cellFeatureCount.length];
+        int remaining = maxFeatures;
+
+        int activeCells = countActiveCells(cellFeatureCount, cellQuota);
+        while((remaining > 0) && (activeCells > 0))
+        {
+            int share = Math.max(1, remaining / activeCells);
+
+            for(int cell = 0; (cell < cellFeatureCount.length) && (remaining > 0); cell ++)
+            {
+                int available = cellFeatureCount[cell] - cellQuota[cell];
+                if(available > 0)
+                {
+                    int extra = Math.min(Math.min(share, available), remaining);
+                    cellQuota[cell] += extra;
+                    remaining -= extra;
+                }
+            }
+            activeCells = countActiveCells(cellFeatureCount, cellQuota);
+        }
+        return cellQuota;
+    }
+
+    /**
+     * Count the cells that contain more features than their quota.
+     *
+     * @param cellFeatureCount the number of features in each cell
+     * @param cellQuota the quota for each cell
+     * @return the number of cells that can take more features
+     */
+    private static int countActiveCells(int[] cellFeatureCount, int[] cellQuota)
+    {
+        int activeCells = 0;
+        for(int cell = 0; cell < cellFeatureCount.length; cell ++)
+        {
+            if(cellFeatureCount[cell] > cellQuota[cell])
+            {
+                activeCells ++;
+            }
+        }
+        return activeCells;
+    }
+
+    /**
+     * Gets the grid cell containing the centre of the feature's geometry.
+     *
+     * @param feature the feature
+     * @param bounds the bounds
+     * @return the cell index
+     */
+    private static int getCell(SimpleFeature feature, ReferencedEnvelope bounds)
+    {
+        Object value = feature.getDefaultGeometry();
+        if(!(value instanceof Geometry) || (bounds.getWidth() <= 0.0) || (bounds.getHeight() <= 0.0))
+        {
+            return 0;
+        }
+
+        Envelope envelope = ((Geometry) value).getEnvelopeInternal();
+        if(envelope.isNull())
+        {
+            return 0;
+        }
+
+        Coordinate centre = envelope.centre();
+        int x = (int) (((centre.x - bounds.getMinX()) / bounds.getWidth()) * GRID_SIZE);
+        int y = (int) (((centre.y - bounds.getMinY()) / bounds.getHeight()) * GRID_SIZE);
+        x = Math.min(GRID_SIZE - 1, Math.max(0, x));
+        y = Math.min(GRID_SIZE - 1, Math.max(0, y));
+
+        return (y * GRID_SIZE) + x;
+    }
+}
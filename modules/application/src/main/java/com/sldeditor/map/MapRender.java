@@ -23,17 +23,22 @@ import java.awt.CardLayout;
 import java.awt.Color;
 import java.awt.Font;
 import java.awt.GridBagLayout;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 import java.awt.event.MouseWheelEvent;
 import java.awt.event.MouseWheelListener;
 import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
 
 import javax.swing.BorderFactory;
 import javax.swing.ButtonGroup;
 import javax.swing.JButton;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
+import javax.swing.JToggleButton;
 import javax.swing.JToolBar;
+import javax.swing.SwingWorker;
 
 import org.geotools.coverage.grid.io.AbstractGridCoverage2DReader;
 import org.geotools.data.FeatureSource;
@@ -41,6 +46,8 @@ import org.geotools.geometry.jts.ReferencedEnvelope;
 import org.geotools.map.FeatureLayer;
 import org.geotools.map.GridReaderLayer;
 import org.geotools.map.MapContent;
+import org.geotools.renderer.GTRenderer;
+import org.geotools.renderer.lite.StreamingRenderer;
 import org.geotools.styling.NamedLayerImpl;
 import org.geotools.styling.StyledLayer;
 import org.geotools.styling.StyledLayerDescriptor;
@@ -68,6 +75,7 @@ import com.sldeditor.datasource.impl.DataSourceFactory;
 import com.sldeditor.datasource.impl.GeometryTypeEnum;
 import com.sldeditor.filter.v2.envvar.EnvironmentVariableManager;
 import com.sldeditor.filter.v2.envvar.WMSEnvVarValues;
+import com.sldeditor.render.StyleRenderer;
 import com.sldeditor.ui.render.RuleRenderOptions;
 import com.vividsolutions.jts.geom.Envelope;
 
@@ -124,6 +132,45 @@ public class MapRender extends JPanel implements RenderSymbolInterface, PrefUpda
     /** The map panel that contains the card layout containing map pane and 'no data source' panel. */
     private JPanel mapPanel;
 
+    /** Name assigned to toolbar button for preview mode. */
+    public static final String TOOLBAR_PREVIEW_BUTTON_NAME = "ToolbarPreviewButton";
+
+    /** The Constant PREVIEW_GENERALIZATION_DISTANCE, in pixels. */
+    private static final double PREVIEW_GENERALIZATION_DISTANCE = 2.0;
+
+    /** The Constant DEFAULT_GENERALIZATION_DISTANCE, in pixels. */
+    private static final double DEFAULT_GENERALIZATION_DISTANCE = 0.8;
+
+    /** The data bounds, calculated once per data source on the sampler worker thread. */
+    private ReferencedEnvelope dataBounds = null;
+
+    /** The flag indicating whether the data bounds have been calculated for the data source. */
+    private boolean dataBoundsLoaded = false;
+
+    /** The preview mode flag, when set a sample of the data source is rendered. */
+    private boolean previewMode = false;
+
+    /** The maximum number of features rendered in preview mode, set from the user preferences. */
+    private int previewFeatureCap = FeatureSampler.DEFAULT_MAX_FEATURES;
+
+    /** The sampled feature list, created when first needed in preview mode. */
+    private FeatureSource<SimpleFeatureType, SimpleFeature> sampledFeatureList = null;
+
+    /** The worker calculating the data bounds and creating the sampled feature list, null if idle. */
+    private SwingWorker<SampleResult, Void> samplerWorker = null;
+
+    /**
+     * The result of the sampler worker.
+     */
+    private static class SampleResult
+    {
+        /** The data bounds. */
+        private ReferencedEnvelope bounds = null;
+
+        /** The sampled feature list, null if no sample was requested. */
+        private FeatureSource<SimpleFeatureType, SimpleFeature> sampledFeatureList = null;
+    }
+
     /**
      * Default constructor.
      */
@@ -203,6 +250,18 @@ public class MapRender extends JPanel implements RenderSymbolInterface, PrefUpda
         btn.setName(TOOLBAR_RESET_BUTTON_NAME);
         toolBar.add(btn);
 
+        toolBar.addSeparator();
+
+        final JToggleButton previewButton = new JToggleButton(Localisation.getString(MapRender.class, "MapRender.preview"));
+        previewButton.setName(TOOLBAR_PREVIEW_BUTTON_NAME);
+        previewButton.setToolTipText(Localisation.getString(MapRender.class, "MapRender.previewTooltip"));
+        previewButton.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                setPreviewMode(previewButton.isSelected());
+            }
+        });
+        toolBar.add(previewButton);
+
         return toolBar;
     }
 
@@ -273,13 +332,18 @@ public class MapRender extends JPanel implements RenderSymbolInterface, PrefUpda
         case POINT:
         case LINE:
         case POLYGON:
-            try {
-                wmsEnvVarValues.setMapBounds(featureList.getFeatures().getBounds());
-            } catch (IOException e) {
-                ConsoleManager.getInstance().exception(MapRender.class, e);
+        {
+            // Nothing is drawn until the bounds, and in preview mode the sample, have been created
+            FeatureSource<SimpleFeatureType, SimpleFeature> renderFeatureList = getRenderFeatureList();
+
+            wmsEnvVarValues.setMapBounds(dataBounds);
+
+            if(renderFeatureList != null)
+            {
+                mapContent.addLayer(new FeatureLayer(renderFeatureList, (org.geotools.styling.Style) style));
             }
-            mapContent.addLayer(new FeatureLayer(featureList, (org.geotools.styling.Style) style));
-            break;
+        }
+        break;
         default:
             break;
         }
@@ -312,6 +376,14 @@ public class MapRender extends JPanel implements RenderSymbolInterface, PrefUpda
         mapPane.setBackground(backgroundColour);
     }
 
+    /* (non-Javadoc)
+     * @see com.sldeditor.common.preferences.iface.PrefUpdateInterface#previewFeatureCapUpdated(int)
+     */
+    @Override
+    public void previewFeatureCapUpdated(int previewFeatureCap) {
+        setPreviewFeatureCap(previewFeatureCap);
+    }
+
     /**
      * Data source loaded.
      *
@@ -326,6 +398,11 @@ public class MapRender extends JPanel implements RenderSymbolInterface, PrefUpda
         featureList = DataSourceFactory.getDataSource().getFeatureSource();
         gridCoverage = DataSourceFactory.getDataSource().getGridCoverageReader();
 
+        // Bounds and sample are calculated once per data source connection
+        dataBounds = null;
+        dataBoundsLoaded = false;
+        resetSample();
+
         CardLayout cardLayout = (CardLayout) mapPanel.getLayout();
 
         if((geometryType == GeometryTypeEnum.UNKNOWN) || !isConnectedToDataSourceFlag)
@@ -340,6 +417,147 @@ public class MapRender extends JPanel implements RenderSymbolInterface, PrefUpda
         }
     }
 
+    /**
+     * Gets the feature list to render, a sample of the data source in preview mode.
+     * <p>The data bounds and the sample are created on a background thread, null is returned
+     * until they are available and the style is rendered again once they are.
+     *
+     * @return the feature list to render, null if the bounds or sample are being created
+     */
+    private FeatureSource<SimpleFeatureType, SimpleFeature> getRenderFeatureList()
+    {
+        if(featureList == null)
+        {
+            return null;
+        }
+
+        if(!dataBoundsLoaded || (previewMode && (sampledFeatureList == null)))
+        {
+            startSampling();
+            return null;
+        }
+        return previewMode ? sampledFeatureList : featureList;
+    }
+
+    /**
+     * Start calculating the data bounds and, in preview mode, creating the sampled feature list
+     * on a background thread if they are not already being created.
+     */
+    private void startSampling()
+    {
+        if(samplerWorker != null)
+        {
+            return;
+        }
+
+        final FeatureSource<SimpleFeatureType, SimpleFeature> source = featureList;
+        final boolean boundsLoaded = dataBoundsLoaded;
+        final ReferencedEnvelope knownBounds = dataBounds;
+        final boolean createSample = previewMode;
+        final int maxFeatures = previewFeatureCap;
+
+        samplerWorker = new SwingWorker<SampleResult, Void>() {
+            @Override
+            protected SampleResult doInBackground() throws IOException {
+                SampleResult result = new SampleResult();
+
+                result.bounds = boundsLoaded ? knownBounds : StyleRenderer.getDataBounds(source);
+                if(createSample)
+                {
+                    result.sampledFeatureList = FeatureSampler.sample(source, result.bounds, maxFeatures);
+                }
+                return result;
+            }
+
+            @Override
+            protected void done() {
+                // Ignore the result if the data source or feature cap has changed
+                if(samplerWorker != this)
+                {
+                    return;
+                }
+                samplerWorker = null;
+
+                // The bounds are not calculated again if they failed, the data source is rendered without them
+                dataBoundsLoaded = true;
+
+                try {
+                    SampleResult result = get();
+
+                    dataBounds = result.bounds;
+                    if(createSample)
+                    {
+                        sampledFeatureList = result.sampledFeatureList;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (ExecutionException e) {
+                    ConsoleManager.getInstance().exception(MapRender.class, e);
+                    if(createSample)
+                    {
+                        sampledFeatureList = source;
+                    }
+                }
+                internalRenderStyle();
+            }
+        };
+        samplerWorker.execute();
+    }
+
+    /**
+     * Discard the sampled feature list and stop any sample being created.
+     */
+    private void resetSample()
+    {
+        if(samplerWorker != null)
+        {
+            samplerWorker.cancel(true);
+            samplerWorker = null;
+        }
+        sampledFeatureList = null;
+    }
+
+    /**
+     * Sets the preview mode, when set a spatially stratified sample of the data source is rendered
+     * and geometries are generalised more aggressively for the current zoom level.
+     *
+     * @param previewMode the new preview mode
+     */
+    public void setPreviewMode(boolean previewMode)
+    {
+        this.previewMode = previewMode;
+
+        GTRenderer renderer = mapPane.getRenderer();
+        if(renderer instanceof StreamingRenderer)
+        {
+            ((StreamingRenderer) renderer).setGeneralizationDistance(previewMode ? PREVIEW_GENERALIZATION_DISTANCE : DEFAULT_GENERALIZATION_DISTANCE);
+        }
+
+        internalRenderStyle();
+    }
+
+    /**
+     * Sets the maximum number of features rendered in preview mode,
+     * called when the preference is updated.
+     *
+     * @param previewFeatureCap the new preview feature cap
+     */
+    private void setPreviewFeatureCap(int previewFeatureCap)
+    {
+        if(this.previewFeatureCap != previewFeatureCap)
+        {
+            this.previewFeatureCap = previewFeatureCap;
+            resetSample();
+
+            // Restart the sampler if it was stopped before the bounds were calculated
+            if(previewMode || ((featureList != null) && !dataBoundsLoaded))
+            {
+                internalRenderStyle();
+            }
+        }
+    }
+
     /**
      * Mouse wheel moved.
      *
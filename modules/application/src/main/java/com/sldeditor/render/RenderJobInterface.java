@@ -0,0 +1,39 @@
+/*
+ * SLD Editor - The Open Source Java SLD Editor
+ *
+ * Copyright (C) 2016, SCISYS UK Limited
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sldeditor.render;
+
+import java.awt.image.BufferedImage;
+
+import org.geotools.renderer.GTRenderer;
+
+/**
+ * The interface describing a single render job executed by the RenderWorker.
+ * 
+ * @author Robert Ward (SCISYS)
+ */
+public interface RenderJobInterface {
+
+    /**
+     * Render the job using the supplied renderer.
+     *
+     * @param renderer the renderer, owned by the render worker thread
+     * @return the rendered image
+     */
+    BufferedImage render(GTRenderer renderer);
+}
@@ -20,36 +20,21 @@ package com.sldeditor.render;
 
 import java.awt.Color;
 import java.awt.Dimension;
-import java.awt.Font;
 import java.awt.Graphics;
-import java.awt.Graphics2D;
 import java.awt.LayoutManager;
 import java.awt.Rectangle;
-import java.awt.RenderingHints;
 import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
-import javax.measure.unit.NonSI;
-import javax.measure.unit.Unit;
 import javax.swing.JPanel;
 
 import org.geotools.coverage.grid.io.AbstractGridCoverage2DReader;
 import org.geotools.data.FeatureSource;
 import org.geotools.geometry.jts.ReferencedEnvelope;
-import org.geotools.map.FeatureLayer;
-import org.geotools.map.GridReaderLayer;
-import org.geotools.map.Layer;
-import org.geotools.map.MapContent;
-import org.geotools.referencing.crs.DefaultGeographicCRS;
 import org.geotools.renderer.GTRenderer;
-import org.geotools.renderer.label.LabelCacheImpl;
-import org.geotools.renderer.lite.StreamingRenderer;
-import org.geotools.resources.CRSUtilities;
 import org.geotools.styling.Style;
 import org.geotools.styling.StyledLayerDescriptor;
 import org.opengis.feature.simple.SimpleFeature;
@@ -75,29 +60,11 @@ import com.sldeditor.ui.render.RuleRenderOptions;
  *
  * @author Robert Ward (SCISYS)
  */
-public class RenderPanelImpl extends JPanel implements RenderSymbolInterface, PrefUpdateInterface, DataSourceUpdatedInterface
+public class RenderPanelImpl extends JPanel implements RenderSymbolInterface, PrefUpdateInterface, DataSourceUpdatedInterface, RenderWorkerUpdateInterface
 {
     /** The Constant serialVersionUID. */
     private static final long serialVersionUID = 1L;
 
-    /** The Constant BOUNDINGBOX_BUFFER_ANGLE. */
-    private static final double BOUNDINGBOX_BUFFER_ANGLE = 0.1;
-
-    /** The Constant BOUNDINGBOX_BUFFER_LINEAR. */
-    private static final double BOUNDINGBOX_BUFFER_LINEAR = 1000.0;
-
-    /** The Constant BOUNDINGBOX_BUFFER_MIN_ANGLE. */
-    private static final double BOUNDINGBOX_BUFFER_MIN_ANGLE = 1.0;
-
-    /** The Constant BOUNDINGBOX_BUFFER_MIN_LINEAR. */
-    private static final double BOUNDINGBOX_BUFFER_MIN_LINEAR = 1000.0;
-
-    /** The Constant BOUNDINGBOX_BUFFER_THRESHOLD_LINEAR. */
-    private static final double BOUNDINGBOX_BUFFER_THRESHOLD_LINEAR = 1.0;
-
-    /** The Constant BOUNDINGBOX_BUFFER_THRESHOLD_ANGLE. */
-    private static final double BOUNDINGBOX_BUFFER_THRESHOLD_ANGLE = 0.001;
-
     /** The Constant NO_DATA_SOURCE. */
     private static final String NO_DATA_SOURCE = Localisation.getString(RenderPanelImpl.class, "RenderPanelImpl.noDataSource");
 
@@ -131,8 +98,11 @@ public class RenderPanelImpl extends JPanel implements RenderSymbolInterface, Pr
     /** The data loaded. */
     private boolean dataLoaded = false;
 
-    /** The vector renderer. */
-    private GTRenderer vectorRenderer = new StreamingRenderer();
+    /** The render worker, renders the symbol off the event dispatch thread. */
+    private RenderWorker renderWorker = new RenderWorker(this);
+
+    /** The cache of rendered preview images. */
+    private RenderPreviewCache previewCache = new RenderPreviewCache();
 
     /** The geometry type. */
     private GeometryTypeEnum geometryType = GeometryTypeEnum.UNKNOWN;
@@ -221,31 +191,52 @@ public class RenderPanelImpl extends JPanel implements RenderSymbolInterface, Pr
     }
 
     /**
-     * Render symbol.
+     * Render symbol on the render worker thread.
      *
      * @param style the style
      */
-    private void renderSymbol(Style style)
+    private void renderSymbol(final Style style)
     {
         if(!dataLoaded)
         {
             createFeature();
         }
 
-        Rectangle imageSize = new Rectangle(0, 0, ST_WIDTH, this.getHeight());
+        final Rectangle imageSize = new Rectangle(0, 0, ST_WIDTH, this.getHeight());
+        final boolean antiAlias = useAntiAlias;
 
         switch(geometryType)
         {
         case RASTER:
-            renderRasterMap(imageSize, style, DPI);
-            break;
+        {
+            final AbstractGridCoverage2DReader gridCoverage = DataSourceFactory.getDataSource().getGridCoverageReader();
+
+            submitRender(style, imageSize, new RenderJobInterface() {
+                @Override
+                public BufferedImage render(GTRenderer renderer) {
+                    return StyleRenderer.renderRasterMap(renderer, gridCoverage, imageSize, createStyleList(style), DPI, antiAlias);
+                }
+            });
+        }
+        break;
         case POINT:
         case LINE:
         case POLYGON:
-            renderVectorMap(featureList, imageSize, style, DPI);
-            break;
+        {
+            final FeatureSource<SimpleFeatureType, SimpleFeature> features = featureList;
+            final ReferencedEnvelope bounds = updateWMSEnvVarValues(features);
+
+            submitRender(style, imageSize, new RenderJobInterface() {
+                @Override
+                public BufferedImage render(GTRenderer renderer) {
+                    return StyleRenderer.renderVectorMap(renderer, features, bounds, imageSize, createStyleList(style), DPI, antiAlias);
+                }
+            });
+        }
+        break;
         default:
             validSymbol = false;
+            renderWorker.cancel();
             break;
         }
 
@@ -253,154 +244,111 @@ public class RenderPanelImpl extends JPanel implements RenderSymbolInterface, Pr
     }
 
     /**
-     * Render raster map.
+     * Submit a render job to the render worker.
+     * <p>The preview cache key is created on the render worker thread because encoding
+     * the style is expensive, a cached image is returned without rendering. Only images
+     * from renders that were not stopped are added to the cache.
      *
-     * @param imageSize the image size
      * @param style the style
-     * @param dpi the dpi
+     * @param imageSize the image size
+     * @param job the job that renders the preview
      */
-    private void renderRasterMap(Rectangle imageSize, Style style, int dpi) {
-        DataSourceInterface dataSource = DataSourceFactory.getDataSource();
-        AbstractGridCoverage2DReader gridCoverage = dataSource.getGridCoverageReader();
-
-        GridReaderLayer rasterLayer = null;
-        List<Layer> layerList = new ArrayList<Layer>();
-        if(style != null)
-        {
-            rasterLayer = new GridReaderLayer(gridCoverage, style);
-            layerList.add(rasterLayer);
-        }
-
-        boolean hasGeometry = true;
-
-        MapContent map = new MapContent();
-        map.addLayers(layerList);
-        try {
-            Map<Object,Object> hints = new HashMap<Object,Object>();
-            hints.put(StreamingRenderer.DPI_KEY, dpi);
-            // This ensures all the labelling is cleared
-            hints.put(StreamingRenderer.LABEL_CACHE_KEY, new LabelCacheImpl());
-
-            vectorRenderer.setRendererHints(hints);
-            vectorRenderer.setMapContent(map);
-            BufferedImage image = new BufferedImage(imageSize.width, imageSize.height, BufferedImage.TYPE_INT_ARGB);
-            Graphics2D graphics = image.createGraphics();
-
-            if(useAntiAlias)
-            {
-                graphics.setRenderingHints(new RenderingHints(
-                        RenderingHints.KEY_ANTIALIASING,
-                        RenderingHints.VALUE_ANTIALIAS_ON));
-            }
+    private void submitRender(final Style style, final Rectangle imageSize, final RenderJobInterface job)
+    {
+        final GeometryTypeEnum keyGeometryType = geometryType;
+        final boolean keyAntiAlias = useAntiAlias;
+        final int backgroundRGB = (backgroundColour == null) ? 0 : backgroundColour.getRGB();
+        final long dataSourceRevision = DataSourceFactory.getDataSource().getRevision();
+
+        renderWorker.submit(new RenderJobInterface() {
+            @Override
+            public BufferedImage render(GTRenderer renderer) {
+                RenderPreviewKey key = RenderPreviewKey.create(style,
+                        keyGeometryType,
+                        keyAntiAlias,
+                        backgroundRGB,
+                        dataSourceRevision,
+                        imageSize.width,
+                        imageSize.height);
+
+                BufferedImage image = previewCache.get(key);
+                if(image == null)
+                {
+                    image = job.render(renderer);
 
-            try {
-                if(!hasGeometry){
-                    graphics.setColor(Color.BLACK);
-                    int y = imageSize.height / 2;
-                    Font font = new Font(Font.SERIF,Font.BOLD, 14);
-                    graphics.setFont(font);
-                    graphics.drawString(Localisation.getString(RenderPanelImpl.class, "RenderPanelImpl.error1"), 10, y - 14);
-                }
-                else {
-                    if(rasterLayer != null)
+                    if((image != null) && !renderWorker.isStopped(renderer))
                     {
-                        vectorRenderer.paint(graphics, imageSize, rasterLayer.getBounds());
+                        previewCache.put(key, image);
                     }
-
-                    this.bImage = image;
                 }
+                return image;
             }
-            finally {
-                graphics.dispose();
-            }
-        }
-        finally {
-            map.dispose();
+        });
+    }
+
+    /* (non-Javadoc)
+     * @see com.sldeditor.render.RenderWorkerUpdateInterface#renderComplete(java.awt.image.BufferedImage)
+     */
+    @Override
+    public void renderComplete(BufferedImage image) {
+        if(image != null)
+        {
+            this.bImage = image;
         }
+        repaint();
     }
 
     /**
-     * Render vector map.
+     * Calculate the map bounds of the features and update the WMS environment variables,
+     * called on the event dispatch thread before the render job is submitted.
      *
-     * @param features the results
-     * @param imageSize the image size
-     * @param style the style
-     * @param dpi the dpi
+     * @param features the features
+     * @return the map bounds, null if there are no features
      */
-    private void renderVectorMap(FeatureSource<SimpleFeatureType, SimpleFeature> features,
-            Rectangle imageSize,
-            Style style,
-            int dpi)
+    private ReferencedEnvelope updateWMSEnvVarValues(FeatureSource<SimpleFeatureType, SimpleFeature> features)
     {
-        List<Layer> layerList = new ArrayList<Layer>();
-        if(style != null)
-        {
-            FeatureLayer featureLayer = new FeatureLayer(features, style);
-            layerList.add(featureLayer);
-        }
-
-        boolean hasGeometry = false;
         ReferencedEnvelope bounds = null;
 
         if(features != null)
         {
-            bounds = calculateBounds();
+            bounds = calculateBounds(features);
 
             wmsEnvVarValues.setMapBounds(bounds);
 
             EnvironmentVariableManager.getInstance().setWMSEnvVarValues(wmsEnvVarValues);
-
-            if(features.getSchema() != null)
-            {
-                hasGeometry = (features.getSchema().getGeometryDescriptor() != null);
-            }
         }
+        return bounds;
+    }
 
-        internal_renderMap(layerList, bounds, imageSize, hasGeometry, dpi);
+    /**
+     * Creates the list of styles to render.
+     *
+     * @param style the style
+     * @return the style list
+     */
+    private static List<Style> createStyleList(Style style)
+    {
+        List<Style> styleList = new ArrayList<Style>();
+        if(style != null)
+        {
+            styleList.add(style);
+        }
+        return styleList;
     }
 
     /**
      * Calculate bounds.
      *
+     * @param features the features
      * @return the referenced envelope
      */
-    private ReferencedEnvelope calculateBounds() {
+    private ReferencedEnvelope calculateBounds(FeatureSource<SimpleFeatureType, SimpleFeature> features) {
         ReferencedEnvelope bounds = null;
 
         try {
-            bounds = featureList.getBounds();
-
-            if(bounds == null)
-            {
-                // It could be that the above call was too costly!
-                bounds = featureList.getFeatures().getBounds();
-            }
-
-            if(bounds.getCoordinateReferenceSystem() == null)
-            {
-                // We need a coordinate reference system set otherwise transformations fail to render
-                bounds = ReferencedEnvelope.create(bounds, DefaultGeographicCRS.WGS84);
-            }
-
-            if(bounds != null)
-            {
-                Unit<?> unit = CRSUtilities.getUnit(bounds.getCoordinateReferenceSystem().getCoordinateSystem());
-
-                double width;
-                double height;
-                if(unit == NonSI.DEGREE_ANGLE)
-                {
-                    width = (bounds.getWidth() < BOUNDINGBOX_BUFFER_THRESHOLD_ANGLE) ? BOUNDINGBOX_BUFFER_MIN_ANGLE : (bounds.getWidth() * BOUNDINGBOX_BUFFER_ANGLE);
-                    height = (bounds.getHeight() < BOUNDINGBOX_BUFFER_THRESHOLD_ANGLE) ? BOUNDINGBOX_BUFFER_MIN_ANGLE : (bounds.getHeight() * BOUNDINGBOX_BUFFER_ANGLE);
-                }
-                else
-                {
-                    width = (bounds.getWidth() < BOUNDINGBOX_BUFFER_THRESHOLD_LINEAR) ? BOUNDINGBOX_BUFFER_MIN_LINEAR : (bounds.getWidth() * BOUNDINGBOX_BUFFER_LINEAR);
-                    height = (bounds.getHeight() < BOUNDINGBOX_BUFFER_THRESHOLD_LINEAR) ? BOUNDINGBOX_BUFFER_MIN_LINEAR : (bounds.getHeight() * BOUNDINGBOX_BUFFER_LINEAR);
-                }
+            bounds = StyleRenderer.getDataBounds(features);
 
-                bounds.expandBy(width, height);
-            }
+            StyleRenderer.expandBounds(bounds);
         }
         catch (IOException e) {
             ConsoleManager.getInstance().exception(this, e);
@@ -408,64 +356,6 @@ public class RenderPanelImpl extends JPanel implements RenderSymbolInterface, Pr
         return bounds;
     }
 
-    /**
-     * Internal_render map.
-     *
-     * @param layers the layers
-     * @param bounds the bounds
-     * @param imageSize the image size
-     * @param hasGeometry the has geometry
-     * @param dpi the dpi
-     */
-    private void internal_renderMap(List<Layer> layers,
-            ReferencedEnvelope bounds,
-            Rectangle imageSize,
-            boolean hasGeometry,
-            int dpi)
-    {
-        MapContent map = new MapContent();
-        map.addLayers(layers);
-        try {
-            Map<Object,Object> hints = new HashMap<Object,Object>();
-            hints.put(StreamingRenderer.DPI_KEY, dpi);
-            // This ensures all the labelling is cleared
-            hints.put(StreamingRenderer.LABEL_CACHE_KEY, new LabelCacheImpl());
-
-            vectorRenderer.setRendererHints(hints);
-            vectorRenderer.setMapContent(map);
-            BufferedImage image = new BufferedImage(imageSize.width, imageSize.height, BufferedImage.TYPE_INT_ARGB);
-            Graphics2D graphics = image.createGraphics();
-
-            if(useAntiAlias)
-            {
-                graphics.setRenderingHints(new RenderingHints(
-                        RenderingHints.KEY_ANTIALIASING,
-                        RenderingHints.VALUE_ANTIALIAS_ON));
-            }
-
-            try {
-                if(!hasGeometry){
-                    graphics.setColor(Color.BLACK);
-                    int y = imageSize.height / 2;
-                    Font font = new Font(Font.SERIF,Font.BOLD, 14);
-                    graphics.setFont(font);
-                    graphics.drawString(Localisation.getString(RenderPanelImpl.class, "RenderPanelImpl.error1"), 10, y - 14);
-                }
-                else {
-                    vectorRenderer.paint(graphics, imageSize, bounds);
-
-                    this.bImage = image;
-                }
-            }
-            finally {
-                graphics.dispose();
-            }
-        }
-        finally {
-            map.dispose();
-        }
-    }
-
     /**
      * Creates the feature.
      */
@@ -516,6 +406,7 @@ public class RenderPanelImpl extends JPanel implements RenderSymbolInterface, Pr
         }
         else
         {
+            renderWorker.cancel();
             repaint();
         }
     }
@@ -558,12 +449,29 @@ public class RenderPanelImpl extends JPanel implements RenderSymbolInterface, Pr
     public void dataSourceLoaded(GeometryTypeEnum geometryType, boolean isConnectedToDataSourceFlag) {
         this.geometryType = geometryType;
 
+        // The render in progress uses the previous data source
+        renderWorker.cancel();
+
         if(dataLoaded)
         {
             dataLoaded = false;
         }
     }
 
+    /**
+     * Cancel any render in progress when the panel is removed from its parent,
+     * the image would never be displayed.
+     */
+    /* (non-Javadoc)
+     * @see javax.swing.JComponent#removeNotify()
+     */
+    @Override
+    public void removeNotify() {
+        renderWorker.cancel();
+
+        super.removeNotify();
+    }
+
     /**
      * Gets the rule render options.
      *
@@ -584,4 +492,30 @@ public class RenderPanelImpl extends JPanel implements RenderSymbolInterface, Pr
         this.backgroundColour = backgroundColour;
     }
 
+    /* (non-Javadoc)
+     * @see com.sldeditor.common.preferences.iface.PrefUpdateInterface#previewFeatureCapUpdated(int)
+     */
+    @Override
+    public void previewFeatureCapUpdated(int previewFeatureCap) {
+        // Symbol previews render example features only
+    }
+
+    /**
+     * Gets the render worker, allows the dropped and cancelled render counts to be read.
+     *
+     * @return the render worker
+     */
+    public RenderWorker getRenderWorker() {
+        return renderWorker;
+    }
+
+    /**
+     * Gets the preview cache, allows the hit, miss and eviction counts to be read.
+     *
+     * @return the preview cache
+     */
+    public RenderPreviewCache getPreviewCache() {
+        return previewCache;
+    }
+
 }
@@ -0,0 +1,218 @@
+/*
+ * SLD Editor - The Open Source Java SLD Editor
+ *
+ * Copyright (C) 2016, SCISYS UK Limited
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sldeditor.render;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Class that caches rendered symbol preview images.
+ * <p>Entries are evicted in least recently used order once either the maximum number
+ * of entries or the maximum number of bytes held is exceeded.
+ * 
+ * @author Robert Ward (SCISYS)
+ */
+public class RenderPreviewCache {
+
+    /** The Constant DEFAULT_MAX_ENTRIES. */
+    private static final int DEFAULT_MAX_ENTRIES = 100;
+
+    /** The Constant DEFAULT_MAX_BYTES. */
+    private static final long DEFAULT_MAX_BYTES = 32L * 1024L * 1024L;
+
+    /** The cached images, in access order. */
+    private Map<RenderPreviewKey, BufferedImage> imageMap = new LinkedHashMap<RenderPreviewKey, BufferedImage>(16, 0.75f, true);
+
+    /** The maximum number of entries. */
+    private int maxEntries = DEFAULT_MAX_ENTRIES;
+
+    /** The maximum number of bytes. */
+    private long maxBytes = DEFAULT_MAX_BYTES;
+
+    /** The number of bytes currently held. */
+    private long currentBytes = 0;
+
+    /** The hit count. */
+    private long hitCount = 0;
+
+    /** The miss count. */
+    private long missCount = 0;
+
+    /** The eviction count. */
+    private long evictionCount = 0;
+
+    /**
+     * Instantiates a new render preview cache with default limits.
+     */
+    public RenderPreviewCache()
+    {
+    }
+
+    /**
+     * Instantiates a new render preview cache.
+     *
+     * @param maxEntries the maximum number of entries
+     * @param maxBytes the maximum number of bytes
+     */
+    public RenderPreviewCache(int maxEntries, long maxBytes)
+    {
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Gets the cached image.
+     *
+     * @param key the key
+     * @return the image, null if not cached
+     */
+    public synchronized BufferedImage get(RenderPreviewKey key)
+    {
+        if(key == null)
+        {
+            return null;
+        }
+
+        BufferedImage image = imageMap.get(key);
+        if(image == null)
+        {
+            missCount ++;
+        }
+        else
+        {
+            hitCount ++;
+        }
+        return image;
+    }
+
+    /**
+     * Store an image in the cache, evicting the least recently used entries if necessary.
+     *
+     * @param key the key
+     * @param image the image
+     */
+    public synchronized void put(RenderPreviewKey key, BufferedImage image)
+    {
+        if((key == null) || (image == null))
+        {
+            return;
+        }
+
+        long imageBytes = getImageBytes(image);
+        if(imageBytes > maxBytes)
+        {
+            return;
+        }
+
+        BufferedImage previous = imageMap.put(key, image);
+        if(previous != null)
+        {
+            currentBytes -= getImageBytes(previous);
+        }
+        currentBytes += imageBytes;
+
+        Iterator<Map.Entry<RenderPreviewKey, BufferedImage>> it = imageMap.entrySet().iterator();
+        while(((imageMap.size() > maxEntries) || (currentBytes > maxBytes)) && it.hasNext())
+        {
+            Map.Entry<RenderPreviewKey, BufferedImage> eldest = it.next();
+            if(eldest.getKey().equals(key))
+            {
+                continue;
+            }
+            currentBytes -= getImageBytes(eldest.getValue());
+            it.remove();
+            evictionCount ++;
+        }
+    }
+
+    /**
+     * Clear the cache, the statistics are not reset.
+     */
+    public synchronized void clear()
+    {
+        imageMap.clear();
+        currentBytes = 0;
+    }
+
+    /**
+     * Gets the number of bytes used by the image.
+     *
+     * @param image the image
+     * @return the image bytes
+     */
+    private static long getImageBytes(BufferedImage image)
+    {
+        DataBuffer dataBuffer = image.getRaster().getDataBuffer();
+
+        return ((long) dataBuffer.getSize() * dataBuffer.getNumBanks() * DataBuffer.getDataTypeSize(dataBuffer.getDataType())) / 8;
+    }
+
+    /**
+     * Gets the number of cached images.
+     *
+     * @return the size
+     */
+    public synchronized int getSize()
+    {
+        return imageMap.size();
+    }
+
+    /**
+     * Gets the number of bytes held by the cached images.
+     *
+     * @return the current bytes
+     */
+    public synchronized long getCurrentBytes()
+    {
+        return currentBytes;
+    }
+
+    /**
+     * Gets the hit count.
+     *
+     * @return the hit count
+     */
+    public synchronized long getHitCount()
+    {
+        return hitCount;
+    }
+
+    /**
+     * Gets the miss count.
+     *
+     * @return the miss count
+     */
+    public synchronized long getMissCount()
+    {
+        return missCount;
+    }
+
+    /**
+     * Gets the eviction count.
+     *
+     * @return the eviction count
+     */
+    public synchronized long getEvictionCount()
+    {
+        return evictionCount;
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ * SLD Editor - The Open Source Java SLD Editor
+ *
+ * Copyright (C) 2016, SCISYS UK Limited
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sldeditor.render;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import javax.xml.transform.TransformerException;
+
+import org.geotools.styling.SLDTransformer;
+import org.geotools.styling.Style;
+
+import com.sldeditor.common.console.ConsoleManager;
+import com.sldeditor.datasource.impl.GeometryTypeEnum;
+
+/**
+ * Class that identifies a rendered symbol preview stored in the RenderPreviewCache.
+ * <p>The style is held as a digest of its canonical encoded form so that two styles
+ * that encode to the same SLD produce the same key without the key holding the SLD.
+ * <p>Encoding the style is expensive so keys should be created off the event dispatch thread.
+ * 
+ * @author Robert Ward (SCISYS)
+ */
+public class RenderPreviewKey {
+
+    /** The Constant DIGEST_ALGORITHM. */
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+
+    /** The digest of the encoded style. */
+    private String styleDigest = null;
+
+    /** The geometry type. */
+    private GeometryTypeEnum geometryType = GeometryTypeEnum.UNKNOWN;
+
+    /** The use anti alias flag. */
+    private boolean useAntiAlias = false;
+
+    /** The background colour as an RGB value. */
+    private int backgroundRGB = 0;
+
+    /** The data source revision. */
+    private long dataSourceRevision = 0;
+
+    /** The image width. */
+    private int width = 0;
+
+    /** The image height. */
+    private int height = 0;
+
+    /** The hash code, calculated once. */
+    private int hashCode = 0;
+
+    /**
+     * Instantiates a new render preview key.
+     *
+     * @param styleDigest the digest of the encoded style
+     * @param geometryType the geometry type
+     * @param useAntiAlias the use anti alias flag
+     * @param backgroundRGB the background colour RGB value
+     * @param dataSourceRevision the data source revision
+     * @param width the image width
+     * @param height the image height
+     */
+    public RenderPreviewKey(String styleDigest,
+            GeometryTypeEnum geometryType,
+            boolean useAntiAlias,
+            int backgroundRGB,
+            long dataSourceRevision,
+            int width,
+            int height)
+    {
+        this.styleDigest = styleDigest;
+        this.geometryType = geometryType;
+        this.useAntiAlias = useAntiAlias;
+        this.backgroundRGB = backgroundRGB;
+        this.dataSourceRevision = dataSourceRevision;
+        this.width = width;
+        this.height = height;
+
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + ((styleDigest == null) ? 0 : styleDigest.hashCode());
+        result = prime * result + ((geometryType == null) ? 0 : geometryType.hashCode());
+        result = prime * result + (useAntiAlias ? 1231 : 1237);
+        result = prime * result + backgroundRGB;
+        result = prime * result + (int) (dataSourceRevision ^ (dataSourceRevision >>> 32));
+        result = prime * result + width;
+        result = prime * result + height;
+        this.hashCode = result;
+    }
+
+    /**
+     * Creates the key for a style, returns null if the style cannot be encoded.
+     *
+     * @param style the style
+     * @param geometryType the geometry type
+     * @param useAntiAlias the use anti alias flag
+     * @param backgroundRGB the background colour RGB value
+     * @param dataSourceRevision the data source revision
+     * @param width the image width
+     * @param height the image height
+     * @return the render preview key
+     */
+    public static RenderPreviewKey create(Style style,
+            GeometryTypeEnum geometryType,
+            boolean useAntiAlias,
+            int backgroundRGB,
+            long dataSourceRevision,
+            int width,
+            int height)
+    {
+        if(style == null)
+        {
+            return null;
+        }
+
+        SLDTransformer transformer = new SLDTransformer();
+        String encodedStyle = null;
+        try {
+            encodedStyle = transformer.transform(style);
+        } catch (TransformerException e) {
+            ConsoleManager.getInstance().exception(RenderPreviewKey.class, e);
+            return null;
+        }
+
+        String styleDigest = createDigest(encodedStyle);
+        if(styleDigest == null)
+        {
+            return null;
+        }
+
+        return new RenderPreviewKey(styleDigest, geometryType, useAntiAlias, backgroundRGB, dataSourceRevision, width, height);
+    }
+
+    /**
+     * Creates the hex encoded digest of the encoded style.
+     *
+     * @param encodedStyle the encoded style
+     * @return the digest, null if the digest could not be created
+     */
+    private static String createDigest(String encodedStyle)
+    {
+        try
+        {
+            MessageDigest digest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+            digest.update(encodedStyle.getBytes(StandardCharsets.UTF_8));
+
+            StringBuilder sb = new StringBuilder();
+            for(byte b : digest.digest())
+            {
+                sb.append(String.format("%02x", b));
+            }
+            return sb.toString();
+        }
+        catch(NoSuchAlgorithmException e)
+        {
+            ConsoleManager.getInstance().exception(RenderPreviewKey.class, e);
+        }
+        return null;
+    }
+
+    /* (non-Javadoc)
+     * @see java.lang.Object#hashCode()
+     */
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    /* (non-Javadoc)
+     * @see java.lang.Object#equals(java.lang.Object)
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null) {
+            return false;
+        }
+        if (getClass() != obj.getClass()) {
+            return false;
+        }
+        RenderPreviewKey other = (RenderPreviewKey) obj;
+        if (hashCode != other.hashCode) {
+            return false;
+        }
+        if (geometryType != other.geometryType) {
+            return false;
+        }
+        if (useAntiAlias != other.useAntiAlias) {
+            return false;
+        }
+        if (backgroundRGB != other.backgroundRGB) {
+            return false;
+        }
+        if (dataSourceRevision != other.dataSourceRevision) {
+            return false;
+        }
+        if ((width != other.width) || (height != other.height)) {
+            return false;
+        }
+        if (styleDigest == null) {
+            return (other.styleDigest == null);
+        }
+        return styleDigest.equals(other.styleDigest);
+    }
+}
@@ -0,0 +1,311 @@
+/*
+ * SLD Editor - The Open Source Java SLD Editor
+ *
+ * Copyright (C) 2016, SCISYS UK Limited
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sldeditor.render;
+
+import java.awt.image.BufferedImage;
+
+import javax.swing.SwingUtilities;
+
+import org.geotools.renderer.GTRenderer;
+import org.geotools.renderer.lite.StreamingRenderer;
+
+import com.sldeditor.common.console.ConsoleManager;
+
+/**
+ * Class that renders symbols on a dedicated background thread.
+ * <p>
+ * Only the most recently submitted job is ever rendered, any job that is
+ * still waiting when a newer one arrives is dropped. If a job is being rendered
+ * when a newer one arrives the in-flight render is stopped. The image of the
+ * latest job is passed to the RenderWorkerUpdateInterface on the event dispatch thread.
+ * 
+ * @author Robert Ward (SCISYS)
+ */
+public class RenderWorker implements Runnable {
+
+    /** The lock protecting the job state. */
+    private final Object lock = new Object();
+
+    /** The parent to inform when a render has completed. */
+    private RenderWorkerUpdateInterface parent = null;
+
+    /** The job waiting to be rendered. */
+    private RenderJobInterface pendingJob = null;
+
+    /** The generation of the most recently submitted job. */
+    private long generation = 0;
+
+    /** The renderer currently painting, null if idle. */
+    private GTRenderer activeRenderer = null;
+
+    /** The flag indicating whether the active render has been stopped. */
+    private boolean activeRendererStopped = false;
+
+    /** The flag indicating whether the worker has been shut down. */
+    private boolean shutdown = false;
+
+    /** The number of jobs replaced before they were started. */
+    private long droppedCount = 0;
+
+    /** The number of in-flight renders that were stopped. */
+    private long cancelledCount = 0;
+
+    /** The number of renders that completed and were delivered. */
+    private long completedCount = 0;
+
+    /**
+     * Instantiates a new render worker.
+     *
+     * @param parent the parent
+     */
+    public RenderWorker(RenderWorkerUpdateInterface parent)
+    {
+        this.parent = parent;
+
+        Thread thread = new Thread(this, "RenderWorker");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Submit a render job, replacing any job that has not yet started.
+     *
+     * @param job the job
+     */
+    public void submit(RenderJobInterface job)
+    {
+        if(job == null)
+        {
+            return;
+        }
+
+        synchronized(lock)
+        {
+            if(pendingJob != null)
+            {
+                droppedCount ++;
+            }
+            pendingJob = job;
+            generation ++;
+
+            if((activeRenderer != null) && !activeRendererStopped)
+            {
+                activeRenderer.stopRendering();
+                activeRendererStopped = true;
+                cancelledCount ++;
+            }
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Cancel any pending or in-flight job so that its image is never delivered.
+     */
+    public void cancel()
+    {
+        synchronized(lock)
+        {
+            if(pendingJob != null)
+            {
+                droppedCount ++;
+                pendingJob = null;
+            }
+            generation ++;
+
+            if((activeRenderer != null) && !activeRendererStopped)
+            {
+                activeRenderer.stopRendering();
+                activeRendererStopped = true;
+                cancelledCount ++;
+            }
+        }
+    }
+
+    /**
+     * Shutdown the worker thread, any pending job is discarded.
+     */
+    public void shutdown()
+    {
+        synchronized(lock)
+        {
+            shutdown = true;
+            pendingJob = null;
+            if(activeRenderer != null)
+            {
+                activeRenderer.stopRendering();
+            }
+            lock.notifyAll();
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see java.lang.Runnable#run()
+     */
+    @Override
+    public void run() {
+        for(;;)
+        {
+            RenderJobInterface job = null;
+            GTRenderer renderer = new StreamingRenderer();
+            long jobGeneration;
+
+            synchronized(lock)
+            {
+                while((pendingJob == null) && !shutdown)
+                {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+
+                if(shutdown)
+                {
+                    return;
+                }
+
+                job = pendingJob;
+                pendingJob = null;
+                jobGeneration = generation;
+                activeRenderer = renderer;
+                activeRendererStopped = false;
+            }
+
+            BufferedImage image = null;
+            try
+            {
+                image = job.render(renderer);
+            }
+            catch(RuntimeException e)
+            {
+                ConsoleManager.getInstance().exception(this, e);
+            }
+
+            synchronized(lock)
+            {
+                activeRenderer = null;
+            }
+
+            deliver(image, jobGeneration);
+        }
+    }
+
+    /**
+     * Pass the rendered image to the parent on the event dispatch thread
+     * if no newer job has been submitted in the meantime.
+     *
+     * @param image the image
+     * @param jobGeneration the job generation
+     */
+    private void deliver(final BufferedImage image, final long jobGeneration)
+    {
+        if(!isLatest(jobGeneration))
+        {
+            return;
+        }
+
+        SwingUtilities.invokeLater(new Runnable() {
+            public void run() {
+                synchronized(lock)
+                {
+                    if(jobGeneration != generation)
+                    {
+                        return;
+                    }
+                    completedCount ++;
+                }
+
+                if(parent != null)
+                {
+                    parent.renderComplete(image);
+                }
+            }
+        });
+    }
+
+    /**
+     * Checks whether the render being performed by the renderer has been stopped,
+     * called by a job to find out if its image is complete.
+     *
+     * @param renderer the renderer passed to the job
+     * @return true, if the render was stopped
+     */
+    public boolean isStopped(GTRenderer renderer)
+    {
+        synchronized(lock)
+        {
+            return shutdown || ((renderer == activeRenderer) && activeRendererStopped);
+        }
+    }
+
+    /**
+     * Checks if the job generation is the most recently submitted.
+     *
+     * @param jobGeneration the job generation
+     * @return true, if no newer job has been submitted
+     */
+    private boolean isLatest(long jobGeneration)
+    {
+        synchronized(lock)
+        {
+            return (jobGeneration == generation);
+        }
+    }
+
+    /**
+     * Gets the number of jobs dropped because a newer job was submitted before they started.
+     *
+     * @return the dropped count
+     */
+    public long getDroppedCount()
+    {
+        synchronized(lock)
+        {
+            return droppedCount;
+        }
+    }
+
+    /**
+     * Gets the number of in-flight renders stopped because a newer job was submitted.
+     *
+     * @return the cancelled count
+     */
+    public long getCancelledCount()
+    {
+        synchronized(lock)
+        {
+            return cancelledCount;
+        }
+    }
+
+    /**
+     * Gets the number of renders that completed and were passed to the parent.
+     *
+     * @return the completed count
+     */
+    public long getCompletedCount()
+    {
+        synchronized(lock)
+        {
+            return completedCount;
+        }
+    }
+}
@@ -0,0 +1,282 @@
+/*
+ * SLD Editor - The Open Source Java SLD Editor
+ *
+ * Copyright (C) 2016, SCISYS UK Limited
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sldeditor.render;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.measure.unit.NonSI;
+import javax.measure.unit.Unit;
+
+import org.geotools.coverage.grid.io.AbstractGridCoverage2DReader;
+import org.geotools.data.FeatureSource;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.map.FeatureLayer;
+import org.geotools.map.GridReaderLayer;
+import org.geotools.map.Layer;
+import org.geotools.map.MapContent;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.geotools.renderer.GTRenderer;
+import org.geotools.renderer.label.LabelCacheImpl;
+import org.geotools.renderer.lite.StreamingRenderer;
+import org.geotools.resources.CRSUtilities;
+import org.geotools.styling.Style;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+import com.sldeditor.common.localisation.Localisation;
+
+/**
+ * Class containing the methods that render a style to an image.
+ * <p>The methods hold no state, all state is passed in so they can be called
+ * from any thread provided each thread supplies its own renderer.
+ * 
+ * @author Robert Ward (SCISYS)
+ */
+public class StyleRenderer {
+
+    /** The Constant BOUNDINGBOX_BUFFER_ANGLE. */
+    private static final double BOUNDINGBOX_BUFFER_ANGLE = 0.1;
+
+    /** The Constant BOUNDINGBOX_BUFFER_LINEAR. */
+    private static final double BOUNDINGBOX_BUFFER_LINEAR = 1000.0;
+
+    /** The Constant BOUNDINGBOX_BUFFER_MIN_ANGLE. */
+    private static final double BOUNDINGBOX_BUFFER_MIN_ANGLE = 1.0;
+
+    /** The Constant BOUNDINGBOX_BUFFER_MIN_LINEAR. */
+    private static final double BOUNDINGBOX_BUFFER_MIN_LINEAR = 1000.0;
+
+    /** The Constant BOUNDINGBOX_BUFFER_THRESHOLD_LINEAR. */
+    private static final double BOUNDINGBOX_BUFFER_THRESHOLD_LINEAR = 1.0;
+
+    /** The Constant BOUNDINGBOX_BUFFER_THRESHOLD_ANGLE. */
+    private static final double BOUNDINGBOX_BUFFER_THRESHOLD_ANGLE = 0.001;
+
+    /**
+     * Private default constructor.
+     */
+    private StyleRenderer()
+    {
+    }
+
+    /**
+     * Render raster map.
+     *
+     * @param renderer the renderer
+     * @param gridCoverage the grid coverage
+     * @param imageSize the image size
+     * @param styleList the styles to render
+     * @param dpi the dpi
+     * @param antiAlias the anti alias flag
+     * @return the rendered image
+     */
+    public static BufferedImage renderRasterMap(GTRenderer renderer,
+            AbstractGridCoverage2DReader gridCoverage,
+            Rectangle imageSize,
+            List<Style> styleList,
+            int dpi,
+            boolean antiAlias) {
+
+        List<Layer> layerList = new ArrayList<Layer>();
+        ReferencedEnvelope bounds = null;
+        if(styleList != null)
+        {
+            for(Style style : styleList)
+            {
+                GridReaderLayer rasterLayer = new GridReaderLayer(gridCoverage, style);
+                layerList.add(rasterLayer);
+                bounds = rasterLayer.getBounds();
+            }
+        }
+
+        return internal_renderMap(renderer, layerList, bounds, imageSize, true, dpi, antiAlias);
+    }
+
+    /**
+     * Render vector map.
+     *
+     * @param renderer the renderer
+     * @param features the features
+     * @param bounds the bounds to render
+     * @param imageSize the image size
+     * @param styleList the styles to render
+     * @param dpi the dpi
+     * @param antiAlias the anti alias flag
+     * @return the rendered image
+     */
+    public static BufferedImage renderVectorMap(GTRenderer renderer,
+            FeatureSource<SimpleFeatureType, SimpleFeature> features,
+            ReferencedEnvelope bounds,
+            Rectangle imageSize,
+            List<Style> styleList,
+            int dpi,
+            boolean antiAlias)
+    {
+        List<Layer> layerList = new ArrayList<Layer>();
+        if(styleList != null)
+        {
+            for(Style style : styleList)
+            {
+                FeatureLayer featureLayer = new FeatureLayer(features, style);
+                layerList.add(featureLayer);
+            }
+        }
+
+        boolean hasGeometry = false;
+
+        if((features != null) && (features.getSchema() != null))
+        {
+            hasGeometry = (features.getSchema().getGeometryDescriptor() != null);
+        }
+
+        return internal_renderMap(renderer, layerList, bounds, imageSize, hasGeometry, dpi, antiAlias);
+    }
+
+    /**
+     * Expand the bounds so that symbols drawn at the edge of the data are not clipped,
+     * a minimum buffer is used if the bounds are very small, e.g. a single point.
+     *
+     * @param bounds the bounds to expand, can be null
+     */
+    public static void expandBounds(ReferencedEnvelope bounds)
+    {
+        if((bounds == null) || (bounds.getCoordinateReferenceSystem() == null))
+        {
+            return;
+        }
+
+        Unit<?> unit = CRSUtilities.getUnit(bounds.getCoordinateReferenceSystem().getCoordinateSystem());
+
+        double width;
+        double height;
+        if(unit == NonSI.DEGREE_ANGLE)
+        {
+            width = (bounds.getWidth() < BOUNDINGBOX_BUFFER_THRESHOLD_ANGLE) ? BOUNDINGBOX_BUFFER_MIN_ANGLE : (bounds.getWidth() * BOUNDINGBOX_BUFFER_ANGLE);
+            height = (bounds.getHeight() < BOUNDINGBOX_BUFFER_THRESHOLD_ANGLE) ? BOUNDINGBOX_BUFFER_MIN_ANGLE : (bounds.getHeight() * BOUNDINGBOX_BUFFER_ANGLE);
+        }
+        else
+        {
+            width = (bounds.getWidth() < BOUNDINGBOX_BUFFER_THRESHOLD_LINEAR) ? BOUNDINGBOX_BUFFER_MIN_LINEAR : (bounds.getWidth() * BOUNDINGBOX_BUFFER_LINEAR);
+            height = (bounds.getHeight() < BOUNDINGBOX_BUFFER_THRESHOLD_LINEAR) ? BOUNDINGBOX_BUFFER_MIN_LINEAR : (bounds.getHeight() * BOUNDINGBOX_BUFFER_LINEAR);
+        }
+
+        bounds.expandBy(width, height);
+    }
+
+    /**
+     * Gets the bounds of the features, a default coordinate reference system
+     * is set if the features do not have one.
+     *
+     * @param features the features
+     * @return the referenced envelope
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public static ReferencedEnvelope getDataBounds(FeatureSource<SimpleFeatureType, SimpleFeature> features) throws IOException
+    {
+        ReferencedEnvelope bounds = features.getBounds();
+
+        if(bounds == null)
+        {
+            // It could be that the above call was too costly!
+            bounds = features.getFeatures().getBounds();
+        }
+
+        if((bounds != null) && (bounds.getCoordinateReferenceSystem() == null))
+        {
+            // We need a coordinate reference system set otherwise transformations fail to render
+            bounds = ReferencedEnvelope.create(bounds, DefaultGeographicCRS.WGS84);
+        }
+
+        return bounds;
+    }
+
+    /**
+     * Internal_render map.
+     *
+     * @param renderer the renderer
+     * @param layers the layers
+     * @param bounds the bounds
+     * @param imageSize the image size
+     * @param hasGeometry the has geometry
+     * @param dpi the dpi
+     * @param antiAlias the anti alias flag
+     * @return the rendered image
+     */
+    private static BufferedImage internal_renderMap(GTRenderer renderer,
+            List<Layer> layers,
+            ReferencedEnvelope bounds,
+            Rectangle imageSize,
+            boolean hasGeometry,
+            int dpi,
+            boolean antiAlias)
+    {
+        BufferedImage image = null;
+        MapContent map = new MapContent();
+        map.addLayers(layers);
+        try {
+            Map<Object,Object> hints = new HashMap<Object,Object>();
+            hints.put(StreamingRenderer.DPI_KEY, dpi);
+            // This ensures all the labelling is cleared
+            hints.put(StreamingRenderer.LABEL_CACHE_KEY, new LabelCacheImpl());
+
+            renderer.setRendererHints(hints);
+            renderer.setMapContent(map);
+            image = new BufferedImage(imageSize.width, imageSize.height, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D graphics = image.createGraphics();
+
+            if(antiAlias)
+            {
+                graphics.setRenderingHints(new RenderingHints(
+                        RenderingHints.KEY_ANTIALIASING,
+                        RenderingHints.VALUE_ANTIALIAS_ON));
+            }
+
+            try {
+                if(!hasGeometry){
+                    graphics.setColor(Color.BLACK);
+                    int y = imageSize.height / 2;
+                    Font font = new Font(Font.SERIF,Font.BOLD, 14);
+                    graphics.setFont(font);
+                    graphics.drawString(Localisation.getString(RenderPanelImpl.class, "RenderPanelImpl.error1"), 10, y - 14);
+                }
+                else if(!layers.isEmpty()) {
+                    renderer.paint(graphics, imageSize, bounds);
+                }
+            }
+            finally {
+                graphics.dispose();
+            }
+        }
+        finally {
+            map.dispose();
+        }
+
+        return image;
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * SLD Editor - The Open Source Java SLD Editor
+ *
+ * Copyright (C) 2016, SCISYS UK Limited
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sldeditor.render.batch;
+
+import java.io.File;
+
+/**
+ * Class that holds the outcome of rendering a single SLD file in a batch.
+ * 
+ * @author Robert Ward (SCISYS)
+ */
+public class BatchRenderStyleResult {
+
+    /** The sld file. */
+    private File sldFile = null;
+
+    /** The image file written, null if rendering failed. */
+    private File imageFile = null;
+
+    /** The render time in milliseconds. */
+    private long renderTime = 0;
+
+    /** The error message, null if rendering succeeded. */
+    private String errorMessage = null;
+
+    /**
+     * Instantiates a new batch render style result.
+     *
+     * @param sldFile the sld file
+     * @param imageFile the image file
+     * @param renderTime the render time in milliseconds
+     * @param errorMessage the error message
+     */
+    public BatchRenderStyleResult(File sldFile, File imageFile, long renderTime, String errorMessage)
+    {
+        this.sldFile = sldFile;
+        this.imageFile = imageFile;
+        this.renderTime = renderTime;
+        this.errorMessage = errorMessage;
+    }
+
+    /**
+     * Gets the sld file.
+     *
+     * @return the sld file
+     */
+    public File getSldFile() {
+        return sldFile;
+    }
+
+    /**
+     * Gets the image file.
+     *
+     * @return the image file
+     */
+    public File getImageFile() {
+        return imageFile;
+    }
+
+    /**
+     * Gets the render time in milliseconds.
+     *
+     * @return the render time
+     */
+    public long getRenderTime() {
+        return renderTime;
+    }
+
+    /**
+     * Gets the error message.
+     *
+     * @return the error message
+     */
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    /**
+     * Checks if the style rendered successfully.
+     *
+     * @return true, if successful
+     */
+    public boolean isSuccessful() {
+        return (errorMessage == null);
+    }
+}
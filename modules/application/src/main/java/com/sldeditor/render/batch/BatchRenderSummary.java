@@ -0,0 +1,99 @@
+/*
+ * SLD Editor - The Open Source Java SLD Editor
+ *
+ * Copyright (C) 2016, SCISYS UK Limited
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sldeditor.render.batch;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class that holds the outcome of a batch render run.
+ * 
+ * @author Robert Ward (SCISYS)
+ */
+public class BatchRenderSummary {
+
+    /** The result list. */
+    private List<BatchRenderStyleResult> resultList = new ArrayList<BatchRenderStyleResult>();
+
+    /** The elapsed wall clock time in milliseconds. */
+    private long elapsedTime = 0;
+
+    /**
+     * Instantiates a new batch render summary.
+     *
+     * @param resultList the result list
+     * @param elapsedTime the elapsed wall clock time in milliseconds
+     */
+    public BatchRenderSummary(List<BatchRenderStyleResult> resultList, long elapsedTime)
+    {
+        if(resultList != null)
+        {
+            this.resultList.addAll(resultList);
+        }
+        this.elapsedTime = elapsedTime;
+    }
+
+    /**
+     * Gets the result list.
+     *
+     * @return the result list
+     */
+    public List<BatchRenderStyleResult> getResultList() {
+        return resultList;
+    }
+
+    /**
+     * Gets the elapsed wall clock time in milliseconds.
+     *
+     * @return the elapsed time
+     */
+    public long getElapsedTime() {
+        return elapsedTime;
+    }
+
+    /**
+     * Gets the number of styles that failed to render.
+     *
+     * @return the failure count
+     */
+    public int getFailureCount() {
+        int count = 0;
+        for(BatchRenderStyleResult result : resultList)
+        {
+            if(!result.isSuccessful())
+            {
+                count ++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Gets the throughput in styles rendered per second.
+     *
+     * @return the throughput
+     */
+    public double getThroughput() {
+        if(elapsedTime <= 0)
+        {
+            return 0.0;
+        }
+        return (resultList.size() * 1000.0) / elapsedTime;
+    }
+}
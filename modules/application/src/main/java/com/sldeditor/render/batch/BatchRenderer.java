@@ -0,0 +1,558 @@
+/*
+ * SLD Editor - The Open Source Java SLD Editor
+ *
+ * Copyright (C) 2016, SCISYS UK Limited
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sldeditor.render.batch;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.imageio.ImageIO;
+
+import org.geotools.coverage.grid.io.AbstractGridCoverage2DReader;
+import org.geotools.coverage.grid.io.AbstractGridFormat;
+import org.geotools.coverage.grid.io.GridFormatFinder;
+import org.geotools.coverage.grid.io.UnknownFormat;
+import org.geotools.data.DataStore;
+import org.geotools.data.FeatureSource;
+import org.geotools.data.FileDataStore;
+import org.geotools.data.FileDataStoreFinder;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.renderer.GTRenderer;
+import org.geotools.renderer.lite.StreamingRenderer;
+import org.geotools.styling.NamedLayerImpl;
+import org.geotools.styling.Style;
+import org.geotools.styling.StyledLayer;
+import org.geotools.styling.StyledLayerDescriptor;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+import com.sldeditor.common.console.ConsoleManager;
+import com.sldeditor.common.data.SLDUtils;
+import com.sldeditor.render.StyleRenderer;
+
+/**
+ * Class that renders a folder of SLD files against a single data source without
+ * a user interface, writing a PNG image per SLD file.
+ * <p>SLD files are rendered in parallel, each worker thread has its own renderer
+ * and, for raster data, its own grid coverage reader.
+ * 
+ * @author Robert Ward (SCISYS)
+ */
+public class BatchRenderer {
+
+    /** The Constant EXIT_OK, all styles rendered. */
+    public static final int EXIT_OK = 0;
+
+    /** The Constant EXIT_FAILURES, the batch or some styles failed to render. */
+    public static final int EXIT_FAILURES = 1;
+
+    /** The Constant EXIT_USAGE, the command line arguments are invalid. */
+    public static final int EXIT_USAGE = 2;
+
+    /** The Constant SLD_FILE_EXTENSION. */
+    private static final String SLD_FILE_EXTENSION = ".sld";
+
+    /** The Constant IMAGE_FORMAT. */
+    private static final String IMAGE_FORMAT = "png";
+
+    /** The Constant DEFAULT_IMAGE_SIZE. */
+    private static final int DEFAULT_IMAGE_SIZE = 200;
+
+    /** The Constant DEFAULT_DPI. */
+    private static final int DEFAULT_DPI = 96;
+
+    /** The vector feature source, null if rendering raster data. */
+    private FeatureSource<SimpleFeatureType, SimpleFeature> featureSource = null;
+
+    /** The data store opened by create(), disposed of by dispose(). */
+    private DataStore dataStore = null;
+
+    /** The raster file, null if rendering vector data. */
+    private File rasterFile = null;
+
+    /** The image width. */
+    private int imageWidth = DEFAULT_IMAGE_SIZE;
+
+    /** The image height. */
+    private int imageHeight = DEFAULT_IMAGE_SIZE;
+
+    /** The dpi. */
+    private int dpi = DEFAULT_DPI;
+
+    /** The use anti alias flag. */
+    private boolean useAntiAlias = true;
+
+    /** The number of worker threads. */
+    private int threadCount = Runtime.getRuntime().availableProcessors();
+
+    /** The renderer per worker thread. */
+    private ThreadLocal<GTRenderer> threadRenderer = new ThreadLocal<GTRenderer>() {
+        @Override
+        protected GTRenderer initialValue() {
+            return new StreamingRenderer();
+        }
+    };
+
+    /** The grid coverage reader per worker thread. */
+    private ThreadLocal<AbstractGridCoverage2DReader> threadGridCoverage = new ThreadLocal<AbstractGridCoverage2DReader>();
+
+    /** All the grid coverage readers created, so they can be disposed of. */
+    private List<AbstractGridCoverage2DReader> gridCoverageList = Collections.synchronizedList(new ArrayList<AbstractGridCoverage2DReader>());
+
+    /**
+     * Instantiates a new batch renderer for vector data.
+     *
+     * @param featureSource the feature source
+     */
+    public BatchRenderer(FeatureSource<SimpleFeatureType, SimpleFeature> featureSource)
+    {
+        this.featureSource = featureSource;
+    }
+
+    /**
+     * Instantiates a new batch renderer for raster data.
+     *
+     * @param rasterFile the raster file
+     */
+    public BatchRenderer(File rasterFile)
+    {
+        this.rasterFile = rasterFile;
+    }
+
+    /**
+     * Creates a batch renderer for a vector or raster data source file.
+     * <p>The caller must call dispose() when finished to release the data source.
+     *
+     * @param dataSourceFile the data source file
+     * @return the batch renderer, null if the file is not a supported data source
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public static BatchRenderer create(File dataSourceFile) throws IOException
+    {
+        FileDataStore dataStore = FileDataStoreFinder.getDataStore(dataSourceFile);
+        if(dataStore != null)
+        {
+            boolean created = false;
+            try
+            {
+                BatchRenderer batchRenderer = new BatchRenderer(dataStore.getFeatureSource());
+                batchRenderer.dataStore = dataStore;
+                created = true;
+                return batchRenderer;
+            }
+            finally
+            {
+                if(!created)
+                {
+                    dataStore.dispose();
+                }
+            }
+        }
+
+        AbstractGridFormat format = GridFormatFinder.findFormat(dataSourceFile);
+        if((format != null) && !(format instanceof UnknownFormat))
+        {
+            return new BatchRenderer(dataSourceFile);
+        }
+
+        return null;
+    }
+
+    /**
+     * Sets the image size.
+     *
+     * @param imageWidth the image width
+     * @param imageHeight the image height
+     */
+    public void setImageSize(int imageWidth, int imageHeight) {
+        this.imageWidth = imageWidth;
+        this.imageHeight = imageHeight;
+    }
+
+    /**
+     * Sets the dpi.
+     *
+     * @param dpi the new dpi
+     */
+    public void setDPI(int dpi) {
+        this.dpi = dpi;
+    }
+
+    /**
+     * Sets the use anti alias flag.
+     *
+     * @param useAntiAlias the new use anti alias flag
+     */
+    public void setUseAntiAlias(boolean useAntiAlias) {
+        this.useAntiAlias = useAntiAlias;
+    }
+
+    /**
+     * Sets the number of worker threads.
+     *
+     * @param threadCount the new thread count
+     */
+    public void setThreadCount(int threadCount) {
+        this.threadCount = Math.max(1, threadCount);
+    }
+
+    /**
+     * Render all the SLD files in a folder, writing an image per SLD file to the output folder.
+     *
+     * @param sldFolder the sld folder
+     * @param outputFolder the output folder
+     * @return the batch render summary
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public BatchRenderSummary render(File sldFolder, File outputFolder) throws IOException
+    {
+        File[] sldFiles = sldFolder.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.toLowerCase().endsWith(SLD_FILE_EXTENSION);
+            }
+        });
+
+        List<File> sldFileList = new ArrayList<File>();
+        if(sldFiles != null)
+        {
+            sldFileList.addAll(Arrays.asList(sldFiles));
+            Collections.sort(sldFileList);
+        }
+
+        return render(sldFileList, outputFolder);
+    }
+
+    /**
+     * Render a list of SLD files, writing an image per SLD file to the output folder.
+     *
+     * @param sldFileList the sld file list
+     * @param outputFolder the output folder
+     * @return the batch render summary
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public BatchRenderSummary render(List<File> sldFileList, final File outputFolder) throws IOException
+    {
+        if(!outputFolder.exists() && !outputFolder.mkdirs())
+        {
+            throw new IOException("Failed to create output folder : " + outputFolder.getAbsolutePath());
+        }
+
+        long startTime = System.currentTimeMillis();
+
+        // Calculate the bounds once, they are the same for every style
+        final ReferencedEnvelope bounds = (featureSource == null) ? null : StyleRenderer.getDataBounds(featureSource);
+        StyleRenderer.expandBounds(bounds);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        List<Future<BatchRenderStyleResult>> futureList = new ArrayList<Future<BatchRenderStyleResult>>();
+        List<BatchRenderStyleResult> resultList = new ArrayList<BatchRenderStyleResult>();
+
+        try
+        {
+            for(final File sldFile : sldFileList)
+            {
+                futureList.add(executor.submit(new Callable<BatchRenderStyleResult>() {
+                    @Override
+                    public BatchRenderStyleResult call() {
+                        return renderFile(sldFile, outputFolder, bounds);
+                    }
+                }));
+            }
+
+            for(int index = 0; index < futureList.size(); index ++)
+            {
+                try {
+                    resultList.add(futureList.get(index).get());
+                } catch (ExecutionException e) {
+                    resultList.add(new BatchRenderStyleResult(sldFileList.get(index), null, 0, getErrorMessage(e)));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+            disposeGridCoverages();
+        }
+
+        return new BatchRenderSummary(resultList, System.currentTimeMillis() - startTime);
+    }
+
+    /**
+     * Gets the error message for a failed render, the cause or its message can be null.
+     *
+     * @param e the exception
+     * @return the error message
+     */
+    private static String getErrorMessage(ExecutionException e)
+    {
+        Throwable cause = (e.getCause() == null) ? e : e.getCause();
+
+        return (cause.getMessage() == null) ? cause.toString() : cause.getMessage();
+    }
+
+    /**
+     * Dispose of the data store opened by create(), the batch renderer
+     * cannot be used afterwards.
+     */
+    public void dispose()
+    {
+        if(dataStore != null)
+        {
+            dataStore.dispose();
+            dataStore = null;
+        }
+        featureSource = null;
+    }
+
+    /**
+     * Render a single SLD file, called on a worker thread.
+     *
+     * @param sldFile the sld file
+     * @param outputFolder the output folder
+     * @param bounds the bounds of the vector data
+     * @return the batch render style result
+     */
+    private BatchRenderStyleResult renderFile(File sldFile, File outputFolder, ReferencedEnvelope bounds)
+    {
+        long startTime = System.currentTimeMillis();
+
+        StyledLayerDescriptor sld = SLDUtils.readSLDFile(sldFile);
+        if(sld == null)
+        {
+            return new BatchRenderStyleResult(sldFile, null, System.currentTimeMillis() - startTime, "Failed to read SLD");
+        }
+
+        List<Style> styleList = getStyleList(sld);
+        Rectangle imageSize = new Rectangle(0, 0, imageWidth, imageHeight);
+        GTRenderer renderer = threadRenderer.get();
+
+        BufferedImage image = null;
+        try
+        {
+            if(featureSource != null)
+            {
+                image = StyleRenderer.renderVectorMap(renderer, featureSource, bounds, imageSize, styleList, dpi, useAntiAlias);
+            }
+            else
+            {
+                image = StyleRenderer.renderRasterMap(renderer, getGridCoverage(), imageSize, styleList, dpi, useAntiAlias);
+            }
+
+            File imageFile = new File(outputFolder, getImageFilename(sldFile));
+            ImageIO.write(image, IMAGE_FORMAT, imageFile);
+
+            return new BatchRenderStyleResult(sldFile, imageFile, System.currentTimeMillis() - startTime, null);
+        }
+        catch(IOException e)
+        {
+            return new BatchRenderStyleResult(sldFile, null, System.currentTimeMillis() - startTime, e.getMessage());
+        }
+        catch(RuntimeException e)
+        {
+            return new BatchRenderStyleResult(sldFile, null, System.currentTimeMillis() - startTime, e.toString());
+        }
+    }
+
+    /**
+     * Gets the styles from all the named layers in the SLD.
+     *
+     * @param sld the sld
+     * @return the style list
+     */
+    private static List<Style> getStyleList(StyledLayerDescriptor sld)
+    {
+        List<Style> styleList = new ArrayList<Style>();
+
+        for(StyledLayer styledLayer : sld.layers())
+        {
+            if(styledLayer instanceof NamedLayerImpl)
+            {
+                NamedLayerImpl namedLayerImpl = (NamedLayerImpl)styledLayer;
+
+                styleList.addAll(namedLayerImpl.styles());
+            }
+        }
+        return styleList;
+    }
+
+    /**
+     * Gets the grid coverage reader for the current thread, grid coverage readers are not thread safe.
+     *
+     * @return the grid coverage reader
+     */
+    private AbstractGridCoverage2DReader getGridCoverage()
+    {
+        AbstractGridCoverage2DReader reader = threadGridCoverage.get();
+        if(reader == null)
+        {
+            AbstractGridFormat format = GridFormatFinder.findFormat(rasterFile);
+            reader = format.getReader(rasterFile);
+            threadGridCoverage.set(reader);
+            gridCoverageList.add(reader);
+        }
+        return reader;
+    }
+
+    /**
+     * Dispose of the grid coverage readers created by the worker threads.
+     */
+    private void disposeGridCoverages()
+    {
+        synchronized(gridCoverageList)
+        {
+            for(AbstractGridCoverage2DReader reader : gridCoverageList)
+            {
+                reader.dispose();
+            }
+            gridCoverageList.clear();
+        }
+        threadGridCoverage = new ThreadLocal<AbstractGridCoverage2DReader>();
+    }
+
+    /**
+     * Gets the image filename for an SLD file.
+     *
+     * @param sldFile the sld file
+     * @return the image filename
+     */
+    private static String getImageFilename(File sldFile)
+    {
+        String name = sldFile.getName();
+        int index = name.lastIndexOf('.');
+        if(index > 0)
+        {
+            name = name.substring(0, index);
+        }
+        return name + "." + IMAGE_FORMAT;
+    }
+
+    /**
+     * Run the batch renderer with command line arguments.
+     * <p>Arguments : sld folder, data source file, output folder, [image width], [image height]
+     *
+     * @param args the arguments
+     * @param out the stream to write messages to
+     * @return the exit code
+     */
+    public static int run(String[] args, PrintStream out) {
+        if(args.length < 3)
+        {
+            usage(out);
+            return EXIT_USAGE;
+        }
+
+        int width = DEFAULT_IMAGE_SIZE;
+        int height = DEFAULT_IMAGE_SIZE;
+        if(args.length >= 5)
+        {
+            try
+            {
+                width = Integer.parseInt(args[3]);
+                height = Integer.parseInt(args[4]);
+            }
+            catch (NumberFormatException e)
+            {
+                usage(out);
+                return EXIT_USAGE;
+            }
+        }
+
+        BatchRenderSummary summary = null;
+        try {
+            BatchRenderer batchRenderer = BatchRenderer.create(new File(args[1]));
+            if(batchRenderer == null)
+            {
+                out.println("Unsupported data source : " + args[1]);
+                return EXIT_USAGE;
+            }
+
+            try
+            {
+                batchRenderer.setImageSize(width, height);
+
+                summary = batchRenderer.render(new File(args[0]), new File(args[2]));
+            }
+            finally
+            {
+                batchRenderer.dispose();
+            }
+        } catch (IOException e) {
+            ConsoleManager.getInstance().exception(BatchRenderer.class, e);
+            out.println("Failed to render : " + e.getMessage());
+            return EXIT_FAILURES;
+        }
+
+        for(BatchRenderStyleResult result : summary.getResultList())
+        {
+            if(result.isSuccessful())
+            {
+                out.println(String.format("%-40s %6d ms", result.getSldFile().getName(), result.getRenderTime()));
+            }
+            else
+            {
+                out.println(String.format("%-40s %6d ms FAILED : %s", result.getSldFile().getName(), result.getRenderTime(), result.getErrorMessage()));
+            }
+        }
+
+        out.println(String.format("Rendered %d styles (%d failed) in %d ms, %.2f styles/s",
+                summary.getResultList().size(),
+                summary.getFailureCount(),
+                summary.getElapsedTime(),
+                summary.getThroughput()));
+
+        return (summary.getFailureCount() == 0) ? EXIT_OK : EXIT_FAILURES;
+    }
+
+    /**
+     * Write the usage message.
+     *
+     * @param out the stream to write to
+     */
+    private static void usage(PrintStream out)
+    {
+        out.println("Usage : BatchRenderer <sld folder> <data source file> <output folder> [image width] [image height]");
+    }
+
+    /**
+     * The main method.
+     *
+     * @param args the arguments
+     */
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+
+        System.exit(run(args, System.out));
+    }
+}
@@ -507,5 +507,11 @@ public class SLDEditorMenus implements SLDEditorDataUpdateInterface, UndoStateIn
     {
         menuItemUndo.setEnabled(undoAllowed);
         menuItemRedo.setEnabled(redoAllowed);
+
+        UndoManager undoManager = UndoManager.getInstance();
+        String usage = String.format(Localisation.getString(SLDEditorMenus.class, "edit.menu.undo.usage"),
+                undoManager.getUndoEventCount(), (undoManager.getMemoryUsage() + 1023) / 1024);
+        menuItemUndo.setToolTipText(usage);
+        menuItemRedo.setToolTipText(usage);
     }
 }
@@ -33,7 +33,9 @@ import javax.swing.JDialog;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
+import javax.swing.JSpinner;
 import javax.swing.JTable;
+import javax.swing.SpinnerNumberModel;
 import javax.swing.UIManager;
 import javax.swing.border.TitledBorder;
 
@@ -79,6 +81,12 @@ public class PrefPanel extends JDialog {
     /** The ui layout map. */
     private Map<String, String> uiLayoutMap;
 
+    /** The map preview feature cap spinner. */
+    private JSpinner previewFeatureCapSpinner;
+
+    /** The Constant PREVIEW_FEATURE_CAP_STEP. */
+    private static final int PREVIEW_FEATURE_CAP_STEP = 1000;
+
     /**
      * The main method.
      *
@@ -127,6 +135,15 @@ public class PrefPanel extends JDialog {
         uiLayoutPanel.add(uiLayoutComboBox);
         panel.add(uiLayoutPanel);
 
+        // Map preview feature cap
+        previewFeatureCapSpinner = new JSpinner(new SpinnerNumberModel(PrefData.DEFAULT_PREVIEW_FEATURE_CAP, 1, Integer.MAX_VALUE, PREVIEW_FEATURE_CAP_STEP));
+
+        JPanel previewFeatureCapPanel = new JPanel();
+
+        previewFeatureCapPanel.add(new JLabel(Localisation.getField(PrefPanel.class, "PrefPanel.previewFeatureCap")));
+        previewFeatureCapPanel.add(previewFeatureCapSpinner);
+        panel.add(previewFeatureCapPanel);
+
         // Vendor options
         JPanel panel_1 = new JPanel();
         panel_1.setBorder(new TitledBorder(UIManager.getBorder("TitledBorder.border"), Localisation.getString(PrefPanel.class, "PrefPanel.vendorOptions"), TitledBorder.LEADING, TitledBorder.TOP, null, null)); //$NON-NLS-2$
@@ -194,6 +211,7 @@ public class PrefPanel extends JDialog {
 
         chckbxUseAntiAlias.setSelected(prefData.isUseAntiAlias());
         model.setSelectedVendorOptionVersions(prefData.getVendorOptionVersionList());
+        previewFeatureCapSpinner.setValue(prefData.getPreviewFeatureCap());
 
         for(String displayName : uiLayoutMap.keySet())
         {
@@ -226,6 +244,7 @@ public class PrefPanel extends JDialog {
         prefData.setVendorOptionVersionList(model.getVendorOptionVersionList());
         String uiLayoutClass = uiLayoutMap.get(uiLayoutComboBox.getSelectedItem());
         prefData.setUiLayoutClass(uiLayoutClass);
+        prefData.setPreviewFeatureCap(((Number) previewFeatureCapSpinner.getValue()).intValue());
 
         return prefData;
     }
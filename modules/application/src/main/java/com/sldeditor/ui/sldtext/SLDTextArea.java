@@ -67,7 +67,7 @@ public class SLDTextArea implements SLDOutputInterface
      */
     private SLDTextArea()
     {
-        sldWriter = SLDWriterFactory.createSLDWriter(null);
+        sldWriter = SLDWriterFactory.createIncrementalSLDWriter();
 
         // Listen for changes in the SLD
         RenderPanelFactory.addSLDOutputListener(this);
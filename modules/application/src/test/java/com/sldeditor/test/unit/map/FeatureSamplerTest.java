@@ -0,0 +1,131 @@
+/*
+ * SLD Editor - The Open Source Java SLD Editor
+ *
+ * Copyright (C) 2016, SCISYS UK Limited
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sldeditor.test.unit.map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import org.geotools.data.DataUtilities;
+import org.geotools.data.FeatureSource;
+import org.geotools.feature.FeatureIterator;
+import org.geotools.feature.SchemaException;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.geometry.jts.JTSFactoryFinder;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.junit.Test;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+import com.sldeditor.map.FeatureSampler;
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.Point;
+
+/**
+ * Unit test for FeatureSampler class.
+ * <p>{@link com.sldeditor.map.FeatureSampler}
+ * 
+ * @author Robert Ward (SCISYS)
+ *
+ */
+public class FeatureSamplerTest {
+
+    /**
+     * Test method for {@link com.sldeditor.map.FeatureSampler#sample(org.geotools.data.FeatureSource, org.geotools.geometry.jts.ReferencedEnvelope, int)}.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     * @throws SchemaException the schema exception
+     */
+    @Test
+    public void testSample() throws IOException, SchemaException {
+        SimpleFeatureType featureType = DataUtilities.createType("test", "the_geom:Point:srid=4326");
+        GeometryFactory geometryFactory = JTSFactoryFinder.getGeometryFactory();
+
+        // 2000 features crowded into one corner and one feature in the opposite corner
+        SimpleFeature[] features = new SimpleFeature[2001];
+        for(int index = 0; index < 2000; index ++)
+        {
+            features[index] = SimpleFeatureBuilder.build(featureType,
+                    new Object[] {geometryFactory.createPoint(new Coordinate(index * 0.0001, index * 0.0001))},
+                    null);
+        }
+        features[2000] = SimpleFeatureBuilder.build(featureType,
+                new Object[] {geometryFactory.createPoint(new Coordinate(10.0, 10.0))},
+                null);
+
+        FeatureSource<SimpleFeatureType, SimpleFeature> source = DataUtilities.source(features);
+        ReferencedEnvelope bounds = source.getBounds();
+
+        // Fewer features than the cap, source returned unchanged
+        assertSame(source, FeatureSampler.sample(source, bounds, 5000));
+
+        // The quota unused by the empty cells is given to the crowded cell
+        FeatureSource<SimpleFeatureType, SimpleFeature> sample = FeatureSampler.sample(source, bounds, 1024);
+        assertEquals(1024, sample.getFeatures().size());
+
+        // The isolated feature must survive sampling
+        assertEquals(10.0, sample.getBounds().getMaxX(), 0.0001);
+
+        // The crowded cell is sampled across its whole extent, not just the first features read
+        assertTrue(sample.getBounds().getMinX() < 0.01);
+        assertTrue(countFeatures(sample, 0.1, 1.0) > 0);
+
+        // Same data gives the same sample
+        FeatureSource<SimpleFeatureType, SimpleFeature> sample2 = FeatureSampler.sample(source, bounds, 1024);
+        assertEquals(countFeatures(sample, 0.1, 1.0), countFeatures(sample2, 0.1, 1.0));
+
+        // Very small cap still includes features from both occupied cells
+        sample = FeatureSampler.sample(source, bounds, 2);
+        assertEquals(2, sample.getFeatures().size());
+        assertEquals(10.0, sample.getBounds().getMaxX(), 0.0001);
+    }
+
+    /**
+     * Count the features whose x coordinate lies within a range.
+     *
+     * @param source the source
+     * @param minX the minimum x
+     * @param maxX the maximum x
+     * @return the count
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private int countFeatures(FeatureSource<SimpleFeatureType, SimpleFeature> source, double minX, double maxX) throws IOException {
+        int count = 0;
+        FeatureIterator<SimpleFeature> iterator = source.getFeatures().features();
+        try
+        {
+            while(iterator.hasNext())
+            {
+                double x = ((Point) iterator.next().getDefaultGeometry()).getX();
+                if((x >= minX) && (x <= maxX))
+                {
+                    count ++;
+                }
+            }
+        }
+        finally
+        {
+            iterator.close();
+        }
+        return count;
+    }
+}
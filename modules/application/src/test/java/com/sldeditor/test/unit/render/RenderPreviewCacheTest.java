@@ -0,0 +1,112 @@
+/*
+ * SLD Editor - The Open Source Java SLD Editor
+ *
+ * Copyright (C) 2016, SCISYS UK Limited
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sldeditor.test.unit.render;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.awt.image.BufferedImage;
+
+import org.junit.Test;
+
+import com.sldeditor.datasource.impl.GeometryTypeEnum;
+import com.sldeditor.render.RenderPreviewCache;
+import com.sldeditor.render.RenderPreviewKey;
+
+/**
+ * Unit test for RenderPreviewCache class.
+ * <p>{@link com.sldeditor.render.RenderPreviewCache}
+ * 
+ * @author Robert Ward (SCISYS)
+ *
+ */
+public class RenderPreviewCacheTest {
+
+    /**
+     * Creates the key.
+     *
+     * @param style the style
+     * @param dataSourceRevision the data source revision
+     * @return the render preview key
+     */
+    private RenderPreviewKey createKey(String style, long dataSourceRevision)
+    {
+        return new RenderPreviewKey(style, GeometryTypeEnum.POINT, true, 0xFFFFFF, dataSourceRevision, 10, 10);
+    }
+
+    /**
+     * Test method for {@link com.sldeditor.render.RenderPreviewCache#get(com.sldeditor.render.RenderPreviewKey)}.
+     */
+    @Test
+    public void testGet() {
+        RenderPreviewCache cache = new RenderPreviewCache();
+
+        BufferedImage image = new BufferedImage(10, 10, BufferedImage.TYPE_INT_ARGB);
+        assertNull(cache.get(createKey("style1", 1)));
+        cache.put(createKey("style1", 1), image);
+
+        assertSame(image, cache.get(createKey("style1", 1)));
+
+        // Different data source revision
+        assertNull(cache.get(createKey("style1", 2)));
+
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(400, cache.getCurrentBytes());
+
+        cache.clear();
+        assertNull(cache.get(createKey("style1", 1)));
+        assertEquals(0, cache.getCurrentBytes());
+    }
+
+    /**
+     * Test method for {@link com.sldeditor.render.RenderPreviewCache#put(com.sldeditor.render.RenderPreviewKey, java.awt.image.BufferedImage)}.
+     */
+    @Test
+    public void testEviction() {
+        // Limit by number of entries
+        RenderPreviewCache cache = new RenderPreviewCache(2, 1000000);
+
+        cache.put(createKey("style1", 1), new BufferedImage(10, 10, BufferedImage.TYPE_INT_ARGB));
+        cache.put(createKey("style2", 1), new BufferedImage(10, 10, BufferedImage.TYPE_INT_ARGB));
+
+        // Access style 1 so style 2 is the least recently used
+        cache.get(createKey("style1", 1));
+        cache.put(createKey("style3", 1), new BufferedImage(10, 10, BufferedImage.TYPE_INT_ARGB));
+
+        assertEquals(2, cache.getSize());
+        assertEquals(1, cache.getEvictionCount());
+        assertNull(cache.get(createKey("style2", 1)));
+
+        // Limit by size
+        cache = new RenderPreviewCache(100, 1000);
+        cache.put(createKey("style1", 1), new BufferedImage(10, 10, BufferedImage.TYPE_INT_ARGB));
+        cache.put(createKey("style2", 1), new BufferedImage(10, 10, BufferedImage.TYPE_INT_ARGB));
+        cache.put(createKey("style3", 1), new BufferedImage(10, 10, BufferedImage.TYPE_INT_ARGB));
+        assertEquals(2, cache.getSize());
+        assertEquals(800, cache.getCurrentBytes());
+        assertEquals(1, cache.getEvictionCount());
+
+        // Image larger than the cache is not stored
+        cache.put(createKey("style4", 1), new BufferedImage(100, 100, BufferedImage.TYPE_INT_ARGB));
+        assertNull(cache.get(createKey("style4", 1)));
+        assertEquals(2, cache.getSize());
+    }
+}
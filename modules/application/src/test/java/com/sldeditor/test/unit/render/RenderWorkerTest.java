@@ -0,0 +1,140 @@
+/*
+ * SLD Editor - The Open Source Java SLD Editor
+ *
+ * Copyright (C) 2016, SCISYS UK Limited
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sldeditor.test.unit.render;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.geotools.renderer.GTRenderer;
+import org.junit.Test;
+
+import com.sldeditor.render.RenderJobInterface;
+import com.sldeditor.render.RenderWorker;
+import com.sldeditor.render.RenderWorkerUpdateInterface;
+
+/**
+ * Unit test for RenderWorker class.
+ * <p>{@link com.sldeditor.render.RenderWorker}
+ * 
+ * @author Robert Ward (SCISYS)
+ *
+ */
+public class RenderWorkerTest {
+
+    /**
+     * Test job that waits until released before returning its image.
+     */
+    class TestJob implements RenderJobInterface
+    {
+        /** The image. */
+        private BufferedImage image = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
+
+        /** The started latch. */
+        private CountDownLatch started = new CountDownLatch(1);
+
+        /** The release latch. */
+        private CountDownLatch release = new CountDownLatch(1);
+
+        /** The worker to ask whether the render was stopped, can be null. */
+        private RenderWorker worker = null;
+
+        /** The flag indicating whether the render was stopped. */
+        private volatile boolean stopped = false;
+
+        @Override
+        public BufferedImage render(GTRenderer renderer) {
+            started.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if(worker != null)
+            {
+                stopped = worker.isStopped(renderer);
+            }
+            return image;
+        }
+    }
+
+    /**
+     * Test parent that records the delivered image.
+     */
+    class TestParent implements RenderWorkerUpdateInterface
+    {
+        /** The image. */
+        private BufferedImage image = null;
+
+        /** The completed latch. */
+        private CountDownLatch completed = new CountDownLatch(1);
+
+        @Override
+        public void renderComplete(BufferedImage image) {
+            this.image = image;
+            completed.countDown();
+        }
+    }
+
+    /**
+     * Test method for {@link com.sldeditor.render.RenderWorker#submit(com.sldeditor.render.RenderJobInterface)}.
+     *
+     * @throws InterruptedException the interrupted exception
+     */
+    @Test
+    public void testSubmit() throws InterruptedException {
+        TestParent parent = new TestParent();
+        RenderWorker worker = new RenderWorker(parent);
+
+        TestJob job1 = new TestJob();
+        job1.worker = worker;
+        worker.submit(job1);
+        assertTrue(job1.started.await(10, TimeUnit.SECONDS));
+
+        // Job 1 is in-flight, these should cancel it once and coalesce into job 4
+        TestJob job2 = new TestJob();
+        TestJob job3 = new TestJob();
+        TestJob job4 = new TestJob();
+        job4.worker = worker;
+        worker.submit(job2);
+        worker.submit(job3);
+        worker.submit(job4);
+        job4.release.countDown();
+        job1.release.countDown();
+
+        assertTrue(parent.completed.await(10, TimeUnit.SECONDS));
+        assertSame(job4.image, parent.image);
+        assertEquals(1, worker.getCancelledCount());
+        assertEquals(2, worker.getDroppedCount());
+        assertEquals(1, worker.getCompletedCount());
+        assertEquals(1, job2.started.getCount());
+        assertEquals(1, job3.started.getCount());
+
+        // Only the stopped render reports it was stopped, its image must not be cached
+        assertTrue(job1.stopped);
+        assertFalse(job4.stopped);
+
+        worker.shutdown();
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * SLD Editor - The Open Source Java SLD Editor
+ *
+ * Copyright (C) 2016, SCISYS UK Limited
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sldeditor.test.unit.render;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.junit.Test;
+
+import com.sldeditor.render.StyleRenderer;
+
+/**
+ * Unit test for StyleRenderer class.
+ * <p>{@link com.sldeditor.render.StyleRenderer}
+ * 
+ * @author Robert Ward (SCISYS)
+ *
+ */
+public class StyleRendererTest {
+
+    /**
+     * Test method for {@link com.sldeditor.render.StyleRenderer#expandBounds(org.geotools.geometry.jts.ReferencedEnvelope)}.
+     */
+    @Test
+    public void testExpandBounds() {
+        // Null bounds are ignored
+        ReferencedEnvelope bounds = null;
+        StyleRenderer.expandBounds(bounds);
+        assertNull(bounds);
+
+        // Buffer proportional to the size of the bounds
+        bounds = new ReferencedEnvelope(0.0, 10.0, 0.0, 20.0, DefaultGeographicCRS.WGS84);
+        StyleRenderer.expandBounds(bounds);
+        assertEquals(-1.0, bounds.getMinX(), 0.0001);
+        assertEquals(11.0, bounds.getMaxX(), 0.0001);
+        assertEquals(-2.0, bounds.getMinY(), 0.0001);
+        assertEquals(22.0, bounds.getMaxY(), 0.0001);
+
+        // Minimum buffer around a single point
+        bounds = new ReferencedEnvelope(5.0, 5.0, 5.0, 5.0, DefaultGeographicCRS.WGS84);
+        StyleRenderer.expandBounds(bounds);
+        assertEquals(4.0, bounds.getMinX(), 0.0001);
+        assertEquals(6.0, bounds.getMaxX(), 0.0001);
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * SLD Editor - The Open Source Java SLD Editor
+ *
+ * Copyright (C) 2016, SCISYS UK Limited
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sldeditor.test.unit.render.batch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import javax.imageio.ImageIO;
+
+import org.geotools.data.DataUtilities;
+import org.geotools.feature.SchemaException;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.geometry.jts.JTSFactoryFinder;
+import org.junit.Test;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+import com.sldeditor.render.batch.BatchRenderStyleResult;
+import com.sldeditor.render.batch.BatchRenderSummary;
+import com.sldeditor.render.batch.BatchRenderer;
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.GeometryFactory;
+
+/**
+ * Unit test for BatchRenderer class.
+ * <p>{@link com.sldeditor.render.batch.BatchRenderer}
+ * 
+ * @author Robert Ward (SCISYS)
+ *
+ */
+public class BatchRendererTest {
+
+    /** The Constant SLD_FILES. */
+    private static final String[] SLD_FILES = {"point_simplepoint.sld", "point_rotatedsquare.sld", "point_transparenttriangle.sld"};
+
+    /**
+     * Test method for {@link com.sldeditor.render.batch.BatchRenderer#render(java.io.File, java.io.File)}.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     * @throws SchemaException the schema exception
+     */
+    @Test
+    public void testRender() throws IOException, SchemaException {
+        File sldFolder = Files.createTempDirectory(getClass().getSimpleName()).toFile();
+        File outputFolder = new File(sldFolder, "output");
+
+        for(String sldFile : SLD_FILES)
+        {
+            InputStream inputStream = BatchRendererTest.class.getResourceAsStream("/point/sld/" + sldFile);
+            Files.copy(inputStream, new File(sldFolder, sldFile).toPath(), StandardCopyOption.REPLACE_EXISTING);
+            inputStream.close();
+        }
+
+        SimpleFeatureType featureType = DataUtilities.createType("test", "the_geom:Point:srid=4326,name:String");
+        GeometryFactory geometryFactory = JTSFactoryFinder.getGeometryFactory();
+        SimpleFeature[] features = new SimpleFeature[3];
+        for(int index = 0; index < features.length; index ++)
+        {
+            features[index] = SimpleFeatureBuilder.build(featureType,
+                    new Object[] {geometryFactory.createPoint(new Coordinate(index, index)), "name" + index},
+                    null);
+        }
+
+        BatchRenderer renderer = new BatchRenderer(DataUtilities.source(features));
+        renderer.setThreadCount(2);
+        renderer.setImageSize(50, 40);
+        BatchRenderSummary summary = renderer.render(sldFolder, outputFolder);
+
+        assertEquals(SLD_FILES.length, summary.getResultList().size());
+        assertEquals(0, summary.getFailureCount());
+        assertTrue(summary.getThroughput() >= 0.0);
+
+        for(BatchRenderStyleResult result : summary.getResultList())
+        {
+            assertTrue(result.isSuccessful());
+            assertNotNull(result.getImageFile());
+            assertTrue(result.getImageFile().exists());
+            assertEquals(50, ImageIO.read(result.getImageFile()).getWidth());
+            result.getImageFile().delete();
+        }
+        renderer.dispose();
+
+        outputFolder.delete();
+        for(String sldFile : SLD_FILES)
+        {
+            new File(sldFolder, sldFile).delete();
+        }
+        sldFolder.delete();
+    }
+
+    /**
+     * Test method for {@link com.sldeditor.render.batch.BatchRenderer#run(java.lang.String[], java.io.PrintStream)}.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    @Test
+    public void testRun() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(output);
+
+        assertEquals(BatchRenderer.EXIT_USAGE, BatchRenderer.run(new String[] {}, out));
+        assertEquals(BatchRenderer.EXIT_USAGE, BatchRenderer.run(new String[] {"a", "b", "c", "wide", "high"}, out));
+
+        File dataSourceFile = File.createTempFile(getClass().getSimpleName(), ".txt");
+        assertEquals(BatchRenderer.EXIT_USAGE, BatchRenderer.run(new String[] {"a", dataSourceFile.getAbsolutePath(), "c"}, out));
+        dataSourceFile.delete();
+
+        out.flush();
+        assertTrue(output.toString().contains("Usage"));
+        assertTrue(output.toString().contains("Unsupported data source"));
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * SLD Editor - The Open Source Java SLD Editor
+ *
+ * Copyright (C) 2016, SCISYS UK Limited
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sldeditor.test.unit.ui.detail.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+import org.junit.Test;
+
+import com.sldeditor.common.xml.ParseXML;
+import com.sldeditor.common.xml.ui.PanelConfig;
+import com.sldeditor.common.xml.ui.XMLSymbolTypeConfig;
+import com.sldeditor.ui.detail.config.PanelConfigPreloader;
+import com.sldeditor.ui.detail.config.ReadPanelConfig;
+import com.sldeditor.ui.detail.config.symboltype.SymbolTypeConfigReader;
+
+/**
+ * Unit test for PanelConfigPreloader class.
+ * <p>{@link com.sldeditor.ui.detail.config.PanelConfigPreloader}
+ *
+ * @author Robert Ward (SCISYS)
+ */
+public class PanelConfigPreloaderTest {
+
+    /**
+     * Test method for {@link com.sldeditor.ui.detail.config.PanelConfigPreloader#preload(java.io.File)}.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    @Test
+    public void testPreload() throws IOException {
+        File snapshotFile = File.createTempFile("panelconfig", ".snapshot");
+        snapshotFile.delete();
+
+        try
+        {
+            ParseXML.clearUICache();
+            PanelConfigPreloader.preload(snapshotFile).join();
+
+            // Files preloaded are returned from the cache
+            Object panelConfig = ParseXML.parseUIFile("Line.xml", ReadPanelConfig.SCHEMA_RESOURCE, PanelConfig.class);
+            assertNotNull(panelConfig);
+            assertSame(panelConfig, ParseXML.parseUIFile("Line.xml", ReadPanelConfig.SCHEMA_RESOURCE, PanelConfig.class));
+
+            Object symbolTypeConfig = ParseXML.parseUIFile("geoserver/GeoServerShapeSymbol.xml", SymbolTypeConfigReader.SCHEMA_RESOURCE, XMLSymbolTypeConfig.class);
+            assertTrue(symbolTypeConfig instanceof XMLSymbolTypeConfig);
+
+            // Snapshot written for validated files
+            assertTrue(snapshotFile.exists());
+            Properties snapshot = readSnapshot(snapshotFile);
+            assertFalse(snapshot.isEmpty());
+            assertTrue(snapshot.containsKey("Line.xml"));
+            assertTrue(snapshot.containsKey("geoserver/GeoServerShapeSymbol.xml"));
+
+            // Warm start using the snapshot gives the same result
+            ParseXML.clearUICache();
+            PanelConfigPreloader.preload(snapshotFile).join();
+            assertEquals(snapshot, readSnapshot(snapshotFile));
+
+            ReadPanelConfig readConfig = new ReadPanelConfig();
+            assertTrue(readConfig.read(PanelConfigPreloaderTest.class, "Line.xml"));
+            assertFalse(readConfig.getGroupList().isEmpty());
+        }
+        finally
+        {
+            ParseXML.clearUICache();
+            snapshotFile.delete();
+        }
+    }
+
+    /**
+     * Read snapshot.
+     *
+     * @param snapshotFile the snapshot file
+     * @return the properties
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private Properties readSnapshot(File snapshotFile) throws IOException {
+        Properties snapshot = new Properties();
+        InputStream inputStream = new FileInputStream(snapshotFile);
+        try
+        {
+            snapshot.load(inputStream);
+        }
+        finally
+        {
+            inputStream.close();
+        }
+        return snapshot;
+    }
+}
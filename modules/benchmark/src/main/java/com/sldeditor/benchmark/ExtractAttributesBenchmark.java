@@ -0,0 +1,90 @@
+/*
+ * SLD Editor - The Open Source Java SLD Editor
+ *
+ * Copyright (C) 2016, SCISYS UK Limited
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sldeditor.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.sldeditor.common.DataSourceFieldInterface;
+import com.sldeditor.datasource.impl.ExtractAttributes;
+import com.vividsolutions.jts.geom.Polygon;
+
+/**
+ * Benchmarks extracting the attributes referenced by an sld.
+ * <p>{@link com.sldeditor.datasource.impl.ExtractAttributes}
+ *
+ * @author Robert Ward (SCISYS)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ExtractAttributesBenchmark {
+
+    /** The corpus size. */
+    @Param({SLDCorpus.SMALL, SLDCorpus.MEDIUM, SLDCorpus.HUGE})
+    public String corpus;
+
+    /** The encoded sld. */
+    private String encodedSLD = null;
+
+    /**
+     * Create the sld string.
+     *
+     * @throws Exception the exception
+     */
+    @Setup
+    public void setup() throws Exception
+    {
+        encodedSLD = SLDCorpus.createSLDString(corpus);
+    }
+
+    /**
+     * Extract the attributes from the sld.
+     *
+     * @return the list of fields
+     */
+    @Benchmark
+    public List<DataSourceFieldInterface> addDefaultFields()
+    {
+        SimpleFeatureTypeBuilder b = new SimpleFeatureTypeBuilder();
+        b.setName("benchmark");
+        b.setCRS(DefaultGeographicCRS.WGS84);
+        b.add("geom", Polygon.class);
+        b.setDefaultGeometry("geom");
+
+        return ExtractAttributes.addDefaultFields(b, encodedSLD);
+    }
+}
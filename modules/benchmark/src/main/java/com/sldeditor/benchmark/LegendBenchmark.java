@@ -0,0 +1,119 @@
+/*
+ * SLD Editor - The Open Source Java SLD Editor
+ *
+ * Copyright (C) 2016, SCISYS UK Limited
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sldeditor.benchmark;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.geotools.styling.NamedLayer;
+import org.geotools.styling.Style;
+import org.geotools.styling.StyledLayer;
+import org.geotools.styling.StyledLayerDescriptor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.sldeditor.tool.legendpanel.BufferedImageLegendGraphicBuilder;
+import com.sldeditor.tool.legendpanel.LegendRequest;
+
+/**
+ * Benchmarks generating legend graphics, using the same legend options as the legend panel.
+ * <p>{@link com.sldeditor.tool.legendpanel.BufferedImageLegendGraphicBuilder}
+ *
+ * @author Robert Ward (SCISYS)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LegendBenchmark {
+
+    /** The corpus size. */
+    @Param({SLDCorpus.SMALL, SLDCorpus.MEDIUM, SLDCorpus.HUGE})
+    public String corpus;
+
+    /** The legend builder. */
+    private BufferedImageLegendGraphicBuilder legendBuilder = new BufferedImageLegendGraphicBuilder();
+
+    /** The legend request. */
+    private LegendRequest request = new LegendRequest();
+
+    /** The styles. */
+    private List<Style> styleList = new ArrayList<Style>();
+
+    /**
+     * Create the styles and legend request.
+     */
+    @Setup
+    public void setup()
+    {
+        StyledLayerDescriptor sld = SLDCorpus.createSLD(corpus);
+        for(StyledLayer styledLayer : sld.layers())
+        {
+            for(Style style : ((NamedLayer) styledLayer).getStyles())
+            {
+                styleList.add(style);
+            }
+        }
+
+        Map<String, String> legendOptions = new HashMap<String, String>();
+        legendOptions.put("bgColor", "#FFFFFF");
+        legendOptions.put("dpi", "96");
+        legendOptions.put("antialias", "true");
+        legendOptions.put("fontAntiAliasing", "true");
+        legendOptions.put("forceLabels", "true");
+        legendOptions.put("imageSize", "100");
+
+        request.setWidth(LegendRequest.DEFAULT_WIDTH);
+        request.setHeight(LegendRequest.DEFAULT_HEIGHT);
+        request.setLegendOptions(legendOptions);
+    }
+
+    /**
+     * Build the legend for every style in the sld.
+     *
+     * @return the legend images
+     * @throws Exception the exception
+     */
+    @Benchmark
+    public List<Map<String, BufferedImage>> buildLegendGraphic() throws Exception
+    {
+        List<Map<String, BufferedImage>> legendList = new ArrayList<Map<String, BufferedImage>>();
+
+        for(Style style : styleList)
+        {
+            legendList.add(legendBuilder.buildLegendGraphic(request, style, false));
+        }
+        return legendList;
+    }
+}
@@ -0,0 +1,260 @@
+/*
+ * SLD Editor - The Open Source Java SLD Editor
+ *
+ * Copyright (C) 2016, SCISYS UK Limited
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sldeditor.benchmark;
+
+import java.awt.Color;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.WritableRaster;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.media.jai.RasterFactory;
+
+import org.geotools.coverage.grid.GridCoverage2D;
+import org.geotools.coverage.grid.GridCoverageFactory;
+import org.geotools.data.simple.SimpleFeatureSource;
+import org.geotools.gce.geotiff.GeoTiffReader;
+import org.geotools.gce.geotiff.GeoTiffWriter;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.geotools.renderer.lite.StreamingRenderer;
+import org.geotools.styling.ColorMap;
+import org.geotools.styling.NamedLayer;
+import org.geotools.styling.RasterSymbolizer;
+import org.geotools.styling.Style;
+import org.geotools.styling.StyleBuilder;
+import org.geotools.styling.StyledLayer;
+import org.geotools.styling.StyledLayerDescriptor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.sldeditor.render.StyleRenderer;
+
+/**
+ * Benchmarks rendering vector and raster data in the same way as the render panel.
+ * <p>{@link com.sldeditor.render.StyleRenderer}
+ *
+ * @author Robert Ward (SCISYS)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RenderBenchmark {
+
+    /** The corpus size. */
+    @Param({SLDCorpus.SMALL, SLDCorpus.MEDIUM, SLDCorpus.HUGE})
+    public String corpus;
+
+    /** The Constant FEATURE_GRID_SIZE. */
+    private static final int FEATURE_GRID_SIZE = 50;
+
+    /** The Constant RASTER_SIZE. */
+    private static final int RASTER_SIZE = 512;
+
+    /** The Constant DPI. */
+    private static final int DPI = 96;
+
+    /** The image size. */
+    private Rectangle imageSize = new Rectangle(0, 0, 400, 400);
+
+    /** The renderer. */
+    private StreamingRenderer renderer = new StreamingRenderer();
+
+    /** The features. */
+    private SimpleFeatureSource featureSource = null;
+
+    /** The feature bounds. */
+    private ReferencedEnvelope featureBounds = null;
+
+    /** The vector styles. */
+    private List<Style> vectorStyleList = new ArrayList<Style>();
+
+    /** The raster file. */
+    private File rasterFile = null;
+
+    /** The raster reader. */
+    private GeoTiffReader rasterReader = null;
+
+    /** The raster styles. */
+    private List<Style> rasterStyleList = new ArrayList<Style>();
+
+    /**
+     * Create the data and styles.
+     *
+     * @throws Exception the exception
+     */
+    @Setup
+    public void setup() throws Exception
+    {
+        featureSource = SLDCorpus.createFeatureSource(FEATURE_GRID_SIZE);
+        featureBounds = StyleRenderer.getDataBounds(featureSource);
+
+        StyledLayerDescriptor sld = SLDCorpus.createSLD(corpus);
+        for(StyledLayer styledLayer : sld.layers())
+        {
+            for(Style style : ((NamedLayer) styledLayer).getStyles())
+            {
+                vectorStyleList.add(style);
+            }
+        }
+
+        rasterFile = createRasterFile();
+        rasterReader = new GeoTiffReader(rasterFile);
+        rasterStyleList.add(createRasterStyle(getNoOfColourMapEntries(corpus)));
+    }
+
+    /**
+     * Release the raster file.
+     */
+    @TearDown
+    public void tearDown()
+    {
+        if(rasterReader != null)
+        {
+            rasterReader.dispose();
+        }
+
+        if(rasterFile != null)
+        {
+            rasterFile.delete();
+        }
+    }
+
+    /**
+     * Gets the number of colour map entries for the corpus size.
+     *
+     * @param size the corpus size
+     * @return the number of colour map entries
+     */
+    private static int getNoOfColourMapEntries(String size)
+    {
+        if(SLDCorpus.MEDIUM.equals(size))
+        {
+            return 32;
+        }
+        else if(SLDCorpus.HUGE.equals(size))
+        {
+            return 256;
+        }
+        return 2;
+    }
+
+    /**
+     * Creates a single band GeoTIFF containing a gradient.
+     *
+     * @return the file
+     * @throws Exception the exception
+     */
+    private static File createRasterFile() throws Exception
+    {
+        WritableRaster raster = RasterFactory.createBandedRaster(DataBuffer.TYPE_INT, RASTER_SIZE, RASTER_SIZE, 1, null);
+
+        for(int y = 0; y < RASTER_SIZE; y ++)
+        {
+            for(int x = 0; x < RASTER_SIZE; x ++)
+            {
+                raster.setSample(x, y, 0, (x + y) % 256);
+            }
+        }
+
+        ReferencedEnvelope envelope = new ReferencedEnvelope(-180.0, 180.0, -90.0, 90.0, DefaultGeographicCRS.WGS84);
+        GridCoverage2D coverage = new GridCoverageFactory().create("benchmark", raster, envelope);
+
+        File file = File.createTempFile("benchmark", ".tif");
+        file.deleteOnExit();
+
+        GeoTiffWriter writer = new GeoTiffWriter(file);
+        try
+        {
+            writer.write(coverage, null);
+        }
+        finally
+        {
+            writer.dispose();
+        }
+        return file;
+    }
+
+    /**
+     * Creates the raster style with a colour ramp.
+     *
+     * @param noOfEntries the number of colour map entries
+     * @return the style
+     */
+    private static Style createRasterStyle(int noOfEntries)
+    {
+        StyleBuilder styleBuilder = new StyleBuilder();
+
+        String[] labels = new String[noOfEntries];
+        double[] quantities = new double[noOfEntries];
+        Color[] colours = new Color[noOfEntries];
+
+        for(int index = 0; index < noOfEntries; index ++)
+        {
+            int value = (index * 255) / Math.max(1, noOfEntries - 1);
+            labels[index] = String.valueOf(value);
+            quantities[index] = value;
+            colours[index] = new Color(value, 255 - value, (value * 7) % 256);
+        }
+
+        ColorMap colorMap = styleBuilder.createColorMap(labels, quantities, colours, ColorMap.TYPE_RAMP);
+        RasterSymbolizer rasterSymbolizer = styleBuilder.createRasterSymbolizer(colorMap, 1.0);
+
+        return styleBuilder.createStyle(rasterSymbolizer);
+    }
+
+    /**
+     * Render the vector features.
+     *
+     * @return the buffered image
+     */
+    @Benchmark
+    public BufferedImage renderVector()
+    {
+        return StyleRenderer.renderVectorMap(renderer, featureSource, featureBounds, imageSize, vectorStyleList, DPI, true);
+    }
+
+    /**
+     * Render the raster.
+     *
+     * @return the buffered image
+     */
+    @Benchmark
+    public BufferedImage renderRaster()
+    {
+        return StyleRenderer.renderRasterMap(renderer, rasterReader, imageSize, rasterStyleList, DPI, true);
+    }
+}
@@ -0,0 +1,328 @@
+/*
+ * SLD Editor - The Open Source Java SLD Editor
+ *
+ * Copyright (C) 2016, SCISYS UK Limited
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sldeditor.benchmark;
+
+import java.awt.Color;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import javax.xml.transform.TransformerException;
+
+import org.geotools.data.DataUtilities;
+import org.geotools.data.simple.SimpleFeatureSource;
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.geotools.styling.FeatureTypeStyle;
+import org.geotools.styling.NamedLayer;
+import org.geotools.styling.PolygonSymbolizer;
+import org.geotools.styling.Rule;
+import org.geotools.styling.SLDTransformer;
+import org.geotools.styling.Style;
+import org.geotools.styling.StyleBuilder;
+import org.geotools.styling.StyleFactory;
+import org.geotools.styling.StyledLayerDescriptor;
+import org.geotools.styling.TextSymbolizer;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.FilterFactory;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.Polygon;
+
+/**
+ * The corpus of SLDs and data used by the benchmarks.
+ * <p>The SLDs are generated so that the benchmark results are repeatable
+ * without storing large files in the repository:
+ * <ul>
+ * <li>small - 1 named layer, 1 rule</li>
+ * <li>medium - 2 named layers, 50 rules</li>
+ * <li>huge - 10 named layers, 1000 rules</li>
+ * </ul>
+ * <p>Each rule filters on one of the attributes of the generated features
+ * and every fifth rule contains a text symbolizer.
+ *
+ * @author Robert Ward (SCISYS)
+ */
+public class SLDCorpus {
+
+    /** The Constant SMALL. */
+    public static final String SMALL = "small";
+
+    /** The Constant MEDIUM. */
+    public static final String MEDIUM = "medium";
+
+    /** The Constant HUGE. */
+    public static final String HUGE = "huge";
+
+    /** The number of attributes the rules filter on. */
+    public static final int NO_OF_ATTRIBUTES = 10;
+
+    /** The number of distinct values per attribute. */
+    private static final int NO_OF_VALUES = 20;
+
+    /** The attribute name prefix. */
+    private static final String ATTRIBUTE_PREFIX = "attr";
+
+    /** The label attribute. */
+    private static final String LABEL_ATTRIBUTE = "name";
+
+    /** The geometry attribute. */
+    private static final String GEOMETRY_ATTRIBUTE = "geom";
+
+    /** The style factory. */
+    private static StyleFactory styleFactory = CommonFactoryFinder.getStyleFactory();
+
+    /** The filter factory. */
+    private static FilterFactory ff = CommonFactoryFinder.getFilterFactory();
+
+    /**
+     * Private default constructor.
+     */
+    private SLDCorpus()
+    {
+    }
+
+    /**
+     * Gets the number of named layers for the corpus size.
+     *
+     * @param size the corpus size
+     * @return the number of layers
+     */
+    private static int getNoOfLayers(String size)
+    {
+        if(MEDIUM.equals(size))
+        {
+            return 2;
+        }
+        else if(HUGE.equals(size))
+        {
+            return 10;
+        }
+        return 1;
+    }
+
+    /**
+     * Gets the number of rules per layer for the corpus size.
+     *
+     * @param size the corpus size
+     * @return the number of rules per layer
+     */
+    private static int getNoOfRulesPerLayer(String size)
+    {
+        if(MEDIUM.equals(size))
+        {
+            return 25;
+        }
+        else if(HUGE.equals(size))
+        {
+            return 100;
+        }
+        return 1;
+    }
+
+    /**
+     * Creates the sld for the corpus size.
+     *
+     * @param size the corpus size
+     * @return the styled layer descriptor
+     */
+    public static StyledLayerDescriptor createSLD(String size)
+    {
+        StyleBuilder styleBuilder = new StyleBuilder(styleFactory, ff);
+
+        StyledLayerDescriptor sld = styleFactory.createStyledLayerDescriptor();
+
+        int noOfLayers = getNoOfLayers(size);
+        int noOfRules = getNoOfRulesPerLayer(size);
+
+        int ruleIndex = 0;
+        for(int layerIndex = 0; layerIndex < noOfLayers; layerIndex ++)
+        {
+            FeatureTypeStyle fts = styleFactory.createFeatureTypeStyle();
+
+            for(int index = 0; index < noOfRules; index ++)
+            {
+                fts.rules().add(createRule(styleBuilder, ruleIndex));
+                ruleIndex ++;
+            }
+
+            Style style = styleFactory.createStyle();
+            style.setName(String.format("Style %d", layerIndex));
+            style.featureTypeStyles().add(fts);
+
+            NamedLayer namedLayer = styleFactory.createNamedLayer();
+            namedLayer.setName(String.format("Layer %d", layerIndex));
+            namedLayer.addStyle(style);
+
+            sld.addStyledLayer(namedLayer);
+        }
+
+        return sld;
+    }
+
+    /**
+     * Creates a rule.
+     *
+     * @param styleBuilder the style builder
+     * @param ruleIndex the rule index
+     * @return the rule
+     */
+    private static Rule createRule(StyleBuilder styleBuilder, int ruleIndex)
+    {
+        String attribute = ATTRIBUTE_PREFIX + (ruleIndex % NO_OF_ATTRIBUTES);
+        String value = getValue(ruleIndex / NO_OF_ATTRIBUTES);
+
+        Color fillColour = new Color((ruleIndex * 37) % 256, (ruleIndex * 91) % 256, (ruleIndex * 53) % 256);
+
+        PolygonSymbolizer polygonSymbolizer = styleBuilder.createPolygonSymbolizer(fillColour, Color.BLACK, 0.5 + (ruleIndex % 4));
+
+        Rule rule = styleFactory.createRule();
+        rule.setName(String.format("Rule %d", ruleIndex));
+        rule.setTitle(String.format("%s = %s", attribute, value));
+        rule.setFilter(ff.equals(ff.property(attribute), ff.literal(value)));
+        rule.symbolizers().add(polygonSymbolizer);
+
+        if((ruleIndex % 5) == 0)
+        {
+            TextSymbolizer textSymbolizer = styleBuilder.createTextSymbolizer(Color.DARK_GRAY,
+                    styleBuilder.createFont("Arial", 10.0), LABEL_ATTRIBUTE);
+            rule.symbolizers().add(textSymbolizer);
+        }
+
+        return rule;
+    }
+
+    /**
+     * Gets the attribute value.
+     *
+     * @param index the index
+     * @return the value
+     */
+    private static String getValue(int index)
+    {
+        return String.format(Locale.UK, "value%d", index % NO_OF_VALUES);
+    }
+
+    /**
+     * Encode the sld for the corpus size.
+     *
+     * @param size the corpus size
+     * @return the encoded sld
+     * @throws TransformerException the transformer exception
+     */
+    public static String createSLDString(String size) throws TransformerException
+    {
+        SLDTransformer transformer = new SLDTransformer();
+        transformer.setIndentation(2);
+        return transformer.transform(createSLD(size));
+    }
+
+    /**
+     * Writes the sld for the corpus size to a temporary file.
+     *
+     * @param size the corpus size
+     * @return the file
+     * @throws IOException Signals that an I/O exception has occurred.
+     * @throws TransformerException the transformer exception
+     */
+    public static File createSLDFile(String size) throws IOException, TransformerException
+    {
+        File file = File.createTempFile("benchmark_" + size, ".sld");
+        file.deleteOnExit();
+
+        Files.write(file.toPath(), createSLDString(size).getBytes(StandardCharsets.UTF_8));
+
+        return file;
+    }
+
+    /**
+     * Creates the feature type matching the attributes used by the corpus slds.
+     *
+     * @return the simple feature type
+     */
+    public static SimpleFeatureType createFeatureType()
+    {
+        SimpleFeatureTypeBuilder b = new SimpleFeatureTypeBuilder();
+        b.setName("benchmark");
+        b.setCRS(DefaultGeographicCRS.WGS84);
+        b.add(GEOMETRY_ATTRIBUTE, Polygon.class);
+        b.setDefaultGeometry(GEOMETRY_ATTRIBUTE);
+        b.add(LABEL_ATTRIBUTE, String.class);
+        for(int index = 0; index < NO_OF_ATTRIBUTES; index ++)
+        {
+            b.add(ATTRIBUTE_PREFIX + index, String.class);
+        }
+        return b.buildFeatureType();
+    }
+
+    /**
+     * Creates a grid of square polygon features covering -180,-90 to 180,90.
+     *
+     * @param gridSize the number of features along each side of the grid
+     * @return the simple feature source
+     */
+    public static SimpleFeatureSource createFeatureSource(int gridSize)
+    {
+        SimpleFeatureType featureType = createFeatureType();
+        SimpleFeatureBuilder builder = new SimpleFeatureBuilder(featureType);
+        GeometryFactory geometryFactory = new GeometryFactory();
+
+        double cellWidth = 360.0 / gridSize;
+        double cellHeight = 180.0 / gridSize;
+
+        List<SimpleFeature> featureList = new ArrayList<SimpleFeature>();
+        int featureIndex = 0;
+        for(int row = 0; row < gridSize; row ++)
+        {
+            for(int col = 0; col < gridSize; col ++)
+            {
+                double minX = -180.0 + (col * cellWidth);
+                double minY = -90.0 + (row * cellHeight);
+                double maxX = minX + (cellWidth * 0.9);
+                double maxY = minY + (cellHeight * 0.9);
+
+                Coordinate[] coords = new Coordinate[] {
+                        new Coordinate(minX, minY),
+                        new Coordinate(maxX, minY),
+                        new Coordinate(maxX, maxY),
+                        new Coordinate(minX, maxY),
+                        new Coordinate(minX, minY) };
+
+                builder.add(geometryFactory.createPolygon(coords));
+                builder.add(String.format("Feature %d", featureIndex));
+                for(int index = 0; index < NO_OF_ATTRIBUTES; index ++)
+                {
+                    builder.add(getValue(featureIndex + index));
+                }
+                featureList.add(builder.buildFeature(null));
+                featureIndex ++;
+            }
+        }
+
+        return DataUtilities.source(featureList.toArray(new SimpleFeature[0]));
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * SLD Editor - The Open Source Java SLD Editor
+ *
+ * Copyright (C) 2016, SCISYS UK Limited
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sldeditor.benchmark;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.styling.NamedLayer;
+import org.geotools.styling.PolygonSymbolizer;
+import org.geotools.styling.Rule;
+import org.geotools.styling.StyledLayerDescriptor;
+import org.opengis.filter.FilterFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.sldeditor.common.output.impl.IncrementalSLDWriterImpl;
+import com.sldeditor.common.output.impl.SLDWriterImpl;
+
+/**
+ * Benchmarks encoding slds to strings, both a full encode and
+ * an incremental encode after a single rule has been edited.
+ * <p>{@link com.sldeditor.common.output.impl.SLDWriterImpl}
+ * <p>{@link com.sldeditor.common.output.impl.IncrementalSLDWriterImpl}
+ *
+ * @author Robert Ward (SCISYS)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SLDEncodeBenchmark {
+
+    /** The corpus size. */
+    @Param({SLDCorpus.SMALL, SLDCorpus.MEDIUM, SLDCorpus.HUGE})
+    public String corpus;
+
+    /** The filter factory. */
+    private static FilterFactory ff = CommonFactoryFinder.getFilterFactory();
+
+    /** The sld. */
+    private StyledLayerDescriptor sld = null;
+
+    /** The sld writer. */
+    private SLDWriterImpl sldWriter = new SLDWriterImpl();
+
+    /** The incremental sld writer. */
+    private IncrementalSLDWriterImpl incrementalSLDWriter = new IncrementalSLDWriterImpl();
+
+    /** The rule that is edited. */
+    private Rule editedRule = null;
+
+    /** The dirty node set. */
+    private Set<Object> dirtyNodeSet = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+
+    /** The stroke width. */
+    private int strokeWidth = 1;
+
+    /**
+     * Create the sld.
+     */
+    @Setup
+    public void setup()
+    {
+        sld = SLDCorpus.createSLD(corpus);
+
+        NamedLayer namedLayer = (NamedLayer) sld.layers().get(0);
+        editedRule = namedLayer.getStyles()[0].featureTypeStyles().get(0).rules().get(0);
+        dirtyNodeSet.add(editedRule);
+
+        incrementalSLDWriter.encodeSLD(sld, null);
+    }
+
+    /**
+     * Encode the whole sld.
+     *
+     * @return the string
+     */
+    @Benchmark
+    public String encodeSLD()
+    {
+        return sldWriter.encodeSLD(sld);
+    }
+
+    /**
+     * Change the stroke width of one rule and encode the sld incrementally.
+     *
+     * @return the string
+     */
+    @Benchmark
+    public String encodeSLDIncremental()
+    {
+        PolygonSymbolizer polygonSymbolizer = (PolygonSymbolizer) editedRule.symbolizers().get(0);
+        strokeWidth = (strokeWidth % 10) + 1;
+        polygonSymbolizer.getStroke().setWidth(ff.literal(strokeWidth));
+
+        return incrementalSLDWriter.encodeSLD(sld, dirtyNodeSet);
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * SLD Editor - The Open Source Java SLD Editor
+ *
+ * Copyright (C) 2016, SCISYS UK Limited
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sldeditor.benchmark;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.geotools.styling.StyledLayerDescriptor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.sldeditor.common.data.SLDData;
+import com.sldeditor.common.data.SLDUtils;
+
+/**
+ * Benchmarks parsing slds from strings and files.
+ * <p>{@link com.sldeditor.common.data.SLDUtils}
+ *
+ * @author Robert Ward (SCISYS)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SLDParseBenchmark {
+
+    /** The corpus size. */
+    @Param({SLDCorpus.SMALL, SLDCorpus.MEDIUM, SLDCorpus.HUGE})
+    public String corpus;
+
+    /** The sld data. */
+    private SLDData sldData = null;
+
+    /** The sld file. */
+    private File sldFile = null;
+
+    /**
+     * Create the sld string and file.
+     *
+     * @throws Exception the exception
+     */
+    @Setup
+    public void setup() throws Exception
+    {
+        sldData = new SLDData(null, SLDCorpus.createSLDString(corpus));
+        sldFile = SLDCorpus.createSLDFile(corpus);
+    }
+
+    /**
+     * Parse the sld from a string.
+     *
+     * @return the styled layer descriptor
+     */
+    @Benchmark
+    public StyledLayerDescriptor createSLDFromString()
+    {
+        return SLDUtils.createSLDFromString(sldData);
+    }
+
+    /**
+     * Parse the sld from a file.
+     *
+     * @return the styled layer descriptor
+     */
+    @Benchmark
+    public StyledLayerDescriptor readSLDFile()
+    {
+        return SLDUtils.readSLDFile(sldFile);
+    }
+}
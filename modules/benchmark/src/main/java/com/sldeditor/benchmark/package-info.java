@@ -0,0 +1,29 @@
+/*
+ * SLD Editor - The Open Source Java SLD Editor
+ *
+ * Copyright (C) 2016, SCISYS UK Limited
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+/**
+ * Package containing the JMH benchmarks for the sld parse, encode, attribute extraction, render and legend code.
+ * <p>Build with <code>mvn -PBenchmarks package</code> and run with
+ * <code>java -jar modules/benchmark/target/benchmarks.jar</code>,
+ * add <code>-prof gc</code> to report allocation rates and <code>-rf json</code>
+ * to write results that can be compared between releases.
+ * <p>The inputs are the small, medium and huge slds generated by {@link com.sldeditor.benchmark.SLDCorpus}.
+ * 
+ * @author Robert Ward (SCISYS)
+ */
+package com.sldeditor.benchmark;
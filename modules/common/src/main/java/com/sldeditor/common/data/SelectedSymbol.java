@@ -19,7 +19,10 @@
 package com.sldeditor.common.data;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
 
 import org.apache.log4j.Logger;
 import org.geotools.styling.FeatureTypeStyle;
@@ -78,6 +81,12 @@ public class SelectedSymbol {
     /** The name. */
     private String name;
 
+    /** The rules and feature type styles modified since the sld was last encoded. */
+    private Set<Object> dirtyNodeSet = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+
+    /** The flag indicating the sld structure above rule/feature type style level has changed. */
+    private boolean structureDirty = true;
+
     /**
      * Gets the single instance of SelectedSymbol.
      *
@@ -157,6 +166,7 @@ public class SelectedSymbol {
     public void setSld(StyledLayerDescriptor sld) {
         this.sld = sld;
         symbolData.resetData();
+        markStructureDirty();
         logger.debug("Set SLD");
     }
 
@@ -420,6 +430,7 @@ public class SelectedSymbol {
         {
             List<Symbolizer> symbolizerList = (List<Symbolizer>) this.symbolData.getRule().symbolizers();
             symbolizerList.add(newSymbolizer);
+            markNodeDirty(this.symbolData.getRule());
         }
     }
 
@@ -469,6 +480,7 @@ public class SelectedSymbol {
             ruleList.remove(indexFound);
             ruleList.add(indexFound, newRule);
             setRule(newRule);
+            markNodeDirty(newRule);
         }
     }
 
@@ -500,6 +512,7 @@ public class SelectedSymbol {
             ftsList.remove(indexFound);
             ftsList.add(indexFound, newFTS);
             setFeatureTypeStyle(newFTS);
+            markNodeDirty(newFTS);
         }
     }
 
@@ -532,6 +545,7 @@ public class SelectedSymbol {
             styledLayerList[indexFound] = newNamedLayer;
             this.sld.setStyledLayers(styledLayerList);
             setStyledLayer(newNamedLayer);
+            markStructureDirty();
         }
     }
 
@@ -566,9 +580,11 @@ public class SelectedSymbol {
 
                 if(indexFound > -1)
                 {
+                    Rule rule = this.symbolData.getRule();
                     symbolizerList.remove(indexFound);
                     symbolizerList.add(indexFound, newSymbolizer);
                     setSymbolizer(newSymbolizer);
+                    markNodeDirty(rule);
                 }
 
                 if(treeUpdateListener != null)
@@ -612,6 +628,7 @@ public class SelectedSymbol {
                 styleList.remove(indexFound);
                 styleList.add(indexFound, newStyle);
                 setStyle(newStyle);
+                markStructureDirty();
             }
         }
     }
@@ -688,6 +705,7 @@ public class SelectedSymbol {
             List<Rule> ruleList = (List<Rule>) this.symbolData.getFeatureTypeStyle().rules();
 
             ruleList.add(rule);
+            markNodeDirty(this.symbolData.getFeatureTypeStyle());
         }
     }
 
@@ -710,6 +728,7 @@ public class SelectedSymbol {
                 List<Style> styleList = namedLayer.styles();
 
                 styleList.add(style);
+                markStructureDirty();
             }
         }
     }
@@ -729,6 +748,7 @@ public class SelectedSymbol {
             List<FeatureTypeStyle> ftsList = this.symbolData.getStyle().featureTypeStyles();
 
             ftsList.add(featureTypeStyle);
+            markStructureDirty();
         }
     }
 
@@ -745,6 +765,7 @@ public class SelectedSymbol {
         else
         {
             this.sld.addStyledLayer(namedLayer);
+            markStructureDirty();
         }
     }
 
@@ -774,6 +795,7 @@ public class SelectedSymbol {
         if(indexFound > -1)
         {
             symbolizerList.remove(indexFound);
+            markNodeDirty(this.symbolData.getRule());
         }
     }
 
@@ -803,6 +825,7 @@ public class SelectedSymbol {
         if(indexFound > -1)
         {
             ruleList.remove(indexFound);
+            markNodeDirty(this.symbolData.getFeatureTypeStyle());
         }
     }
 
@@ -832,6 +855,7 @@ public class SelectedSymbol {
         if(indexFound > -1)
         {
             ftsList.remove(indexFound);
+            markStructureDirty();
         }
     }
 
@@ -865,6 +889,7 @@ public class SelectedSymbol {
             if(indexFound > -1)
             {
                 styleList.remove(indexFound);
+                markStructureDirty();
             }
         }
     }
@@ -895,6 +920,7 @@ public class SelectedSymbol {
         if(indexFound > -1)
         {
             styledLayerList.remove(indexFound);
+            markStructureDirty();
         }
     }
 
@@ -954,6 +980,7 @@ public class SelectedSymbol {
      */
     public void createNewSLD(StyledLayerDescriptor newSLD) {
         this.sld = newSLD;
+        markStructureDirty();
     }
 
     /**
@@ -994,4 +1021,67 @@ public class SelectedSymbol {
     public void setValidSymbol(String key, boolean validSymbolFlag) {
         this.symbolData.setValidSymbol(key, validSymbolFlag);
     }
+
+    /**
+     * Mark the currently selected rule as modified, if no rule is selected
+     * the selected feature type style is marked instead. If neither are selected
+     * the whole sld structure is marked as modified.
+     */
+    public void markSelectedNodeDirty() {
+        if(this.symbolData.getRule() != null)
+        {
+            markNodeDirty(this.symbolData.getRule());
+        }
+        else if(this.symbolData.getFeatureTypeStyle() != null)
+        {
+            markNodeDirty(this.symbolData.getFeatureTypeStyle());
+        }
+        else
+        {
+            markStructureDirty();
+        }
+    }
+
+    /**
+     * Mark a rule or feature type style as modified.
+     *
+     * @param node the node
+     */
+    private void markNodeDirty(Object node) {
+        if(node != null)
+        {
+            dirtyNodeSet.add(node);
+        }
+    }
+
+    /**
+     * Mark the whole sld structure as modified.
+     */
+    private void markStructureDirty() {
+        structureDirty = true;
+        dirtyNodeSet.clear();
+    }
+
+    /**
+     * Gets the rules and feature type styles modified since the dirty nodes were last cleared.
+     *
+     * @return the dirty nodes, null if the sld structure has changed and must be fully encoded
+     */
+    public Set<Object> getDirtyNodes() {
+        if(structureDirty)
+        {
+            return null;
+        }
+        Set<Object> nodeSet = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+        nodeSet.addAll(dirtyNodeSet);
+        return nodeSet;
+    }
+
+    /**
+     * Clear the dirty nodes, called once the sld has been encoded.
+     */
+    public void clearDirtyNodes() {
+        structureDirty = false;
+        dirtyNodeSet.clear();
+    }
 }
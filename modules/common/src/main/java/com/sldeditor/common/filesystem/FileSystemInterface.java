@@ -57,6 +57,14 @@ public interface FileSystemInterface extends Serializable
      */
     boolean treeExpanded(Object selectedItem);
 
+    /**
+     * Tree collapsed.
+     *
+     * @param selectedItem the selected item
+     * @return true, if the node's structure has changed
+     */
+    boolean treeCollapsed(Object selectedItem);
+
     /**
      * Right mouse button pressed.
      *
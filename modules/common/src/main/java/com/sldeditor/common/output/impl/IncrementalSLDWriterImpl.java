@@ -0,0 +1,672 @@
+/*
+ * SLD Editor - The Open Source Java SLD Editor
+ *
+ * Copyright (C) 2016, SCISYS UK Limited
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sldeditor.common.output.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.xml.transform.TransformerException;
+
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.styling.FeatureTypeStyle;
+import org.geotools.styling.NamedLayer;
+import org.geotools.styling.Rule;
+import org.geotools.styling.Style;
+import org.geotools.styling.StyleFactory;
+import org.geotools.styling.StyledLayer;
+import org.geotools.styling.StyledLayerDescriptor;
+import org.geotools.styling.Symbolizer;
+import org.geotools.styling.UserLayer;
+
+import com.sldeditor.common.console.ConsoleManager;
+import com.sldeditor.common.data.SelectedSymbol;
+import com.sldeditor.common.output.SLDWriterInterface;
+
+/**
+ * Class that converts an SLD stored as a StyledLayerDescriptor to a string,
+ * re-encoding only the rules and feature type styles that have changed since
+ * the last time the same sld was encoded.
+ * <p>The xml of each modified rule/feature type style is generated by encoding
+ * it on its own inside an sld at the same depth and is then spliced into the
+ * previously generated xml, the result is identical to a full encode.
+ * <p>If the structure of the sld has changed (styled layers, styles, feature type styles,
+ * rules or symbolizers added, removed or moved) the whole sld is encoded.
+ *
+ * @author Robert Ward (SCISYS)
+ */
+public class IncrementalSLDWriterImpl implements SLDWriterInterface {
+
+    /** The pattern matching feature type style and rule start/end tags. */
+    private static final Pattern ELEMENT_PATTERN = Pattern.compile("<(/?)(?:\\w+:)?(FeatureTypeStyle|Rule)(?=[\\s/>])");
+
+    /** The Constant FEATURE_TYPE_STYLE_ELEMENT. */
+    private static final String FEATURE_TYPE_STYLE_ELEMENT = "FeatureTypeStyle";
+
+    /** The style factory. */
+    private static StyleFactory styleFactory = CommonFactoryFinder.getStyleFactory();
+
+    /** The last sld encoded. */
+    private StyledLayerDescriptor cachedSLD = null;
+
+    /** The xml of the last sld encoded. */
+    private String cachedXML = null;
+
+    /** The structure of the last sld encoded. */
+    private SLDStructure cachedStructure = null;
+
+    /** The location of the feature type styles and rules in the cached xml. */
+    private List<FragmentRange> cachedRangeList = null;
+
+    /** The number of full encodes. */
+    private int fullEncodeCount = 0;
+
+    /** The number of fragments re-encoded. */
+    private int fragmentEncodeCount = 0;
+
+    /**
+     * Class describing a feature type style and its rules in the order they are encoded.
+     */
+    private static class FTSEntry
+    {
+        /** The feature type style. */
+        private FeatureTypeStyle fts = null;
+
+        /** The rule list. */
+        private List<RuleEntry> ruleList = new ArrayList<RuleEntry>();
+    }
+
+    /**
+     * Class describing a rule and its symbolizers.
+     */
+    private static class RuleEntry
+    {
+        /** The rule. */
+        private Rule rule = null;
+
+        /** The symbolizer list. */
+        private List<Symbolizer> symbolizerList = new ArrayList<Symbolizer>();
+    }
+
+    /**
+     * Class describing the structure of an sld.
+     */
+    private static class SLDStructure
+    {
+        /** The styled layers and styles. */
+        private List<Object> containerList = new ArrayList<Object>();
+
+        /** The feature type styles. */
+        private List<FTSEntry> ftsList = new ArrayList<FTSEntry>();
+    }
+
+    /**
+     * Class describing the location of a feature type style or rule in the xml.
+     */
+    private static class FragmentRange
+    {
+        /** The start offset. */
+        private int start;
+
+        /** The end offset (exclusive). */
+        private int end;
+
+        /** The child rule ranges. */
+        private List<FragmentRange> childList = new ArrayList<FragmentRange>();
+
+        /**
+         * Instantiates a new fragment range.
+         *
+         * @param start the start
+         */
+        FragmentRange(int start)
+        {
+            this.start = start;
+        }
+    }
+
+    /**
+     * Class describing a fragment of xml to replace.
+     */
+    private static class Replacement
+    {
+        /** The range to replace. */
+        private FragmentRange range;
+
+        /** The rule or feature type style to encode. */
+        private Object node;
+
+        /**
+         * Instantiates a new replacement.
+         *
+         * @param range the range
+         * @param node the node
+         */
+        Replacement(FragmentRange range, Object node)
+        {
+            this.range = range;
+            this.node = node;
+        }
+    }
+
+    /**
+     * Default constructor.
+     */
+    public IncrementalSLDWriterImpl()
+    {
+    }
+
+    /**
+     * Encode sld to a string, if the sld is the one currently being edited
+     * only the modified rules/feature type styles are re-encoded.
+     *
+     * @param sld the sld
+     * @return the string
+     */
+    @Override
+    public synchronized String encodeSLD(StyledLayerDescriptor sld)
+    {
+        SelectedSymbol selectedSymbol = SelectedSymbol.getInstance();
+
+        if((sld != null) && (sld == selectedSymbol.getSld()))
+        {
+            String xml = encodeSLD(sld, selectedSymbol.getDirtyNodes());
+            selectedSymbol.clearDirtyNodes();
+            return xml;
+        }
+
+        return encodeSLD(sld, null);
+    }
+
+    /**
+     * Encode sld to a string re-encoding only the supplied modified nodes.
+     *
+     * @param sld the sld
+     * @param dirtyNodeSet the modified rules and feature type styles,
+     *     null if the whole sld is to be encoded
+     * @return the string
+     */
+    public synchronized String encodeSLD(StyledLayerDescriptor sld, Set<Object> dirtyNodeSet)
+    {
+        if(sld == null)
+        {
+            clearCache();
+            return "";
+        }
+
+        SLDStructure structure = createStructure(sld);
+
+        if((dirtyNodeSet != null) && (sld == cachedSLD))
+        {
+            List<Replacement> replacementList = findReplacements(structure, dirtyNodeSet);
+
+            if(replacementList != null)
+            {
+                String xml = splice(replacementList);
+
+                if(xml != null)
+                {
+                    List<FragmentRange> rangeList = findFragments(xml);
+
+                    if(matchesStructure(rangeList, structure))
+                    {
+                        updateCache(sld, xml, structure, rangeList);
+                        return xml;
+                    }
+                }
+            }
+        }
+
+        return fullEncode(sld, structure);
+    }
+
+    /**
+     * Encode the whole sld and cache the result.
+     *
+     * @param sld the sld
+     * @param structure the sld structure
+     * @return the string
+     */
+    private String fullEncode(StyledLayerDescriptor sld, SLDStructure structure)
+    {
+        fullEncodeCount ++;
+
+        String xml = transform(sld);
+
+        if(xml == null)
+        {
+            clearCache();
+            return "";
+        }
+
+        List<FragmentRange> rangeList = findFragments(xml);
+
+        if(matchesStructure(rangeList, structure))
+        {
+            updateCache(sld, xml, structure, rangeList);
+        }
+        else
+        {
+            clearCache();
+        }
+
+        return xml;
+    }
+
+    /**
+     * Find the fragments of cached xml that need replacing.
+     *
+     * @param structure the new sld structure
+     * @param dirtyNodeSet the modified nodes
+     * @return the list of replacements, null if a full encode is required
+     */
+    private List<Replacement> findReplacements(SLDStructure structure, Set<Object> dirtyNodeSet)
+    {
+        if((cachedStructure == null) || (cachedRangeList == null))
+        {
+            return null;
+        }
+
+        if(!sameNodes(cachedStructure.containerList, structure.containerList))
+        {
+            return null;
+        }
+
+        if(cachedStructure.ftsList.size() != structure.ftsList.size())
+        {
+            return null;
+        }
+
+        List<Replacement> replacementList = new ArrayList<Replacement>();
+
+        for(int ftsIndex = 0; ftsIndex < structure.ftsList.size(); ftsIndex ++)
+        {
+            FTSEntry oldFTS = cachedStructure.ftsList.get(ftsIndex);
+            FTSEntry newFTS = structure.ftsList.get(ftsIndex);
+            FragmentRange ftsRange = cachedRangeList.get(ftsIndex);
+
+            if(dirtyNodeSet.contains(newFTS.fts))
+            {
+                replacementList.add(new Replacement(ftsRange, newFTS.fts));
+            }
+            else
+            {
+                if((oldFTS.fts != newFTS.fts) || (oldFTS.ruleList.size() != newFTS.ruleList.size()))
+                {
+                    return null;
+                }
+
+                for(int ruleIndex = 0; ruleIndex < newFTS.ruleList.size(); ruleIndex ++)
+                {
+                    RuleEntry oldRule = oldFTS.ruleList.get(ruleIndex);
+                    RuleEntry newRule = newFTS.ruleList.get(ruleIndex);
+
+                    if(dirtyNodeSet.contains(newRule.rule))
+                    {
+                        replacementList.add(new Replacement(ftsRange.childList.get(ruleIndex), newRule.rule));
+                    }
+                    else if((oldRule.rule != newRule.rule) || !sameNodes(oldRule.symbolizerList, newRule.symbolizerList))
+                    {
+                        return null;
+                    }
+                }
+            }
+        }
+
+        return replacementList;
+    }
+
+    /**
+     * Replace the modified fragments in the cached xml, working backwards
+     * so that the earlier offsets remain valid.
+     *
+     * @param replacementList the replacement list
+     * @return the new xml, null if a fragment could not be encoded
+     */
+    private String splice(List<Replacement> replacementList)
+    {
+        StringBuilder sb = new StringBuilder(cachedXML);
+
+        for(int index = replacementList.size() - 1; index >= 0; index --)
+        {
+            Replacement replacement = replacementList.get(index);
+
+            String fragment = encodeFragment(replacement.node);
+            if(fragment == null)
+            {
+                return null;
+            }
+
+            sb.replace(replacement.range.start, replacement.range.end, fragment);
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * Encode a single rule or feature type style, the node is wrapped in
+     * an sld so that it is encoded at the same depth as in the full sld.
+     *
+     * @param node the rule or feature type style
+     * @return the xml fragment, null if it could not be encoded
+     */
+    private String encodeFragment(Object node)
+    {
+        fragmentEncodeCount ++;
+
+        FeatureTypeStyle fts = null;
+        if(node instanceof FeatureTypeStyle)
+        {
+            fts = (FeatureTypeStyle) node;
+        }
+        else
+        {
+            fts = styleFactory.createFeatureTypeStyle();
+            fts.rules().add((Rule) node);
+        }
+
+        Style style = styleFactory.createStyle();
+        style.featureTypeStyles().add(fts);
+
+        NamedLayer namedLayer = styleFactory.createNamedLayer();
+        namedLayer.addStyle(style);
+
+        StyledLayerDescriptor wrapperSLD = styleFactory.createStyledLayerDescriptor();
+        wrapperSLD.addStyledLayer(namedLayer);
+
+        String xml = transform(wrapperSLD);
+        if(xml == null)
+        {
+            return null;
+        }
+
+        List<FragmentRange> rangeList = findFragments(xml);
+        if((rangeList == null) || (rangeList.size() != 1))
+        {
+            return null;
+        }
+
+        FragmentRange range = rangeList.get(0);
+        if(node instanceof Rule)
+        {
+            if(range.childList.size() != 1)
+            {
+                return null;
+            }
+            range = range.childList.get(0);
+        }
+
+        return xml.substring(range.start, range.end);
+    }
+
+    /**
+     * Transform the sld to xml using the same settings as SLDWriterImpl.
+     *
+     * @param sld the sld
+     * @return the xml, null on error
+     */
+    private String transform(StyledLayerDescriptor sld)
+    {
+        try {
+            return SLDWriterImpl.getTransformer().transform(sld);
+        } catch (TransformerException e) {
+            ConsoleManager.getInstance().exception(this, e);
+        }
+        return null;
+    }
+
+    /**
+     * Find the locations of all the feature type styles and rules in the xml.
+     *
+     * @param xml the xml
+     * @return the feature type style ranges, null if the xml could not be understood
+     */
+    private static List<FragmentRange> findFragments(String xml)
+    {
+        List<FragmentRange> rangeList = new ArrayList<FragmentRange>();
+
+        FragmentRange currentFTS = null;
+        int ruleStart = -1;
+
+        Matcher matcher = ELEMENT_PATTERN.matcher(xml);
+        while(matcher.find())
+        {
+            boolean endTag = !matcher.group(1).isEmpty();
+            boolean isFTS = FEATURE_TYPE_STYLE_ELEMENT.equals(matcher.group(2));
+            int tagEnd = xml.indexOf('>', matcher.end());
+            if(tagEnd < 0)
+            {
+                return null;
+            }
+            boolean emptyElement = !endTag && (xml.charAt(tagEnd - 1) == '/');
+
+            if(isFTS)
+            {
+                if(endTag)
+                {
+                    if(currentFTS == null)
+                    {
+                        return null;
+                    }
+                    currentFTS.end = tagEnd + 1;
+                    rangeList.add(currentFTS);
+                    currentFTS = null;
+                }
+                else
+                {
+                    if(currentFTS != null)
+                    {
+                        return null;
+                    }
+                    currentFTS = new FragmentRange(matcher.start());
+                    if(emptyElement)
+                    {
+                        currentFTS.end = tagEnd + 1;
+                        rangeList.add(currentFTS);
+                        currentFTS = null;
+                    }
+                }
+            }
+            else
+            {
+                if(currentFTS == null)
+                {
+                    return null;
+                }
+
+                if(endTag)
+                {
+                    if(ruleStart < 0)
+                    {
+                        return null;
+                    }
+                    FragmentRange ruleRange = new FragmentRange(ruleStart);
+                    ruleRange.end = tagEnd + 1;
+                    currentFTS.childList.add(ruleRange);
+                    ruleStart = -1;
+                }
+                else if(emptyElement)
+                {
+                    FragmentRange ruleRange = new FragmentRange(matcher.start());
+                    ruleRange.end = tagEnd + 1;
+                    currentFTS.childList.add(ruleRange);
+                }
+                else
+                {
+                    ruleStart = matcher.start();
+                }
+            }
+        }
+
+        return (currentFTS == null) ? rangeList : null;
+    }
+
+    /**
+     * Check that the xml fragments found match the sld structure.
+     *
+     * @param rangeList the range list
+     * @param structure the structure
+     * @return true, if successful
+     */
+    private static boolean matchesStructure(List<FragmentRange> rangeList, SLDStructure structure)
+    {
+        if((rangeList == null) || (rangeList.size() != structure.ftsList.size()))
+        {
+            return false;
+        }
+
+        for(int index = 0; index < rangeList.size(); index ++)
+        {
+            if(rangeList.get(index).childList.size() != structure.ftsList.get(index).ruleList.size())
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Creates the structure of the sld, in the order SLDTransformer encodes it.
+     *
+     * @param sld the sld
+     * @return the sld structure
+     */
+    private static SLDStructure createStructure(StyledLayerDescriptor sld)
+    {
+        SLDStructure structure = new SLDStructure();
+
+        StyledLayer[] styledLayers = sld.getStyledLayers();
+
+        if(styledLayers != null)
+        {
+            for(StyledLayer styledLayer : styledLayers)
+            {
+                structure.containerList.add(styledLayer);
+
+                Style[] styles = null;
+                if(styledLayer instanceof NamedLayer)
+                {
+                    styles = ((NamedLayer) styledLayer).getStyles();
+                }
+                else if(styledLayer instanceof UserLayer)
+                {
+                    styles = ((UserLayer) styledLayer).getUserStyles();
+                }
+
+                if(styles != null)
+                {
+                    for(Style style : styles)
+                    {
+                        structure.containerList.add(style);
+
+                        for(FeatureTypeStyle fts : style.featureTypeStyles())
+                        {
+                            FTSEntry ftsEntry = new FTSEntry();
+                            ftsEntry.fts = fts;
+
+                            for(Rule rule : fts.rules())
+                            {
+                                RuleEntry ruleEntry = new RuleEntry();
+                                ruleEntry.rule = rule;
+                                ruleEntry.symbolizerList.addAll(rule.symbolizers());
+                                ftsEntry.ruleList.add(ruleEntry);
+                            }
+                            structure.ftsList.add(ftsEntry);
+                        }
+                    }
+                }
+            }
+        }
+
+        return structure;
+    }
+
+    /**
+     * Check two lists contain the same objects in the same order.
+     *
+     * @param list1 the list 1
+     * @param list2 the list 2
+     * @return true, if successful
+     */
+    private static boolean sameNodes(List<?> list1, List<?> list2)
+    {
+        if(list1.size() != list2.size())
+        {
+            return false;
+        }
+
+        for(int index = 0; index < list1.size(); index ++)
+        {
+            if(list1.get(index) != list2.get(index))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Update cache.
+     *
+     * @param sld the sld
+     * @param xml the xml
+     * @param structure the structure
+     * @param rangeList the range list
+     */
+    private void updateCache(StyledLayerDescriptor sld, String xml, SLDStructure structure, List<FragmentRange> rangeList)
+    {
+        cachedSLD = sld;
+        cachedXML = xml;
+        cachedStructure = structure;
+        cachedRangeList = rangeList;
+    }
+
+    /**
+     * Clear cache.
+     */
+    private void clearCache()
+    {
+        cachedSLD = null;
+        cachedXML = null;
+        cachedStructure = null;
+        cachedRangeList = null;
+    }
+
+    /**
+     * Gets the number of times the whole sld has been encoded.
+     *
+     * @return the full encode count
+     */
+    public int getFullEncodeCount()
+    {
+        return fullEncodeCount;
+    }
+
+    /**
+     * Gets the number of rule/feature type style fragments encoded.
+     *
+     * @return the fragment encode count
+     */
+    public int getFragmentEncodeCount()
+    {
+        return fragmentEncodeCount;
+    }
+}
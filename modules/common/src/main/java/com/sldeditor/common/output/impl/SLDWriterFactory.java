@@ -30,6 +30,9 @@ public class SLDWriterFactory {
     /** The sld writer impl. */
     private static SLDWriterImpl sldWriterImpl = null;
 
+    /** The incremental sld writer impl. */
+    private static IncrementalSLDWriterImpl incrementalSLDWriterImpl = null;
+
     /**
      * Creates a new SLDWriter object.
      *
@@ -44,4 +47,19 @@ public class SLDWriterFactory {
         }
         return sldWriterImpl;
     }
+
+    /**
+     * Creates a new SLDWriter object that only re-encodes the parts
+     * of the sld being edited that have changed.
+     *
+     * @return the SLD writer interface
+     */
+    public static SLDWriterInterface createIncrementalSLDWriter()
+    {
+        if(incrementalSLDWriterImpl == null)
+        {
+            incrementalSLDWriterImpl = new IncrementalSLDWriterImpl();
+        }
+        return incrementalSLDWriterImpl;
+    }
 }
@@ -33,6 +33,16 @@ import com.sldeditor.common.output.SLDWriterInterface;
  */
 public class SLDWriterImpl implements SLDWriterInterface {
 
+    /** The transformer for each thread, transformers are not thread safe but can be reused. */
+    private static ThreadLocal<SLDTransformer> transformer = new ThreadLocal<SLDTransformer>() {
+        @Override
+        protected SLDTransformer initialValue() {
+            SLDTransformer sldTransformer = new SLDTransformer();
+            sldTransformer.setIndentation(2);
+            return sldTransformer;
+        }
+    };
+
     /**
      * Default constructor.
      */
@@ -52,10 +62,8 @@ public class SLDWriterImpl implements SLDWriterInterface {
 
         if(sld != null)
         {
-            SLDTransformer transformer = new SLDTransformer();
-            transformer.setIndentation(2);
             try {
-                xml = transformer.transform(sld);
+                xml = getTransformer().transform(sld);
             } catch (TransformerException e) {
                 ConsoleManager.getInstance().exception(this, e);
             }
@@ -63,4 +71,14 @@ public class SLDWriterImpl implements SLDWriterInterface {
 
         return xml;
     }
+
+    /**
+     * Gets the transformer confined to the calling thread.
+     *
+     * @return the transformer
+     */
+    static SLDTransformer getTransformer()
+    {
+        return transformer.get();
+    }
 }
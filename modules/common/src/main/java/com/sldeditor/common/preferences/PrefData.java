@@ -32,6 +32,9 @@ import com.sldeditor.common.vendoroption.VersionData;
  */
 public class PrefData implements Cloneable {
 
+    /** The Constant DEFAULT_PREVIEW_FEATURE_CAP, the default maximum number of features drawn in map preview mode. */
+    public static final int DEFAULT_PREVIEW_FEATURE_CAP = 10000;
+
     /** The use anti alias flag. */
     private boolean useAntiAlias = false;
 
@@ -44,6 +47,9 @@ public class PrefData implements Cloneable {
     /** The background colour. */
     private Color backgroundColour = Color.WHITE;
 
+    /** The maximum number of features drawn in map preview mode. */
+    private int previewFeatureCap = DEFAULT_PREVIEW_FEATURE_CAP;
+
     /**
      * Default constructor.
      */
@@ -66,6 +72,7 @@ public class PrefData implements Cloneable {
         copy.uiLayoutClass = this.uiLayoutClass;
         copy.useAntiAlias = this.useAntiAlias;
         copy.backgroundColour = new Color(this.backgroundColour.getRGB());
+        copy.previewFeatureCap = this.previewFeatureCap;
 
         if(this.vendorOptionList != null)
         {
@@ -152,4 +159,22 @@ public class PrefData implements Cloneable {
     public void setBackgroundColour(Color backgroundColour) {
         this.backgroundColour = backgroundColour;
     }
+
+    /**
+     * Gets the maximum number of features drawn in map preview mode.
+     *
+     * @return the preview feature cap
+     */
+    public int getPreviewFeatureCap() {
+        return previewFeatureCap;
+    }
+
+    /**
+     * Sets the maximum number of features drawn in map preview mode.
+     *
+     * @param previewFeatureCap the new preview feature cap
+     */
+    public void setPreviewFeatureCap(int previewFeatureCap) {
+        this.previewFeatureCap = previewFeatureCap;
+    }
 }
@@ -52,6 +52,21 @@ public class PrefManager implements UndoActionInterface {
     /** The Constant BACKGROUND_COLOUR_FIELD. */
     private static final String BACKGROUND_COLOUR_FIELD = "SldEditor.backgroundColour";
 
+    /** The Constant PREVIEW_FEATURE_CAP_FIELD. */
+    private static final String PREVIEW_FEATURE_CAP_FIELD = "SldEditor.previewFeatureCap";
+
+    /** The Constant UNDO_MAX_EVENTS_FIELD. */
+    private static final String UNDO_MAX_EVENTS_FIELD = "SldEditor.undo.maxEvents";
+
+    /** The Constant UNDO_MAX_MEMORY_FIELD, in megabytes. */
+    private static final String UNDO_MAX_MEMORY_FIELD = "SldEditor.undo.maxMemory";
+
+    /** The Constant UNDO_COALESCE_INTERVAL_FIELD, in milliseconds. */
+    private static final String UNDO_COALESCE_INTERVAL_FIELD = "SldEditor.undo.coalesceInterval";
+
+    /** The number of bytes in a megabyte. */
+    private static final double BYTES_PER_MEGABYTE = 1024.0 * 1024.0;
+
     /** The singleton instance. */
     private static PrefManager instance = null;
 
@@ -112,6 +127,7 @@ public class PrefManager implements UndoActionInterface {
             listenerList.add(listener);
             
             listener.useAntiAliasUpdated(this.prefData.isUseAntiAlias());
+            listener.previewFeatureCapUpdated(this.prefData.getPreviewFeatureCap());
         }
     }
 
@@ -201,6 +217,13 @@ public class PrefManager implements UndoActionInterface {
             PrefManager.getInstance().setVendorOptionList(vendorOptionVersionList);
 
             PrefManager.getInstance().setBackgroundColour(propertyManagerInstance.getColourValue(BACKGROUND_COLOUR_FIELD, Color.WHITE));
+
+            PrefManager.getInstance().setPreviewFeatureCap((int) propertyManagerInstance.getDoubleValue(PREVIEW_FEATURE_CAP_FIELD, PrefData.DEFAULT_PREVIEW_FEATURE_CAP));
+
+            UndoManager undoManager = UndoManager.getInstance();
+            undoManager.setMaxUndoEvents((int) propertyManagerInstance.getDoubleValue(UNDO_MAX_EVENTS_FIELD, UndoManager.DEFAULT_MAX_UNDO_EVENTS));
+            undoManager.setMaxUndoMemory((long) (propertyManagerInstance.getDoubleValue(UNDO_MAX_MEMORY_FIELD, UndoManager.DEFAULT_MAX_UNDO_MEMORY / BYTES_PER_MEGABYTE) * BYTES_PER_MEGABYTE));
+            undoManager.setCoalesceInterval((long) propertyManagerInstance.getDoubleValue(UNDO_COALESCE_INTERVAL_FIELD, UndoManager.DEFAULT_COALESCE_INTERVAL));
         }
     }
 
@@ -280,6 +303,7 @@ public class PrefManager implements UndoActionInterface {
         setVendorOptionList(newPrefData.getVendorOptionVersionList());
         setUiLayoutClass(newPrefData.getUiLayoutClass());
         setBackgroundColour(newPrefData.getBackgroundColour());
+        setPreviewFeatureCap(newPrefData.getPreviewFeatureCap());
 
         UndoManager.getInstance().addUndoEvent(new UndoEvent(this, "Preferences", oldValueObj, prefData));
     }
@@ -323,6 +347,30 @@ public class PrefManager implements UndoActionInterface {
         }
     }
 
+    /**
+     * Sets the maximum number of features drawn in map preview mode.
+     *
+     * @param previewFeatureCap the new preview feature cap, minimum 1
+     */
+    private void setPreviewFeatureCap(int previewFeatureCap) {
+        int newPreviewFeatureCap = Math.max(1, previewFeatureCap);
+
+        if(this.prefData.getPreviewFeatureCap() != newPreviewFeatureCap)
+        {
+            this.prefData.setPreviewFeatureCap(newPreviewFeatureCap);
+
+            if(propertyManagerInstance != null)
+            {
+                propertyManagerInstance.updateValue(PREVIEW_FEATURE_CAP_FIELD, String.valueOf(newPreviewFeatureCap));
+            }
+
+            for(PrefUpdateInterface listener : listenerList)
+            {
+                listener.previewFeatureCapUpdated(newPreviewFeatureCap);
+            }
+        }
+    }
+
     /**
      * Sets the ui layout class.
      *
@@ -40,4 +40,11 @@ public interface PrefUpdateInterface {
      * @param backgroundColour the background colour
      */
     void backgroundColourUpdate(Color backgroundColour);
+
+    /**
+     * Map preview feature cap updated.
+     *
+     * @param previewFeatureCap the maximum number of features drawn in map preview mode
+     */
+    void previewFeatureCapUpdated(int previewFeatureCap);
 }
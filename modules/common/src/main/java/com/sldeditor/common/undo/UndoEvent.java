@@ -18,6 +18,17 @@
  */
 package com.sldeditor.common.undo;
 
+import java.util.Objects;
+
+import javax.xml.transform.TransformerException;
+
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.styling.ColorMap;
+import org.geotools.styling.ColorMapEntry;
+import org.geotools.styling.SLDTransformer;
+import org.geotools.styling.StyleFactory;
+import org.geotools.styling.Symbolizer;
+
 import com.sldeditor.ui.detail.config.FieldId;
 
 /**
@@ -43,8 +54,40 @@ public class UndoEvent implements UndoInterface
     /** The new value. */
     private Object newValue = null;
 
-    /** The representation. */
-    private String representation;
+    /** The representation, created when first requested. */
+    private String representation = null;
+
+    /** The time the new value was last set, in milliseconds. */
+    private long timeStamp = 0;
+
+    /** The estimated size in bytes, -1 if not yet calculated. */
+    private long estimatedSize = -1;
+
+    /** The estimated size of the old value in bytes, -1 if not yet calculated. */
+    private long oldValueSize = -1;
+
+    /** The number of colour map entries of the new value shared with the old value. */
+    private int sharedEntryCount = 0;
+
+    /** The Constant EVENT_OVERHEAD, estimated size of the event itself in bytes. */
+    private static final long EVENT_OVERHEAD = 64;
+
+    /** The Constant OBJECT_OVERHEAD, estimated size of an object header in bytes. */
+    private static final long OBJECT_OVERHEAD = 16;
+
+    /** The Constant STRING_OVERHEAD, estimated size of an empty string in bytes. */
+    private static final long STRING_OVERHEAD = 40;
+
+    /** The transformer for each thread used to encode style values, transformers are not thread safe but can be reused. */
+    private static ThreadLocal<SLDTransformer> transformer = new ThreadLocal<SLDTransformer>() {
+        @Override
+        protected SLDTransformer initialValue() {
+            return new SLDTransformer();
+        }
+    };
+
+    /** The style factory. */
+    private static StyleFactory styleFactory = CommonFactoryFinder.getStyleFactory();
 
     /**
      * Instantiates a new undo event.
@@ -60,8 +103,7 @@ public class UndoEvent implements UndoInterface
         this.fieldId = fieldId;
         this.oldValue = oldValue;
         this.newValue = newValue;
-
-        representation = String.format("Storing value : %s Old : %s New : %s", fieldId.toString(), oldValue, newValue);
+        this.timeStamp = System.currentTimeMillis();
     }
 
     /**
@@ -78,8 +120,7 @@ public class UndoEvent implements UndoInterface
         this.oldValue = oldValue;
         this.newValue = newValue;
         this.customText = text;
-
-        representation = String.format("Storing value : %s Old : %s New : %s", text, oldValue, newValue);
+        this.timeStamp = System.currentTimeMillis();
     }
 
     /* (non-Javadoc)
@@ -104,6 +145,11 @@ public class UndoEvent implements UndoInterface
     @Override
     public String getStringRepresentation()
     {
+        if(representation == null)
+        {
+            String text = (customText != null) ? customText : fieldId.toString();
+            representation = String.format("Storing value : %s Old : %s New : %s", text, oldValue, newValue);
+        }
         return representation;
     }
 
@@ -185,4 +231,315 @@ public class UndoEvent implements UndoInterface
         String redoString = String.format("Redoing value : %s Value : %s", text, newValue);
         return redoString;
     }
+
+    /**
+     * Gets the parent object.
+     *
+     * @return the parent object
+     */
+    UndoActionInterface getParentObj()
+    {
+        return parentObj;
+    }
+
+    /**
+     * Gets the custom text.
+     *
+     * @return the custom text, null if the event is for a field id
+     */
+    String getCustomText()
+    {
+        return customText;
+    }
+
+    /**
+     * Gets the time the new value was last set.
+     *
+     * @return the time stamp in milliseconds
+     */
+    long getTimeStamp()
+    {
+        return timeStamp;
+    }
+
+    /**
+     * Merge a later edit of the same field into this event,
+     * this event keeps its old value and takes the new value of the later event.
+     *
+     * @param laterEvent the later event
+     */
+    void coalesce(UndoEvent laterEvent)
+    {
+        this.newValue = laterEvent.newValue;
+        this.timeStamp = laterEvent.timeStamp;
+        this.representation = null;
+        this.estimatedSize = -1;
+        this.sharedEntryCount = 0;
+
+        shareColourMapEntries();
+    }
+
+    /**
+     * Share the values of the event with the previous event so that
+     * equal values are only held once.
+     * <p>An old value equal to the new value of the previous event is replaced by it,
+     * a colour map new value reuses the unchanged entries of the old value
+     * so an edit only holds the entries it changed.
+     * <p>Symbolizers are only shared as a whole, their parts are live objects
+     * that may still be edited.
+     *
+     * @param previousEvent the previous event, can be null
+     */
+    void shareValues(UndoInterface previousEvent)
+    {
+        if(previousEvent != null)
+        {
+            Object previousValue = previousEvent.getNewValue();
+
+            if((oldValue != previousValue) && isSharedValueEqual(oldValue, previousValue))
+            {
+                oldValue = previousValue;
+                oldValueSize = -1;
+                estimatedSize = -1;
+                representation = null;
+            }
+        }
+
+        shareColourMapEntries();
+    }
+
+    /**
+     * Replace the entries of a colour map new value with the equal entries of the old value.
+     */
+    private void shareColourMapEntries()
+    {
+        if(!(oldValue instanceof ColorMap) || !(newValue instanceof ColorMap) || (oldValue == newValue))
+        {
+            return;
+        }
+
+        ColorMap oldColourMap = (ColorMap) oldValue;
+        ColorMap newColourMap = (ColorMap) newValue;
+
+        ColorMapEntry[] oldEntries = oldColourMap.getColorMapEntries();
+        ColorMapEntry[] newEntries = newColourMap.getColorMapEntries();
+
+        ColorMapEntry[] sharedEntries = new ColorMapEntry[newEntries.length];
+        int noOfSharedEntries = 0;
+        int oldIndex = 0;
+
+        // Entries are matched in order so an insertion or deletion only affects the entries changed
+        for(int newIndex = 0; newIndex < newEntries.length; newIndex ++)
+        {
+            sharedEntries[newIndex] = newEntries[newIndex];
+
+            for(int index = oldIndex; index < oldEntries.length; index ++)
+            {
+                if(isEntryEqual(oldEntries[index], newEntries[newIndex]))
+                {
+                    sharedEntries[newIndex] = oldEntries[index];
+                    noOfSharedEntries ++;
+                    oldIndex = index + 1;
+                    break;
+                }
+            }
+        }
+
+        if(noOfSharedEntries == 0)
+        {
+            return;
+        }
+
+        if((noOfSharedEntries == oldEntries.length) && (noOfSharedEntries == newEntries.length) &&
+                isColourMapEqual(oldColourMap, newColourMap))
+        {
+            newValue = oldValue;
+        }
+        else
+        {
+            ColorMap colourMap = styleFactory.createColorMap();
+            colourMap.setType(newColourMap.getType());
+            colourMap.setExtendedColors(newColourMap.getExtendedColors());
+
+            for(ColorMapEntry entry : sharedEntries)
+            {
+                colourMap.addColorMapEntry(entry);
+            }
+            newValue = colourMap;
+            sharedEntryCount = noOfSharedEntries;
+        }
+        estimatedSize = -1;
+        representation = null;
+    }
+
+    /**
+     * Checks whether an old value can be replaced by an equal value.
+     * <p>Colour maps are compared entry by entry as they do not implement equals.
+     *
+     * @param value the value
+     * @param otherValue the other value
+     * @return true, if the values are equal
+     */
+    static boolean isSharedValueEqual(Object value, Object otherValue)
+    {
+        if((value == null) || (otherValue == null))
+        {
+            return false;
+        }
+        else if((value instanceof ColorMap) && (otherValue instanceof ColorMap))
+        {
+            return isColourMapEqual((ColorMap) value, (ColorMap) otherValue);
+        }
+        else if((value instanceof String) || (value instanceof Symbolizer))
+        {
+            return value.equals(otherValue);
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether two colour maps hold equal entries.
+     *
+     * @param colourMap the colour map
+     * @param otherColourMap the other colour map
+     * @return true, if the colour maps are equal
+     */
+    private static boolean isColourMapEqual(ColorMap colourMap, ColorMap otherColourMap)
+    {
+        if((colourMap.getType() != otherColourMap.getType()) ||
+                (colourMap.getExtendedColors() != otherColourMap.getExtendedColors()))
+        {
+            return false;
+        }
+
+        ColorMapEntry[] entries = colourMap.getColorMapEntries();
+        ColorMapEntry[] otherEntries = otherColourMap.getColorMapEntries();
+
+        if(entries.length != otherEntries.length)
+        {
+            return false;
+        }
+
+        for(int index = 0; index < entries.length; index ++)
+        {
+            if(!isEntryEqual(entries[index], otherEntries[index]))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether two colour map entries are equal.
+     *
+     * @param entry the entry
+     * @param otherEntry the other entry
+     * @return true, if the entries are equal
+     */
+    private static boolean isEntryEqual(ColorMapEntry entry, ColorMapEntry otherEntry)
+    {
+        return (entry == otherEntry) ||
+                (Objects.equals(entry.getColor(), otherEntry.getColor()) &&
+                Objects.equals(entry.getOpacity(), otherEntry.getOpacity()) &&
+                Objects.equals(entry.getQuantity(), otherEntry.getQuantity()) &&
+                Objects.equals(entry.getLabel(), otherEntry.getLabel()));
+    }
+
+    /**
+     * Gets the estimated memory used by the event in bytes.
+     *
+     * @return the estimated size
+     */
+    long getEstimatedSize()
+    {
+        if(estimatedSize < 0)
+        {
+            long newValueSize = estimateValueSize(newValue);
+
+            // Colour map entries shared with the old value are only counted once
+            if((sharedEntryCount > 0) && (newValue instanceof ColorMap))
+            {
+                int noOfEntries = ((ColorMap) newValue).getColorMapEntries().length;
+                newValueSize -= ((newValueSize - OBJECT_OVERHEAD) * sharedEntryCount) / noOfEntries;
+            }
+            estimatedSize = EVENT_OVERHEAD + getEstimatedOldValueSize() + newValueSize;
+            if(customText != null)
+            {
+                estimatedSize += estimateValueSize(customText);
+            }
+        }
+        return estimatedSize;
+    }
+
+    /**
+     * Gets the estimated memory used by the old value in bytes.
+     *
+     * @return the estimated size
+     */
+    long getEstimatedOldValueSize()
+    {
+        if(oldValueSize < 0)
+        {
+            oldValueSize = estimateValueSize(oldValue);
+        }
+        return oldValueSize;
+    }
+
+    /**
+     * Estimate the memory used by an undo value in bytes.
+     * <p>Colour maps and symbolizers are estimated from their encoded SLD,
+     * their string representation does not include the entries they hold.
+     *
+     * @param value the value
+     * @return the estimated size
+     */
+    static long estimateValueSize(Object value)
+    {
+        if((value == null) || (value instanceof Enum))
+        {
+            return 0;
+        }
+        else if(value instanceof String)
+        {
+            return STRING_OVERHEAD + (2L * ((String) value).length());
+        }
+        else if((value instanceof Number) || (value instanceof Boolean) || (value instanceof Character))
+        {
+            return OBJECT_OVERHEAD;
+        }
+        else if((value instanceof ColorMap) || (value instanceof Symbolizer))
+        {
+            long encodedSize = estimateEncodedSize(value);
+            if(encodedSize >= 0)
+            {
+                return OBJECT_OVERHEAD + encodedSize;
+            }
+        }
+        return OBJECT_OVERHEAD + (2L * String.valueOf(value).length());
+    }
+
+    /**
+     * Estimate the memory used by a style object from the length of its encoded SLD.
+     *
+     * @param value the style object
+     * @return the estimated size, -1 if the value could not be encoded
+     */
+    private static long estimateEncodedSize(Object value)
+    {
+        try
+        {
+            String xml = transformer.get().transform(value);
+
+            return (xml == null) ? -1 : (2L * xml.length());
+        }
+        catch (TransformerException e)
+        {
+            return -1;
+        }
+        catch (IllegalArgumentException e)
+        {
+            return -1;
+        }
+    }
 }
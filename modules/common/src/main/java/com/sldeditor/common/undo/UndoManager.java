@@ -20,14 +20,20 @@ package com.sldeditor.common.undo;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 
 import org.apache.log4j.Logger;
 
 import com.sldeditor.common.PopulatingInterface;
+import com.sldeditor.common.xml.ui.FieldIdEnum;
+import com.sldeditor.ui.detail.config.FieldId;
 
 /**
  * Class that manages the undo/redo framework.
  * <p>Implemented as a singleton.
+ * <p>The undo history is bounded by the number of events and their estimated memory use,
+ * the oldest events are discarded first. Rapid consecutive edits of the same field,
+ * e.g. dragging a spinner, are coalesced into a single event.
  * 
  * @author Robert Ward (SCISYS)
  */
@@ -55,6 +61,27 @@ public class UndoManager
     /** The population check object. */
     private PopulatingInterface populationCheck = null;
 
+    /** The Constant DEFAULT_MAX_UNDO_EVENTS. */
+    public static final int DEFAULT_MAX_UNDO_EVENTS = 200;
+
+    /** The Constant DEFAULT_MAX_UNDO_MEMORY in bytes. */
+    public static final long DEFAULT_MAX_UNDO_MEMORY = 16L * 1024L * 1024L;
+
+    /** The Constant DEFAULT_COALESCE_INTERVAL in milliseconds. */
+    public static final long DEFAULT_COALESCE_INTERVAL = 500;
+
+    /** The maximum number of undo events. */
+    private int maxUndoEvents = DEFAULT_MAX_UNDO_EVENTS;
+
+    /** The maximum estimated memory used by undo events in bytes. */
+    private long maxUndoMemory = DEFAULT_MAX_UNDO_MEMORY;
+
+    /** The interval in milliseconds in which edits of the same field are coalesced, 0 to disable. */
+    private long coalesceInterval = DEFAULT_COALESCE_INTERVAL;
+
+    /** The estimated memory used by the undo events in bytes. */
+    private long memoryUsage = 0;
+
     /**
      * Instantiates a new undo manager.
      */
@@ -80,6 +107,7 @@ public class UndoManager
     {
         currentIndex = 0;
         undoList.clear();
+        memoryUsage = 0;
 
         updateMenuItems();
     }
@@ -115,17 +143,126 @@ public class UndoManager
                 while(undoList.size() > currentIndex)
                 {
                     int lastIndex = undoList.size() - 1;
+                    memoryUsage -= getMemoryUsage(lastIndex);
                     undoList.remove(lastIndex);
                 }
             }
-            undoList.add(event);
+
+            UndoInterface previousEvent = undoList.isEmpty() ? null : undoList.get(undoList.size() - 1);
+
+            if(atEndOfList && canCoalesce(previousEvent, event))
+            {
+                int previousIndex = undoList.size() - 1;
+                memoryUsage -= getMemoryUsage(previousIndex);
+                ((UndoEvent) previousEvent).coalesce((UndoEvent) event);
+                memoryUsage += getMemoryUsage(previousIndex);
+            }
+            else
+            {
+                if(event instanceof UndoEvent)
+                {
+                    ((UndoEvent) event).shareValues(previousEvent);
+                }
+                undoList.add(event);
+                memoryUsage += getMemoryUsage(undoList.size() - 1);
+            }
 
             currentIndex = undoList.size();
 
+            trim();
+
             updateMenuItems();
 
-            logger.debug(event.getStringRepresentation());
+            if(logger.isDebugEnabled())
+            {
+                logger.debug(event.getStringRepresentation());
+            }
+        }
+    }
+
+    /**
+     * Checks whether an event continues the edit of the previous event,
+     * same field of the same parent, the old value matches the previous new value
+     * and it happened within the coalesce interval.
+     *
+     * @param previousEvent the previous event, can be null
+     * @param event the new event
+     * @return true, if the events can be merged
+     */
+    private boolean canCoalesce(UndoInterface previousEvent, UndoInterface event)
+    {
+        if((coalesceInterval <= 0) || !(previousEvent instanceof UndoEvent) || !(event instanceof UndoEvent))
+        {
+            return false;
+        }
+
+        UndoEvent previous = (UndoEvent) previousEvent;
+        UndoEvent current = (UndoEvent) event;
+
+        if((current.getCustomText() != null) || (previous.getCustomText() != null))
+        {
+            return false;
+        }
+
+        FieldId fieldId = current.getFieldId();
+        if((fieldId == null) || (fieldId.getFieldId() == FieldIdEnum.UNKNOWN) || !fieldId.equals(previous.getFieldId()))
+        {
+            return false;
+        }
+
+        long interval = current.getTimeStamp() - previous.getTimeStamp();
+
+        return (previous.getParentObj() == current.getParentObj()) &&
+                (interval >= 0) && (interval <= coalesceInterval) &&
+                (Objects.equals(previous.getNewValue(), current.getOldValue()) ||
+                        UndoEvent.isSharedValueEqual(previous.getNewValue(), current.getOldValue()));
+    }
+
+    /**
+     * Discard the oldest events until the undo history is within its limits.
+     * <p>Only events that have been applied, those before the current index, are discarded
+     * so the redo history is never lost.
+     */
+    private void trim()
+    {
+        while((currentIndex > 0) && (undoList.size() > 1) &&
+                ((undoList.size() > maxUndoEvents) || (memoryUsage > maxUndoMemory)))
+        {
+            // The next event no longer shares its old value with a previous event
+            memoryUsage -= getMemoryUsage(0) + getMemoryUsage(1);
+            undoList.remove(0);
+            memoryUsage += getMemoryUsage(0);
+            currentIndex --;
+        }
+    }
+
+    /**
+     * Gets the estimated memory used by the event at the given index,
+     * an old value shared with the previous event is only counted once.
+     *
+     * @param index the index of the event in the undo list
+     * @return the estimated memory usage in bytes
+     */
+    private long getMemoryUsage(int index)
+    {
+        UndoInterface event = undoList.get(index);
+        UndoInterface previousEvent = (index > 0) ? undoList.get(index - 1) : null;
+
+        if(event instanceof UndoEvent)
+        {
+            UndoEvent undoEvent = (UndoEvent) event;
+            long size = undoEvent.getEstimatedSize();
+
+            if((previousEvent != null) && (undoEvent.getOldValue() != null) &&
+                    (undoEvent.getOldValue() == previousEvent.getNewValue()))
+            {
+                size -= undoEvent.getEstimatedOldValueSize();
+            }
+            return size;
         }
+
+        return UndoEvent.estimateValueSize(event.getOldValue()) +
+                UndoEvent.estimateValueSize(event.getNewValue());
     }
 
     /**
@@ -193,7 +330,7 @@ public class UndoManager
         boolean undoAllowed = (currentIndex > 0) && !undoList.isEmpty();
         boolean redoAllowed = (currentIndex < undoList.size());
 
-        logger.debug(String.format("Current index : %d List : %d Undo %s Redo %s", currentIndex, undoList.size(), undoAllowed, redoAllowed));
+        logger.debug(String.format("Current index : %d List : %d Undo %s Redo %s Memory : %d bytes", currentIndex, undoList.size(), undoAllowed, redoAllowed, memoryUsage));
         for(UndoStateInterface listener : listenerList)
         {
             listener.updateUndoRedoState(undoAllowed, redoAllowed);
@@ -236,6 +373,90 @@ public class UndoManager
         this.populationCheck = populationCheck;
     }
 
+    /**
+     * Gets the number of events in the undo history.
+     *
+     * @return the undo event count
+     */
+    public int getUndoEventCount()
+    {
+        return undoList.size();
+    }
+
+    /**
+     * Gets the estimated memory used by the undo history.
+     *
+     * @return the memory usage in bytes
+     */
+    public long getMemoryUsage()
+    {
+        return memoryUsage;
+    }
+
+    /**
+     * Gets the maximum number of undo events.
+     *
+     * @return the maximum number of undo events
+     */
+    public int getMaxUndoEvents()
+    {
+        return maxUndoEvents;
+    }
+
+    /**
+     * Sets the maximum number of undo events, the oldest events are discarded.
+     *
+     * @param maxUndoEvents the maximum number of undo events, minimum 1
+     */
+    public void setMaxUndoEvents(int maxUndoEvents)
+    {
+        this.maxUndoEvents = Math.max(1, maxUndoEvents);
+        trim();
+        updateMenuItems();
+    }
+
+    /**
+     * Gets the maximum estimated memory used by the undo history.
+     *
+     * @return the maximum memory in bytes
+     */
+    public long getMaxUndoMemory()
+    {
+        return maxUndoMemory;
+    }
+
+    /**
+     * Sets the maximum estimated memory used by the undo history, the oldest events are discarded.
+     *
+     * @param maxUndoMemory the maximum memory in bytes
+     */
+    public void setMaxUndoMemory(long maxUndoMemory)
+    {
+        this.maxUndoMemory = maxUndoMemory;
+        trim();
+        updateMenuItems();
+    }
+
+    /**
+     * Gets the interval in which edits of the same field are coalesced.
+     *
+     * @return the coalesce interval in milliseconds
+     */
+    public long getCoalesceInterval()
+    {
+        return coalesceInterval;
+    }
+
+    /**
+     * Sets the interval in which edits of the same field are coalesced.
+     *
+     * @param coalesceInterval the coalesce interval in milliseconds, 0 to disable
+     */
+    public void setCoalesceInterval(long coalesceInterval)
+    {
+        this.coalesceInterval = coalesceInterval;
+    }
+
     /**
      * Destroy instance.
      */
@@ -0,0 +1,58 @@
+/*
+ *    SLDEditor - SLD Editor application
+ *
+ *    (C) 2016, SCISYS
+ *
+ */
+
+/**
+ * Author: Domenico Monaco, Yong Mook Kim
+ *  
+ * Source: https://gist.github.com/kiuz/816e24aa787c2d102dd0
+ *  
+ * License: GNU v2 2014
+ *
+ * Fork / Learned: http://www.mkyong.com/java/how-to-detect-os-in-java-systemgetpropertyosname/
+ *
+ */
+
+package com.sldeditor.common.utils;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread factory creating named daemon threads, e.g. <i>prefix-1</i>, <i>prefix-2</i>,
+ * so background workers do not prevent the application from exiting.
+ *
+ * @author Robert Ward (SCISYS)
+ */
+public class DaemonThreadFactory implements ThreadFactory
+{
+    /** The thread name prefix. */
+    private String prefix;
+
+    /** The thread count. */
+    private AtomicInteger count = new AtomicInteger(1);
+
+    /**
+     * Instantiates a new daemon thread factory.
+     *
+     * @param prefix the thread name prefix
+     */
+    public DaemonThreadFactory(String prefix)
+    {
+        this.prefix = prefix;
+    }
+
+    /* (non-Javadoc)
+     * @see java.util.concurrent.ThreadFactory#newThread(java.lang.Runnable)
+     */
+    @Override
+    public Thread newThread(Runnable r)
+    {
+        Thread thread = new Thread(r, prefix + "-" + count.getAndIncrement());
+        thread.setDaemon(true);
+        return thread;
+    }
+}
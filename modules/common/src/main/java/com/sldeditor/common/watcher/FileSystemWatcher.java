@@ -20,6 +20,7 @@ package com.sldeditor.common.watcher;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
 import java.nio.file.FileSystems;
 import java.nio.file.Path;
 import java.nio.file.StandardWatchEventKinds;
@@ -27,19 +28,109 @@ import java.nio.file.WatchEvent;
 import java.nio.file.WatchEvent.Kind;
 import java.nio.file.WatchKey;
 import java.nio.file.WatchService;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.sldeditor.common.console.ConsoleManager;
+import com.sldeditor.common.utils.DaemonThreadFactory;
 
 /**
  * Class that implements a file watcher to inform the file system tree whether files have been added or deleted.
+ * <p>Events are not delivered as they arrive. They are coalesced per watched folder over
+ * a configurable window and then delivered as a single batch on a separate dispatch thread,
+ * e.g. a file created and then deleted within the window is not reported at all.
+ * <p>If the watch service reports that events have been lost (OVERFLOW) the
+ * watched folder is asked to rescan its contents once instead.
+ * <p>The number of folders watched is capped, when the cap is reached the least
+ * recently used watch is released. {@link #isWatched(FileWatcherUpdateInterface)}
+ * allows a folder to find out that its watch has been released and refresh itself.
  * 
  * @author Robert Ward (SCISYS)
  */
 public class FileSystemWatcher implements Runnable {
 
+    /** The Constant DEFAULT_COALESCING_WINDOW in milliseconds. */
+    public static final long DEFAULT_COALESCING_WINDOW = 250L;
+
+    /** The Constant DEFAULT_MAX_WATCHES. */
+    public static final int DEFAULT_MAX_WATCHES = 512;
+
+    /**
+     * The type of change recorded for a file.
+     */
+    private enum ChangeType
+    {
+        /** File added. */
+        ADDED,
+
+        /** File modified. */
+        MODIFIED,
+
+        /** File deleted. */
+        DELETED
+    }
+
+    /**
+     * The changes waiting to be delivered to a watched folder.
+     */
+    private static class PendingChanges
+    {
+        /** The watched folder. */
+        private File folder;
+
+        /** The change map. */
+        private Map<File, ChangeType> changeMap = new LinkedHashMap<File, ChangeType>();
+
+        /** The rescan flag, set if events have been lost. */
+        private boolean rescan = false;
+
+        /**
+         * Instantiates a new pending changes.
+         *
+         * @param folder the folder
+         */
+        PendingChanges(File folder)
+        {
+            this.folder = folder;
+        }
+    }
+
     /** The watcher map. */
-    private Map<WatchKey, FileWatcherUpdateInterface> watcherMap = new HashMap<WatchKey, FileWatcherUpdateInterface>();
+    private Map<WatchKey, FileWatcherUpdateInterface> watcherMap = new ConcurrentHashMap<WatchKey, FileWatcherUpdateInterface>();
+
+    /** The watch keys for each watcher in least recently used order, guarded by watchLock. */
+    private Map<FileWatcherUpdateInterface, WatchKey> watchedMap = new LinkedHashMap<FileWatcherUpdateInterface, WatchKey>(16, 0.75f, true);
+
+    /** The watch lock. */
+    private final Object watchLock = new Object();
+
+    /** The maximum number of watches. */
+    private volatile int maxWatches = DEFAULT_MAX_WATCHES;
+
+    /** The changes waiting to be delivered, guarded by pendingLock. */
+    private Map<FileWatcherUpdateInterface, PendingChanges> pendingMap = new IdentityHashMap<FileWatcherUpdateInterface, PendingChanges>();
+
+    /** The pending lock. */
+    private final Object pendingLock = new Object();
+
+    /** The flag indicating a dispatch has been scheduled, guarded by pendingLock. */
+    private boolean dispatchScheduled = false;
+
+    /** The coalescing window in milliseconds. */
+    private volatile long coalescingWindow = DEFAULT_COALESCING_WINDOW;
+
+    /** The dispatcher that delivers batches of changes. */
+    private ScheduledExecutorService dispatcher = null;
 
     /** The watch service. */
     private WatchService watchService = null;
@@ -57,18 +148,21 @@ public class FileSystemWatcher implements Runnable {
         try {
             watchService = FileSystems.getDefault().newWatchService();
         } catch (IOException e) {
-            e.printStackTrace();
+            ConsoleManager.getInstance().exception(this, e);
         }
+
+        dispatcher = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("FileSystemWatcher-dispatch"));
     }
 
     /**
-     * Instantiates a new file system watcher.
+     * Watch a folder, if the parent is already watching the folder the watch is marked as recently used.
+     * <p>If the maximum number of watches is exceeded the least recently used watch is released.
      *
      * @param parent the parent
-     * @param file the file
+     * @param file the folder to watch
      */
     public void addWatch(FileWatcherUpdateInterface parent, File file) {
-        if(file != null)
+        if((file != null) && (watchService != null))
         {
             // The directory that has to be watched needs to be registered. Any
             // object that implements the Watchable interface can be registered.
@@ -77,45 +171,176 @@ public class FileSystemWatcher implements Runnable {
             // modified the watcher gets informed
             Path path = file.toPath();
 
-            try {
-                WatchKey key = path.register(watchService,
-                        StandardWatchEventKinds.ENTRY_CREATE,
-                        StandardWatchEventKinds.ENTRY_DELETE,
-                        StandardWatchEventKinds.ENTRY_MODIFY);
+            synchronized(watchLock)
+            {
+                WatchKey existingKey = watchedMap.get(parent);
+                if((existingKey != null) && existingKey.isValid() && path.equals(existingKey.watchable()))
+                {
+                    return;
+                }
 
-                watcherMap.put(key, parent);
+                try {
+                    WatchKey key = path.register(watchService,
+                            StandardWatchEventKinds.ENTRY_CREATE,
+                            StandardWatchEventKinds.ENTRY_DELETE,
+                            StandardWatchEventKinds.ENTRY_MODIFY);
 
-            } catch (IOException e) {
-                // Ignore
+                    watcherMap.put(key, parent);
+                    watchedMap.put(parent, key);
+
+                } catch (IOException e) {
+                    // Ignore
+                }
+
+                releaseWatches(maxWatches);
+            }
+        }
+    }
+
+    /**
+     * Stop watching the folder watched by the parent.
+     *
+     * @param parent the parent
+     */
+    public void removeWatch(FileWatcherUpdateInterface parent) {
+        synchronized(watchLock)
+        {
+            WatchKey key = watchedMap.remove(parent);
+            if(key != null)
+            {
+                cancelKey(key, parent);
             }
         }
     }
 
+    /**
+     * Checks if the parent is watching a folder.
+     *
+     * @param parent the parent
+     * @return true, if watched
+     */
+    public boolean isWatched(FileWatcherUpdateInterface parent) {
+        synchronized(watchLock)
+        {
+            WatchKey key = watchedMap.get(parent);
+            return (key != null) && key.isValid();
+        }
+    }
+
+    /**
+     * Gets the number of folders being watched.
+     *
+     * @return the watch count
+     */
+    public int getWatchCount() {
+        synchronized(watchLock)
+        {
+            return watchedMap.size();
+        }
+    }
+
+    /**
+     * Sets the maximum number of folders that can be watched,
+     * the least recently used watches are released if there are more.
+     *
+     * @param maxWatches the maximum number of watches
+     */
+    public void setMaxWatches(int maxWatches) {
+        this.maxWatches = Math.max(1, maxWatches);
+
+        synchronized(watchLock)
+        {
+            releaseWatches(this.maxWatches);
+        }
+    }
+
+    /**
+     * Gets the maximum number of folders that can be watched.
+     *
+     * @return the maximum number of watches
+     */
+    public int getMaxWatches() {
+        return maxWatches;
+    }
+
+    /**
+     * Release the least recently used watches until there are no more than the limit,
+     * must be called holding watchLock.
+     *
+     * @param limit the limit
+     */
+    private void releaseWatches(int limit) {
+        Iterator<Map.Entry<FileWatcherUpdateInterface, WatchKey>> it = watchedMap.entrySet().iterator();
+        while((watchedMap.size() > limit) && it.hasNext())
+        {
+            Map.Entry<FileWatcherUpdateInterface, WatchKey> entry = it.next();
+            it.remove();
+            cancelKey(entry.getValue(), entry.getKey());
+        }
+    }
+
+    /**
+     * Cancel a watch key, the key is shared if more than one parent watches the same folder
+     * so it is only cancelled if it belongs to the parent.
+     *
+     * @param key the key
+     * @param parent the parent
+     */
+    private void cancelKey(WatchKey key, FileWatcherUpdateInterface parent) {
+        if(watcherMap.remove(key, parent))
+        {
+            key.cancel();
+        }
+    }
+
     /**
      * Gets the single instance of FileSystemWatcher.
      *
      * @return single instance of FileSystemWatcher
      */
-    public static FileSystemWatcher getInstance()
+    public static synchronized FileSystemWatcher getInstance()
     {
         if(instance == null)
         {
             instance = new FileSystemWatcher();
-            (new Thread(instance)).start();
+            (new Thread(instance, "FileSystemWatcher")).start();
         }
 
         return instance;
     }
 
+    /**
+     * Sets the window over which events are coalesced before being delivered.
+     *
+     * @param coalescingWindow the coalescing window in milliseconds
+     */
+    public void setCoalescingWindow(long coalescingWindow)
+    {
+        this.coalescingWindow = Math.max(0L, coalescingWindow);
+    }
+
+    /**
+     * Gets the coalescing window.
+     *
+     * @return the coalescing window in milliseconds
+     */
+    public long getCoalescingWindow()
+    {
+        return coalescingWindow;
+    }
+
     /* (non-Javadoc)
      * @see java.lang.Runnable#run()
      */
     @Override
     public void run() {
-        try {
-            internal_watchDirectoryPath();
-        } catch (IOException e) {
-            e.printStackTrace();
+        if(watchService != null)
+        {
+            try {
+                internal_watchDirectoryPath();
+            } catch (IOException e) {
+                ConsoleManager.getInstance().exception(this, e);
+            }
         }
     }
 
@@ -129,63 +354,202 @@ public class FileSystemWatcher implements Runnable {
 
         boolean stopPolling = false;
         // Poll for events in an infinite loop
-        for (;;) {
+        while (!stopPolling) {
             try {
                 // The take method waits till watch service receives a
                 // notification
                 key = watchService.take();
             } catch (InterruptedException e) {
-                e.printStackTrace();
+                stopPolling = true;
+                continue;
+            } catch (ClosedWatchServiceException e) {
+                stopPolling = true;
+                continue;
+            }
+
+            // once a key is obtained, we poll for events on that key and
+            // reset it straight away so further events are queued while
+            // these are processed
+            List<WatchEvent<?>> events = key.pollEvents();
+            FileWatcherUpdateInterface parentObj = watcherMap.get(key);
+            Path dir = (Path)key.watchable();
+
+            if (!key.reset()) {
+                // Folder no longer accessible
+                watcherMap.remove(key);
+
+                if(parentObj != null)
+                {
+                    synchronized(watchLock)
+                    {
+                        if(watchedMap.get(parentObj) == key)
+                        {
+                            watchedMap.remove(parentObj);
+                        }
+                    }
+                }
+            }
+
+            if(parentObj != null)
+            {
+                queueEvents(parentObj, dir, events);
+            }
+        }
+
+        // Close the watcher service
+        watchService.close();
+    }
+
+    /**
+     * Add events to the changes waiting to be delivered and schedule a dispatch.
+     *
+     * @param parentObj the parent obj
+     * @param dir the watched folder
+     * @param events the events
+     */
+    private void queueEvents(FileWatcherUpdateInterface parentObj, Path dir, List<WatchEvent<?>> events)
+    {
+        synchronized(pendingLock)
+        {
+            PendingChanges pending = pendingMap.get(parentObj);
+            if(pending == null)
+            {
+                pending = new PendingChanges(dir.toFile());
+                pendingMap.put(parentObj, pending);
             }
 
-            // once a key is obtained, we poll for events on that key
-            List<WatchEvent<?>> keys = key.pollEvents();
-            for (WatchEvent<?> watchEvent : keys) {
+            for (WatchEvent<?> watchEvent : events) {
 
                 Kind<?> watchEventKind = watchEvent.kind();
                 // Sometimes events are created faster than they are registered
                 // or the implementation may specify a maximum number of events
                 // and further events are discarded. In these cases an event of
-                // kind overflow is returned. We ignore this case for now
+                // kind overflow is returned and the whole folder is rescanned.
                 if (watchEventKind == StandardWatchEventKinds.OVERFLOW) {
+                    pending.rescan = true;
                     continue;
                 }
 
-                Path dir = (Path)key.watchable();
-                Path fullPath = dir.resolve((Path) watchEvent.context());
+                File f = dir.resolve((Path) watchEvent.context()).toFile();
 
-                File f = fullPath.toFile();
-                FileWatcherUpdateInterface parentObj = watcherMap.get(key);
                 if (watchEventKind == StandardWatchEventKinds.ENTRY_CREATE) {
-                    // A new file has been created
-                    if(parentObj != null)
-                    {
-                        parentObj.fileAdded(f);
-                    }
+                    coalesce(pending.changeMap, f, ChangeType.ADDED);
                 } else if (watchEventKind == StandardWatchEventKinds.ENTRY_MODIFY) {
-                    // The file has been modified.
-                    if(parentObj != null)
-                    {
-                        parentObj.fileModified(f);
-                    }
+                    coalesce(pending.changeMap, f, ChangeType.MODIFIED);
                 } else if (watchEventKind == StandardWatchEventKinds.ENTRY_DELETE) {
+                    coalesce(pending.changeMap, f, ChangeType.DELETED);
+                }
+            }
 
-                    if(parentObj != null)
-                    {
-                        parentObj.fileDeleted(f);
+            if(!dispatchScheduled)
+            {
+                dispatchScheduled = true;
+                dispatcher.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        dispatch();
                     }
-                }
-                // Reset the key so the further key events may be polled
-                key.reset();
+                }, coalescingWindow, TimeUnit.MILLISECONDS);
             }
+        }
+    }
 
-            if (stopPolling) {
-                break;
+    /**
+     * Combine a new change to a file with any change already waiting to be delivered.
+     *
+     * @param changeMap the change map
+     * @param f the file
+     * @param newChange the new change
+     */
+    private static void coalesce(Map<File, ChangeType> changeMap, File f, ChangeType newChange)
+    {
+        ChangeType existingChange = changeMap.get(f);
+
+        if(existingChange == null)
+        {
+            changeMap.put(f, newChange);
+        }
+        else if(existingChange == ChangeType.ADDED)
+        {
+            // Added then deleted is no change, added then modified is still added
+            if(newChange == ChangeType.DELETED)
+            {
+                changeMap.remove(f);
+            }
+        }
+        else if(existingChange == ChangeType.DELETED)
+        {
+            // Deleted then created again is a modification
+            if(newChange == ChangeType.ADDED)
+            {
+                changeMap.put(f, ChangeType.MODIFIED);
             }
         }
+        else if(newChange == ChangeType.DELETED)
+        {
+            changeMap.put(f, ChangeType.DELETED);
+        }
+    }
 
-        // Close the watcher service
-        watchService.close();
+    /**
+     * Deliver the changes that have been coalesced to each watched folder.
+     */
+    private void dispatch()
+    {
+        Map<FileWatcherUpdateInterface, PendingChanges> batchMap = null;
+
+        synchronized(pendingLock)
+        {
+            batchMap = pendingMap;
+            pendingMap = new IdentityHashMap<FileWatcherUpdateInterface, PendingChanges>();
+            dispatchScheduled = false;
+        }
+
+        for(Map.Entry<FileWatcherUpdateInterface, PendingChanges> entry : batchMap.entrySet())
+        {
+            FileWatcherUpdateInterface parentObj = entry.getKey();
+            PendingChanges pending = entry.getValue();
+
+            try
+            {
+                if(pending.rescan)
+                {
+                    parentObj.rescanFolder(pending.folder);
+                }
+                else if(!pending.changeMap.isEmpty())
+                {
+                    Set<File> addedFiles = new LinkedHashSet<File>();
+                    Set<File> modifiedFiles = new LinkedHashSet<File>();
+                    Set<File> deletedFiles = new LinkedHashSet<File>();
+
+                    for(Map.Entry<File, ChangeType> change : pending.changeMap.entrySet())
+                    {
+                        switch(change.getValue())
+                        {
+                        case ADDED:
+                            addedFiles.add(change.getKey());
+                            break;
+                        case MODIFIED:
+                            modifiedFiles.add(change.getKey());
+                            break;
+                        case DELETED:
+                            deletedFiles.add(change.getKey());
+                            break;
+                        default:
+                            break;
+                        }
+                    }
+
+                    parentObj.filesChanged(Collections.unmodifiableSet(addedFiles),
+                            Collections.unmodifiableSet(modifiedFiles),
+                            Collections.unmodifiableSet(deletedFiles));
+                }
+            }
+            catch(RuntimeException e)
+            {
+                ConsoleManager.getInstance().exception(this, e);
+            }
+        }
     }
 
     /**
@@ -200,18 +564,24 @@ public class FileSystemWatcher implements Runnable {
         FileSystemWatcher.getInstance().addWatch(new FileWatcherUpdateInterface() {
 
             @Override
-            public void fileAdded(File f) {
-                System.out.println("File Created:" + f.getAbsolutePath());
-            }
-
-            @Override
-            public void fileModified(File f) {
-                System.out.println("File Modified:" + f.getAbsolutePath());
+            public void filesChanged(Set<File> addedFiles, Set<File> modifiedFiles, Set<File> deletedFiles) {
+                for(File f : addedFiles)
+                {
+                    System.out.println("File Created:" + f.getAbsolutePath());
+                }
+                for(File f : modifiedFiles)
+                {
+                    System.out.println("File Modified:" + f.getAbsolutePath());
+                }
+                for(File f : deletedFiles)
+                {
+                    System.out.println("File Deleted:" + f.getAbsolutePath());
+                }
             }
 
             @Override
-            public void fileDeleted(File f) {
-                System.out.println("File Deleted:" + f.getAbsolutePath());
+            public void rescanFolder(File folder) {
+                System.out.println("Rescan:" + folder.getAbsolutePath());
             }}, dir);
     }
 }
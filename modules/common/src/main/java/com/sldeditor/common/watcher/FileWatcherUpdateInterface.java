@@ -19,32 +19,33 @@
 package com.sldeditor.common.watcher;
 
 import java.io.File;
+import java.util.Set;
 
 /**
  * The Interface FileWatcherUpdateInterface.
+ * <p>File system events are coalesced by the FileSystemWatcher and delivered
+ * in batches so that a large number of changes results in a single update.
  * 
  * @author Robert Ward (SCISYS)
  */
 public interface FileWatcherUpdateInterface {
 
     /**
-     * File added.
+     * Files changed within the watched folder.
+     * <p>A file appears in at most one of the sets, e.g. a file that is created
+     * and then modified within the same batch is reported as added.
      *
-     * @param f the f
+     * @param addedFiles the files/folders added
+     * @param modifiedFiles the files/folders modified
+     * @param deletedFiles the files/folders deleted
      */
-    void fileAdded(File f);
+    void filesChanged(Set<File> addedFiles, Set<File> modifiedFiles, Set<File> deletedFiles);
 
     /**
-     * File modified.
+     * Events for the watched folder have been lost,
+     * the contents of the folder need to be read again.
      *
-     * @param f the f
+     * @param folder the watched folder
      */
-    void fileModified(File f);
-
-    /**
-     * File deleted.
-     *
-     * @param f the f
-     */
-    void fileDeleted(File f);
+    void rescanFolder(File folder);
 }
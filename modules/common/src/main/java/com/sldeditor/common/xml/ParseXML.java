@@ -18,12 +18,19 @@
  */
 package com.sldeditor.common.xml;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.InputStream;
 import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
 
 import javax.xml.XMLConstants;
 import javax.xml.bind.JAXBContext;
@@ -55,6 +62,15 @@ public class ParseXML {
     /** The Constant UI_RESOURCE_FOLDER. */
     private static final String UI_RESOURCE_FOLDER = "/ui/";
 
+    /** The compiled schemas, keyed on schema resource. */
+    private static Map<String, Schema> schemaCache = new ConcurrentHashMap<String, Schema>();
+
+    /** The JAXB contexts, keyed on the class to parse. */
+    private static Map<Class<?>, JAXBContext> contextCache = new ConcurrentHashMap<Class<?>, JAXBContext>();
+
+    /** The parsed ui files, keyed on resource name. */
+    private static Map<String, CompletableFuture<Object>> uiFileCache = new ConcurrentHashMap<String, CompletableFuture<Object>>();
+
     /**
      * Parses the xml files, validates against schema and reports any errors.
      *
@@ -89,18 +105,36 @@ public class ParseXML {
             }
         }
 
+        return parseStream(inputStream, fullResourceName, schemaResource, classToParse, true);
+    }
+
+    /**
+     * Parses the xml stream, optionally validating against the schema and reports any errors.
+     *
+     * @param inputStream the input stream
+     * @param fullResourceName the full resource name, used when reporting errors
+     * @param schemaResource the schema resource
+     * @param classToParse the class to parse
+     * @param validate the validate flag
+     * @return the object
+     */
+    private static Object parseStream(InputStream inputStream,
+            String fullResourceName,
+            String schemaResource,
+            Class<?> classToParse,
+            boolean validate)
+    {
         ValidationEventCollector vec = new ValidationEventCollector();
         URL xsdURL = ParseXML.class.getResource(schemaResource);
         try
         {
-            SchemaFactory sf = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
-
-            Schema schema = sf.newSchema(xsdURL);
-
-            JAXBContext jaxbContext = JAXBContext.newInstance(classToParse);
+            JAXBContext jaxbContext = getJAXBContext(classToParse);
 
             Unmarshaller jaxbUnmarshaller = jaxbContext.createUnmarshaller();
-            jaxbUnmarshaller.setSchema(schema);
+            if(validate)
+            {
+                jaxbUnmarshaller.setSchema(getSchema(schemaResource, xsdURL));
+            }
             jaxbUnmarshaller.setEventHandler(vec);
 
             return jaxbUnmarshaller.unmarshal(inputStream);
@@ -145,7 +179,112 @@ public class ParseXML {
     public static Object parseUIFile(String resourceString,
             String schemaResource,
             Class<?> classToParse) {
-        return parseFile(UI_RESOURCE_FOLDER, resourceString, schemaResource, classToParse);
+        CompletableFuture<Object> future = uiFileCache.get(resourceString);
+
+        if(future != null)
+        {
+            try
+            {
+                Object obj = future.join();
+
+                if(classToParse.isInstance(obj))
+                {
+                    return obj;
+                }
+            }
+            catch(CompletionException e)
+            {
+                ConsoleManager.getInstance().exception(ParseXML.class, e);
+            }
+        }
+
+        Object obj = parseFile(UI_RESOURCE_FOLDER, resourceString, schemaResource, classToParse);
+
+        if(obj != null)
+        {
+            uiFileCache.put(resourceString, CompletableFuture.completedFuture(obj));
+        }
+        return obj;
+    }
+
+    /**
+     * Parses the contents of a ui file in the background, subsequent calls to
+     * parseUIFile() for the same resource wait for and return the result.
+     *
+     * @param resourceString the resource string
+     * @param contents the file contents
+     * @param schemaResource the schema resource
+     * @param classToParse the class to parse
+     * @param validate the validate against the schema flag
+     * @param executor the executor to parse the file on
+     * @return the future holding the parsed object, null on error
+     */
+    public static CompletableFuture<Object> preloadUIFile(final String resourceString,
+            final byte[] contents,
+            final String schemaResource,
+            final Class<?> classToParse,
+            final boolean validate,
+            Executor executor) {
+        CompletableFuture<Object> future = CompletableFuture.supplyAsync(new Supplier<Object>() {
+            @Override
+            public Object get() {
+                return parseStream(new ByteArrayInputStream(contents),
+                        UI_RESOURCE_FOLDER + resourceString,
+                        schemaResource,
+                        classToParse,
+                        validate);
+            }
+        }, executor);
+
+        CompletableFuture<Object> existing = uiFileCache.putIfAbsent(resourceString, future);
+
+        return (existing == null) ? future : existing;
+    }
+
+    /**
+     * Clear the cached ui files.
+     */
+    public static void clearUICache() {
+        uiFileCache.clear();
+    }
+
+    /**
+     * Gets the compiled schema, compiling it on first use.
+     *
+     * @param schemaResource the schema resource
+     * @param xsdURL the xsd URL
+     * @return the schema
+     * @throws SAXException the SAX exception
+     */
+    private static Schema getSchema(String schemaResource, URL xsdURL) throws SAXException {
+        Schema schema = schemaCache.get(schemaResource);
+
+        if(schema == null)
+        {
+            SchemaFactory sf = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
+
+            schema = sf.newSchema(xsdURL);
+            schemaCache.put(schemaResource, schema);
+        }
+        return schema;
+    }
+
+    /**
+     * Gets the JAXB context, creating it on first use.
+     *
+     * @param classToParse the class to parse
+     * @return the JAXB context
+     * @throws JAXBException the JAXB exception
+     */
+    private static JAXBContext getJAXBContext(Class<?> classToParse) throws JAXBException {
+        JAXBContext jaxbContext = contextCache.get(classToParse);
+
+        if(jaxbContext == null)
+        {
+            jaxbContext = JAXBContext.newInstance(classToParse);
+            contextCache.put(classToParse, jaxbContext);
+        }
+        return jaxbContext;
     }
 
     /**
@@ -173,7 +312,7 @@ public class ParseXML {
 
         System.out.println("Writing : " + fullResourceName);
         try {
-            contextObj = JAXBContext.newInstance(objectToWrite.getClass());
+            contextObj = getJAXBContext(objectToWrite.getClass());
             Marshaller marshallerObj = contextObj.createMarshaller();
             marshallerObj.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
 
@@ -153,4 +153,11 @@ public interface DataSourceInterface {
      */
     AbstractGridCoverage2DReader getGridCoverageReader();
 
+    /**
+     * Gets the revision, changes every time the data source is connected, reset or its fields are updated.
+     *
+     * @return the revision
+     */
+    long getRevision();
+
 }
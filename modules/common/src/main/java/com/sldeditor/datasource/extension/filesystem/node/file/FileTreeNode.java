@@ -21,13 +21,29 @@ package com.sldeditor.datasource.extension.filesystem.node.file;
 import java.awt.datatransfer.DataFlavor;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+import javax.swing.SwingUtilities;
 import javax.swing.tree.DefaultMutableTreeNode;
 import javax.swing.tree.DefaultTreeModel;
+import javax.swing.tree.TreeNode;
 
 import com.sldeditor.common.NodeInterface;
 import com.sldeditor.common.filesystem.FileSystemInterface;
+import com.sldeditor.common.utils.DaemonThreadFactory;
 import com.sldeditor.common.utils.ExternalFilenames;
 import com.sldeditor.common.watcher.FileSystemWatcher;
 import com.sldeditor.common.watcher.FileWatcherUpdateInterface;
@@ -37,6 +53,12 @@ import com.sldeditor.datasource.extension.filesystem.node.FileSystemNodeManager;
 
 /**
  * File system tree node representing either a file or folder.
+ * <p>Folders are populated lazily when expanded. Child nodes are kept sorted, folders first,
+ * and are inserted in sorted position so changes never require the children to be sorted again.
+ * Large folders can be read on a background thread and added to the tree a page at a time.
+ * <p>Only populated folders are watched for changes, the file system watcher caps the number
+ * of watches and a folder whose watch has been released is refreshed when next expanded.
+ * Folders are no longer watched once their node is collapsed or removed from the tree.
  * 
  * @author Robert Ward (SCISYS)
  */
@@ -71,7 +93,43 @@ public class FileTreeNode extends DefaultMutableTreeNode implements NodeInterfac
 
     /** The file category. */
     private FileTreeNodeTypeEnum fileCategory = FileTreeNodeTypeEnum.SLD;
-    
+
+    /** The Constant PAGE_SIZE, the number of entries added to the tree at a time when reading in the background. */
+    private static final int PAGE_SIZE = 256;
+
+    /** The Constant LOADER_THREADS. */
+    private static final int LOADER_THREADS = 2;
+
+    /** The executor reading folders in the background. */
+    private static ExecutorService loader = null;
+
+    /**
+     * The order of child nodes, folders first then alphabetical ignoring case.
+     * Names that only differ by case are different files on case sensitive file systems
+     * so are ordered by case rather than treated as the same node.
+     */
+    private static final Comparator<DefaultMutableTreeNode> CHILD_ORDER = new Comparator<DefaultMutableTreeNode>() {
+        @Override
+        public int compare(DefaultMutableTreeNode o1, DefaultMutableTreeNode o2) {
+            boolean leaf1 = o1.isLeaf();
+            boolean leaf2 = o2.isLeaf();
+            if(leaf1 != leaf2)
+            {
+                return leaf1 ? 1 : -1;
+            }
+            String name1 = String.valueOf(o1.getUserObject());
+            String name2 = String.valueOf(o2.getUserObject());
+            int result = name1.compareToIgnoreCase(name2);
+            return (result != 0) ? result : name1.compareTo(name2);
+        }
+    };
+
+    /** The loading flag, true while the folder is being read in the background. */
+    private boolean loading = false;
+
+    /** The load generation, incremented to discard pages from a background read that is no longer wanted. */
+    private int loadGeneration = 0;
+
     /**
      * Instantiates a new file tree node.
      *
@@ -101,13 +159,23 @@ public class FileTreeNode extends DefaultMutableTreeNode implements NodeInterfac
         isDir = file.isDirectory(); 
 
         setUserObject(this.name);
-
-        if(isDir())
-        {
-            FileSystemWatcher.getInstance().addWatch(this, file);
-        }
     } 
 
+    /**
+     * Instantiates a new file tree node when it is already known whether it is a directory.
+     *
+     * @param parent the parent
+     * @param name the name
+     * @param isDir the is directory flag
+     */
+    private FileTreeNode(File parent, String name, boolean isDir) {
+        this.name = name;
+        this.file = new File(parent, name);
+        this.isDir = isDir;
+
+        setUserObject(this.name);
+    }
+
     /**
      * Checks if is leaf.
      *
@@ -130,38 +198,45 @@ public class FileTreeNode extends DefaultMutableTreeNode implements NodeInterfac
 
     /**
      * Populate directories.
-     * For display purposes, we return our own name public String toString() { return name; } 
-     * If we are a directory, scan our contents and populate
-     * with children. In addition, populate those children
-     * if the "descend" flag is true. We only descend once,
-     * to avoid recursing the whole subtree.
+     * If we are a directory, scan our contents and populate with children.
+     * If the "descend" flag is true all the contents are read and the folder is watched
+     * for changes, otherwise we only have a quick look to find the first sub-folder.
+     * Sub-folders are not read until they are expanded.
      *
      * @param descend the descend
      * @return true, if successful
      */
     public boolean populateDirectories(boolean descend) {
         boolean addedNodes = false; 
+
+        if (populated && descend) {
+            if (isLoading()) {
+                // Caller needs all the contents now, read them here instead
+                cancelLoading();
+                removeChildNodes();
+                populated = false;
+            } else {
+                // Watch may have been released, if so events have been missed
+                return revalidate();
+            }
+        }
+
         // Do this only once 
         if (populated == false) {
             if (interim == true) { 
                 // We have had a quick look here before:
                 // remove the dummy node that we added last time
-                removeAllChildren();
+                removeChildNodes();
                 interim = false; 
             } 
 
-            // Get list of contents
-            String[] names = file.list();
-
             // Process the directories
-            if(names != null)
-            {
-                for (int i = 0; i < names.length; i++) {
-                    String filename = names[i];  
-                    File d = new File(file, filename);
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(file.toPath())) {
+                for (Path path : stream) {
+                    String filename = path.getFileName().toString();
                     try {
-                        if (d.isDirectory()) {
-                            addFolder(descend, filename);
+                        if (Files.isDirectory(path)) {
+                            addFolder(filename);
 
                             addedNodes = true;
 
@@ -170,7 +245,7 @@ public class FileTreeNode extends DefaultMutableTreeNode implements NodeInterfac
                                 break;
                             }
                         }
-                        else if(d.isFile())
+                        else if(Files.isRegularFile(path))
                         {
                             if(validFile(filename))
                             {
@@ -182,59 +257,390 @@ public class FileTreeNode extends DefaultMutableTreeNode implements NodeInterfac
                         // Ignore phantoms or access problems
                     } 
                 }
+            }
+            catch (IOException e) {
+                // Folder can not be read
+                return addedNodes;
+            }
+            catch (DirectoryIteratorException e) {
+                // Folder can not be read
+                return addedNodes;
+            }
 
-                // If we were scanning to get all sub-directories,
-                // or if we found no sub-directories, there is no
-                // reason to look at this directory again, so
-                // set populated to true. Otherwise, we set interim
-                // so that we look again in the future if we need to
-                if (descend == true || addedNodes == false) {
-                    populated = true; 
-                } else {
-                    // Just set interim state
-                    interim = true;
-                }
+            // If we were scanning to get all sub-directories,
+            // or if we found no sub-directories, there is no
+            // reason to look at this directory again, so
+            // set populated to true. Otherwise, we set interim
+            // so that we look again in the future if we need to
+            if (descend == true || addedNodes == false) {
+                populated = true; 
+                watchFolder();
+            } else {
+                // Just set interim state
+                interim = true;
             }
         }
         return addedNodes; 
     }
 
+    /**
+     * Populate the folder on a background thread, the contents are added to the tree
+     * a page at a time on the event dispatch thread.
+     * <p>Must be called on the event dispatch thread.
+     *
+     * @return true, if the tree structure has changed and needs refreshing
+     */
+    public boolean populateDirectoriesInBackground() {
+        if (populated) {
+            return revalidate();
+        }
+
+        boolean changed = false;
+        if (interim) {
+            removeChildNodes();
+            interim = false;
+            changed = true;
+        }
+
+        populated = true;
+        final int generation = startLoading();
+        watchFolder();
+
+        getLoader().submit(new Runnable() {
+            @Override
+            public void run() {
+                readInBackground(generation);
+            }
+        });
+
+        return changed;
+    }
+
+    /**
+     * Checks if the folder is being read in the background.
+     *
+     * @return true, if loading
+     */
+    public synchronized boolean isLoading() {
+        return loading;
+    }
+
+    /**
+     * Read the folder contents, called on a background thread.
+     *
+     * @param generation the load generation
+     */
+    private void readInBackground(final int generation) {
+        List<String> folderPage = new ArrayList<String>();
+        List<String> filePage = new ArrayList<String>();
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(file.toPath())) {
+            for (Path path : stream) {
+                if (generation != loadGenerationSnapshot()) {
+                    return;
+                }
+
+                String filename = path.getFileName().toString();
+                if (Files.isDirectory(path)) {
+                    folderPage.add(filename);
+                } else if (Files.isRegularFile(path) && validFile(filename)) {
+                    filePage.add(filename);
+                }
+
+                if ((folderPage.size() + filePage.size()) >= PAGE_SIZE) {
+                    addPage(generation, folderPage, filePage, false);
+                    folderPage = new ArrayList<String>();
+                    filePage = new ArrayList<String>();
+                }
+            }
+        }
+        catch (IOException e) {
+            // Folder can not be read, show what has been read so far
+        }
+        catch (DirectoryIteratorException e) {
+            // Folder can not be read, show what has been read so far
+        }
+
+        addPage(generation, folderPage, filePage, true);
+    }
+
+    /**
+     * Gets the current load generation, the background thread reads it without holding the tree lock.
+     *
+     * @return the load generation
+     */
+    private synchronized int loadGenerationSnapshot() {
+        return loadGeneration;
+    }
+
+    /**
+     * Start a background read.
+     *
+     * @return the load generation of the new read
+     */
+    private synchronized int startLoading() {
+        loading = true;
+        return ++loadGeneration;
+    }
+
+    /**
+     * Cancel any background read, pages already queued are discarded.
+     */
+    private synchronized void cancelLoading() {
+        loadGeneration ++;
+        loading = false;
+    }
+
+    /**
+     * Mark a background read as complete if it has not been superseded.
+     *
+     * @param generation the load generation
+     */
+    private synchronized void finishLoading(int generation) {
+        if (generation == loadGeneration) {
+            loading = false;
+        }
+    }
+
+    /**
+     * Add a page of entries read in the background on the event dispatch thread.
+     *
+     * @param generation the load generation
+     * @param folderNames the folder names
+     * @param fileNames the file names
+     * @param lastPage the last page flag
+     */
+    private void addPage(final int generation, final List<String> folderNames,
+            final List<String> fileNames, final boolean lastPage) {
+        SwingUtilities.invokeLater(new Runnable() {
+            @Override
+            public void run() {
+                if (generation != loadGenerationSnapshot()) {
+                    return;
+                }
+
+                List<DefaultMutableTreeNode> addedList = new ArrayList<DefaultMutableTreeNode>();
+                for (String folderName : folderNames) {
+                    FileTreeNode node = addFolder(folderName);
+                    if (node != null) {
+                        addedList.add(node);
+                    }
+                }
+                for (String fileName : fileNames) {
+                    try {
+                        FileTreeNode node = addFile(fileName);
+                        if (node != null) {
+                            addedList.add(node);
+                        }
+                    } catch (Throwable t) {
+                        // Ignore phantoms or access problems
+                    }
+                }
+
+                if (lastPage) {
+                    finishLoading(generation);
+                }
+
+                notifyInserted(addedList);
+            }
+        });
+    }
+
+    /**
+     * Notify the tree model that nodes have been inserted.
+     *
+     * @param addedList the nodes added
+     */
+    private void notifyInserted(List<DefaultMutableTreeNode> addedList) {
+        if (addedList.isEmpty()) {
+            return;
+        }
+
+        if (treeModel == null) {
+            FileSystemNodeManager.refreshNode(this);
+            return;
+        }
+
+        int[] indices = new int[addedList.size()];
+        for (int index = 0; index < indices.length; index ++) {
+            indices[index] = searchChildren(addedList.get(index));
+        }
+        Arrays.sort(indices);
+        treeModel.nodesWereInserted(this, indices);
+    }
+
+    /**
+     * Watch the folder for changes.
+     */
+    private void watchFolder() {
+        if (isDir && file.isDirectory()) {
+            FileSystemWatcher.getInstance().addWatch(this, file);
+        }
+    }
+
+    /**
+     * Check the folder is still being watched, if the watch has been released
+     * changes may have been missed so the folder is read again.
+     *
+     * @return true, if the tree structure has changed and needs refreshing
+     */
+    private boolean revalidate() {
+        if (!file.isDirectory() || FileSystemWatcher.getInstance().isWatched(this)) {
+            return false;
+        }
+
+        cancelLoading();
+        removeChildNodes();
+        populated = false;
+        interim = false;
+        populateDirectories(true);
+
+        return true;
+    }
+
+    /**
+     * Release the contents of a collapsed folder, the folder and the folders below
+     * it are no longer watched and the contents are read again when next expanded.
+     * <p>Must be called on the event dispatch thread.
+     *
+     * @return true, if the child nodes were removed
+     */
+    public boolean releaseContents() {
+        if (!isDir || !populated) {
+            return false;
+        }
+
+        cancelLoading();
+        FileSystemWatcher.getInstance().removeWatch(this);
+        removeChildNodes();
+        populated = false;
+        interim = false;
+
+        return true;
+    }
+
+    /**
+     * Remove all the child nodes, folders below this node are no longer watched.
+     */
+    private void removeChildNodes() {
+        for (int childIndex = 0; childIndex < getChildCount(); childIndex ++) {
+            releaseWatches(getChildAt(childIndex));
+        }
+        removeAllChildren();
+    }
+
+    /**
+     * Stop watching the folder of a node being removed from the tree and the folders below it.
+     *
+     * @param node the node
+     */
+    private static void releaseWatches(TreeNode node) {
+        if (node instanceof FileTreeNode) {
+            FileTreeNode fileNode = (FileTreeNode) node;
+            fileNode.cancelLoading();
+            FileSystemWatcher.getInstance().removeWatch(fileNode);
+        }
+
+        for (int childIndex = 0; childIndex < node.getChildCount(); childIndex ++) {
+            releaseWatches(node.getChildAt(childIndex));
+        }
+    }
+
     /**
      * Adds the folder.
      *
-     * @param descend the descend
      * @param name the name
-     * @throws FileNotFoundException the file not found exception
+     * @return the node added, null if a node with the name already exists
      */
-    private void addFolder(boolean descend, String name) throws FileNotFoundException {
-        FileTreeNode node = new FileTreeNode(file, name);
-        this.add(node);
-        if (descend) {
-            node.populateDirectories(false); 
-        }
+    private FileTreeNode addFolder(String name) {
+        FileTreeNode node = new FileTreeNode(file, name, true);
+        return insertSorted(node) ? node : null;
     }
 
     /**
      * Adds the file to folder.
      *
      * @param name the name of the file
+     * @return the node added, null if a node with the name already exists
      * @throws FileNotFoundException the file not found exception
      */
-    private void addFile(String name) throws FileNotFoundException {
+    private FileTreeNode addFile(String name) throws FileNotFoundException {
 
-        FileTreeNode node = new FileTreeNode(file, name);
-        this.add(node);
+        FileTreeNode node = new FileTreeNode(file, name, false);
+
+        // Handlers expect the node to be in the tree
+        if(!insertSorted(node))
+        {
+            return null;
+        }
 
         FileHandlerInterface handler = fileHandlerMap.get(ExternalFilenames.getFileExtension(name));
         if(handler != null)
         {
             if(handler.populate(inputInterface, treeModel, node))
             {
+                // Now sorted with the folders
+                remove(node);
                 node.isDir = true;
+                insertSorted(node);
             }
         }
+
+        return node;
     } 
 
+    /**
+     * Insert a child node in sorted position.
+     *
+     * @param node the node
+     * @return true, if inserted, false if a node with the same name is already in the position
+     */
+    private boolean insertSorted(DefaultMutableTreeNode node) {
+        int index = searchChildren(node);
+        if (index >= 0) {
+            return false;
+        }
+        insert(node, -(index + 1));
+        return true;
+    }
+
+    /**
+     * Binary search of the child nodes.
+     *
+     * @param node the node to find
+     * @return the index of the node if found, otherwise (-(insertion point) - 1)
+     */
+    private int searchChildren(DefaultMutableTreeNode node) {
+        int low = 0;
+        int high = getChildCount() - 1;
+
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = CHILD_ORDER.compare((DefaultMutableTreeNode) getChildAt(mid), node);
+
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * Gets the executor used to read folders in the background.
+     *
+     * @return the loader
+     */
+    private static synchronized ExecutorService getLoader() {
+        if (loader == null) {
+            loader = Executors.newFixedThreadPool(LOADER_THREADS, new DaemonThreadFactory("FileTreeNode-loader"));
+        }
+        return loader;
+    }
+
     /**
      * Valid file.
      *
@@ -337,9 +743,11 @@ public class FileTreeNode extends DefaultMutableTreeNode implements NodeInterfac
      */
     public void refreshFolder()
     {
+        cancelLoading();
+        removeChildNodes();
         populated = false;
-        interim = true;
-        populateDirectories(false);
+        interim = false;
+        populateDirectories(true);
     }
 
     /**
@@ -353,114 +761,104 @@ public class FileTreeNode extends DefaultMutableTreeNode implements NodeInterfac
     }
 
     /**
-     * File added.
+     * Files changed, the changes are applied to the tree on the event dispatch thread.
      *
-     * @param f the folder/file added
+     * @param addedFiles the files/folders added
+     * @param modifiedFiles the files/folders modified
+     * @param deletedFiles the files/folders deleted
      */
     @Override
-    public void fileAdded(File f) {
-
-        if(f.isFile())
+    public void filesChanged(final Set<File> addedFiles, Set<File> modifiedFiles, final Set<File> deletedFiles) {
+        if(addedFiles.isEmpty() && deletedFiles.isEmpty())
         {
-            // File added
-            if(validFile(f.getName()))
-            {
-                try
-                {
-                    addFile(f.getName());
-
-                    FileSystemNodeManager.refreshNode(this);
-                }
-                catch (Throwable t) {
-                    // Ignore phantoms or access problems
-                } 
-            }
+            // Modifications do not change the tree
+            return;
         }
-        else
-        {
-            // Folder added
-            boolean descend = false;
-            try {
-                addFolder(descend, f.getName());
-            }
-            catch (Throwable t) {
-                // Ignore phantoms or access problems
+
+        SwingUtilities.invokeLater(new Runnable() {
+            @Override
+            public void run() {
+                applyChanges(addedFiles, deletedFiles);
             }
-            sort(this);
-            FileSystemNodeManager.refreshNode(this);
-        }
+        });
     }
 
     /**
-     * Sort child nodes alphabetically.
+     * Apply a batch of changes to the child nodes, the node is sorted
+     * and refreshed once rather than once per file.
      *
-     * @param node the node
+     * @param addedFiles the files/folders added
+     * @param deletedFiles the files/folders deleted
      */
-    private static void sort(DefaultMutableTreeNode node) {
-        //sort alphabetically
-        for(int i = 0; i < node.getChildCount() - 1; i++) {
-            DefaultMutableTreeNode child = (DefaultMutableTreeNode) node.getChildAt(i);
-            String nt = child.getUserObject().toString();
+    private void applyChanges(Set<File> addedFiles, Set<File> deletedFiles) {
+        Set<String> deletedNames = new HashSet<String>();
+        for(File f : deletedFiles)
+        {
+            deletedNames.add(f.getName());
+        }
 
-            for(int j = i + 1; j <= node.getChildCount() - 1; j++) {
-                DefaultMutableTreeNode prevNode = (DefaultMutableTreeNode) node.getChildAt(j);
-                String np = prevNode.getUserObject().toString();
+        Set<String> existingNames = new HashSet<String>();
+        for(int childIndex = this.getChildCount() - 1; childIndex >= 0; childIndex --)
+        {
+            FileTreeNode childNode = (FileTreeNode) this.getChildAt(childIndex);
 
-                if(nt.compareToIgnoreCase(np) > 0) {
-                    node.insert(child, j);
-                    node.insert(prevNode, i);
-                }
+            if(deletedNames.contains(childNode.name))
+            {
+                releaseWatches(childNode);
+                this.remove(childIndex);
             }
-
-            if(child.getChildCount() > 0) {
-                sort(child);
+            else
+            {
+                existingNames.add(childNode.name);
             }
         }
 
-        // Put folders first - normal on Windows and some flavours of Linux but not on Mac OS X.
-        for(int i = 0; i < node.getChildCount() - 1; i++) {
-            DefaultMutableTreeNode child = (DefaultMutableTreeNode) node.getChildAt(i);
-            for(int j = i + 1; j <= node.getChildCount() - 1; j++) {
-                DefaultMutableTreeNode prevNode = (DefaultMutableTreeNode) node.getChildAt(j);
+        for(File f : addedFiles)
+        {
+            if(existingNames.contains(f.getName()))
+            {
+                continue;
+            }
 
-                if(!prevNode.isLeaf() && child.isLeaf()) {
-                    node.insert(child, j);
-                    node.insert(prevNode, i);
+            try
+            {
+                // Nodes are inserted in sorted position
+                if(f.isFile())
+                {
+                    // File added
+                    if(validFile(f.getName()))
+                    {
+                        addFile(f.getName());
+                    }
+                }
+                else if(f.isDirectory())
+                {
+                    // Folder added
+                    addFolder(f.getName());
                 }
             }
+            catch (Throwable t) {
+                // Ignore phantoms or access problems
+            } 
         }
-    }
 
-    /**
-     * File modified.
-     *
-     * @param f the folder/file modified
-     */
-    @Override
-    public void fileModified(File f) {
-        // Do nothing
+        FileSystemNodeManager.refreshNode(this);
     }
 
     /**
-     * File deleted.
+     * Rescan folder, events have been lost so the contents are read again.
      *
-     * @param f the folder/file deleted
+     * @param folder the folder
      */
     @Override
-    public void fileDeleted(File f) {
-
-        for(int childIndex = 0; childIndex < this.getChildCount(); childIndex ++)
-        {
-            FileTreeNode childNode = (FileTreeNode) this.getChildAt(childIndex);
-
-            if(childNode.name.compareTo(f.getName()) == 0)
-            {
-                this.remove(childIndex);
-                break;
+    public void rescanFolder(File folder) {
+        SwingUtilities.invokeLater(new Runnable() {
+            @Override
+            public void run() {
+                refreshFolder();
+                FileSystemNodeManager.refreshNode(FileTreeNode.this);
             }
-        }
-
-        FileSystemNodeManager.refreshNode(this);
+        });
     }
 
     /**
@@ -94,6 +94,9 @@ public class DataSourceImpl implements DataSourceInterface {
     /** The internal data source. */
     private CreateDataSourceInterface internalDataSource = null;
 
+    /** The revision, incremented every time the data source changes. */
+    private long revision = 0;
+
     /** The external data source. */
     private CreateDataSourceInterface externalDataSource = null;
 
@@ -158,6 +161,8 @@ public class DataSourceImpl implements DataSourceInterface {
     {
         reset();
 
+        revision ++;
+
         this.editorFileInterface = editorFile;
 
         if(editorFileInterface != null)
@@ -395,6 +400,8 @@ public class DataSourceImpl implements DataSourceInterface {
     public void reset() {
         unloadDataStore();
 
+        revision ++;
+
         dataSourceInfo.reset();
         dataSourceProperties = null;
 
@@ -519,6 +526,8 @@ public class DataSourceImpl implements DataSourceInterface {
 
                 this.editorFileInterface.getSLDData().setFieldList(fieldList);
 
+                revision ++;
+
                 createInternalDataSource();
             }
         }
@@ -545,6 +554,8 @@ public class DataSourceImpl implements DataSourceInterface {
                 }
                 fieldList.add(dataSourceField);
 
+                revision ++;
+
                 createInternalDataSource();
             }
         }
@@ -580,4 +591,15 @@ public class DataSourceImpl implements DataSourceInterface {
         }
         return gridCoverage;
     }
+
+    /**
+     * Gets the revision.
+     *
+     * @return the revision
+     */
+    @Override
+    public long getRevision()
+    {
+        return revision;
+    }
 }
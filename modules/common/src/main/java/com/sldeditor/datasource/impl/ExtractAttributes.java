@@ -18,22 +18,20 @@
  */
 package com.sldeditor.datasource.impl;
 
-import java.io.IOException;
 import java.io.StringReader;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-import org.xml.sax.InputSource;
-import org.xml.sax.SAXException;
 
 import com.sldeditor.common.DataSourceFieldInterface;
 import com.sldeditor.common.console.ConsoleManager;
@@ -42,138 +40,166 @@ import com.sldeditor.filter.v2.function.FunctionManager;
 
 /**
  * Class that extracts all data source fields from an SLD file
+ * <p>The SLD is read in a single pass using a streaming parser so memory use
+ * does not depend on the size of the SLD.
  * 
  * @author Robert Ward (SCISYS)
  */
 public class ExtractAttributes {
 
+    /** The Constant OGC_FUNCTION_NAME. */
     private static final String OGC_FUNCTION_NAME = "name";
 
-    private static final String WELL_KNOWN_NAME = "sld:WellKnownName";
+    /** The Constant OGC_NAMESPACE. */
+    private static final String OGC_NAMESPACE = "http://www.opengis.net/ogc";
+
+    /** The Constant OGC_PREFIX. */
+    private static final String OGC_PREFIX = "ogc";
 
     /** The Constant OGC_FUNCTION. */
-    private static final String OGC_FUNCTION = "ogc:Function";
+    private static final String OGC_FUNCTION = "Function";
 
     /** The Constant OGC_PROPERTY_NAME. */
-    private static final String OGC_PROPERTY_NAME = "ogc:PropertyName";
+    private static final String OGC_PROPERTY_NAME = "PropertyName";
+
+    /** The xml input factory. */
+    private static XMLInputFactory inputFactory = null;
 
     /**
      * Adds the default fields.
      *
      * @param b the feature type builder
      * @param encodedSLD the encoded sld
+     * @return the list of fields added
      */
     public static List<DataSourceFieldInterface> addDefaultFields(SimpleFeatureTypeBuilder b, String encodedSLD) {
 
         List<DataSourceFieldInterface> processedFieldList = new ArrayList<DataSourceFieldInterface>();
 
+        if(encodedSLD == null)
+        {
+            return processedFieldList;
+        }
+
+        Set<String> processedFieldNameSet = new HashSet<String>();
+
+        // Names of the functions enclosing the current element, innermost first
+        Deque<String> functionStack = new ArrayDeque<String>();
+
+        XMLStreamReader reader = null;
         try
         {
-            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-            DocumentBuilder builder = factory.newDocumentBuilder();
-            InputSource is = new InputSource(new StringReader(encodedSLD));
-            Document doc = builder.parse(is);
+            reader = getInputFactory().createXMLStreamReader(new StringReader(encodedSLD));
+
+            while(reader.hasNext())
+            {
+                int event = reader.next();
+
+                if(event == XMLStreamConstants.START_ELEMENT)
+                {
+                    if(isOGCElement(reader, OGC_FUNCTION))
+                    {
+                        String functionName = reader.getAttributeValue(null, OGC_FUNCTION_NAME);
+                        functionStack.push((functionName == null) ? "" : functionName);
+                    }
+                    else if(isOGCElement(reader, OGC_PROPERTY_NAME))
+                    {
+                        String fieldName = reader.getElementText().trim();
+
+                        if(!fieldName.isEmpty() && processedFieldNameSet.add(fieldName))
+                        {
+                            Class<?> fieldType = getFieldType(functionStack);
 
-            extractSimpleAttributes(b, doc, processedFieldList);
-            extractWKTAttributes(b, doc, processedFieldList);
+                            DataSourceFieldInterface field = new DataSourceField(fieldName, fieldType);
+                            processedFieldList.add(field);
+
+                            b.add(fieldName, fieldType);
+                        }
+                    }
+                }
+                else if(event == XMLStreamConstants.END_ELEMENT)
+                {
+                    if(isOGCElement(reader, OGC_FUNCTION) && !functionStack.isEmpty())
+                    {
+                        functionStack.pop();
+                    }
+                }
+            }
         }
-        catch(IOException e)
+        catch(XMLStreamException e)
         {
             ConsoleManager.getInstance().exception(ExtractAttributes.class, e);
-        } catch (SAXException e) {
-            ConsoleManager.getInstance().exception(ExtractAttributes.class, e);
-        } catch (ParserConfigurationException e) {
-            ConsoleManager.getInstance().exception(ExtractAttributes.class, e);
+        }
+        finally
+        {
+            if(reader != null)
+            {
+                try {
+                    reader.close();
+                } catch (XMLStreamException e) {
+                    ConsoleManager.getInstance().exception(ExtractAttributes.class, e);
+                }
+            }
         }
 
         return processedFieldList;
     }
 
     /**
-     * Extract wkt attributes.
+     * Gets the xml input factory, created on first use.
      *
-     * @param b the b
-     * @param doc the doc
-     * @param processedFieldList the processed field list
+     * @return the input factory
      */
-    private static void extractWKTAttributes(SimpleFeatureTypeBuilder b, Document doc,
-            List<DataSourceFieldInterface> processedFieldList) {
-        NodeList nodeList = doc.getElementsByTagName(WELL_KNOWN_NAME);
-
-        for(int index = 0; index < nodeList.getLength(); index ++)
+    private static synchronized XMLInputFactory getInputFactory()
+    {
+        if(inputFactory == null)
         {
-            Node node = nodeList.item(index);
-
-            String contents = node.getTextContent();
-
-            System.out.println(contents);
+            inputFactory = XMLInputFactory.newInstance();
+            inputFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.TRUE);
+            inputFactory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+            inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+            inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
         }
+        return inputFactory;
     }
 
     /**
-     * Extract simple attributes.
+     * Checks if the current element is the named ogc element.
      *
-     * @param b the feature type builder
-     * @param doc the doc
-     * @param processedFieldList the processed field list
+     * @param reader the reader
+     * @param localName the local name
+     * @return true, if is ogc element
      */
-    private static void extractSimpleAttributes(SimpleFeatureTypeBuilder b, Document doc,
-            List<DataSourceFieldInterface> processedFieldList) {
-        NodeList nodeList = doc.getElementsByTagName(OGC_PROPERTY_NAME);
-
-        for(int index = 0; index < nodeList.getLength(); index ++)
+    private static boolean isOGCElement(XMLStreamReader reader, String localName)
+    {
+        if(!localName.equals(reader.getLocalName()))
         {
-            Node node = nodeList.item(index);
-
-            String fieldName = node.getTextContent();
-
-            if(!fieldExists(processedFieldList, fieldName))
-            {
-                Class<?> fieldType = String.class; // We don't now any better at the moment
-
-                Node parent = node.getParentNode();
-
-                String propName = parent.getNodeName();
-
-                if(propName.compareTo(OGC_FUNCTION) == 0)
-                {
-                    propName = parent.getParentNode().getNodeName();
-
-                    Element e = (Element) parent;
-                    String functionName = e.getAttribute(OGC_FUNCTION_NAME);
-
-                    Class<?> tmpFieldType = FunctionManager.getInstance().getFunctionType(functionName);
-                    if(tmpFieldType != null)
-                    {
-                        fieldType = tmpFieldType;
-                    }
-                }
-
-                DataSourceFieldInterface field = new DataSourceField(fieldName, fieldType);
-                processedFieldList.add(field);
-
-                b.add(fieldName, fieldType);
-            }
+            return false;
         }
+
+        return OGC_NAMESPACE.equals(reader.getNamespaceURI()) || OGC_PREFIX.equals(reader.getPrefix());
     }
 
     /**
-     * Check to see if the field name already exists.
+     * Gets the field type from the functions enclosing a property name.
+     * <p>The return type of the innermost function with a known, specific, return type is used,
+     * if there is none the field is assumed to be a string.
      *
-     * @param processedFieldList the processed field list
-     * @param fieldName the field name
-     * @return true, if successful
+     * @param functionStack the enclosing function names, innermost first
+     * @return the field type
      */
-    private static boolean fieldExists(List<DataSourceFieldInterface> processedFieldList,
-            String fieldName) {
-        for(DataSourceFieldInterface field: processedFieldList)
+    private static Class<?> getFieldType(Deque<String> functionStack)
+    {
+        for(String functionName : functionStack)
         {
-            if(field.getName().compareTo(fieldName) == 0)
+            Class<?> functionType = FunctionManager.getInstance().getFunctionType(functionName);
+
+            if((functionType != null) && (functionType != Object.class))
             {
-                return true;
+                return functionType;
             }
         }
 
-        return false;
+        return String.class; // We don't know any better
     }
 }
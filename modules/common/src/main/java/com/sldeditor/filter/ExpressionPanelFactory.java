@@ -147,4 +147,12 @@ public class ExpressionPanelFactory implements PrefUpdateInterface, PrefUpdateVe
     public void backgroundColourUpdate(Color backgroundColour) {
         // Do nothing
     }
+
+    /* (non-Javadoc)
+     * @see com.sldeditor.common.preferences.iface.PrefUpdateInterface#previewFeatureCapUpdated(int)
+     */
+    @Override
+    public void previewFeatureCapUpdated(int previewFeatureCap) {
+        // Do nothing
+    }
 }
@@ -282,6 +282,11 @@ public class ExpressionPanelv2 extends JDialog implements ExpressionFilterInterf
             return null;
         }
 
+        @Override
+        public long getRevision() {
+            return 0;
+        }
+
         @Override
         public FeatureSource<SimpleFeatureType, SimpleFeature> getExampleFeatureSource() {
             return null;
@@ -285,6 +285,11 @@ public class FilterPanelv2 extends JDialog implements ExpressionFilterInterface,
             return null;
         }
 
+        @Override
+        public long getRevision() {
+            return 0;
+        }
+
         @Override
         public FeatureSource<SimpleFeatureType, SimpleFeature> getExampleFeatureSource() {
             return null;
@@ -19,28 +19,45 @@
 package com.sldeditor.tool.html;
 
 import java.awt.Color;
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
-import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.PrintWriter;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
-import org.apache.commons.io.IOUtils;
 import org.geotools.styling.StyledLayerDescriptor;
 
 import com.sldeditor.common.SLDDataInterface;
 import com.sldeditor.common.console.ConsoleManager;
 import com.sldeditor.common.data.SLDUtils;
 import com.sldeditor.common.data.StyleWrapper;
+import com.sldeditor.common.utils.DaemonThreadFactory;
 import com.sldeditor.tool.legendpanel.LegendManager;
 
 /**
  * Exports a list of SLD object to html.
+ * <p>The html is streamed to disk a row at a time while the legend images are generated
+ * on a pool of worker threads, so the whole document is never held in memory.
+ * <p>A manifest of the content hash of each layer is written alongside the html.
+ * When exporting again to the same folder the legends of layers that have not changed
+ * are not generated again.
  * 
  * @author Robert Ward (SCISYS)
  */
@@ -53,8 +70,35 @@ public class ExportHTML
     /** The Constant TEMPLATE_INSERT_CODE. */
     private static final String TEMPLATE_INSERT_CODE = "<!-- SLD Editor insert -->";
 
-    private static final String PREFIX = "extracted";
-    private static final String SUFFIX = ".html";
+    /** The Constant MANIFEST_SUFFIX, appended to the html filename to give the manifest filename. */
+    private static final String MANIFEST_SUFFIX = ".legends";
+
+    /** The Constant TEMP_FILE_SUFFIX. */
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+
+    /** The Constant DIGEST_ALGORITHM. */
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+
+    /** The Constant MANIFEST_SEPARATOR, separates the hash and legend filename in the manifest. */
+    private static final String MANIFEST_SEPARATOR = "|";
+
+    /** The Constant LAYERS_IN_FLIGHT_PER_THREAD, limits the number of rows waiting to be written. */
+    private static final int LAYERS_IN_FLIGHT_PER_THREAD = 4;
+
+    /**
+     * The legend generated for a layer.
+     */
+    private static class LayerLegend
+    {
+        /** The legend filename, null if no legend. */
+        private String legendFilename = null;
+
+        /** The content hash. */
+        private String hash = null;
+
+        /** The legend was generated rather than reused from the previous export. */
+        private boolean generated = false;
+    }
 
     /**
      * Save all html to folder.
@@ -69,11 +113,6 @@ public class ExportHTML
         List<SLDDataInterface> sldDataList, 
         Color backgroundColour)
     {
-        if(!destinationFolder.exists())
-        {
-            destinationFolder.mkdirs();
-        }
-
         InputStream inputStream = ExportHTML.class.getResourceAsStream(HTML_TEMPLATE);
 
         if(inputStream == null)
@@ -83,110 +122,351 @@ public class ExportHTML
         else
         {
             String htmlTemplate = null;
-            BufferedReader reader = null;
             try
             {
-                File file = stream2file(inputStream);
-
-                reader = new BufferedReader(new FileReader(file));
-                String         line = null;
-                StringBuilder  stringBuilder = new StringBuilder();
-                String         ls = System.getProperty("line.separator");
-
-                while( ( line = reader.readLine() ) != null ) {
-                    stringBuilder.append( line );
-                    stringBuilder.append( ls );
-                }
-                htmlTemplate = stringBuilder.toString();
+                htmlTemplate = readTemplate(inputStream);
             }
-            catch(Exception e)
+            catch(IOException e)
             {
                 ConsoleManager.getInstance().exception(ExportHTML.class, e);
             }
-            finally
+
+            if(htmlTemplate != null)
             {
-                if(reader != null)
-                {
-                    try
-                    {
-                        reader.close();
-                    }
-                    catch (IOException e)
-                    {
-                        ConsoleManager.getInstance().exception(ExportHTML.class, e);
-                    }
-                }
+                save(htmlTemplate, destinationFolder, filename, sldDataList, backgroundColour);
             }
+        }
+    }
 
-            StringBuilder sb = new StringBuilder();
-            sb.append("  <tr>\n");
-            sb.append("    <th>Layer Name</th>\n");
-            sb.append("    <th>Legend</th>\n");
-            sb.append("  </tr>\n");
+    /**
+     * Save all html to folder using the supplied template.
+     *
+     * @param htmlTemplate the html template, the rows are inserted in place of the insert comment
+     * @param destinationFolder the destination folder
+     * @param filename the filename
+     * @param sldDataList the sld data list
+     * @param backgroundColour the background colour
+     * @return the number of legends generated, layers unchanged since the last export are not counted
+     */
+    public static int save(String htmlTemplate,
+        File destinationFolder,
+        String filename,
+        List<SLDDataInterface> sldDataList, 
+        final Color backgroundColour)
+    {
+        if(!destinationFolder.exists())
+        {
+            destinationFolder.mkdirs();
+        }
 
-            for(SLDDataInterface sldData : sldDataList)
-            {
-                StyleWrapper styleWrapper = sldData.getStyle();
-                
-                String layerName = styleWrapper.getStyle();
-                sb.append("  <tr>\n");
+        int insertIndex = htmlTemplate.indexOf(TEMPLATE_INSERT_CODE);
+        String header = (insertIndex < 0) ? htmlTemplate : htmlTemplate.substring(0, insertIndex);
+        String footer = (insertIndex < 0) ? "" : htmlTemplate.substring(insertIndex + TEMPLATE_INSERT_CODE.length());
+
+        File htmlFile = new File(destinationFolder, filename);
+        File manifestFile = new File(destinationFolder, filename + MANIFEST_SUFFIX);
+        final Properties previousManifest = readManifest(manifestFile);
+        Properties manifest = new Properties();
 
-                sb.append(String.format("    <td>%s</td>\n", layerName));
+        final String optionsKey = LegendManager.getInstance().getLegendOptionsKey(backgroundColour);
 
-                StyledLayerDescriptor sld = SLDUtils.createSLDFromString(sldData);
+        int threadCount = Runtime.getRuntime().availableProcessors();
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount, new DaemonThreadFactory("ExportHTML"));
 
-                if(sld != null)
+        int generatedCount = 0;
+        Path tempFile = null;
+        try
+        {
+            tempFile = Files.createTempFile(destinationFolder.toPath(), filename, TEMP_FILE_SUFFIX);
+
+            try (Writer out = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8))
+            {
+                out.write(header);
+                out.write("  <tr>\n");
+                out.write("    <th>Layer Name</th>\n");
+                out.write("    <th>Legend</th>\n");
+                out.write("  </tr>\n");
+
+                // Rows are written in order, legends are generated a bounded number of layers ahead
+                LinkedList<Future<LayerLegend>> pendingList = new LinkedList<Future<LayerLegend>>();
+                LinkedList<String> pendingNameList = new LinkedList<String>();
+                int maxInFlight = threadCount * LAYERS_IN_FLIGHT_PER_THREAD;
+
+                for(final SLDDataInterface sldData : sldDataList)
                 {
-                    String showHeading = null;
-                    String showFilename = null;
+                    final StyleWrapper styleWrapper = sldData.getStyle();
+                    final String layerName = styleWrapper.getStyle();
+                    final File folder = destinationFolder;
 
-                    List<String> legendFileNameList = new ArrayList<String>();
-                    
-                    boolean result = LegendManager.getInstance().saveLegendImage(backgroundColour, sld, destinationFolder, layerName, showHeading, showFilename, legendFileNameList);
+                    pendingNameList.add(layerName);
+                    pendingList.add(executor.submit(new Callable<LayerLegend>() {
+                        @Override
+                        public LayerLegend call() throws Exception {
+                            return createLegend(sldData, layerName, folder, backgroundColour,
+                                    optionsKey, previousManifest);
+                        }
+                    }));
 
-                    if(result)
+                    if(pendingList.size() >= maxInFlight)
                     {
-                        String legendFilename = legendFileNameList.get(0);
-                        sb.append(String.format("    <td><img src=\"%s\" alt=\"%s\" ></td>\n", legendFilename, layerName));
+                        generatedCount += writeRow(out, pendingNameList.removeFirst(), pendingList.removeFirst(), manifest);
                     }
                 }
-                sb.append("  </tr>\n");
+
+                while(!pendingList.isEmpty())
+                {
+                    generatedCount += writeRow(out, pendingNameList.removeFirst(), pendingList.removeFirst(), manifest);
+                }
+
+                out.write(footer);
+                out.write(System.getProperty("line.separator"));
             }
-            
-            if(htmlTemplate != null)
+
+            moveFile(tempFile, htmlFile.toPath());
+            writeManifest(manifestFile, manifest);
+        }
+        catch(IOException e)
+        {
+            ConsoleManager.getInstance().exception(ExportHTML.class, e);
+        }
+        catch(InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        finally
+        {
+            executor.shutdownNow();
+            if(tempFile != null)
             {
-                htmlTemplate = htmlTemplate.replace(TEMPLATE_INSERT_CODE, sb.toString());
-                
-                PrintWriter out;
                 try
                 {
-                    File f = new File(destinationFolder, filename);
-                    out = new PrintWriter(f);
-                    out.println(htmlTemplate);
-                    out.close();
+                    Files.deleteIfExists(tempFile);
                 }
-                catch (FileNotFoundException e)
+                catch (IOException e)
                 {
                     ConsoleManager.getInstance().exception(ExportHTML.class, e);
                 }
             }
         }
+
+        return generatedCount;
     }
-    
+
     /**
-     * Writes an InputStream to a temporary file.
+     * Wait for the legend of a layer and write its table row.
      *
-     * @param in the in
-     * @return the file
+     * @param out the output writer
+     * @param layerName the layer name
+     * @param future the legend future
+     * @param manifest the manifest to update
+     * @return 1 if the legend was generated, 0 otherwise
      * @throws IOException Signals that an I/O exception has occurred.
+     * @throws InterruptedException the interrupted exception
      */
-    private static File stream2file (InputStream in) throws IOException {
-        final File tempFile = File.createTempFile(PREFIX, SUFFIX);
-        tempFile.deleteOnExit();
-        try (FileOutputStream out = new FileOutputStream(tempFile)) {
-            IOUtils.copy(in, out);
+    private static int writeRow(Writer out, String layerName, Future<LayerLegend> future, Properties manifest)
+            throws IOException, InterruptedException
+    {
+        LayerLegend legend = null;
+        try
+        {
+            legend = future.get();
+        }
+        catch (ExecutionException e)
+        {
+            ConsoleManager.getInstance().exception(ExportHTML.class, (Exception) ((e.getCause() instanceof Exception) ? e.getCause() : e));
+        }
+
+        out.write("  <tr>\n");
+        out.write(String.format("    <td>%s</td>\n", layerName));
+
+        if((legend != null) && (legend.legendFilename != null))
+        {
+            out.write(String.format("    <td><img src=\"%s\" alt=\"%s\" ></td>\n", legend.legendFilename, layerName));
+            manifest.setProperty(layerName, legend.hash + MANIFEST_SEPARATOR + legend.legendFilename);
         }
-        return tempFile;
+        out.write("  </tr>\n");
+
+        return ((legend != null) && legend.generated) ? 1 : 0;
     }
 
+    /**
+     * Create the legend for a layer, unless it is unchanged since the previous export.
+     *
+     * @param sldData the sld data
+     * @param layerName the layer name
+     * @param destinationFolder the destination folder
+     * @param backgroundColour the background colour
+     * @param optionsKey the legend options key
+     * @param previousManifest the manifest from the previous export
+     * @return the layer legend
+     */
+    private static LayerLegend createLegend(SLDDataInterface sldData,
+            String layerName,
+            File destinationFolder,
+            Color backgroundColour,
+            String optionsKey,
+            Properties previousManifest)
+    {
+        LayerLegend legend = new LayerLegend();
+        legend.hash = calculateHash(sldData.getSld(), optionsKey);
+
+        String previous = previousManifest.getProperty(layerName);
+        if((legend.hash != null) && (previous != null))
+        {
+            int index = previous.indexOf(MANIFEST_SEPARATOR);
+            if((index > 0) && legend.hash.equals(previous.substring(0, index)))
+            {
+                String previousFilename = previous.substring(index + MANIFEST_SEPARATOR.length());
+                if(new File(previousFilename).exists())
+                {
+                    legend.legendFilename = previousFilename;
+                    return legend;
+                }
+            }
+        }
+
+        StyledLayerDescriptor sld = SLDUtils.createSLDFromString(sldData);
+
+        if(sld != null)
+        {
+            String showHeading = null;
+            String showFilename = null;
+
+            List<String> legendFileNameList = new ArrayList<String>();
+
+            boolean result = LegendManager.getInstance().saveLegendImage(backgroundColour, sld, destinationFolder, layerName, showHeading, showFilename, legendFileNameList);
+
+            if(result)
+            {
+                legend.legendFilename = legendFileNameList.get(0);
+                legend.generated = true;
+            }
+        }
+        return legend;
+    }
+
+    /**
+     * Calculate the content hash of a layer.
+     *
+     * @param sldContents the sld contents
+     * @param optionsKey the legend options key
+     * @return the hash as a hex string, null if it could not be calculated
+     */
+    private static String calculateHash(String sldContents, String optionsKey)
+    {
+        if(sldContents == null)
+        {
+            return null;
+        }
+
+        try
+        {
+            MessageDigest digest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+            digest.update(sldContents.getBytes(StandardCharsets.UTF_8));
+            digest.update(optionsKey.getBytes(StandardCharsets.UTF_8));
+
+            StringBuilder sb = new StringBuilder();
+            for(byte b : digest.digest())
+            {
+                sb.append(String.format("%02x", b));
+            }
+            return sb.toString();
+        }
+        catch(NoSuchAlgorithmException e)
+        {
+            ConsoleManager.getInstance().exception(ExportHTML.class, e);
+        }
+        return null;
+    }
+
+    /**
+     * Read the manifest written by the previous export.
+     *
+     * @param manifestFile the manifest file
+     * @return the manifest, empty if there was no previous export
+     */
+    private static Properties readManifest(File manifestFile)
+    {
+        Properties manifest = new Properties();
+
+        if(manifestFile.exists())
+        {
+            try (Reader reader = Files.newBufferedReader(manifestFile.toPath(), StandardCharsets.UTF_8))
+            {
+                manifest.load(reader);
+            }
+            catch (IOException e)
+            {
+                // Legends are generated again
+                manifest.clear();
+            }
+        }
+        return manifest;
+    }
+
+    /**
+     * Write the manifest.
+     *
+     * @param manifestFile the manifest file
+     * @param manifest the manifest
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private static void writeManifest(File manifestFile, Properties manifest) throws IOException
+    {
+        Path tempFile = Files.createTempFile(manifestFile.getParentFile().toPath(), manifestFile.getName(), TEMP_FILE_SUFFIX);
+        try
+        {
+            try (Writer writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8))
+            {
+                manifest.store(writer, null);
+            }
+            moveFile(tempFile, manifestFile.toPath());
+        }
+        finally
+        {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    /**
+     * Move a file, replacing the destination atomically where supported.
+     *
+     * @param source the source
+     * @param destination the destination
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private static void moveFile(Path source, Path destination) throws IOException
+    {
+        try
+        {
+            Files.move(source, destination, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        }
+        catch (AtomicMoveNotSupportedException e)
+        {
+            Files.move(source, destination, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Read the html template.
+     *
+     * @param inputStream the input stream
+     * @return the template
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private static String readTemplate(InputStream inputStream) throws IOException
+    {
+        StringBuilder sb = new StringBuilder();
+        try (Reader reader = new InputStreamReader(inputStream, StandardCharsets.UTF_8))
+        {
+            char[] buffer = new char[4096];
+            int charsRead = reader.read(buffer);
+            while(charsRead >= 0)
+            {
+                sb.append(buffer, 0, charsRead);
+                charsRead = reader.read(buffer);
+            }
+        }
+        return sb.toString();
+    }
 }
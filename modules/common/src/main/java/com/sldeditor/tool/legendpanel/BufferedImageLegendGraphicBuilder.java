@@ -35,6 +35,7 @@ import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.geotools.data.DataUtilities;
 import org.geotools.factory.CommonFactoryFinder;
@@ -68,11 +69,11 @@ import org.opengis.filter.expression.Expression;
 import org.opengis.style.GraphicalSymbol;
 import org.opengis.util.InternationalString;
 
+import com.sldeditor.tool.legendpanel.LegendTileCache.LegendTile;
 import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Geometry;
 import com.vividsolutions.jts.geom.GeometryFactory;
-import com.vividsolutions.jts.geom.LineString;
 import com.vividsolutions.jts.geom.LinearRing;
-import com.vividsolutions.jts.geom.Polygon;
 
 /**
  * Template {link org.vfny.geoserver.responses.wms.GetLegendGraphicProducer} based on
@@ -98,6 +99,11 @@ import com.vividsolutions.jts.geom.Polygon;
  * representative enough legend.
  * </p>
  * 
+ * <p>
+ * The builder holds no per request state so a single instance can build legends on
+ * several threads at once.
+ * </p>
+ * 
  * @author Gabriel Roldan
  * @author Simone Giannecchini, GeoSolutions SAS
  * @version $Id$
@@ -116,26 +122,32 @@ public class BufferedImageLegendGraphicBuilder {
     /** used to create sample point shapes with LiteShape (not lines nor polygons). */
     private static final GeometryFactory geomFac = new GeometryFactory();
 
-    /** Just a holder to avoid creating many polygon shapes from inside <code>getSampleShape()</code>. */
-    private LiteShape2 sampleRect;
+    /** The Constant MAX_CACHED_SAMPLE_SIZES, the number of legend sizes to cache sample geometries for. */
+    private static final int MAX_CACHED_SAMPLE_SIZES = 64;
 
-    /** Just a holder to avoid creating many line shapes from inside <code>getSampleShape()</code>. */
-    private LiteShape2 sampleLine;
+    /**
+     * Sample polygon geometries keyed on the legend size. Geometries are never modified
+     * once created so can be shared between threads.
+     */
+    private static final ConcurrentHashMap<Long, Geometry> sampleRectCache = new ConcurrentHashMap<Long, Geometry>();
 
-    /** Just a holder to avoid creating many point shapes from inside <code>getSampleShape()</code>. */
-    private LiteShape2 samplePoint;
+    /** Sample line geometries keyed on the legend size. */
+    private static final ConcurrentHashMap<Long, Geometry> sampleLineCache = new ConcurrentHashMap<Long, Geometry>();
 
-    /** The style factory. */
-    private static StyleFactoryImpl styleFactoryImpl = (StyleFactoryImpl) CommonFactoryFinder.getStyleFactory();
+    /** Sample point geometries keyed on the legend size. */
+    private static final ConcurrentHashMap<Long, Geometry> samplePointCache = new ConcurrentHashMap<Long, Geometry>();
 
-    /** The last legend width. */
-    private int lastLegendWidth = Integer.MIN_VALUE;
+    /** The sample feature type, feature types are immutable. */
+    private static final SimpleFeatureType sampleFeatureType = createSampleFeatureType();
 
-    /** The last legend height. */
-    private int lastLegendHeight = Integer.MIN_VALUE;
+    /** The style factory. */
+    private static StyleFactoryImpl styleFactoryImpl = (StyleFactoryImpl) CommonFactoryFinder.getStyleFactory();
 
     /** The filter factory. */
-    private FilterFactory ff = CommonFactoryFinder.getFilterFactory();
+    private static final FilterFactory ff = CommonFactoryFinder.getFilterFactory();
+
+    /** The cache of legend images rendered for each rule. */
+    private LegendTileCache tileCache = new LegendTileCache(LegendTileCache.DEFAULT_MAX_TILES);
 
     /**
      * Default constructor. Subclasses may provide its own with a String parameter to establish its
@@ -145,6 +157,15 @@ public class BufferedImageLegendGraphicBuilder {
         super();
     }
 
+    /**
+     * Gets the cache of legend images rendered for each rule.
+     *
+     * @return the tile cache
+     */
+    public LegendTileCache getTileCache() {
+        return tileCache;
+    }
+
     /**
      * Takes a GetLegendGraphicRequest and produces a BufferedImage that then can be used by a
      * subclass to encode it to the appropriate output format.
@@ -211,8 +232,10 @@ public class BufferedImageLegendGraphicBuilder {
         /**
          * A legend graphic is produced for each applicable rule. They're being held here until the
          * process is done and then painted on a "stack" like legend.
+         * Rules that have not changed since they were last rendered use the cached graphic.
          */
-        final List<RenderedImage> legendsStack = new ArrayList<RenderedImage>(ruleCount);
+        final List<LegendTile> legendsStack = new ArrayList<LegendTile>(ruleCount);
+        final String optionsKey = LegendTileCache.createOptionsKey(request);
         final int w = request.getWidth();
         final int h = request.getHeight();
 
@@ -226,6 +249,12 @@ public class BufferedImageLegendGraphicBuilder {
         Map<Graphic, Expression> oldGraphicList = new LinkedHashMap<Graphic, Expression>();
 
         for (int i = 0; i < ruleCount; i++) {
+            LegendTile cachedTile = tileCache.get(applicableRules[i], optionsKey);
+            if (cachedTile != null) {
+                legendsStack.add(cachedTile);
+                continue;
+            }
+
             final Symbolizer[] symbolizers = applicableRules[i].getSymbolizers();
 
             final RenderedImage image = ImageUtils.createImage(w, h, (IndexColorModel) null, transparent);
@@ -328,8 +357,8 @@ public class BufferedImageLegendGraphicBuilder {
                     }
                 }
             }
-            legendsStack.add(image);
             graphics.dispose();
+            legendsStack.add(tileCache.put(applicableRules[i], optionsKey, (BufferedImage) image));
         }
 
 
@@ -356,13 +385,13 @@ public class BufferedImageLegendGraphicBuilder {
      * Receives a list of <code>BufferedImages</code> and produces a new one which holds all the
      * images in <code>imageStack</code> one above the other.
      *
-     * @param imageStack            the list of BufferedImages, one for each applicable Rule
+     * @param imageStack            the list of legend tiles, one for each applicable Rule
      * @param rules            The applicable rules, one for each image in the stack
      * @param req the req
      * @return the stack image with all the images on the argument list.
      * @throws IllegalArgumentException             if the list is empty
      */
-    private static BufferedImage mergeLegends(List<RenderedImage> imageStack, Rule[] rules,
+    private static BufferedImage mergeLegends(List<LegendTile> imageStack, Rule[] rules,
             LegendRequest req) {
 
         Font labelFont = LegendUtils.getLabelFont(req);
@@ -392,19 +421,19 @@ public class BufferedImageLegendGraphicBuilder {
         final BufferedImage finalLegend;
 
         if (imageStack.size() == 1 && !forceLabelsOn) {
-            finalLegend = (BufferedImage) imageStack.get(0);
+            finalLegend = copyImage(imageStack.get(0).getImage());
         } else {
             final int imgCount = imageStack.size();
             final String[] labels = new String[imgCount];
 
-            BufferedImage img = ((BufferedImage) imageStack.get(0));
+            BufferedImage img = imageStack.get(0).getImage();
 
             int totalHeight = 0;
             int totalWidth = 0;
             int[] rowHeights = new int[imgCount];
             BufferedImage labelsGraphics[] = new BufferedImage[imgCount];
             for (int i = 0; i < imgCount; i++) {
-                img = (BufferedImage) imageStack.get(i);
+                img = imageStack.get(i).getImage();
 
                 if (forceLabelsOff) {
                     totalWidth = Math.max(img.getWidth(), totalWidth);
@@ -426,20 +455,10 @@ public class BufferedImageLegendGraphicBuilder {
                         labels[i] = "";
                     }
 
-                    Graphics2D g = img.createGraphics();
-                    g.setFont(labelFont);
-
-                    if (useAA) {
-                        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING,
-                                RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
-                    } else {
-                        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING,
-                                RenderingHints.VALUE_TEXT_ANTIALIAS_OFF);
-                    }
-
                     if (labels[i] != null && labels[i].length() > 0) {
-                        final BufferedImage renderedLabel = LegendUtils.renderLabel(labels[i], g,
-                                req);
+                        // The rendered label is cached with the rule image
+                        final BufferedImage renderedLabel = imageStack.get(i).getLabel(labels[i],
+                                labelFont, useAA, req);
                         labelsGraphics[i] = renderedLabel;
                         final Rectangle2D bounds = new Rectangle2D.Double(0, 0,
                                 renderedLabel.getWidth(), renderedLabel.getHeight());
@@ -474,7 +493,7 @@ public class BufferedImageLegendGraphicBuilder {
             int topOfRow = 0;
 
             for (int i = 0; i < imgCount; i++) {
-                img = (BufferedImage) imageStack.get(i);
+                img = imageStack.get(i).getImage();
 
                 // draw the image
                 int y = topOfRow;
@@ -512,8 +531,6 @@ public class BufferedImageLegendGraphicBuilder {
                     }
 
                     finalGraphics.drawImage(renderedLabel, img.getWidth(), y, null);
-                    // cleanup
-                    renderedLabel.flush();
                     labelsGraphics[i] = null;
                 }
 
@@ -525,6 +542,18 @@ public class BufferedImageLegendGraphicBuilder {
         return finalLegend;
     }
 
+    /**
+     * Copy an image, cached legend tiles must not be returned to the caller.
+     *
+     * @param image the image
+     * @return the copy
+     */
+    private static BufferedImage copyImage(BufferedImage image) {
+        BufferedImage copy = new BufferedImage(image.getColorModel(), image.copyData(null),
+                image.isAlphaPremultiplied(), null);
+        return copy;
+    }
+
     /**
      * Returns a <code>java.awt.Shape</code> appropiate to render a legend graphic given the
      * symbolizer type and the legend dimensions.
@@ -542,38 +571,25 @@ public class BufferedImageLegendGraphicBuilder {
      * @throws IllegalArgumentException
      *             if an unknown symbolizer impl was passed in.
      */
-    private LiteShape2 getSampleShape(Symbolizer symbolizer, int legendWidth, int legendHeight) {
-        LiteShape2 sampleShape;
-
-        if((lastLegendWidth != legendWidth) || (lastLegendHeight != legendHeight))
-        {
-            lastLegendHeight = legendHeight;
-            lastLegendWidth = legendWidth;
-            this.sampleLine = null;
-            this.sampleRect = null;
-            this.samplePoint = null;
-        }
+    private static LiteShape2 getSampleShape(Symbolizer symbolizer, int legendWidth, int legendHeight) {
+        final Long sizeKey = (((long) legendWidth) << 32) | (legendHeight & 0xffffffffL);
 
         final float hpad = (legendWidth * LegendUtils.hpaddingFactor);
         final float vpad = (legendHeight * LegendUtils.vpaddingFactor);
 
+        Geometry geom;
+
         if (symbolizer instanceof LineSymbolizer) {
-            if (this.sampleLine == null) {
+            geom = sampleLineCache.get(sizeKey);
+            if (geom == null) {
                 Coordinate[] coords = { new Coordinate(hpad, legendHeight - vpad),
                         new Coordinate(legendWidth - hpad, vpad) };
-                LineString geom = geomFac.createLineString(coords);
-
-                try {
-                    this.sampleLine = new LiteShape2(geom, null, null, false);
-                } catch (Exception e) {
-                    this.sampleLine = null;
-                }
+                geom = cacheSampleGeometry(sampleLineCache, sizeKey, geomFac.createLineString(coords));
             }
-
-            sampleShape = this.sampleLine;
         } else if ((symbolizer instanceof PolygonSymbolizer)
                 || (symbolizer instanceof RasterSymbolizer)) {
-            if (this.sampleRect == null) {
+            geom = sampleRectCache.get(sizeKey);
+            if (geom == null) {
                 final float w = legendWidth - (2 * hpad);
                 final float h = legendHeight - (2 * vpad);
 
@@ -581,33 +597,42 @@ public class BufferedImageLegendGraphicBuilder {
                         new Coordinate(hpad + w, vpad + h), new Coordinate(hpad + w, vpad),
                         new Coordinate(hpad, vpad) };
                 LinearRing shell = geomFac.createLinearRing(coords);
-                Polygon geom = geomFac.createPolygon(shell, null);
-
-                try {
-                    this.sampleRect = new LiteShape2(geom, null, null, false);
-                } catch (Exception e) {
-                    this.sampleRect = null;
-                }
+                geom = cacheSampleGeometry(sampleRectCache, sizeKey, geomFac.createPolygon(shell, null));
             }
-
-            sampleShape = this.sampleRect;
         } else if (symbolizer instanceof PointSymbolizer || symbolizer instanceof TextSymbolizer) {
-            if (this.samplePoint == null) {
+            geom = samplePointCache.get(sizeKey);
+            if (geom == null) {
                 Coordinate coord = new Coordinate(legendWidth / 2, legendHeight / 2);
-
-                try {
-                    this.samplePoint = new LiteShape2(geomFac.createPoint(coord), null, null, false);
-                } catch (Exception e) {
-                    this.samplePoint = null;
-                }
+                geom = cacheSampleGeometry(samplePointCache, sizeKey, geomFac.createPoint(coord));
             }
-
-            sampleShape = this.samplePoint;
         } else {
             throw new IllegalArgumentException("Unknown symbolizer: " + symbolizer);
         }
 
-        return sampleShape;
+        // The shape is cheap to create and keeps per paint state, so is not shared
+        try {
+            return new LiteShape2(geom, null, null, false);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * Add a sample geometry to the cache, if another thread has already created one that is used instead.
+     *
+     * @param cache the cache
+     * @param sizeKey the legend size key
+     * @param geom the geometry
+     * @return the cached geometry
+     */
+    private static Geometry cacheSampleGeometry(ConcurrentHashMap<Long, Geometry> cache, Long sizeKey, Geometry geom) {
+        if (cache.size() >= MAX_CACHED_SAMPLE_SIZES) {
+            cache.clear();
+        }
+
+        Geometry existing = cache.putIfAbsent(sizeKey, geom);
+
+        return (existing == null) ? geom : existing;
     }
 
     /**
@@ -615,27 +640,34 @@ public class BufferedImageLegendGraphicBuilder {
      *
      * @return the simple feature
      */
-    private SimpleFeature createSampleFeature() {
-        SimpleFeatureType type;
+    private static SimpleFeature createSampleFeature() {
+        return SimpleFeatureBuilder.template(sampleFeatureType, null);
+    }
+
+    /**
+     * Creates the sample feature type.
+     *
+     * @return the simple feature type
+     */
+    private static SimpleFeatureType createSampleFeatureType() {
         try {
-            type = DataUtilities.createType("Sample", "the_geom:Geometry");
+            return DataUtilities.createType("Sample", "the_geom:Geometry");
         } catch (SchemaException e) {
             throw new RuntimeException(e);
         }
-        return SimpleFeatureBuilder.template((SimpleFeatureType) type, null);
     }
 
     /**
      * Receives a list of <code>BufferedImages</code> and produces a new one which holds all the
      * images in <code>imageStack</code> one above the other.
      *
-     * @param imageStack            the list of BufferedImages, one for each applicable Rule
+     * @param imageStack            the list of legend tiles, one for each applicable Rule
      * @param rules            The applicable rules, one for each image in the stack
      * @param req the req
      * @return the stack image with all the images on the argument list.
      * @throws IllegalArgumentException             if the list is empty
      */
-    private static Map<String, BufferedImage> separateLegends(List<RenderedImage> imageStack, Rule[] rules,
+    private static Map<String, BufferedImage> separateLegends(List<LegendTile> imageStack, Rule[] rules,
             LegendRequest req) {
 
         Font labelFont = LegendUtils.getLabelFont(req);
@@ -665,19 +697,19 @@ public class BufferedImageLegendGraphicBuilder {
         Map<String, BufferedImage> legendMap = new LinkedHashMap<String, BufferedImage>();
 
         if (imageStack.size() == 1 && !forceLabelsOn) {
-            BufferedImage finalLegend = (BufferedImage) imageStack.get(0);
+            BufferedImage finalLegend = copyImage(imageStack.get(0).getImage());
             legendMap.put(null, finalLegend);
         } else {
             final int imgCount = imageStack.size();
             final String[] labels = new String[imgCount];
 
-            BufferedImage img = ((BufferedImage) imageStack.get(0));
+            BufferedImage img = imageStack.get(0).getImage();
 
             int totalWidth = 0;
             int[] rowHeights = new int[imgCount];
             BufferedImage labelsGraphics[] = new BufferedImage[imgCount];
             for (int i = 0; i < imgCount; i++) {
-                img = (BufferedImage) imageStack.get(i);
+                img = imageStack.get(i).getImage();
 
                 if (forceLabelsOff) {
                     totalWidth = Math.max(img.getWidth(), totalWidth);
@@ -698,20 +730,10 @@ public class BufferedImageLegendGraphicBuilder {
                         labels[i] = "";
                     }
 
-                    Graphics2D g = img.createGraphics();
-                    g.setFont(labelFont);
-
-                    if (useAA) {
-                        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING,
-                                RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
-                    } else {
-                        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING,
-                                RenderingHints.VALUE_TEXT_ANTIALIAS_OFF);
-                    }
-
                     if (labels[i] != null && labels[i].length() > 0) {
-                        final BufferedImage renderedLabel = LegendUtils.renderLabel(labels[i], g,
-                                req);
+                        // The rendered label is cached with the rule image
+                        final BufferedImage renderedLabel = imageStack.get(i).getLabel(labels[i],
+                                labelFont, useAA, req);
                         labelsGraphics[i] = renderedLabel;
                         final Rectangle2D bounds = new Rectangle2D.Double(0, 0,
                                 renderedLabel.getWidth(), renderedLabel.getHeight());
@@ -733,7 +755,7 @@ public class BufferedImageLegendGraphicBuilder {
             final Map<RenderingHints.Key, Object> hintsMap = new HashMap<RenderingHints.Key, Object>();
 
             for (int i = 0; i < imgCount; i++) {
-                img = (BufferedImage) imageStack.get(i);
+                img = imageStack.get(i).getImage();
 
                 // create the final image
                 BufferedImage finalLegend = ImageUtils.createImage(totalWidth, img.getHeight(), (IndexColorModel) null,
@@ -773,8 +795,6 @@ public class BufferedImageLegendGraphicBuilder {
                         }
 
                         finalGraphics.drawImage(renderedLabel, img.getWidth(), y, null);
-                        // cleanup
-                        renderedLabel.flush();
                         labelsGraphics[i] = null;
                     }
                 }
@@ -29,9 +29,17 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 import javax.imageio.IIOImage;
 import javax.imageio.ImageIO;
@@ -55,6 +63,7 @@ import com.sldeditor.common.Controller;
 import com.sldeditor.common.console.ConsoleManager;
 import com.sldeditor.common.localisation.Localisation;
 import com.sldeditor.common.utils.ColourUtils;
+import com.sldeditor.common.utils.DaemonThreadFactory;
 import com.sldeditor.datasource.RenderSymbolInterface;
 import com.sldeditor.tool.legendpanel.option.LegendOptionData;
 import com.sldeditor.tool.legendpanel.option.LegendOptionDataUpdateInterface;
@@ -76,11 +85,58 @@ public class LegendManager implements LegendOptionDataUpdateInterface
     /** The singleton instance. */
     private static LegendManager instance = null;
 
-    /** The legend builder. */
+    /** The legend builder, shared by all render threads. */
     private BufferedImageLegendGraphicBuilder legendBuilder = new BufferedImageLegendGraphicBuilder();
 
     /** The legend option data. */
-    private LegendOptionData legendOptionData = new LegendOptionData();
+    private volatile LegendOptionData legendOptionData = new LegendOptionData();
+
+    /** The executor rendering legends for multi-style slds. */
+    private static ExecutorService renderExecutor = null;
+
+    /**
+     * The legend images created for a style.
+     */
+    public static class StyleLegend
+    {
+        /** The style name. */
+        private String styleName;
+
+        /** The image map. */
+        private Map<String, BufferedImage> imageMap;
+
+        /**
+         * Instantiates a new style legend.
+         *
+         * @param styleName the style name
+         * @param imageMap the image map
+         */
+        public StyleLegend(String styleName, Map<String, BufferedImage> imageMap)
+        {
+            this.styleName = styleName;
+            this.imageMap = imageMap;
+        }
+
+        /**
+         * Gets the style name.
+         *
+         * @return the style name
+         */
+        public String getStyleName()
+        {
+            return styleName;
+        }
+
+        /**
+         * Gets the legend images, keyed on rule name when symbolizers are separated.
+         *
+         * @return the image map
+         */
+        public Map<String, BufferedImage> getImageMap()
+        {
+            return imageMap;
+        }
+    }
 
     /** The refresh symbol. */
     private RenderSymbolInterface refreshSymbol = null;
@@ -107,7 +163,7 @@ public class LegendManager implements LegendOptionDataUpdateInterface
     {
         Map<String, BufferedImage> map = createLegend(backgroundColour, sld, heading, filename, false);
 
-        if(!map.isEmpty())
+        if((map != null) && !map.isEmpty())
         {
             String firstKey = map.keySet().iterator().next();
 
@@ -126,7 +182,7 @@ public class LegendManager implements LegendOptionDataUpdateInterface
      * @param heading the heading
      * @param filename the filename
      * @param separateSymbolizers the separate symbolizers
-     * @return the map
+     * @return the map for the last style in the sld, null if there are no styles
      */
     public Map<String, BufferedImage> createLegend(Color backgroundColour,
             StyledLayerDescriptor sld, 
@@ -134,8 +190,129 @@ public class LegendManager implements LegendOptionDataUpdateInterface
             String filename,
             boolean separateSymbolizers)
     {
-        Map<String, BufferedImage> imageMap = null;
+        List<StyleLegend> styleLegendList = createLegends(backgroundColour, sld, heading, filename, separateSymbolizers);
+
+        if(styleLegendList.isEmpty())
+        {
+            return null;
+        }
+
+        return styleLegendList.get(styleLegendList.size() - 1).getImageMap();
+    }
+
+    /**
+     * Creates the legends for all the styles in the sld,
+     * when the sld contains more than one style they are rendered in parallel.
+     *
+     * @param backgroundColour the background colour
+     * @param sld the sld
+     * @param heading the heading
+     * @param filename the filename
+     * @param separateSymbolizers the separate symbolizers
+     * @return the legends in the order the styles appear in the sld
+     */
+    public List<StyleLegend> createLegends(Color backgroundColour,
+            StyledLayerDescriptor sld, 
+            String heading, 
+            String filename,
+            boolean separateSymbolizers)
+    {
+        List<Future<StyleLegend>> futureList = submitLegends(backgroundColour, sld, heading, filename, separateSymbolizers);
+
+        List<StyleLegend> styleLegendList = new ArrayList<StyleLegend>();
+        for(Future<StyleLegend> future : futureList)
+        {
+            StyleLegend styleLegend = getResult(future);
+            if(styleLegend != null)
+            {
+                styleLegendList.add(styleLegend);
+            }
+        }
+
+        return styleLegendList;
+    }
+
+    /**
+     * Submit the legend for each style in the sld for rendering.
+     * <p>A single style is rendered on the calling thread.
+     *
+     * @param backgroundColour the background colour
+     * @param sld the sld
+     * @param heading the heading
+     * @param filename the filename
+     * @param separateSymbolizers the separate symbolizers
+     * @return the futures in the order the styles appear in the sld
+     */
+    private List<Future<StyleLegend>> submitLegends(Color backgroundColour,
+            StyledLayerDescriptor sld, 
+            String heading, 
+            String filename,
+            final boolean separateSymbolizers)
+    {
+        List<Future<StyleLegend>> futureList = new ArrayList<Future<StyleLegend>>();
+
+        if(sld == null)
+        {
+            return futureList;
+        }
+
+        final LegendRequest request = createRequest(backgroundColour, heading, filename);
+
+        List<Style> styleList = new ArrayList<Style>();
+        for(StyledLayer styledLayer : sld.layers())
+        {
+            if(styledLayer instanceof NamedLayer)
+            {
+                NamedLayer namedLayer = (NamedLayer)styledLayer;
+
+                for(Style style : namedLayer.styles())
+                {
+                    if(!style.featureTypeStyles().isEmpty())
+                    {
+                        if(style.featureTypeStyles().get(0) != null)
+                        {
+                            styleList.add(style);
+                        }
+                    }
+                }
+            }
+        }
+
+        for(final Style style : styleList)
+        {
+            Callable<StyleLegend> task = new Callable<StyleLegend>() {
+                @Override
+                public StyleLegend call() throws Exception {
+                    return new StyleLegend(style.getName(),
+                            legendBuilder.buildLegendGraphic(request, style, separateSymbolizers));
+                }
+            };
+
+            if(styleList.size() == 1)
+            {
+                FutureTask<StyleLegend> futureTask = new FutureTask<StyleLegend>(task);
+                futureTask.run();
+                futureList.add(futureTask);
+            }
+            else
+            {
+                futureList.add(getRenderExecutor().submit(task));
+            }
+        }
 
+        return futureList;
+    }
+
+    /**
+     * Creates the legend request from the legend options.
+     *
+     * @param backgroundColour the background colour
+     * @param heading the heading
+     * @param filename the filename
+     * @return the legend request
+     */
+    private LegendRequest createRequest(Color backgroundColour, String heading, String filename)
+    {
         LegendRequest request = new LegendRequest();
 
         //
@@ -156,48 +333,89 @@ public class LegendManager implements LegendOptionDataUpdateInterface
             legendOptions.put("filename", filename);
         }
 
-        if(legendOptionData == null)
-        {
-            legendOptionData = new LegendOptionData();
-        }
+        LegendOptionData optionData = getLegendOptionData();
 
-        request.setWidth(legendOptionData.getImageWidth());
-        request.setHeight(legendOptionData.getImageHeight());
-        legendOptions.put("dpi", String.valueOf(legendOptionData.getDpi()));
-        legendOptions.put("antialias", String.valueOf(legendOptionData.isAntiAlias()));
-        legendOptions.put("fontAntiAliasing", String.valueOf(legendOptionData.isAntiAlias()));
-        legendOptions.put("forceLabels", String.valueOf(legendOptionData.showLabels()));
-        legendOptions.put("imageSize", String.valueOf(legendOptionData.getImageSize()));
+        request.setWidth(optionData.getImageWidth());
+        request.setHeight(optionData.getImageHeight());
+        legendOptions.put("dpi", String.valueOf(optionData.getDpi()));
+        legendOptions.put("antialias", String.valueOf(optionData.isAntiAlias()));
+        legendOptions.put("fontAntiAliasing", String.valueOf(optionData.isAntiAlias()));
+        legendOptions.put("forceLabels", String.valueOf(optionData.showLabels()));
+        legendOptions.put("imageSize", String.valueOf(optionData.getImageSize()));
 
         request.setLegendOptions(legendOptions);
 
-        if(sld != null)
-        {
-            List<StyledLayer> styledLayerList = sld.layers();
+        return request;
+    }
 
-            for(StyledLayer styledLayer : styledLayerList)
-            {
-                if(styledLayer instanceof NamedLayer)
-                {
-                    NamedLayer namedLayer = (NamedLayer)styledLayer;
+    /**
+     * Gets a key identifying the current legend options, legends created with the same
+     * key and sld are identical.
+     *
+     * @param backgroundColour the background colour
+     * @return the legend options key
+     */
+    public String getLegendOptionsKey(Color backgroundColour)
+    {
+        return String.format("%s|%s", LegendTileCache.createOptionsKey(createRequest(backgroundColour, null, null)),
+                getLegendOptionData().splitSymbolizers());
+    }
 
-                    List<Style> styleList = namedLayer.styles();
+    /**
+     * Gets the legend option data.
+     *
+     * @return the legend option data
+     */
+    private LegendOptionData getLegendOptionData()
+    {
+        LegendOptionData optionData = legendOptionData;
 
-                    for(Style style : styleList)
-                    {
-                        if(!style.featureTypeStyles().isEmpty())
-                        {
-                            if(style.featureTypeStyles().get(0) != null)
-                            {
-                                imageMap = legendBuilder.buildLegendGraphic(request, style, separateSymbolizers);
-                            }
-                        }
-                    }
-                }
-            }
+        if(optionData == null)
+        {
+            optionData = new LegendOptionData();
+            legendOptionData = optionData;
+        }
+        return optionData;
+    }
+
+    /**
+     * Wait for a task to complete and get its result, errors are reported to the console.
+     *
+     * @param <T> the result type
+     * @param future the future
+     * @return the result, null if the task failed
+     */
+    private <T> T getResult(Future<T> future)
+    {
+        try
+        {
+            return future.get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+        }
+        catch (ExecutionException e)
+        {
+            ConsoleManager.getInstance().exception(this, (Exception) ((e.getCause() instanceof Exception) ? e.getCause() : e));
         }
+        return null;
+    }
 
-        return imageMap;
+    /**
+     * Gets the executor used to render legends, created when first needed.
+     *
+     * @return the render executor
+     */
+    private static synchronized ExecutorService getRenderExecutor()
+    {
+        if(renderExecutor == null)
+        {
+            renderExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+                    new DaemonThreadFactory("LegendRender"));
+        }
+        return renderExecutor;
     }
 
     /**
@@ -205,7 +423,7 @@ public class LegendManager implements LegendOptionDataUpdateInterface
      *
      * @return single instance of LegendManager
      */
-    public static LegendManager getInstance()
+    public static synchronized LegendManager getInstance()
     {
         if(instance  == null)
         {
@@ -250,6 +468,10 @@ public class LegendManager implements LegendOptionDataUpdateInterface
 
     /**
      * Save legend image.
+     * <p>The legend for each style in the sld is rendered in parallel and the images are
+     * encoded and written by the calling thread as each legend completes, so callers
+     * saving several slds concurrently encode their images concurrently.
+     * If the sld contains more than one style the style name is added to the file names.
      *
      * @param backgroundColour the background colour
      * @param sld the sld
@@ -270,33 +492,59 @@ public class LegendManager implements LegendOptionDataUpdateInterface
     {
         boolean ok = false;
 
-        Map<String, BufferedImage> imageMap =
-                LegendManager.getInstance().createLegend(backgroundColour, sld, heading, filename, legendOptionData.splitSymbolizers());
+        LegendOptionData optionData = getLegendOptionData();
+        int dpi = optionData.getDpi();
+
+        List<Future<StyleLegend>> legendFutureList =
+                submitLegends(backgroundColour, sld, heading, filename, optionData.splitSymbolizers());
 
-        if(imageMap != null)
+        Set<String> styleNameSet = new HashSet<String>();
+        int styleIndex = 0;
+
+        for(Future<StyleLegend> legendFuture : legendFutureList)
         {
+            StyleLegend styleLegend = getResult(legendFuture);
+            styleIndex ++;
+
+            if((styleLegend == null) || (styleLegend.getImageMap() == null))
+            {
+                continue;
+            }
+
+            String legendName = layerName;
+            if(legendFutureList.size() > 1)
+            {
+                String styleName = styleLegend.getStyleName();
+                if((styleName == null) || styleName.isEmpty() || !styleNameSet.add(styleName))
+                {
+                    styleName = String.valueOf(styleIndex);
+                }
+                legendName = String.format("%s_%s", layerName, styleName);
+            }
+
+            Map<String, BufferedImage> imageMap = styleLegend.getImageMap();
             for(String name : imageMap.keySet())
             {
                 BufferedImage image = imageMap.get(name);
                 if(image != null)
                 {
-                    try
-                    {
-                        String legendFilename;
+                    String legendFilename;
 
-                        if(name == null)
-                        {
-                            legendFilename = layerName + "." + LegendManager.getLegendImageFormat();
-                        }
-                        else
-                        {
-                            legendFilename = String.format("%s_%s.%s", layerName, name, LegendManager.getLegendImageFormat());
-                        }
-                        File fileToSave = new File(destinationFolder, legendFilename);
+                    if(name == null)
+                    {
+                        legendFilename = legendName + "." + LegendManager.getLegendImageFormat();
+                    }
+                    else
+                    {
+                        legendFilename = String.format("%s_%s.%s", legendName, name, LegendManager.getLegendImageFormat());
+                    }
+                    File fileToSave = new File(destinationFolder, legendFilename);
 
-                        filenameList.add(fileToSave.getAbsolutePath());
+                    filenameList.add(fileToSave.getAbsolutePath());
 
-                        ok = saveGridImage(image, getLegendImageFormat(), fileToSave, legendOptionData.getDpi());
+                    try
+                    {
+                        ok = saveGridImage(image, getLegendImageFormat(), fileToSave, dpi);
                     }
                     catch (IOException e)
                     {
@@ -326,9 +574,10 @@ public class LegendManager implements LegendOptionDataUpdateInterface
      * @param formatName the format name
      * @param destinationFile the output
      * @param dpi the dpi
+     * @return true, if successful
      * @throws IOException Signals that an I/O exception has occurred.
      */
-    private boolean saveGridImage(BufferedImage image, String formatName, File destinationFile, int dpi) throws IOException {
+    private static boolean saveGridImage(BufferedImage image, String formatName, File destinationFile, int dpi) throws IOException {
         destinationFile.delete();
 
         for (Iterator<ImageWriter> iw = ImageIO.getImageWritersByFormatName(formatName); iw.hasNext();) {
@@ -348,6 +597,7 @@ public class LegendManager implements LegendOptionDataUpdateInterface
                 writer.write(metadata, new IIOImage(image, null, metadata), writeParam);
             } finally {
                 stream.close();
+                writer.dispose();
             }
             break;
         }
@@ -362,7 +612,7 @@ public class LegendManager implements LegendOptionDataUpdateInterface
      * @param dpi the dpi
      * @throws IIOInvalidTreeException the IIO invalid tree exception
      */
-    private void setDPI(IIOMetadata metadata, int dpi) throws IIOInvalidTreeException {
+    private static void setDPI(IIOMetadata metadata, int dpi) throws IIOInvalidTreeException {
 
         // for PNG, it's dots per millimeter
         double dotsPerMilli = 1.0 * dpi / 10 / INCH_2_CM;
@@ -394,7 +644,7 @@ public class LegendManager implements LegendOptionDataUpdateInterface
     {
         try
         {
-            saveGridImage(image, extension, fileToSave, legendOptionData.getDpi());
+            saveGridImage(image, extension, fileToSave, getLegendOptionData().getDpi());
         }
         catch (IOException e)
         {
@@ -0,0 +1,299 @@
+/*
+ * SLD Editor - The Open Source Java SLD Editor
+ *
+ * Copyright (C) 2016, SCISYS UK Limited
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sldeditor.tool.legendpanel;
+
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.geotools.styling.Rule;
+import org.geotools.styling.visitor.DuplicatingStyleVisitor;
+
+/**
+ * Cache of the legend images (tiles) rendered for individual rules.
+ * <p>Tiles are keyed on the content of the rule and the legend options used to render it,
+ * so editing one rule in a style only causes that rule's tile to be rendered again.
+ * A copy of the rule is held in the key so that later edits to the rule
+ * do not affect cached entries.
+ * <p>Cached images are never modified, callers must copy a tile before drawing on it.
+ *
+ * @author Robert Ward (SCISYS)
+ */
+public class LegendTileCache
+{
+    /** The Constant DEFAULT_MAX_TILES. */
+    public static final int DEFAULT_MAX_TILES = 1024;
+
+    /** The legend options that do not affect the rendering of a rule. */
+    private static final String[] IGNORED_OPTIONS = {"heading", "filename"};
+
+    /**
+     * The legend image for a rule and its label.
+     */
+    public static class LegendTile
+    {
+        /** The rendered rule image. */
+        private BufferedImage image;
+
+        /** The label image, null if not yet rendered or there is no label. */
+        private BufferedImage labelImage = null;
+
+        /** The label text the label image was rendered for. */
+        private String labelText = null;
+
+        /**
+         * Instantiates a new legend tile.
+         *
+         * @param image the image
+         */
+        LegendTile(BufferedImage image)
+        {
+            this.image = image;
+        }
+
+        /**
+         * Gets the rendered rule image.
+         *
+         * @return the image
+         */
+        public BufferedImage getImage()
+        {
+            return image;
+        }
+
+        /**
+         * Gets the label image, rendering it the first time it is requested.
+         *
+         * @param label the label text
+         * @param labelFont the label font
+         * @param useAA the use anti-aliasing flag
+         * @param req the legend request
+         * @return the label image
+         */
+        synchronized BufferedImage getLabel(String label, Font labelFont, boolean useAA, LegendRequest req)
+        {
+            if((labelImage == null) || !label.equals(labelText))
+            {
+                Graphics2D g = image.createGraphics();
+                g.setFont(labelFont);
+                g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING,
+                        useAA ? RenderingHints.VALUE_TEXT_ANTIALIAS_ON : RenderingHints.VALUE_TEXT_ANTIALIAS_OFF);
+
+                labelImage = LegendUtils.renderLabel(label, g, req);
+                labelText = label;
+                g.dispose();
+            }
+            return labelImage;
+        }
+    }
+
+    /**
+     * The cache key, the rule content and the legend options.
+     */
+    private static class TileKey
+    {
+        /** The rule. */
+        private Rule rule;
+
+        /** The legend options. */
+        private String options;
+
+        /** The hash code. */
+        private int hashCode;
+
+        /**
+         * Instantiates a new tile key.
+         *
+         * @param rule the rule
+         * @param options the legend options
+         */
+        TileKey(Rule rule, String options)
+        {
+            this.rule = rule;
+            this.options = options;
+            this.hashCode = (31 * rule.hashCode()) + options.hashCode();
+        }
+
+        /* (non-Javadoc)
+         * @see java.lang.Object#hashCode()
+         */
+        @Override
+        public int hashCode()
+        {
+            return hashCode;
+        }
+
+        /* (non-Javadoc)
+         * @see java.lang.Object#equals(java.lang.Object)
+         */
+        @Override
+        public boolean equals(Object obj)
+        {
+            if(this == obj)
+            {
+                return true;
+            }
+            if(!(obj instanceof TileKey))
+            {
+                return false;
+            }
+            TileKey other = (TileKey) obj;
+            return (hashCode == other.hashCode) && options.equals(other.options) && rule.equals(other.rule);
+        }
+    }
+
+    /** The tiles, in least recently used order. */
+    private Map<TileKey, LegendTile> tileMap;
+
+    /** The number of cache hits. */
+    private long hitCount = 0;
+
+    /** The number of cache misses. */
+    private long missCount = 0;
+
+    /**
+     * Instantiates a new legend tile cache.
+     *
+     * @param maxTiles the maximum number of tiles to cache
+     */
+    public LegendTileCache(final int maxTiles)
+    {
+        tileMap = new LinkedHashMap<TileKey, LegendTile>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<TileKey, LegendTile> eldest) {
+                return size() > maxTiles;
+            }
+        };
+    }
+
+    /**
+     * Creates the key for the legend options in a request that affect how a rule is rendered.
+     *
+     * @param request the legend request
+     * @return the options key
+     */
+    @SuppressWarnings("unchecked")
+    public static String createOptionsKey(LegendRequest request)
+    {
+        Map<Object, Object> optionMap = new TreeMap<Object, Object>();
+        for(Map.Entry<Object, Object> entry : ((Map<Object, Object>) request.getLegendOptions()).entrySet())
+        {
+            optionMap.put(String.valueOf(entry.getKey()), entry.getValue());
+        }
+
+        for(String ignored : IGNORED_OPTIONS)
+        {
+            optionMap.remove(ignored);
+        }
+
+        return String.format("%d|%d|%s|%s|%s", request.getWidth(), request.getHeight(),
+                request.isTransparent(), request.getScale(), optionMap);
+    }
+
+    /**
+     * Gets the cached tile for a rule.
+     *
+     * @param rule the rule
+     * @param optionsKey the options key
+     * @return the tile, null if not cached
+     */
+    public synchronized LegendTile get(Rule rule, String optionsKey)
+    {
+        LegendTile tile = tileMap.get(new TileKey(rule, optionsKey));
+        if(tile == null)
+        {
+            missCount ++;
+        }
+        else
+        {
+            hitCount ++;
+        }
+        return tile;
+    }
+
+    /**
+     * Add the rendered image for a rule to the cache.
+     *
+     * @param rule the rule
+     * @param optionsKey the options key
+     * @param image the rendered image
+     * @return the tile
+     */
+    public LegendTile put(Rule rule, String optionsKey, BufferedImage image)
+    {
+        // Copy the rule outside the lock, the key must not change if the rule is edited
+        DuplicatingStyleVisitor duplicator = new DuplicatingStyleVisitor();
+        rule.accept(duplicator);
+        Rule ruleCopy = (Rule) duplicator.getCopy();
+
+        LegendTile tile = new LegendTile(image);
+
+        synchronized(this)
+        {
+            tileMap.put(new TileKey(ruleCopy, optionsKey), tile);
+        }
+        return tile;
+    }
+
+    /**
+     * Clear the cache.
+     */
+    public synchronized void clear()
+    {
+        tileMap.clear();
+        hitCount = 0;
+        missCount = 0;
+    }
+
+    /**
+     * Gets the number of cached tiles.
+     *
+     * @return the size
+     */
+    public synchronized int size()
+    {
+        return tileMap.size();
+    }
+
+    /**
+     * Gets the number of cache hits.
+     *
+     * @return the hit count
+     */
+    public synchronized long getHitCount()
+    {
+        return hitCount;
+    }
+
+    /**
+     * Gets the number of cache misses.
+     *
+     * @return the miss count
+     */
+    public synchronized long getMissCount()
+    {
+        return missCount;
+    }
+}
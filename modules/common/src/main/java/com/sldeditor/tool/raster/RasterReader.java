@@ -20,8 +20,6 @@ package com.sldeditor.tool.raster;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
 
 import org.geotools.coverage.GridSampleDimension;
 import org.geotools.coverage.grid.GridCoverage2D;
@@ -29,7 +27,6 @@ import org.geotools.coverage.grid.io.AbstractGridCoverage2DReader;
 import org.geotools.coverage.grid.io.AbstractGridFormat;
 import org.geotools.coverage.grid.io.GridFormatFinder;
 import org.geotools.factory.CommonFactoryFinder;
-import org.geotools.geometry.DirectPosition2D;
 import org.geotools.styling.ChannelSelection;
 import org.geotools.styling.ColorMap;
 import org.geotools.styling.ColorMapEntry;
@@ -45,7 +42,6 @@ import org.geotools.styling.StyleFactory;
 import org.geotools.styling.StyledLayerDescriptor;
 import org.opengis.filter.FilterFactory2;
 import org.opengis.filter.expression.Literal;
-import org.opengis.geometry.DirectPosition;
 import org.opengis.style.ContrastMethod;
 
 import com.sldeditor.common.SLDDataInterface;
@@ -129,37 +125,23 @@ public class RasterReader implements RasterReaderInterface {
     }
 
     /**
-     * Creates the rgb image symbol.
+     * Creates the rgb image symbol, a colour map entry is created for
+     * each unique value in the first band.
      *
      * @param sym the sym
      * @param cov the cov
      */
     private void createRGBImageSymbol(RasterSymbolizer sym, GridCoverage2D cov) {
-        int[] dest = new int[1];
-        List<Integer> valueList = new ArrayList<Integer>();
-
-        for(int x = 0; x < cov.getGridGeometry().getGridRange2D().getWidth(); x++)
-        {
-            for(int y = 0; y < cov.getGridGeometry().getGridRange2D().getHeight(); y++)
-            {
-                DirectPosition pos = new DirectPosition2D(x, y);
-                dest = cov.evaluate(pos, dest);
-
-                if(!valueList.contains(dest[0]))
-                {
-                    valueList.add(dest[0]);
-                }
-            }
-        }
+        UniqueValueSet uniqueValues = RasterStatistics.calculateUniqueValues(cov.getRenderedImage(), 0);
 
         ColorMapImpl colourMap = new ColorMapImpl();
 
-        for(Integer value : valueList)
+        for(int value : uniqueValues.getValues())
         {
             ColorMapEntry entry = new ColorMapEntryImpl();
             Literal colourExpression = ff.literal(ColourUtils.fromColour(ColourUtils.createRandomColour()));
             entry.setColor(colourExpression);
-            entry.setQuantity(ff.literal(value.intValue()));
+            entry.setQuantity(ff.literal(value));
 
             colourMap.addColorMapEntry(entry);
         }
@@ -0,0 +1,238 @@
+/*
+ * SLD Editor - The Open Source Java SLD Editor
+ *
+ * Copyright (C) 2016, SCISYS UK Limited
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sldeditor.tool.raster;
+
+import java.awt.Rectangle;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Calculates band statistics of a raster by reading the tiles of the
+ * rendered image directly rather than evaluating the coverage pixel by pixel.
+ * <p>Each tile is processed in parallel on the common fork join pool and
+ * the results merged. For large images only every n-th row and column is
+ * read so that the number of samples does not exceed a maximum.
+ * <p>Positions are recorded in column order (x then y) so the unique values
+ * are returned in the same order as a scan of columns from the top left.
+ *
+ * @author Robert Ward (SCISYS)
+ */
+public class RasterStatistics {
+
+    /** The default maximum number of pixels sampled. */
+    public static final long DEFAULT_MAX_SAMPLES = 4L * 1024L * 1024L;
+
+    /**
+     * Private default constructor.
+     */
+    private RasterStatistics()
+    {
+    }
+
+    /**
+     * Gets the step between sampled rows and columns.
+     *
+     * @param width the image width
+     * @param height the image height
+     * @param maxSamples the maximum number of samples, 0 or less to read every pixel
+     * @return the sample step, 1 if every pixel is read
+     */
+    public static int getSampleStep(long width, long height, long maxSamples)
+    {
+        long noOfPixels = width * height;
+        if((maxSamples <= 0) || (noOfPixels <= maxSamples))
+        {
+            return 1;
+        }
+        return (int) Math.ceil(Math.sqrt((double) noOfPixels / (double) maxSamples));
+    }
+
+    /**
+     * Calculate the unique values and their histogram of a band,
+     * sampling at most DEFAULT_MAX_SAMPLES pixels.
+     *
+     * @param image the image
+     * @param band the band
+     * @return the unique value set
+     */
+    public static UniqueValueSet calculateUniqueValues(RenderedImage image, int band)
+    {
+        return calculateUniqueValues(image, band, DEFAULT_MAX_SAMPLES);
+    }
+
+    /**
+     * Calculate the unique values and their histogram of a band.
+     *
+     * @param image the image
+     * @param band the band
+     * @param maxSamples the maximum number of samples, 0 or less to read every pixel
+     * @return the unique value set
+     */
+    public static UniqueValueSet calculateUniqueValues(RenderedImage image, int band, long maxSamples)
+    {
+        final Rectangle imageBounds = new Rectangle(image.getMinX(), image.getMinY(),
+                image.getWidth(), image.getHeight());
+        final int step = getSampleStep(imageBounds.width, imageBounds.height, maxSamples);
+
+        List<Callable<UniqueValueSet>> taskList = new ArrayList<Callable<UniqueValueSet>>();
+
+        for(int tileY = image.getMinTileY(); tileY < image.getMinTileY() + image.getNumYTiles(); tileY ++)
+        {
+            for(int tileX = image.getMinTileX(); tileX < image.getMinTileX() + image.getNumXTiles(); tileX ++)
+            {
+                taskList.add(new TileTask(image, tileX, tileY, band, imageBounds, step));
+            }
+        }
+
+        UniqueValueSet uniqueValues = new UniqueValueSet();
+
+        try
+        {
+            if(taskList.size() == 1)
+            {
+                uniqueValues.addAll(taskList.get(0).call());
+            }
+            else
+            {
+                List<Future<UniqueValueSet>> futureList = ForkJoinPool.commonPool().invokeAll(taskList);
+
+                for(Future<UniqueValueSet> future : futureList)
+                {
+                    uniqueValues.addAll(future.get());
+                }
+            }
+        }
+        catch (ExecutionException e)
+        {
+            throw new RuntimeException(e.getCause());
+        }
+        catch (RuntimeException e)
+        {
+            throw e;
+        }
+        catch (Exception e)
+        {
+            throw new RuntimeException(e);
+        }
+
+        return uniqueValues;
+    }
+
+    /**
+     * Task that collects the unique values of a single tile.
+     */
+    private static class TileTask implements Callable<UniqueValueSet>
+    {
+        /** The image. */
+        private RenderedImage image;
+
+        /** The tile x index. */
+        private int tileX;
+
+        /** The tile y index. */
+        private int tileY;
+
+        /** The band. */
+        private int band;
+
+        /** The image bounds. */
+        private Rectangle imageBounds;
+
+        /** The sample step. */
+        private int step;
+
+        /**
+         * Instantiates a new tile task.
+         *
+         * @param image the image
+         * @param tileX the tile x index
+         * @param tileY the tile y index
+         * @param band the band
+         * @param imageBounds the image bounds
+         * @param step the sample step
+         */
+        TileTask(RenderedImage image, int tileX, int tileY, int band, Rectangle imageBounds, int step)
+        {
+            this.image = image;
+            this.tileX = tileX;
+            this.tileY = tileY;
+            this.band = band;
+            this.imageBounds = imageBounds;
+            this.step = step;
+        }
+
+        /* (non-Javadoc)
+         * @see java.util.concurrent.Callable#call()
+         */
+        @Override
+        public UniqueValueSet call()
+        {
+            UniqueValueSet uniqueValues = new UniqueValueSet();
+
+            Raster tile = image.getTile(tileX, tileY);
+            Rectangle bounds = tile.getBounds().intersection(imageBounds);
+            if(bounds.isEmpty())
+            {
+                return uniqueValues;
+            }
+
+            int startX = firstSample(bounds.x, imageBounds.x);
+            int startY = firstSample(bounds.y, imageBounds.y);
+            int endX = bounds.x + bounds.width;
+            int endY = bounds.y + bounds.height;
+
+            int[] rowSamples = new int[bounds.width];
+
+            for(int y = startY; y < endY; y += step)
+            {
+                tile.getSamples(bounds.x, y, bounds.width, 1, band, rowSamples);
+
+                long row = y - imageBounds.y;
+                for(int x = startX; x < endX; x += step)
+                {
+                    long position = ((x - imageBounds.x) * (long) imageBounds.height) + row;
+
+                    uniqueValues.add(rowSamples[x - bounds.x], position);
+                }
+            }
+
+            return uniqueValues;
+        }
+
+        /**
+         * Gets the first sampled coordinate at or after the tile origin.
+         *
+         * @param tileOrigin the tile origin
+         * @param imageOrigin the image origin
+         * @return the first sampled coordinate
+         */
+        private int firstSample(int tileOrigin, int imageOrigin)
+        {
+            int offset = (tileOrigin - imageOrigin) % step;
+
+            return (offset == 0) ? tileOrigin : tileOrigin + (step - offset);
+        }
+    }
+}
@@ -0,0 +1,265 @@
+/*
+ * SLD Editor - The Open Source Java SLD Editor
+ *
+ * Copyright (C) 2016, SCISYS UK Limited
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sldeditor.tool.raster;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Open addressing hash set of primitive int values.
+ * <p>For each value the number of occurrences (histogram) and the position
+ * at which it was first seen are recorded so that the values can be
+ * returned in the order they were first encountered regardless of the
+ * order in which sets from different tiles are merged.
+ *
+ * @author Robert Ward (SCISYS)
+ */
+public class UniqueValueSet {
+
+    /** The Constant DEFAULT_CAPACITY, must be a power of 2. */
+    private static final int DEFAULT_CAPACITY = 64;
+
+    /** The Constant HASH_MULTIPLIER. */
+    private static final int HASH_MULTIPLIER = 0x9E3779B9;
+
+    /** The values. */
+    private int[] values;
+
+    /** The position each value was first seen at. */
+    private long[] firstPositions;
+
+    /** The number of occurrences of each value. */
+    private long[] counts;
+
+    /** The slots in use. */
+    private boolean[] used;
+
+    /** The number of unique values. */
+    private int size = 0;
+
+    /** The total number of values added. */
+    private long totalCount = 0;
+
+    /**
+     * Instantiates a new unique value set.
+     */
+    public UniqueValueSet()
+    {
+        allocate(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Allocate the slot arrays.
+     *
+     * @param capacity the capacity
+     */
+    private void allocate(int capacity)
+    {
+        values = new int[capacity];
+        firstPositions = new long[capacity];
+        counts = new long[capacity];
+        used = new boolean[capacity];
+    }
+
+    /**
+     * Find the slot for a value.
+     *
+     * @param value the value
+     * @return the slot index
+     */
+    private int findSlot(int value)
+    {
+        int mask = values.length - 1;
+        int slot = (value * HASH_MULTIPLIER) & mask;
+
+        while(used[slot] && (values[slot] != value))
+        {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Adds a value seen once at the given position.
+     *
+     * @param value the value
+     * @param position the position
+     */
+    public void add(int value, long position)
+    {
+        add(value, position, 1);
+    }
+
+    /**
+     * Adds a value.
+     *
+     * @param value the value
+     * @param position the position the value was first seen at
+     * @param count the number of occurrences
+     */
+    private void add(int value, long position, long count)
+    {
+        int slot = findSlot(value);
+
+        if(used[slot])
+        {
+            counts[slot] += count;
+            if(position < firstPositions[slot])
+            {
+                firstPositions[slot] = position;
+            }
+        }
+        else
+        {
+            used[slot] = true;
+            values[slot] = value;
+            firstPositions[slot] = position;
+            counts[slot] = count;
+            size ++;
+
+            // Keep load factor below 0.5
+            if((size * 2) > values.length)
+            {
+                rehash();
+            }
+        }
+        totalCount += count;
+    }
+
+    /**
+     * Double the capacity of the set.
+     */
+    private void rehash()
+    {
+        int[] oldValues = values;
+        long[] oldFirstPositions = firstPositions;
+        long[] oldCounts = counts;
+        boolean[] oldUsed = used;
+
+        allocate(oldValues.length * 2);
+
+        for(int index = 0; index < oldValues.length; index ++)
+        {
+            if(oldUsed[index])
+            {
+                int slot = findSlot(oldValues[index]);
+                used[slot] = true;
+                values[slot] = oldValues[index];
+                firstPositions[slot] = oldFirstPositions[index];
+                counts[slot] = oldCounts[index];
+            }
+        }
+    }
+
+    /**
+     * Merge the contents of another set into this one.
+     *
+     * @param other the other set
+     */
+    public void addAll(UniqueValueSet other)
+    {
+        if(other != null)
+        {
+            for(int index = 0; index < other.values.length; index ++)
+            {
+                if(other.used[index])
+                {
+                    add(other.values[index], other.firstPositions[index], other.counts[index]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks if the set contains a value.
+     *
+     * @param value the value
+     * @return true, if successful
+     */
+    public boolean contains(int value)
+    {
+        return used[findSlot(value)];
+    }
+
+    /**
+     * Gets the number of occurrences of a value.
+     *
+     * @param value the value
+     * @return the count, 0 if the value is not in the set
+     */
+    public long getCount(int value)
+    {
+        int slot = findSlot(value);
+
+        return used[slot] ? counts[slot] : 0;
+    }
+
+    /**
+     * Gets the number of unique values.
+     *
+     * @return the size
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Gets the total number of values added.
+     *
+     * @return the total count
+     */
+    public long getTotalCount()
+    {
+        return totalCount;
+    }
+
+    /**
+     * Gets the unique values in the order they were first seen.
+     *
+     * @return the values
+     */
+    public int[] getValues()
+    {
+        Integer[] slotList = new Integer[size];
+        int index = 0;
+        for(int slot = 0; slot < used.length; slot ++)
+        {
+            if(used[slot])
+            {
+                slotList[index] = slot;
+                index ++;
+            }
+        }
+
+        Arrays.sort(slotList, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer o1, Integer o2) {
+                return Long.compare(firstPositions[o1], firstPositions[o2]);
+            }
+        });
+
+        int[] orderedValues = new int[size];
+        for(index = 0; index < size; index ++)
+        {
+            orderedValues[index] = values[slotList[index]];
+        }
+        return orderedValues;
+    }
+}
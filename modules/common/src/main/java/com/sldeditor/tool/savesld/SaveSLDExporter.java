@@ -0,0 +1,296 @@
+/*
+ * SLD Editor - The Open Source Java SLD Editor
+ *
+ * Copyright (C) 2016, SCISYS UK Limited
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sldeditor.tool.savesld;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.geotools.styling.StyledLayerDescriptor;
+
+import com.sldeditor.common.SLDDataInterface;
+import com.sldeditor.common.console.ConsoleManager;
+import com.sldeditor.common.data.SLDUtils;
+import com.sldeditor.common.localisation.Localisation;
+import com.sldeditor.common.output.SLDWriterInterface;
+import com.sldeditor.common.output.impl.SLDWriterFactory;
+import com.sldeditor.common.utils.DaemonThreadFactory;
+import com.sldeditor.datasource.SLDEditorFile;
+
+/**
+ * Saves a list of slds to files in a folder.
+ * <p>The slds are parsed and encoded on a pool of worker threads, each thread
+ * using its own transformer. Each file is written to a temporary file in the
+ * destination folder which is then renamed so a partially written file is never seen.
+ * <p>Progress is reported to the console and the export can be cancelled.
+ *
+ * @author Robert Ward (SCISYS)
+ */
+public class SaveSLDExporter {
+
+    /** The Constant TEMP_FILE_PREFIX. */
+    private static final String TEMP_FILE_PREFIX = ".sldexport";
+
+    /** The Constant TEMP_FILE_SUFFIX. */
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+
+    /** The Constant WRITE_BUFFER_SIZE. */
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    /** The sld writer. */
+    private SLDWriterInterface sldWriter = SLDWriterFactory.createSLDWriter(null);
+
+    /** The number of threads. */
+    private int threadCount;
+
+    /** The executor. */
+    private volatile ExecutorService executor = null;
+
+    /** The cancelled flag. */
+    private volatile boolean cancelled = false;
+
+    /** The number of files saved. */
+    private AtomicInteger savedCount = new AtomicInteger(0);
+
+    /** The number of slds processed. */
+    private AtomicInteger processedCount = new AtomicInteger(0);
+
+    /**
+     * Instantiates a new exporter using a thread per processor.
+     */
+    public SaveSLDExporter()
+    {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Instantiates a new exporter.
+     *
+     * @param threadCount the number of threads
+     */
+    public SaveSLDExporter(int threadCount)
+    {
+        this.threadCount = Math.max(1, threadCount);
+    }
+
+    /**
+     * Save the slds to the destination folder, blocks until complete or cancelled.
+     * <p>If more than one sld has the same layer name the last one is saved.
+     *
+     * @param sldDataList the sld data list
+     * @param destinationFolder the destination folder
+     * @return the number of files saved
+     */
+    public int export(List<SLDDataInterface> sldDataList, final File destinationFolder)
+    {
+        long startTime = System.currentTimeMillis();
+        savedCount.set(0);
+        processedCount.set(0);
+
+        if((sldDataList == null) || sldDataList.isEmpty() || cancelled)
+        {
+            return 0;
+        }
+
+        if(!destinationFolder.exists())
+        {
+            destinationFolder.mkdirs();
+        }
+
+        // Later slds replace earlier ones with the same name, as when saved in order
+        Map<String, SLDDataInterface> fileMap = new LinkedHashMap<String, SLDDataInterface>();
+        for(SLDDataInterface sldData : sldDataList)
+        {
+            String sldFilename = sldData.getLayerName() + SLDEditorFile.getSLDFileExtension();
+            fileMap.remove(sldFilename);
+            fileMap.put(sldFilename, sldData);
+        }
+
+        final int total = fileMap.size();
+
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(threadCount, total), new DaemonThreadFactory("SaveSLDExporter"));
+        executor = pool;
+
+        List<Map.Entry<String, SLDDataInterface>> entryList = new ArrayList<Map.Entry<String, SLDDataInterface>>(fileMap.entrySet());
+        for(final Map.Entry<String, SLDDataInterface> entry : entryList)
+        {
+            pool.submit(new Runnable() {
+                @Override
+                public void run() {
+                    if(!cancelled)
+                    {
+                        saveSLD(entry.getValue(), new File(destinationFolder, entry.getKey()), total);
+                    }
+                }
+            });
+        }
+        pool.shutdown();
+
+        try
+        {
+            while(!pool.awaitTermination(1, TimeUnit.SECONDS))
+            {
+                // Keep waiting until complete or cancelled
+            }
+        }
+        catch (InterruptedException e)
+        {
+            cancel();
+            Thread.currentThread().interrupt();
+        }
+
+        long elapsedTime = System.currentTimeMillis() - startTime;
+        String message = String.format("%s %d/%d (%d ms)",
+                Localisation.getString(SaveSLDTool.class, cancelled ? "SaveSLDTool.cancelled" : "SaveSLDTool.saveComplete"),
+                savedCount.get(), total, elapsedTime);
+        ConsoleManager.getInstance().information(this, message);
+
+        return savedCount.get();
+    }
+
+    /**
+     * Parse, encode and write a single sld.
+     *
+     * @param sldData the sld data
+     * @param fileToSave the file to save
+     * @param total the total number of files
+     */
+    private void saveSLD(SLDDataInterface sldData, File fileToSave, int total)
+    {
+        StyledLayerDescriptor sld = SLDUtils.createSLDFromString(sldData);
+
+        if((sld != null) && !cancelled)
+        {
+            String sldString = sldWriter.encodeSLD(sld);
+
+            try
+            {
+                writeFile(fileToSave.toPath(), sldString.getBytes(StandardCharsets.UTF_8));
+                savedCount.incrementAndGet();
+            }
+            catch (IOException e)
+            {
+                ConsoleManager.getInstance().exception(this, e);
+            }
+        }
+
+        int count = processedCount.incrementAndGet();
+        if(!cancelled)
+        {
+            ConsoleManager.getInstance().information(this,
+                    String.format("%s %s (%d/%d)",
+                            Localisation.getField(SaveSLDTool.class, "SaveSLDTool.savingLayer"),
+                            sldData.getLayerName(), count, total));
+        }
+    }
+
+    /**
+     * Write the contents to a temporary file and rename it to the destination file.
+     *
+     * @param destination the destination file
+     * @param contents the contents
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private static void writeFile(Path destination, byte[] contents) throws IOException
+    {
+        Path tempFile = Files.createTempFile(destination.getParent(), TEMP_FILE_PREFIX, TEMP_FILE_SUFFIX);
+
+        try
+        {
+            FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            try
+            {
+                ByteBuffer buffer = ByteBuffer.wrap(contents);
+                while(buffer.hasRemaining())
+                {
+                    int length = Math.min(buffer.remaining(), WRITE_BUFFER_SIZE);
+                    ByteBuffer slice = buffer.slice();
+                    slice.limit(length);
+                    buffer.position(buffer.position() + channel.write(slice));
+                }
+            }
+            finally
+            {
+                channel.close();
+            }
+
+            try
+            {
+                Files.move(tempFile, destination, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            }
+            catch (AtomicMoveNotSupportedException e)
+            {
+                Files.move(tempFile, destination, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        finally
+        {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    /**
+     * Cancel the export, files already saved are kept.
+     */
+    public void cancel()
+    {
+        cancelled = true;
+
+        ExecutorService pool = executor;
+        if(pool != null)
+        {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Checks if the export has been cancelled.
+     *
+     * @return true, if cancelled
+     */
+    public boolean isCancelled()
+    {
+        return cancelled;
+    }
+
+    /**
+     * Gets the number of slds processed so far.
+     *
+     * @return the processed count
+     */
+    public int getProcessedCount()
+    {
+        return processedCount.get();
+    }
+}
@@ -20,28 +20,21 @@ package com.sldeditor.tool.savesld;
 
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
-import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 
 import javax.swing.BorderFactory;
 import javax.swing.JButton;
 import javax.swing.JFileChooser;
 import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
 
 import org.apache.log4j.Logger;
-import org.geotools.styling.StyledLayerDescriptor;
 
 import com.sldeditor.common.NodeInterface;
 import com.sldeditor.common.SLDDataInterface;
-import com.sldeditor.common.console.ConsoleManager;
-import com.sldeditor.common.data.SLDUtils;
 import com.sldeditor.common.localisation.Localisation;
-import com.sldeditor.common.output.SLDWriterInterface;
-import com.sldeditor.common.output.impl.SLDWriterFactory;
-import com.sldeditor.datasource.SLDEditorFile;
 import com.sldeditor.datasource.extension.filesystem.node.file.FileTreeNode;
 import com.sldeditor.datasource.extension.filesystem.node.file.FileTreeNodeTypeEnum;
 import com.sldeditor.tool.ToolButton;
@@ -58,12 +51,15 @@ public class SaveSLDTool implements ToolInterface {
     /** The logger. */
     private static Logger logger = Logger.getLogger(ToolPanel.class);
 
-    /** The sld writer. */
-    private SLDWriterInterface sldWriter = null;
-
     /** The save all sld. */
     private JButton saveAllSLD;
 
+    /** The cancel button. */
+    private JButton cancelButton;
+
+    /** The exporter, null if no save in progress. */
+    private SaveSLDExporter exporter = null;
+
     /** The group panel. */
     private JPanel groupPanel = null;
 
@@ -95,7 +91,7 @@ public class SaveSLDTool implements ToolInterface {
 
         if(saveAllSLD != null)
         {
-            saveAllSLD.setEnabled(sldDataList.size() > 0);
+            saveAllSLD.setEnabled((exporter == null) && (sldDataList.size() > 0));
         }
     }
 
@@ -130,50 +126,62 @@ public class SaveSLDTool implements ToolInterface {
         });
 
         groupPanel.add(saveAllSLD);
+
+        cancelButton = new JButton(Localisation.getString(SaveSLDTool.class, "SaveSLDTool.cancel"));
+        cancelButton.setEnabled(false);
+        cancelButton.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                if(exporter != null)
+                {
+                    exporter.cancel();
+                }
+            }
+        });
+
+        groupPanel.add(cancelButton);
     }
 
     /**
-     * Save all to folder.
+     * Save all to folder, the slds are saved in the background.
      *
      * @param destinationFolder the destination folder
      */
-    private void saveAllSLDToFolder(File destinationFolder) {
-        if(sldWriter == null)
-        {
-            sldWriter = SLDWriterFactory.createSLDWriter(null);
-        }
-
-        if(!destinationFolder.exists())
+    private void saveAllSLDToFolder(final File destinationFolder) {
+        if(exporter != null)
         {
-            destinationFolder.mkdirs();
+            return;
         }
 
         logger.info(Localisation.getString(SaveSLDTool.class, "SaveSLDTool.saveAllLayersFromMXD"));
 
-        for(SLDDataInterface sldData : sldDataList)
-        {
-            StyledLayerDescriptor sld = SLDUtils.createSLDFromString(sldData);
-
-            String layerName = sldData.getLayerName();
+        final List<SLDDataInterface> sldDataToSave = new ArrayList<SLDDataInterface>(sldDataList);
+        final SaveSLDExporter sldExporter = new SaveSLDExporter();
+        exporter = sldExporter;
+        saveAllSLD.setEnabled(false);
+        cancelButton.setEnabled(true);
 
-            if(sld != null)
-            {
-                String sldString = sldWriter.encodeSLD(sld);
-
-                String sldFilename = layerName + SLDEditorFile.getSLDFileExtension();
-                File fileToSave = new File(destinationFolder, sldFilename);
-
-                ConsoleManager.getInstance().information(this, Localisation.getField(SaveSLDTool.class, "SaveSLDTool.savingLayer") + " " + layerName);
-                BufferedWriter out;
-                try {
-                    out = new BufferedWriter(new FileWriter(fileToSave));
-                    out.write(sldString);
-                    out.close();
-                } catch (IOException e) {
-                    ConsoleManager.getInstance().exception(this, e);
-                }       
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try
+                {
+                    sldExporter.export(sldDataToSave, destinationFolder);
+                }
+                finally
+                {
+                    SwingUtilities.invokeLater(new Runnable() {
+                        @Override
+                        public void run() {
+                            exporter = null;
+                            cancelButton.setEnabled(false);
+                            saveAllSLD.setEnabled((sldDataList != null) && (sldDataList.size() > 0));
+                        }
+                    });
+                }
             }
-        }
+        }, "SaveSLDTool");
+        thread.setDaemon(true);
+        thread.start();
     }
 
     /* (non-Javadoc)
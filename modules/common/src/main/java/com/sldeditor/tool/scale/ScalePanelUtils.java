@@ -18,13 +18,21 @@
  */
 package com.sldeditor.tool.scale;
 
+import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.List;
 
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.geotools.factory.CommonFactoryFinder;
 import org.geotools.styling.FeatureTypeStyle;
 import org.geotools.styling.NamedLayerImpl;
 import org.geotools.styling.Rule;
 import org.geotools.styling.Style;
+import org.geotools.styling.StyleFactory;
 import org.geotools.styling.StyledLayer;
 import org.geotools.styling.StyledLayerDescriptor;
 
@@ -37,6 +45,73 @@ import com.sldeditor.common.data.SLDUtils;
  */
 public class ScalePanelUtils {
 
+    /** The xml input factory. */
+    private static XMLInputFactory inputFactory = null;
+
+    /** The style factory, used to get the names given to elements without a name. */
+    private static StyleFactory styleFactory = CommonFactoryFinder.getStyleFactory();
+
+    /** The name of a style without a name element. */
+    private static final String DEFAULT_STYLE_NAME = styleFactory.createStyle().getName();
+
+    /** The name of a feature type style without a name element. */
+    private static final String DEFAULT_FTS_NAME = styleFactory.createFeatureTypeStyle().getName();
+
+    /** The name of a rule without a name element. */
+    private static final String DEFAULT_RULE_NAME = styleFactory.createRule().getName();
+
+    /**
+     * The position within the sld while it is being read.
+     */
+    private static class ReadState
+    {
+        /** The element names from the root to the current element. */
+        private List<String> elementStack = new ArrayList<String>();
+
+        /** The layer index. */
+        private int layerIndex = -1;
+
+        /** The named layer flag, false for a user layer. */
+        private boolean namedLayer = false;
+
+        /** The style index. */
+        private int styleIndex = -1;
+
+        /** The feature type style index. */
+        private int ftsIndex = -1;
+
+        /** The rule index. */
+        private int ruleIndex = -1;
+
+        /** The named layer name. */
+        private String namedLayerName = null;
+
+        /** The style name. */
+        private String styleName = null;
+
+        /** The feature type style name. */
+        private String ftsName = null;
+
+        /** The rule name. */
+        private String ruleName = null;
+
+        /** The minimum scale of the current rule. */
+        private double minScale = 0.0;
+
+        /** The maximum scale of the current rule. */
+        private double maxScale = 0.0;
+
+        /**
+         * Gets the name of the current element.
+         *
+         * @return the current element name, null if none
+         */
+        private String current()
+        {
+            return elementStack.isEmpty() ? null : elementStack.get(elementStack.size() - 1);
+        }
+    }
+
     /**
      * Contains scales.
      *
@@ -102,4 +177,229 @@ public class ScalePanelUtils {
         }
         return dataList;
     }
+
+    /**
+     * Reads the scales of the rules without creating the GeoTools object model,
+     * the sld is only parsed if a rule is subsequently updated.
+     * <p>Returns the same rows as {@link #containsScales(SLDDataInterface)}, if the
+     * sld cannot be read this way it is fully parsed instead.
+     *
+     * @param sldData the sld data
+     * @return the scale sld data
+     */
+    public static List<ScaleSLDData> readScales(SLDDataInterface sldData) {
+
+        if((sldData == null) || (sldData.getSld() == null))
+        {
+            return null;
+        }
+
+        List<ScaleSLDData> dataList = null;
+        ScaleSLDData.SLDSource source = new ScaleSLDData.SLDSource(sldData, null);
+        ReadState state = new ReadState();
+
+        XMLStreamReader reader = null;
+        try
+        {
+            reader = getInputFactory().createXMLStreamReader(new StringReader(sldData.getSld()));
+
+            while(reader.hasNext())
+            {
+                int event = reader.next();
+                if(event == XMLStreamConstants.START_ELEMENT)
+                {
+                    String localName = reader.getLocalName();
+                    String parent = state.current();
+
+                    if(isElement(localName, "Name") ||
+                            isElement(localName, "MinScaleDenominator") ||
+                            isElement(localName, "MaxScaleDenominator"))
+                    {
+                        // Reads to the end element so is not added to the element stack
+                        readValue(state, parent, localName, reader.getElementText().trim());
+                    }
+                    else
+                    {
+                        startElement(state, parent, localName);
+                        state.elementStack.add(localName);
+                    }
+                }
+                else if(event == XMLStreamConstants.END_ELEMENT)
+                {
+                    String localName = state.elementStack.remove(state.elementStack.size() - 1);
+
+                    if(isElement(localName, "Rule") && isElement(state.current(), "FeatureTypeStyle") && state.namedLayer)
+                    {
+                        if(dataList == null)
+                        {
+                            dataList = new ArrayList<ScaleSLDData>();
+                        }
+                        dataList.add(createScaleSLDData(source, state));
+                    }
+                }
+            }
+        }
+        catch (XMLStreamException e)
+        {
+            return containsScales(sldData);
+        }
+        catch (NumberFormatException e)
+        {
+            return containsScales(sldData);
+        }
+        finally
+        {
+            if(reader != null)
+            {
+                try
+                {
+                    reader.close();
+                }
+                catch (XMLStreamException e)
+                {
+                    // Ignore
+                }
+            }
+        }
+        return dataList;
+    }
+
+    /**
+     * Update the read state at the start of an element.
+     *
+     * @param state the read state
+     * @param parent the parent element name
+     * @param localName the element name
+     */
+    private static void startElement(ReadState state, String parent, String localName)
+    {
+        if(isElement(parent, "StyledLayerDescriptor") &&
+                (isElement(localName, "NamedLayer") || isElement(localName, "UserLayer")))
+        {
+            state.layerIndex ++;
+            state.namedLayer = isElement(localName, "NamedLayer");
+            state.namedLayerName = null;
+            state.styleIndex = -1;
+        }
+        else if(isElement(parent, "NamedLayer") &&
+                (isElement(localName, "UserStyle") || isElement(localName, "NamedStyle")))
+        {
+            state.styleIndex ++;
+            state.styleName = DEFAULT_STYLE_NAME;
+            state.ftsIndex = -1;
+        }
+        else if(isElement(parent, "UserStyle") && isElement(localName, "FeatureTypeStyle"))
+        {
+            state.ftsIndex ++;
+            state.ftsName = DEFAULT_FTS_NAME;
+            state.ruleIndex = -1;
+        }
+        else if(isElement(parent, "FeatureTypeStyle") && isElement(localName, "Rule"))
+        {
+            state.ruleIndex ++;
+            state.ruleName = DEFAULT_RULE_NAME;
+            state.minScale = 0.0;
+            state.maxScale = 0.0;
+        }
+    }
+
+    /**
+     * Store the value of a name or scale element.
+     *
+     * @param state the read state
+     * @param parent the parent element name
+     * @param localName the element name
+     * @param value the element value
+     */
+    private static void readValue(ReadState state, String parent, String localName, String value)
+    {
+        if(isElement(localName, "Name"))
+        {
+            if(isElement(parent, "NamedLayer"))
+            {
+                state.namedLayerName = value;
+            }
+            else if(isElement(parent, "UserStyle") || isElement(parent, "NamedStyle"))
+            {
+                state.styleName = value;
+            }
+            else if(isElement(parent, "FeatureTypeStyle"))
+            {
+                state.ftsName = value;
+            }
+            else if(isElement(parent, "Rule"))
+            {
+                state.ruleName = value;
+            }
+        }
+        else if(isElement(parent, "Rule"))
+        {
+            if(isElement(localName, "MinScaleDenominator"))
+            {
+                state.minScale = Double.parseDouble(value);
+            }
+            else
+            {
+                state.maxScale = Double.parseDouble(value);
+            }
+        }
+    }
+
+    /**
+     * Creates the scale sld data for the rule just read.
+     *
+     * @param source the sld source
+     * @param state the read state
+     * @return the scale sld data
+     */
+    private static ScaleSLDData createScaleSLDData(ScaleSLDData.SLDSource source, ReadState state)
+    {
+        ScaleSLDData scaleSLDData = new ScaleSLDData(source);
+
+        scaleSLDData.setNamedLayer(state.namedLayerName);
+        scaleSLDData.setFeatureTypeStyle(state.ftsName);
+        scaleSLDData.setStyle(state.styleName);
+        scaleSLDData.setRuleName(state.ruleName);
+        scaleSLDData.setRulePath(new int[] {state.layerIndex, state.styleIndex, state.ftsIndex, state.ruleIndex});
+        if(state.minScale > 0.0)
+        {
+            scaleSLDData.setMinScale(state.minScale);
+        }
+
+        if(state.maxScale > 0.0)
+        {
+            scaleSLDData.setMaxScale(state.maxScale);
+        }
+        return scaleSLDData;
+    }
+
+    /**
+     * Checks if an element has the given name, the sld parser ignores case.
+     *
+     * @param localName the element name
+     * @param name the name to check for
+     * @return true, if the names match
+     */
+    private static boolean isElement(String localName, String name)
+    {
+        return name.equalsIgnoreCase(localName);
+    }
+
+    /**
+     * Gets the xml input factory, created on first use.
+     *
+     * @return the input factory
+     */
+    private static synchronized XMLInputFactory getInputFactory()
+    {
+        if(inputFactory == null)
+        {
+            inputFactory = XMLInputFactory.newInstance();
+            inputFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.TRUE);
+            inputFactory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+            inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+            inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+        }
+        return inputFactory;
+    }
 }
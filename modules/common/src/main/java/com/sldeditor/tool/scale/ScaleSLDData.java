@@ -18,10 +18,17 @@
  */
 package com.sldeditor.tool.scale;
 
+import java.util.List;
+
+import org.geotools.styling.FeatureTypeStyle;
+import org.geotools.styling.NamedLayerImpl;
 import org.geotools.styling.Rule;
+import org.geotools.styling.Style;
+import org.geotools.styling.StyledLayer;
 import org.geotools.styling.StyledLayerDescriptor;
 
 import com.sldeditor.common.SLDDataInterface;
+import com.sldeditor.common.data.SLDUtils;
 import com.sldeditor.common.output.SLDWriterInterface;
 import com.sldeditor.common.utils.ScaleUtil;
 
@@ -30,6 +37,47 @@ import com.sldeditor.common.utils.ScaleUtil;
  */
 public class ScaleSLDData {
 
+    /**
+     * The sld the rules are read from, shared by all the rules in an sld
+     * so that updates to several rules are written together.
+     * <p>If the rules were read without parsing the sld it is parsed
+     * when a rule is first needed.
+     */
+    static class SLDSource
+    {
+        /** The sld data. */
+        private SLDDataInterface sldData = null;
+
+        /** The sld, null until parsed. */
+        private StyledLayerDescriptor sld = null;
+
+        /**
+         * Instantiates a new sld source.
+         *
+         * @param sldData the sld data
+         * @param sld the sld, null to parse on demand
+         */
+        SLDSource(SLDDataInterface sldData, StyledLayerDescriptor sld)
+        {
+            this.sldData = sldData;
+            this.sld = sld;
+        }
+
+        /**
+         * Gets the sld, parsing it if necessary.
+         *
+         * @return the sld
+         */
+        synchronized StyledLayerDescriptor getSLD()
+        {
+            if(sld == null)
+            {
+                sld = SLDUtils.createSLDFromString(sldData);
+            }
+            return sld;
+        }
+    }
+
     /** The Constant NOT_SET_VALUE. */
     private static final double NOT_SET_VALUE = Double.POSITIVE_INFINITY;
 
@@ -48,9 +96,15 @@ public class ScaleSLDData {
     /** The feature type style. */
     private String featureTypeStyle;
 
-    /** The rule. */
+    /** The rule, null until needed if the sld has not been parsed. */
     private Rule rule;
 
+    /** The rule name. */
+    private String ruleName;
+
+    /** The indexes of the layer, style, feature type style and rule locating the rule in the sld. */
+    private int[] rulePath = null;
+
     /** The minimum scale. */
     private double minScale = NOT_SET_VALUE;
 
@@ -72,8 +126,8 @@ public class ScaleSLDData {
     /** The sld data. */
     private SLDDataInterface sldData = null;
 
-    /** The sld. */
-    private StyledLayerDescriptor sld = null;
+    /** The sld source. */
+    private SLDSource source = null;
 
     /**
      * Constructor.
@@ -82,9 +136,18 @@ public class ScaleSLDData {
      * @param sldData the sld data
      */
     public ScaleSLDData(StyledLayerDescriptor sld, SLDDataInterface sldData) {
+        this(new SLDSource(sldData, sld));
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param source the sld source
+     */
+    ScaleSLDData(SLDSource source) {
         super();
-        this.sld = sld;
-        this.sldData = sldData;
+        this.source = source;
+        this.sldData = source.sldData;
         this.workspace = this.sldData.getStyle().getWorkspace();
         this.name = this.sldData.getLayerName();
     }
@@ -140,19 +203,71 @@ public class ScaleSLDData {
      * @return the rule name
      */
     public String getRuleName() {
-        return rule.getName();
+        return (rule != null) ? rule.getName() : ruleName;
     }
 
     /**
-     * Gets the rule.
+     * Gets the rule, parsing the sld if the rule was read without parsing it.
      *
-     * @return the rule
+     * @return the rule, null if not found
      */
-    public Rule getRule()
+    public synchronized Rule getRule()
     {
+        if((rule == null) && (rulePath != null))
+        {
+            rule = findRule(source.getSLD(), rulePath, ruleName);
+        }
         return rule;
     }
 
+    /**
+     * Find a rule in an sld.
+     *
+     * @param sld the sld
+     * @param rulePath the indexes of the layer, style, feature type style and rule
+     * @param ruleName the expected rule name
+     * @return the rule, null if not found
+     */
+    private static Rule findRule(StyledLayerDescriptor sld, int[] rulePath, String ruleName)
+    {
+        if(sld == null)
+        {
+            return null;
+        }
+
+        List<StyledLayer> styledLayerList = sld.layers();
+        if((rulePath[0] >= styledLayerList.size()) || !(styledLayerList.get(rulePath[0]) instanceof NamedLayerImpl))
+        {
+            return null;
+        }
+
+        List<Style> styleList = ((NamedLayerImpl) styledLayerList.get(rulePath[0])).styles();
+        if(rulePath[1] >= styleList.size())
+        {
+            return null;
+        }
+
+        List<FeatureTypeStyle> ftsList = styleList.get(rulePath[1]).featureTypeStyles();
+        if(rulePath[2] >= ftsList.size())
+        {
+            return null;
+        }
+
+        List<Rule> ruleList = ftsList.get(rulePath[2]).rules();
+        if(rulePath[3] >= ruleList.size())
+        {
+            return null;
+        }
+
+        Rule foundRule = ruleList.get(rulePath[3]);
+        String foundRuleName = foundRule.getName();
+        if((ruleName == null) ? (foundRuleName != null) : !ruleName.equals(foundRuleName))
+        {
+            return null;
+        }
+        return foundRule;
+    }
+
     /**
      * Gets the minimum scale.
      *
@@ -254,6 +369,24 @@ public class ScaleSLDData {
         this.rule = rule;
     }
 
+    /**
+     * Sets the rule name, used when the sld has not been parsed.
+     *
+     * @param ruleName the rule name to set
+     */
+    void setRuleName(String ruleName) {
+        this.ruleName = ruleName;
+    }
+
+    /**
+     * Sets the location of the rule in the sld, used when the sld has not been parsed.
+     *
+     * @param rulePath the indexes of the layer, style, feature type style and rule
+     */
+    void setRulePath(int[] rulePath) {
+        this.rulePath = rulePath;
+    }
+
     /**
      * Sets the minimum scale.
      *
@@ -331,6 +464,7 @@ public class ScaleSLDData {
      * @param sldWriter the sld writer
      */
     public void updateScales(SLDWriterInterface sldWriter) {
+        Rule rule = getRule();
         if(rule != null)
         {
             if(isMinimumScaleUpdated())
@@ -345,7 +479,7 @@ public class ScaleSLDData {
                 maximumScaleUpdated = false;
             }
 
-            String sldContents = sldWriter.encodeSLD(this.sld);
+            String sldContents = sldWriter.encodeSLD(source.getSLD());
 
             sldData.updateSLDContents(sldContents);
         }
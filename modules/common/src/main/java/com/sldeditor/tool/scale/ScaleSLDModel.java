@@ -169,6 +169,24 @@ public class ScaleSLDModel extends AbstractTableModel {
         this.fireTableDataChanged();
     }
 
+    /**
+     * Append data to the model.
+     *
+     * @param dataList the data list
+     */
+    public void addData(List<ScaleSLDData> dataList)
+    {
+        if((dataList == null) || dataList.isEmpty())
+        {
+            return;
+        }
+
+        int firstRow = scaleList.size();
+        scaleList.addAll(dataList);
+
+        this.fireTableRowsInserted(firstRow, scaleList.size() - 1);
+    }
+
     /**
      * Checks if is cell editable.
      *
@@ -0,0 +1,199 @@
+/*
+ * SLD Editor - The Open Source Java SLD Editor
+ *
+ * Copyright (C) 2016, SCISYS UK Limited
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sldeditor.tool.scale;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.swing.SwingUtilities;
+
+import com.sldeditor.common.SLDDataInterface;
+import com.sldeditor.common.console.ConsoleManager;
+import com.sldeditor.common.utils.DaemonThreadFactory;
+
+/**
+ * Reads the scales of the rules in a list of slds on a pool of worker threads.
+ * <p>The rows for each sld are added to the table model on the event dispatch thread
+ * as they are read, in the order the slds were supplied.
+ *
+ * @author Robert Ward (SCISYS)
+ */
+public class ScaleSLDScanner {
+
+    /** The executor. */
+    private ExecutorService executor = null;
+
+    /** The number of threads. */
+    private int threadCount;
+
+    /** The cancelled flag. */
+    private volatile boolean cancelled = false;
+
+    /** The rows read for each sld, null until read. */
+    private List<List<ScaleSLDData>> resultList = null;
+
+    /** The index of the next sld whose rows are to be added to the model. */
+    private int nextIndex = 0;
+
+    /** The number of slds read. */
+    private AtomicInteger completedCount = new AtomicInteger(0);
+
+    /**
+     * Instantiates a new scanner using a thread per processor.
+     */
+    public ScaleSLDScanner() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Instantiates a new scanner.
+     *
+     * @param threadCount the number of threads
+     */
+    public ScaleSLDScanner(int threadCount) {
+        this.threadCount = Math.max(1, threadCount);
+    }
+
+    /**
+     * Start reading the slds, returns immediately.
+     *
+     * @param sldDataList the sld data list
+     * @param model the model to add the rows to
+     */
+    public void scan(List<SLDDataInterface> sldDataList, final ScaleSLDModel model) {
+        if((sldDataList == null) || sldDataList.isEmpty())
+        {
+            return;
+        }
+
+        resultList = new ArrayList<List<ScaleSLDData>>();
+        for(int index = 0; index < sldDataList.size(); index ++)
+        {
+            resultList.add(null);
+        }
+        nextIndex = 0;
+
+        executor = Executors.newFixedThreadPool(Math.min(threadCount, sldDataList.size()), new DaemonThreadFactory("ScaleSLDScanner"));
+
+        for(int index = 0; index < sldDataList.size(); index ++)
+        {
+            final int sldIndex = index;
+            final SLDDataInterface sldData = sldDataList.get(index);
+
+            executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    if(cancelled)
+                    {
+                        return;
+                    }
+
+                    List<ScaleSLDData> scaleSLDDataList = null;
+                    try
+                    {
+                        scaleSLDDataList = ScalePanelUtils.readScales(sldData);
+                    }
+                    catch (RuntimeException e)
+                    {
+                        ConsoleManager.getInstance().exception(ScaleSLDScanner.class, e);
+                    }
+
+                    completed(sldIndex, scaleSLDDataList, model);
+                }
+            });
+        }
+        executor.shutdown();
+    }
+
+    /**
+     * Record the rows read for an sld and pass on any rows now in order.
+     *
+     * @param sldIndex the sld index
+     * @param scaleSLDDataList the rows read, null if none
+     * @param model the model
+     */
+    private synchronized void completed(int sldIndex, List<ScaleSLDData> scaleSLDDataList, final ScaleSLDModel model) {
+        resultList.set(sldIndex, (scaleSLDDataList == null) ? new ArrayList<ScaleSLDData>() : scaleSLDDataList);
+        completedCount.incrementAndGet();
+
+        final List<ScaleSLDData> rowsToAdd = new ArrayList<ScaleSLDData>();
+        while((nextIndex < resultList.size()) && (resultList.get(nextIndex) != null))
+        {
+            rowsToAdd.addAll(resultList.get(nextIndex));
+            // Release the rows once passed to the model
+            resultList.set(nextIndex, new ArrayList<ScaleSLDData>(0));
+            nextIndex ++;
+        }
+
+        if(!rowsToAdd.isEmpty() && !cancelled)
+        {
+            // Posted while holding the lock so the rows are added in order
+            SwingUtilities.invokeLater(new Runnable() {
+                @Override
+                public void run() {
+                    if(!cancelled)
+                    {
+                        model.addData(rowsToAdd);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Wait for all slds to be read.
+     *
+     * @param timeout the maximum time to wait
+     * @param unit the time unit
+     * @return true, if all slds have been read or the scan cancelled
+     * @throws InterruptedException the interrupted exception
+     */
+    public boolean awaitCompletion(long timeout, TimeUnit unit) throws InterruptedException {
+        if(executor == null)
+        {
+            return true;
+        }
+        return executor.awaitTermination(timeout, unit);
+    }
+
+    /**
+     * Gets the number of slds read.
+     *
+     * @return the completed count
+     */
+    public int getCompletedCount() {
+        return completedCount.get();
+    }
+
+    /**
+     * Cancel the scan, no further rows are added to the model.
+     */
+    public void cancel() {
+        cancelled = true;
+
+        if(executor != null)
+        {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -54,6 +54,9 @@ public class ScaleToolPanel extends JDialog {
     /** The application. */
     private SLDEditorInterface application = null;
 
+    /** The scanner reading the scales. */
+    private ScaleSLDScanner scanner = null;
+
     /**
      * Instantiates a new scale tool panel.
      *
@@ -148,23 +151,42 @@ public class ScaleToolPanel extends JDialog {
     }
 
     /**
-     * Populate the dialog
+     * Populate the dialog, the slds are read in the background
+     * and rows added to the table as they are read.
      *
      * @param sldDataList the sld data list
      */
     public void populate(List<SLDDataInterface> sldDataList) {
 
-        List<ScaleSLDData> scaleDataList = new ArrayList<ScaleSLDData>();
+        cancelScan();
+
+        dataModel.loadData(new ArrayList<ScaleSLDData>());
+
+        scanner = new ScaleSLDScanner();
+        scanner.scan(sldDataList, dataModel);
+    }
+
+    /**
+     * Cancel reading the slds.
+     */
+    private void cancelScan() {
+        if(scanner != null)
+        {
+            scanner.cancel();
+            scanner = null;
+        }
+    }
 
-        for(SLDDataInterface sldData : sldDataList)
+    /* (non-Javadoc)
+     * @see java.awt.Component#setVisible(boolean)
+     */
+    @Override
+    public void setVisible(boolean visible) {
+        if(!visible)
         {
-            List<ScaleSLDData> scaleSLDDataList = ScalePanelUtils.containsScales(sldData);
-            if((scaleSLDDataList != null) && !scaleSLDDataList.isEmpty())
-            {
-                scaleDataList.addAll(scaleSLDDataList);
-            }
+            cancelScan();
         }
-        dataModel.loadData(scaleDataList);   
+        super.setVisible(visible);
     }
 
 }
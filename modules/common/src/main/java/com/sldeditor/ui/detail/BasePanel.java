@@ -41,6 +41,7 @@ import org.opengis.filter.expression.Expression;
 import com.sldeditor.common.Controller;
 import com.sldeditor.common.console.ConsoleManager;
 import com.sldeditor.common.data.SLDTreeUpdatedInterface;
+import com.sldeditor.common.data.SelectedSymbol;
 import com.sldeditor.common.localisation.Localisation;
 import com.sldeditor.common.vendoroption.VendorOptionManager;
 import com.sldeditor.common.vendoroption.VendorOptionVersion;
@@ -211,6 +212,10 @@ public class BasePanel extends JPanel implements MultipleFieldInterface {
     {
         if(!Controller.getInstance().isPopulating())
         {
+            // Record which part of the sld has changed so that
+            // only it needs to be re-encoded
+            SelectedSymbol.getInstance().markSelectedNodeDirty();
+
             // Notify that renderers need to be updated
             for(RenderSymbolInterface renderer : rendererList)
             {
@@ -0,0 +1,515 @@
+/*
+ * SLD Editor - The Open Source Java SLD Editor
+ *
+ * Copyright (C) 2016, SCISYS UK Limited
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sldeditor.ui.detail.config;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.log4j.Logger;
+
+import com.sldeditor.common.console.ConsoleManager;
+import com.sldeditor.common.localisation.Localisation;
+import com.sldeditor.common.xml.ParseXML;
+import com.sldeditor.common.xml.ui.PanelConfig;
+import com.sldeditor.common.xml.ui.XMLSymbolTypeConfig;
+import com.sldeditor.ui.detail.config.symboltype.SymbolTypeConfigReader;
+
+/**
+ * Class that parses all the panel configuration files (src/main/resources/ui/*)
+ * in parallel at start up so that the panels do not have to parse them
+ * one at a time as they are created.
+ * <p>Files are parsed on the fork-join pool, panels requesting a file that is still
+ * being parsed wait for the result, see {@link com.sldeditor.common.xml.ParseXML#parseUIFile(String, String, Class)}.
+ * <p>Optionally a snapshot file records a hash of each file (and its schema) that
+ * validated successfully, on the next start up unchanged files are not validated again.
+ *
+ * @author Robert Ward (SCISYS)
+ */
+public class PanelConfigPreloader {
+
+    /** The logger. */
+    private static Logger logger = Logger.getLogger(PanelConfigPreloader.class);
+
+    /** The Constant UI_FOLDER. */
+    private static final String UI_FOLDER = "ui";
+
+    /** The Constant XML_EXTENSION. */
+    private static final String XML_EXTENSION = ".xml";
+
+    /** The Constant DIGEST_ALGORITHM. */
+    private static final String DIGEST_ALGORITHM = "SHA-1";
+
+    /** The Constant PANEL_CONFIG_ELEMENT. */
+    private static final String PANEL_CONFIG_ELEMENT = "PanelConfig";
+
+    /** The Constant SYMBOL_TYPE_CONFIG_ELEMENT. */
+    private static final String SYMBOL_TYPE_CONFIG_ELEMENT = "XMLSymbolTypeConfig";
+
+    /** The xml input factory. */
+    private static XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+
+    /**
+     * Class holding the contents of a ui configuration file.
+     */
+    private static class UIResource
+    {
+        /** The resource name relative to the ui folder. */
+        private String resourceName;
+
+        /** The contents. */
+        private byte[] contents;
+
+        /**
+         * Instantiates a new ui resource.
+         *
+         * @param resourceName the resource name
+         * @param contents the contents
+         */
+        UIResource(String resourceName, byte[] contents)
+        {
+            this.resourceName = resourceName;
+            this.contents = contents;
+        }
+    }
+
+    /**
+     * Private default constructor.
+     */
+    private PanelConfigPreloader()
+    {
+    }
+
+    /**
+     * Start parsing all the panel configuration files in the background.
+     *
+     * @param snapshotFile the snapshot file, null if files are always to be validated
+     * @return the future that completes when all the files have been parsed
+     */
+    public static CompletableFuture<Void> preload(final File snapshotFile)
+    {
+        final long startTime = System.currentTimeMillis();
+
+        final Properties snapshot = readSnapshot(snapshotFile);
+        final Map<String, String> hashMap = new TreeMap<String, String>();
+        final Map<String, CompletableFuture<Object>> futureMap = new TreeMap<String, CompletableFuture<Object>>();
+
+        Map<String, byte[]> schemaMap = new TreeMap<String, byte[]>();
+
+        for(UIResource resource : findResources())
+        {
+            String rootElement = getRootElement(resource.contents);
+
+            Class<?> classToParse = null;
+            String schemaResource = null;
+
+            if(PANEL_CONFIG_ELEMENT.equals(rootElement))
+            {
+                classToParse = PanelConfig.class;
+                schemaResource = ReadPanelConfig.SCHEMA_RESOURCE;
+            }
+            else if(SYMBOL_TYPE_CONFIG_ELEMENT.equals(rootElement))
+            {
+                classToParse = XMLSymbolTypeConfig.class;
+                schemaResource = SymbolTypeConfigReader.SCHEMA_RESOURCE;
+            }
+            else
+            {
+                logger.debug("Not preloading : " + resource.resourceName);
+                continue;
+            }
+
+            byte[] schemaContents = schemaMap.get(schemaResource);
+            if(schemaContents == null)
+            {
+                schemaContents = readResource(schemaResource);
+                schemaMap.put(schemaResource, schemaContents);
+            }
+
+            String hash = calculateHash(resource.contents, schemaContents);
+            boolean validate = (hash == null) || !hash.equals(snapshot.getProperty(resource.resourceName));
+            if(hash != null)
+            {
+                hashMap.put(resource.resourceName, hash);
+            }
+
+            futureMap.put(resource.resourceName, ParseXML.preloadUIFile(resource.resourceName,
+                    resource.contents,
+                    schemaResource,
+                    classToParse,
+                    validate,
+                    ForkJoinPool.commonPool()));
+        }
+
+        CompletableFuture<Void> allFuture = CompletableFuture.allOf(futureMap.values().toArray(new CompletableFuture<?>[0]));
+
+        return allFuture.thenRun(new Runnable() {
+            @Override
+            public void run() {
+                Properties newSnapshot = new Properties();
+
+                for(String resourceName : futureMap.keySet())
+                {
+                    String hash = hashMap.get(resourceName);
+                    Object obj = futureMap.get(resourceName).getNow(null);
+
+                    if((hash != null) && (obj != null))
+                    {
+                        newSnapshot.setProperty(resourceName, hash);
+                    }
+                }
+
+                if((snapshotFile != null) && !newSnapshot.equals(snapshot))
+                {
+                    writeSnapshot(snapshotFile, newSnapshot);
+                }
+
+                ConsoleManager.getInstance().information(PanelConfigPreloader.class,
+                        String.format("%s %d (%d ms)",
+                                Localisation.getField(PanelConfigPreloader.class, "PanelConfigPreloader.preloaded"),
+                                futureMap.size(),
+                                System.currentTimeMillis() - startTime));
+            }
+        });
+    }
+
+    /**
+     * Find all the xml files in the ui folders on the class path.
+     *
+     * @return the list of resources
+     */
+    private static List<UIResource> findResources()
+    {
+        List<UIResource> resourceList = new ArrayList<UIResource>();
+
+        try
+        {
+            Enumeration<URL> urls = PanelConfigPreloader.class.getClassLoader().getResources(UI_FOLDER);
+
+            while(urls.hasMoreElements())
+            {
+                URL url = urls.nextElement();
+
+                URLConnection connection = url.openConnection();
+                if(connection instanceof JarURLConnection)
+                {
+                    findJarResources((JarURLConnection) connection, resourceList);
+                }
+                else
+                {
+                    findFolderResources(Paths.get(url.toURI()), resourceList);
+                }
+            }
+        }
+        catch(IOException e)
+        {
+            ConsoleManager.getInstance().exception(PanelConfigPreloader.class, e);
+        }
+        catch(URISyntaxException e)
+        {
+            ConsoleManager.getInstance().exception(PanelConfigPreloader.class, e);
+        }
+
+        return resourceList;
+    }
+
+    /**
+     * Find the ui xml files in a jar file.
+     *
+     * @param connection the jar connection
+     * @param resourceList the resource list to populate
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private static void findJarResources(JarURLConnection connection, List<UIResource> resourceList) throws IOException
+    {
+        JarFile jarFile = connection.getJarFile();
+        String prefix = UI_FOLDER + "/";
+
+        Enumeration<JarEntry> entries = jarFile.entries();
+        while(entries.hasMoreElements())
+        {
+            JarEntry entry = entries.nextElement();
+            String name = entry.getName();
+
+            if(!entry.isDirectory() && name.startsWith(prefix) && name.endsWith(XML_EXTENSION))
+            {
+                InputStream inputStream = jarFile.getInputStream(entry);
+                try
+                {
+                    resourceList.add(new UIResource(name.substring(prefix.length()), readFully(inputStream)));
+                }
+                finally
+                {
+                    inputStream.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * Find the ui xml files in a folder.
+     *
+     * @param folder the folder
+     * @param resourceList the resource list to populate
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private static void findFolderResources(Path folder, List<UIResource> resourceList) throws IOException
+    {
+        Stream<Path> stream = Files.walk(folder);
+        try
+        {
+            Iterator<Path> iterator = stream.iterator();
+
+            while(iterator.hasNext())
+            {
+                Path path = iterator.next();
+
+                if(Files.isRegularFile(path) && path.toString().endsWith(XML_EXTENSION))
+                {
+                    String resourceName = folder.relativize(path).toString().replace(File.separatorChar, '/');
+
+                    resourceList.add(new UIResource(resourceName, Files.readAllBytes(path)));
+                }
+            }
+        }
+        finally
+        {
+            stream.close();
+        }
+    }
+
+    /**
+     * Gets the name of the root element of the xml.
+     *
+     * @param contents the xml contents
+     * @return the root element local name, null if not found
+     */
+    private static String getRootElement(byte[] contents)
+    {
+        XMLStreamReader reader = null;
+        try
+        {
+            reader = inputFactory.createXMLStreamReader(new ByteArrayInputStream(contents));
+
+            while(reader.hasNext())
+            {
+                if(reader.next() == XMLStreamConstants.START_ELEMENT)
+                {
+                    return reader.getLocalName();
+                }
+            }
+        }
+        catch(XMLStreamException e)
+        {
+            ConsoleManager.getInstance().exception(PanelConfigPreloader.class, e);
+        }
+        finally
+        {
+            if(reader != null)
+            {
+                try {
+                    reader.close();
+                } catch (XMLStreamException e) {
+                    // Ignore
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Read a class path resource.
+     *
+     * @param resource the resource
+     * @return the contents, empty if not found
+     */
+    private static byte[] readResource(String resource)
+    {
+        InputStream inputStream = PanelConfigPreloader.class.getResourceAsStream(resource);
+
+        if(inputStream != null)
+        {
+            try
+            {
+                return readFully(inputStream);
+            }
+            catch(IOException e)
+            {
+                ConsoleManager.getInstance().exception(PanelConfigPreloader.class, e);
+            }
+            finally
+            {
+                try {
+                    inputStream.close();
+                } catch (IOException e) {
+                    // Ignore
+                }
+            }
+        }
+        return new byte[0];
+    }
+
+    /**
+     * Read the whole of a stream.
+     *
+     * @param inputStream the input stream
+     * @return the contents
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private static byte[] readFully(InputStream inputStream) throws IOException
+    {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int length;
+        while((length = inputStream.read(buffer)) != -1)
+        {
+            outputStream.write(buffer, 0, length);
+        }
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * Calculate the hash of a configuration file and its schema.
+     *
+     * @param contents the contents
+     * @param schemaContents the schema contents
+     * @return the hash as a hex string, null if it could not be calculated
+     */
+    private static String calculateHash(byte[] contents, byte[] schemaContents)
+    {
+        try
+        {
+            MessageDigest digest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+            digest.update(contents);
+            digest.update(schemaContents);
+
+            StringBuilder sb = new StringBuilder();
+            for(byte b : digest.digest())
+            {
+                sb.append(String.format("%02x", b));
+            }
+            return sb.toString();
+        }
+        catch(NoSuchAlgorithmException e)
+        {
+            ConsoleManager.getInstance().exception(PanelConfigPreloader.class, e);
+        }
+        return null;
+    }
+
+    /**
+     * Read snapshot.
+     *
+     * @param snapshotFile the snapshot file
+     * @return the properties
+     */
+    private static Properties readSnapshot(File snapshotFile)
+    {
+        Properties snapshot = new Properties();
+
+        if((snapshotFile != null) && snapshotFile.exists())
+        {
+            InputStream inputStream = null;
+            try
+            {
+                inputStream = new FileInputStream(snapshotFile);
+                snapshot.load(inputStream);
+            }
+            catch(IOException e)
+            {
+                ConsoleManager.getInstance().exception(PanelConfigPreloader.class, e);
+                snapshot.clear();
+            }
+            finally
+            {
+                if(inputStream != null)
+                {
+                    try {
+                        inputStream.close();
+                    } catch (IOException e) {
+                        // Ignore
+                    }
+                }
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Write snapshot.
+     *
+     * @param snapshotFile the snapshot file
+     * @param snapshot the snapshot
+     */
+    private static void writeSnapshot(File snapshotFile, Properties snapshot)
+    {
+        OutputStream outputStream = null;
+        try
+        {
+            outputStream = new FileOutputStream(snapshotFile);
+            snapshot.store(outputStream, "Validated panel configuration files");
+        }
+        catch(IOException e)
+        {
+            ConsoleManager.getInstance().exception(PanelConfigPreloader.class, e);
+        }
+        finally
+        {
+            if(outputStream != null)
+            {
+                try {
+                    outputStream.close();
+                } catch (IOException e) {
+                    // Ignore
+                }
+            }
+        }
+    }
+}
@@ -74,7 +74,7 @@ import com.sldeditor.ui.detail.config.transform.FieldConfigTransformation;
 public class ReadPanelConfig implements PanelConfigInterface {
 
     /** The Constant SCHEMA_RESOURCE. */
-    private static final String SCHEMA_RESOURCE = "/xsd/paneldetails.xsd";
+    public static final String SCHEMA_RESOURCE = "/xsd/paneldetails.xsd";
 
     /** The vendor option version. */
     private VendorOptionVersion vendorOptionVersion = null;
@@ -42,7 +42,7 @@ public class SymbolTypeConfigReader {
     private static Logger logger = Logger.getLogger(SymbolTypeConfigReader.class);
 
     /** The Constant SCHEMA_RESOURCE. */
-    private static final String SCHEMA_RESOURCE = "/xsd/symboltype.xsd";
+    public static final String SCHEMA_RESOURCE = "/xsd/symboltype.xsd";
 
     /**
      * Read configuration.
@@ -0,0 +1,211 @@
+/*
+ * SLD Editor - The Open Source Java SLD Editor
+ *
+ * Copyright (C) 2016, SCISYS UK Limited
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sldeditor.test.unit.common.output;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.styling.FeatureTypeStyle;
+import org.geotools.styling.LineSymbolizer;
+import org.geotools.styling.NamedLayer;
+import org.geotools.styling.Rule;
+import org.geotools.styling.StyleFactory;
+import org.geotools.styling.StyledLayerDescriptor;
+import org.junit.Test;
+import org.opengis.filter.FilterFactory;
+
+import com.sldeditor.common.data.SLDData;
+import com.sldeditor.common.data.SLDUtils;
+import com.sldeditor.common.output.impl.IncrementalSLDWriterImpl;
+import com.sldeditor.common.output.impl.SLDWriterImpl;
+
+/**
+ * Unit test for IncrementalSLDWriterImpl class.
+ * <p>{@link com.sldeditor.common.output.impl.IncrementalSLDWriterImpl}
+ *
+ * @author Robert Ward (SCISYS)
+ */
+public class IncrementalSLDWriterImplTest {
+
+    private static final String TEST_SLD = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+            + "<StyledLayerDescriptor version=\"1.0.0\" xsi:schemaLocation=\"http://www.opengis.net/sld StyledLayerDescriptor.xsd\" xmlns=\"http://www.opengis.net/sld\" xmlns:ogc=\"http://www.opengis.net/ogc\" xmlns:xlink=\"http://www.w3.org/1999/xlink\" xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\">"
+            + "<NamedLayer><Name>Roads</Name><UserStyle><Title>Roads</Title>"
+            + "<FeatureTypeStyle><Rule><Name>Minor</Name>"
+            + "<ogc:Filter><ogc:PropertyIsEqualTo><ogc:PropertyName>type</ogc:PropertyName><ogc:Literal>minor</ogc:Literal></ogc:PropertyIsEqualTo></ogc:Filter>"
+            + "<LineSymbolizer><Stroke><CssParameter name=\"stroke\">#999999</CssParameter><CssParameter name=\"stroke-width\">1</CssParameter></Stroke></LineSymbolizer></Rule>"
+            + "<Rule><Name>Major</Name>"
+            + "<ogc:Filter><ogc:PropertyIsEqualTo><ogc:PropertyName>type</ogc:PropertyName><ogc:Literal>major</ogc:Literal></ogc:PropertyIsEqualTo></ogc:Filter>"
+            + "<LineSymbolizer><Stroke><CssParameter name=\"stroke\">#FF0000</CssParameter><CssParameter name=\"stroke-width\">3</CssParameter></Stroke></LineSymbolizer></Rule>"
+            + "</FeatureTypeStyle>"
+            + "<FeatureTypeStyle><Rule><Name>Centre line</Name>"
+            + "<LineSymbolizer><Stroke><CssParameter name=\"stroke\">#FFFFFF</CssParameter><CssParameter name=\"stroke-width\">0.5</CssParameter></Stroke></LineSymbolizer></Rule>"
+            + "</FeatureTypeStyle></UserStyle></NamedLayer>"
+            + "<NamedLayer><Name>Rivers</Name><UserStyle><Title>Rivers</Title>"
+            + "<FeatureTypeStyle><Rule><Name>River</Name>"
+            + "<LineSymbolizer><Stroke><CssParameter name=\"stroke\">#0000FF</CssParameter><CssParameter name=\"stroke-width\">2</CssParameter></Stroke></LineSymbolizer></Rule>"
+            + "</FeatureTypeStyle></UserStyle></NamedLayer>"
+            + "</StyledLayerDescriptor>";
+
+    private static FilterFactory ff = CommonFactoryFinder.getFilterFactory();
+
+    private static StyleFactory styleFactory = CommonFactoryFinder.getStyleFactory();
+
+    /**
+     * Test method for {@link com.sldeditor.common.output.impl.IncrementalSLDWriterImpl#encodeSLD(org.geotools.styling.StyledLayerDescriptor, java.util.Set)}.
+     */
+    @Test
+    public void testEncodeModifiedRule() {
+        IncrementalSLDWriterImpl writer = new IncrementalSLDWriterImpl();
+        SLDWriterImpl fullWriter = new SLDWriterImpl();
+
+        assertEquals("", writer.encodeSLD(null, null));
+
+        StyledLayerDescriptor sld = SLDUtils.createSLDFromString(new SLDData(null, TEST_SLD));
+
+        String xml = writer.encodeSLD(sld, null);
+        assertEquals(fullWriter.encodeSLD(sld), xml);
+        assertEquals(1, writer.getFullEncodeCount());
+
+        // Nothing changed
+        xml = writer.encodeSLD(sld, createDirtySet());
+        assertEquals(fullWriter.encodeSLD(sld), xml);
+        assertEquals(1, writer.getFullEncodeCount());
+        assertEquals(0, writer.getFragmentEncodeCount());
+
+        // Change the stroke width of the 'Major' rule
+        Rule rule = getFTS(sld, 0, 0).rules().get(1);
+        LineSymbolizer lineSymbolizer = (LineSymbolizer) rule.symbolizers().get(0);
+        lineSymbolizer.getStroke().setWidth(ff.literal(7.5));
+
+        xml = writer.encodeSLD(sld, createDirtySet(rule));
+        String expectedXml = fullWriter.encodeSLD(sld);
+        assertEquals(expectedXml, xml);
+        assertTrue(xml.contains("7.5"));
+        assertEquals(1, writer.getFullEncodeCount());
+        assertEquals(1, writer.getFragmentEncodeCount());
+
+        // Change rules in different layers
+        Rule rule1 = getFTS(sld, 0, 1).rules().get(0);
+        rule1.setName("Centre");
+        Rule rule2 = getFTS(sld, 1, 0).rules().get(0);
+        ((LineSymbolizer) rule2.symbolizers().get(0)).getStroke().setColor(ff.literal("#00FFFF"));
+
+        xml = writer.encodeSLD(sld, createDirtySet(rule1, rule2));
+        assertEquals(fullWriter.encodeSLD(sld), xml);
+        assertEquals(1, writer.getFullEncodeCount());
+        assertEquals(3, writer.getFragmentEncodeCount());
+    }
+
+    /**
+     * Test method for {@link com.sldeditor.common.output.impl.IncrementalSLDWriterImpl#encodeSLD(org.geotools.styling.StyledLayerDescriptor, java.util.Set)}.
+     */
+    @Test
+    public void testEncodeModifiedFeatureTypeStyle() {
+        IncrementalSLDWriterImpl writer = new IncrementalSLDWriterImpl();
+        SLDWriterImpl fullWriter = new SLDWriterImpl();
+
+        StyledLayerDescriptor sld = SLDUtils.createSLDFromString(new SLDData(null, TEST_SLD));
+        writer.encodeSLD(sld, null);
+
+        // Add a rule to a feature type style
+        FeatureTypeStyle fts = getFTS(sld, 0, 1);
+        Rule newRule = styleFactory.createRule();
+        newRule.setName("New rule");
+        newRule.symbolizers().add(styleFactory.createLineSymbolizer());
+        fts.rules().add(newRule);
+
+        String xml = writer.encodeSLD(sld, createDirtySet(fts));
+        assertEquals(fullWriter.encodeSLD(sld), xml);
+        assertEquals(1, writer.getFullEncodeCount());
+        assertEquals(1, writer.getFragmentEncodeCount());
+
+        // Rule and its feature type style both marked, only the feature type style is encoded
+        Rule rule = fts.rules().get(0);
+        rule.setName("Updated");
+        xml = writer.encodeSLD(sld, createDirtySet(fts, rule));
+        assertEquals(fullWriter.encodeSLD(sld), xml);
+        assertEquals(2, writer.getFragmentEncodeCount());
+    }
+
+    /**
+     * Test method for {@link com.sldeditor.common.output.impl.IncrementalSLDWriterImpl#encodeSLD(org.geotools.styling.StyledLayerDescriptor, java.util.Set)}.
+     */
+    @Test
+    public void testEncodeStructureChanged() {
+        IncrementalSLDWriterImpl writer = new IncrementalSLDWriterImpl();
+        SLDWriterImpl fullWriter = new SLDWriterImpl();
+
+        StyledLayerDescriptor sld = SLDUtils.createSLDFromString(new SLDData(null, TEST_SLD));
+        writer.encodeSLD(sld, null);
+
+        // Rule added but not marked as modified, structure change detected
+        FeatureTypeStyle fts = getFTS(sld, 1, 0);
+        fts.rules().add(styleFactory.createRule());
+
+        String xml = writer.encodeSLD(sld, createDirtySet());
+        assertEquals(fullWriter.encodeSLD(sld), xml);
+        assertEquals(2, writer.getFullEncodeCount());
+
+        // Symbolizer removed from a rule that is not marked
+        fts.rules().get(0).symbolizers().clear();
+        xml = writer.encodeSLD(sld, createDirtySet());
+        assertEquals(fullWriter.encodeSLD(sld), xml);
+        assertEquals(3, writer.getFullEncodeCount());
+
+        // Different sld
+        StyledLayerDescriptor sld2 = SLDUtils.createSLDFromString(new SLDData(null, TEST_SLD));
+        xml = writer.encodeSLD(sld2, createDirtySet());
+        assertEquals(fullWriter.encodeSLD(sld2), xml);
+        assertEquals(4, writer.getFullEncodeCount());
+        assertEquals(0, writer.getFragmentEncodeCount());
+    }
+
+    /**
+     * Gets the feature type style.
+     *
+     * @param sld the sld
+     * @param layerIndex the layer index
+     * @param ftsIndex the fts index
+     * @return the fts
+     */
+    private FeatureTypeStyle getFTS(StyledLayerDescriptor sld, int layerIndex, int ftsIndex) {
+        NamedLayer namedLayer = (NamedLayer) sld.layers().get(layerIndex);
+        return namedLayer.getStyles()[0].featureTypeStyles().get(ftsIndex);
+    }
+
+    /**
+     * Creates the dirty node set.
+     *
+     * @param nodes the nodes
+     * @return the sets the
+     */
+    private Set<Object> createDirtySet(Object... nodes) {
+        Set<Object> dirtySet = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+        for(Object node : nodes)
+        {
+            dirtySet.add(node);
+        }
+        return dirtySet;
+    }
+}
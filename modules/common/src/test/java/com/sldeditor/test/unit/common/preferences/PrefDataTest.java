@@ -55,6 +55,7 @@ public class PrefDataTest {
         String uiLayoutClass = "perfect curve";
 
         prefData.setUiLayoutClass(uiLayoutClass);
+        prefData.setPreviewFeatureCap(42);
         
         PrefData newObj = prefData.clone();
         
@@ -62,6 +63,7 @@ public class PrefDataTest {
         assertEquals(newObj.getUiLayoutClass(), prefData.getUiLayoutClass());
         assertEquals(newObj.getVendorOptionVersionList(), prefData.getVendorOptionVersionList());
         assertEquals(newObj.isUseAntiAlias(), prefData.isUseAntiAlias());
+        assertEquals(newObj.getPreviewFeatureCap(), prefData.getPreviewFeatureCap());
     }
 
     /**
@@ -118,4 +120,17 @@ public class PrefDataTest {
         prefData.setBackgroundColour(testColour);
         assertEquals(testColour, prefData.getBackgroundColour());
     }
+
+    /**
+     * Test method for {@link com.sldeditor.common.preferences.PrefData#getPreviewFeatureCap()}.
+     * Test method for {@link com.sldeditor.common.preferences.PrefData#setPreviewFeatureCap(int)}.
+     */
+    @Test
+    public void testPreviewFeatureCap() {
+        PrefData prefData = new PrefData();
+        assertEquals(PrefData.DEFAULT_PREVIEW_FEATURE_CAP, prefData.getPreviewFeatureCap());
+
+        prefData.setPreviewFeatureCap(500);
+        assertEquals(500, prefData.getPreviewFeatureCap());
+    }
 }
@@ -24,7 +24,9 @@ import static org.junit.Assert.assertTrue;
 
 import java.awt.Color;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.junit.Test;
 
@@ -32,6 +34,7 @@ import com.sldeditor.common.preferences.PrefData;
 import com.sldeditor.common.preferences.PrefManager;
 import com.sldeditor.common.preferences.iface.PrefUpdateVendorOptionInterface;
 import com.sldeditor.common.property.PropertyManagerInterface;
+import com.sldeditor.common.undo.UndoManager;
 import com.sldeditor.common.vendoroption.GeoServerVendorOption;
 import com.sldeditor.common.vendoroption.VendorOptionManager;
 import com.sldeditor.common.vendoroption.VersionData;
@@ -48,6 +51,7 @@ public class PrefManagerTest {
     {
         public String lastKey = null;
         public Object lastValue = null;
+        public Map<String, Double> doubleValues = new HashMap<String, Double>();
 
         @Override
         public void updateValue(String key, String value) {
@@ -67,7 +71,8 @@ public class PrefManagerTest {
 
         @Override
         public double getDoubleValue(String field, double defaultValue) {
-            return 0.0;
+            Double value = doubleValues.get(field);
+            return (value == null) ? defaultValue : value.doubleValue();
         }
 
         @Override
@@ -233,6 +238,31 @@ public class PrefManagerTest {
      */
     @Test
     public void testFinish() {
+        UndoManager.destroyInstance();
+        DummyPropertyManager propertyManager = new DummyPropertyManager();
+        PrefManager.initialise(propertyManager);
+        PrefManager.finish();
+
+        assertEquals(UndoManager.DEFAULT_MAX_UNDO_EVENTS, UndoManager.getInstance().getMaxUndoEvents());
+        assertEquals(UndoManager.DEFAULT_MAX_UNDO_MEMORY, UndoManager.getInstance().getMaxUndoMemory());
+        assertEquals(UndoManager.DEFAULT_COALESCE_INTERVAL, UndoManager.getInstance().getCoalesceInterval());
+        assertEquals(PrefData.DEFAULT_PREVIEW_FEATURE_CAP, PrefManager.getInstance().getPrefData().getPreviewFeatureCap());
+
+        propertyManager.doubleValues.put("SldEditor.undo.maxEvents", 50.0);
+        propertyManager.doubleValues.put("SldEditor.undo.maxMemory", 2.0);
+        propertyManager.doubleValues.put("SldEditor.undo.coalesceInterval", 100.0);
+        PrefManager.finish();
+
+        assertEquals(50, UndoManager.getInstance().getMaxUndoEvents());
+        assertEquals(2L * 1024L * 1024L, UndoManager.getInstance().getMaxUndoMemory());
+        assertEquals(100, UndoManager.getInstance().getCoalesceInterval());
+
+        propertyManager.doubleValues.put("SldEditor.previewFeatureCap", 2500.0);
+        PrefManager.finish();
+        assertEquals(2500, PrefManager.getInstance().getPrefData().getPreviewFeatureCap());
+
+        PrefManager.initialise(null);
+        UndoManager.destroyInstance();
     }
 
     /**
@@ -23,7 +23,12 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.styling.ColorMap;
+import org.geotools.styling.ColorMapEntry;
+import org.geotools.styling.StyleFactory;
 import org.junit.Test;
+import org.opengis.filter.FilterFactory;
 
 import com.sldeditor.common.undo.UndoEvent;
 import com.sldeditor.common.undo.UndoManager;
@@ -240,4 +245,278 @@ public class UndoManagerTest {
         assertNull(parentListener.redoAction);
     }
 
+    /**
+     * Test method for {@link com.sldeditor.common.undo.UndoManager#setMaxUndoEvents(int)}.
+     */
+    @Test
+    public void testMaxUndoEvents() {
+        UndoManager.destroyInstance();
+        DummyUndo listener = new DummyUndo();
+        DummyUndoParent parentListener = new DummyUndoParent();
+
+        UndoManager instance = UndoManager.getInstance();
+        instance.addListener(listener);
+        assertEquals(UndoManager.DEFAULT_MAX_UNDO_EVENTS, instance.getMaxUndoEvents());
+        instance.setMaxUndoEvents(3);
+        assertEquals(3, instance.getMaxUndoEvents());
+
+        UndoEvent[] events = new UndoEvent[5];
+        for(int index = 0; index < events.length; index ++)
+        {
+            events[index] = new UndoEvent(parentListener, new FieldId(FieldIdEnum.DISPLACEMENT_Y), Integer.valueOf(index), Integer.valueOf(index + 10));
+            instance.addUndoEvent(events[index]);
+        }
+        assertEquals(3, instance.getUndoEventCount());
+
+        // Oldest events discarded
+        instance.undo();
+        assertEquals(events[4], parentListener.undoAction);
+        instance.undo();
+        assertEquals(events[3], parentListener.undoAction);
+        instance.undo();
+        assertEquals(events[2], parentListener.undoAction);
+        assertFalse(listener.undoAllowed);
+        assertTrue(listener.redoAllowed);
+
+        instance.undo();
+        assertEquals(events[2], parentListener.undoAction);
+
+        // Reducing the limit keeps the undo position
+        instance.redo();
+        instance.redo();
+        instance.setMaxUndoEvents(1);
+        assertEquals(1, instance.getUndoEventCount());
+        assertFalse(listener.undoAllowed);
+        assertTrue(listener.redoAllowed);
+        instance.redo();
+        assertEquals(events[4], parentListener.redoAction);
+
+        // Events that have been undone are kept so they can be redone
+        instance.setMaxUndoEvents(10);
+        for(int index = 0; index < events.length; index ++)
+        {
+            instance.addUndoEvent(events[index]);
+        }
+        for(int index = 0; index <= events.length; index ++)
+        {
+            instance.undo();
+        }
+        instance.setMaxUndoEvents(2);
+        assertEquals(6, instance.getUndoEventCount());
+        assertFalse(listener.undoAllowed);
+        for(int index = 0; index < events.length; index ++)
+        {
+            instance.redo();
+        }
+        assertEquals(events[3], parentListener.redoAction);
+        instance.redo();
+        assertEquals(events[4], parentListener.redoAction);
+
+        // Adding an event discards the oldest events that have been applied
+        instance.addUndoEvent(new UndoEvent(parentListener, new FieldId(FieldIdEnum.DISPLACEMENT_Y), Integer.valueOf(20), Integer.valueOf(30)));
+        assertEquals(2, instance.getUndoEventCount());
+    }
+
+    /**
+     * Test method for {@link com.sldeditor.common.undo.UndoManager#setMaxUndoMemory(long)}.
+     */
+    @Test
+    public void testMemoryUsage() {
+        UndoManager.destroyInstance();
+        DummyUndoParent parentListener = new DummyUndoParent();
+
+        UndoManager instance = UndoManager.getInstance();
+        instance.setCoalesceInterval(0);
+        assertEquals(0, instance.getMemoryUsage());
+
+        StringBuilder sb = new StringBuilder();
+        for(int index = 0; index < 1000; index ++)
+        {
+            sb.append('x');
+        }
+        String value1 = sb.toString();
+        String value2 = value1 + "y";
+        String value3 = new String(value2);
+
+        instance.addUndoEvent(new UndoEvent(parentListener, new FieldId(FieldIdEnum.WKT), value1, value2));
+        long memoryUsage = instance.getMemoryUsage();
+        assertTrue(memoryUsage > 4000);
+
+        // Old value is equal to the previous new value so is only counted once
+        UndoEvent event2 = new UndoEvent(parentListener, new FieldId(FieldIdEnum.WKT), value3, value1);
+        instance.addUndoEvent(event2);
+        assertTrue(event2.getOldValue() == value2);
+        long memoryUsage2 = instance.getMemoryUsage();
+        assertTrue(memoryUsage2 < (memoryUsage * 2));
+
+        // Replacing an undone event updates the running total
+        instance.undo();
+        instance.addUndoEvent(new UndoEvent(parentListener, new FieldId(FieldIdEnum.WKT), value3, value1));
+        assertEquals(2, instance.getUndoEventCount());
+        assertEquals(memoryUsage2, instance.getMemoryUsage());
+        instance.undo();
+        instance.addUndoEvent(event2);
+
+        // Memory limit discards the oldest events but keeps the latest
+        instance.setMaxUndoMemory(memoryUsage);
+        assertEquals(memoryUsage, instance.getMaxUndoMemory());
+        assertEquals(1, instance.getUndoEventCount());
+        assertTrue(instance.getMemoryUsage() <= memoryUsage);
+
+        instance.setMaxUndoMemory(1);
+        assertEquals(1, instance.getUndoEventCount());
+        instance.undo();
+        assertEquals(event2, parentListener.undoAction);
+
+        instance.fileSaved();
+        assertEquals(0, instance.getMemoryUsage());
+        assertEquals(0, instance.getUndoEventCount());
+    }
+
+    /**
+     * Test method for {@link com.sldeditor.common.undo.UndoManager#getMemoryUsage()}
+     * with colour map values.
+     */
+    @Test
+    public void testColourMapMemoryUsage() {
+        UndoManager.destroyInstance();
+        DummyUndoParent parentListener = new DummyUndoParent();
+        StyleFactory styleFactory = CommonFactoryFinder.getStyleFactory();
+        FilterFactory ff = CommonFactoryFinder.getFilterFactory();
+
+        ColorMap smallColourMap = styleFactory.createColorMap();
+        ColorMap largeColourMap = styleFactory.createColorMap();
+        for(int index = 0; index < 100; index ++)
+        {
+            ColorMapEntry entry = styleFactory.createColorMapEntry();
+            entry.setColor(ff.literal("#FF0000"));
+            entry.setQuantity(ff.literal(index));
+            largeColourMap.addColorMapEntry(entry);
+        }
+
+        UndoManager instance = UndoManager.getInstance();
+        instance.setCoalesceInterval(0);
+        instance.addUndoEvent(new UndoEvent(parentListener, new FieldId(FieldIdEnum.RASTER_COLOURMAP), null, smallColourMap));
+        long smallMemoryUsage = instance.getMemoryUsage();
+
+        instance.fileSaved();
+        instance.addUndoEvent(new UndoEvent(parentListener, new FieldId(FieldIdEnum.RASTER_COLOURMAP), null, largeColourMap));
+
+        // Estimated from the encoded entries, 100 entries use several kilobytes
+        assertTrue(instance.getMemoryUsage() > (smallMemoryUsage + 4000));
+    }
+
+    /**
+     * Test method for {@link com.sldeditor.common.undo.UndoManager#addUndoEvent(com.sldeditor.common.undo.UndoInterface)}
+     * sharing colour map entries between events.
+     */
+    @Test
+    public void testColourMapSharing() {
+        UndoManager.destroyInstance();
+        DummyUndoParent parentListener = new DummyUndoParent();
+
+        ColorMap colourMap1 = createColourMap(100, -1);
+        ColorMap colourMap1Copy = createColourMap(100, -1);
+        ColorMap colourMap2 = createColourMap(100, 50);
+
+        UndoManager instance = UndoManager.getInstance();
+        instance.setCoalesceInterval(0);
+        instance.addUndoEvent(new UndoEvent(parentListener, new FieldId(FieldIdEnum.RASTER_COLOURMAP), null, colourMap1));
+        long memoryUsage = instance.getMemoryUsage();
+
+        // Old value equal to the previous new value is shared, unchanged entries are reused
+        UndoEvent event2 = new UndoEvent(parentListener, new FieldId(FieldIdEnum.RASTER_COLOURMAP), colourMap1Copy, colourMap2);
+        instance.addUndoEvent(event2);
+        assertTrue(event2.getOldValue() == colourMap1);
+        ColorMapEntry[] entries = ((ColorMap) event2.getNewValue()).getColorMapEntries();
+        assertEquals(100, entries.length);
+        assertTrue(entries[0] == colourMap1.getColorMapEntries()[0]);
+        assertTrue(entries[99] == colourMap1.getColorMapEntries()[99]);
+        assertFalse(entries[50] == colourMap1.getColorMapEntries()[50]);
+        assertEquals(colourMap2.getColorMapEntries()[50].getQuantity(), entries[50].getQuantity());
+        assertTrue(instance.getMemoryUsage() < ((memoryUsage * 3) / 2));
+
+        // Edits continuing from an equal colour map are merged
+        instance.setCoalesceInterval(60000);
+        instance.addUndoEvent(new UndoEvent(parentListener, new FieldId(FieldIdEnum.RASTER_COLOURMAP), createColourMap(100, 50), colourMap1Copy));
+        assertEquals(2, instance.getUndoEventCount());
+        assertTrue(event2.getNewValue() == colourMap1);
+    }
+
+    /**
+     * Creates a colour map.
+     *
+     * @param noOfEntries the number of entries
+     * @param changedIndex the index of the entry with a different quantity, -1 for none
+     * @return the colour map
+     */
+    private static ColorMap createColourMap(int noOfEntries, int changedIndex) {
+        StyleFactory styleFactory = CommonFactoryFinder.getStyleFactory();
+        FilterFactory ff = CommonFactoryFinder.getFilterFactory();
+
+        ColorMap colourMap = styleFactory.createColorMap();
+        for(int index = 0; index < noOfEntries; index ++)
+        {
+            ColorMapEntry entry = styleFactory.createColorMapEntry();
+            entry.setColor(ff.literal("#FF0000"));
+            entry.setQuantity(ff.literal((index == changedIndex) ? index + 1000 : index));
+            colourMap.addColorMapEntry(entry);
+        }
+        return colourMap;
+    }
+
+    /**
+     * Test method for {@link com.sldeditor.common.undo.UndoManager#setCoalesceInterval(long)}.
+     */
+    @Test
+    public void testCoalesce() {
+        UndoManager.destroyInstance();
+        DummyUndo listener = new DummyUndo();
+        DummyUndoParent parentListener = new DummyUndoParent();
+        DummyUndoParent otherParentListener = new DummyUndoParent();
+
+        UndoManager instance = UndoManager.getInstance();
+        instance.addListener(listener);
+        assertEquals(UndoManager.DEFAULT_COALESCE_INTERVAL, instance.getCoalesceInterval());
+        instance.setCoalesceInterval(60000);
+
+        // Spinner drag
+        UndoEvent event1 = new UndoEvent(parentListener, new FieldId(FieldIdEnum.HALO_RADIUS), Double.valueOf(1.0), Double.valueOf(2.0));
+        instance.addUndoEvent(event1);
+        instance.addUndoEvent(new UndoEvent(parentListener, new FieldId(FieldIdEnum.HALO_RADIUS), Double.valueOf(2.0), Double.valueOf(3.0)));
+        instance.addUndoEvent(new UndoEvent(parentListener, new FieldId(FieldIdEnum.HALO_RADIUS), Double.valueOf(3.0), Double.valueOf(4.0)));
+        assertEquals(1, instance.getUndoEventCount());
+        assertEquals(Double.valueOf(1.0), event1.getOldValue());
+        assertEquals(Double.valueOf(4.0), event1.getNewValue());
+
+        // Different field, parent or not continuing from the last value are not merged
+        UndoEvent event2 = new UndoEvent(parentListener, new FieldId(FieldIdEnum.DISPLACEMENT_Y), Double.valueOf(4.0), Double.valueOf(5.0));
+        instance.addUndoEvent(event2);
+        assertEquals(2, instance.getUndoEventCount());
+        instance.addUndoEvent(new UndoEvent(otherParentListener, new FieldId(FieldIdEnum.DISPLACEMENT_Y), Double.valueOf(5.0), Double.valueOf(6.0)));
+        assertEquals(3, instance.getUndoEventCount());
+        instance.addUndoEvent(new UndoEvent(otherParentListener, new FieldId(FieldIdEnum.DISPLACEMENT_Y), Double.valueOf(1.0), Double.valueOf(7.0)));
+        assertEquals(4, instance.getUndoEventCount());
+        instance.addUndoEvent(new UndoEvent(otherParentListener, "Custom", Double.valueOf(7.0), Double.valueOf(8.0)));
+        instance.addUndoEvent(new UndoEvent(otherParentListener, "Custom", Double.valueOf(8.0), Double.valueOf(9.0)));
+        assertEquals(6, instance.getUndoEventCount());
+
+        instance.undo();
+        instance.undo();
+        instance.undo();
+        instance.undo();
+        instance.undo();
+        assertEquals(event2, parentListener.undoAction);
+        assertTrue(listener.undoAllowed);
+
+        // Not merged once later events have been undone
+        instance.addUndoEvent(new UndoEvent(parentListener, new FieldId(FieldIdEnum.HALO_RADIUS), Double.valueOf(4.0), Double.valueOf(5.0)));
+        assertEquals(2, instance.getUndoEventCount());
+        assertEquals(Double.valueOf(4.0), event1.getNewValue());
+
+        // Coalescing disabled
+        instance.setCoalesceInterval(0);
+        instance.addUndoEvent(new UndoEvent(parentListener, new FieldId(FieldIdEnum.HALO_RADIUS), Double.valueOf(5.0), Double.valueOf(6.0)));
+        assertEquals(3, instance.getUndoEventCount());
+    }
 }
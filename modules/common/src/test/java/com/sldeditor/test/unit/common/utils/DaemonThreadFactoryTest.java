@@ -0,0 +1,56 @@
+/*
+ *    SLDEditor - SLD Editor application
+ *
+ *    (C) 2016, SCISYS
+ *
+ */
+
+/**
+ * Author: Domenico Monaco, Yong Mook Kim
+ *  
+ * Source: https://gist.github.com/kiuz/816e24aa787c2d102dd0
+ *  
+ * License: GNU v2 2014
+ *
+ * Fork / Learned: http://www.mkyong.com/java/how-to-detect-os-in-java-systemgetpropertyosname/
+ *
+ */
+
+package com.sldeditor.test.unit.common.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.sldeditor.common.utils.DaemonThreadFactory;
+
+/**
+ * Unit test for DaemonThreadFactory.
+ * <p>{@link com.sldeditor.common.utils.DaemonThreadFactory}
+ * 
+ * @author Robert Ward (SCISYS)
+ */
+public class DaemonThreadFactoryTest {
+
+    /**
+     * Test method for {@link com.sldeditor.common.utils.DaemonThreadFactory#newThread(java.lang.Runnable)}.
+     */
+    @Test
+    public void testNewThread() {
+        DaemonThreadFactory factory = new DaemonThreadFactory("Test");
+        Runnable runnable = new Runnable() {
+            @Override
+            public void run() {
+            }
+        };
+
+        Thread thread1 = factory.newThread(runnable);
+        Thread thread2 = factory.newThread(runnable);
+
+        assertTrue(thread1.isDaemon());
+        assertTrue(thread2.isDaemon());
+        assertEquals("Test-1", thread1.getName());
+        assertEquals("Test-2", thread2.getName());
+    }
+}
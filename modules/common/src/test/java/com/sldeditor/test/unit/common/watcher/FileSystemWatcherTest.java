@@ -19,6 +19,7 @@
 package com.sldeditor.test.unit.common.watcher;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -28,7 +29,12 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Ignore;
 import org.junit.Test;
@@ -66,22 +72,24 @@ public class FileSystemWatcherTest {
         FileSystemWatcher.getInstance().addWatch(new FileWatcherUpdateInterface() {
 
             @Override
-            public void fileAdded(File f) {
-                String message = "Added " + f.getName();
-                resultList.add(message);
-                System.out.println(message);
+            public void filesChanged(Set<File> addedFiles, Set<File> modifiedFiles, Set<File> deletedFiles) {
+                for(File f : addedFiles)
+                {
+                    String message = "Added " + f.getName();
+                    resultList.add(message);
+                    System.out.println(message);
+                }
+                for(File f : deletedFiles)
+                {
+                    String message = "Del " + f.getName();
+                    resultList.add(message);
+                    System.out.println(message);
+                }
             }
 
             @Override
-            public void fileModified(File f) {
+            public void rescanFolder(File folder) {
                 // Ignore
-            }
-
-            @Override
-            public void fileDeleted(File f) {
-                String message = "Del " + f.getName();
-                resultList.add(message);
-                System.out.println(message);
             }}, tempFolder.toFile());
 
         File tmpFile = null;
@@ -129,4 +137,136 @@ public class FileSystemWatcherTest {
         assertEquals("Del " + resultingTempFilename, resultList.get(resultList.size() - 1));
     }
 
+    /**
+     * Test method for {@link com.sldeditor.common.watcher.FileSystemWatcher#addWatch(com.sldeditor.common.watcher.FileWatcherUpdateInterface, java.io.File)}.
+     * Many files written at once are delivered in batches.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     * @throws InterruptedException the interrupted exception
+     */
+    @Test
+    public void testCoalescedBatches() throws IOException, InterruptedException {
+        Path tempFolder = Files.createTempDirectory("test");
+
+        final int noOfFiles = 100;
+        final Set<String> addedSet = Collections.synchronizedSet(new HashSet<String>());
+        final AtomicInteger batchCount = new AtomicInteger(0);
+        final AtomicBoolean rescan = new AtomicBoolean(false);
+
+        FileSystemWatcher.getInstance().setCoalescingWindow(500L);
+        assertEquals(500L, FileSystemWatcher.getInstance().getCoalescingWindow());
+
+        FileSystemWatcher.getInstance().addWatch(new FileWatcherUpdateInterface() {
+
+            @Override
+            public void filesChanged(Set<File> addedFiles, Set<File> modifiedFiles, Set<File> deletedFiles) {
+                batchCount.incrementAndGet();
+                for(File f : addedFiles)
+                {
+                    // Each file is only reported as added once
+                    assertTrue(addedSet.add(f.getName()));
+                }
+                for(File f : modifiedFiles)
+                {
+                    // Files added in the same batch are not also reported as modified
+                    assertFalse(addedFiles.contains(f));
+                }
+            }
+
+            @Override
+            public void rescanFolder(File folder) {
+                rescan.set(true);
+            }}, tempFolder.toFile());
+
+        for(int index = 0; index < noOfFiles; index ++)
+        {
+            Files.write(tempFolder.resolve(String.format("file%d.sld", index)), "test".getBytes());
+        }
+
+        // Wait for events, some platforms poll the file system
+        long timeout = System.currentTimeMillis() + 30000L;
+        while((addedSet.size() < noOfFiles) && !rescan.get() && (System.currentTimeMillis() < timeout))
+        {
+            Thread.sleep(100);
+        }
+
+        if(!rescan.get())
+        {
+            assertEquals(noOfFiles, addedSet.size());
+            assertTrue(batchCount.get() < noOfFiles);
+        }
+
+        FileSystemWatcher.getInstance().setCoalescingWindow(FileSystemWatcher.DEFAULT_COALESCING_WINDOW);
+
+        for(File f : tempFolder.toFile().listFiles())
+        {
+            f.delete();
+        }
+        tempFolder.toFile().delete();
+    }
+
+    /**
+     * Test method for {@link com.sldeditor.common.watcher.FileSystemWatcher#setMaxWatches(int)}.
+     * The least recently used watches are released once the cap is reached.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    @Test
+    public void testMaxWatches() throws IOException {
+        FileSystemWatcher watcher = FileSystemWatcher.getInstance();
+
+        final int maxWatches = 3;
+        watcher.setMaxWatches(maxWatches);
+        assertEquals(maxWatches, watcher.getMaxWatches());
+
+        List<Path> folderList = new ArrayList<Path>();
+        List<FileWatcherUpdateInterface> parentList = new ArrayList<FileWatcherUpdateInterface>();
+        for(int index = 0; index < 5; index ++)
+        {
+            Path folder = Files.createTempDirectory("test");
+            folderList.add(folder);
+
+            FileWatcherUpdateInterface parent = new FileWatcherUpdateInterface() {
+
+                @Override
+                public void filesChanged(Set<File> addedFiles, Set<File> modifiedFiles, Set<File> deletedFiles) {
+                    // Ignore
+                }
+
+                @Override
+                public void rescanFolder(File folder) {
+                    // Ignore
+                }};
+            parentList.add(parent);
+
+            watcher.addWatch(parent, folder.toFile());
+            if(index == 2)
+            {
+                // Use the first watch again so it is not the least recently used
+                watcher.addWatch(parentList.get(0), folderList.get(0).toFile());
+            }
+        }
+
+        assertEquals(maxWatches, watcher.getWatchCount());
+        assertTrue(watcher.isWatched(parentList.get(0)));
+        assertFalse(watcher.isWatched(parentList.get(1)));
+        assertFalse(watcher.isWatched(parentList.get(2)));
+        assertTrue(watcher.isWatched(parentList.get(3)));
+        assertTrue(watcher.isWatched(parentList.get(4)));
+
+        watcher.removeWatch(parentList.get(4));
+        assertFalse(watcher.isWatched(parentList.get(4)));
+        assertEquals(maxWatches - 1, watcher.getWatchCount());
+
+        for(FileWatcherUpdateInterface parent : parentList)
+        {
+            watcher.removeWatch(parent);
+        }
+        watcher.setMaxWatches(FileSystemWatcher.DEFAULT_MAX_WATCHES);
+
+        for(Path folder : folderList)
+        {
+            folder.toFile().delete();
+        }
+    }
 }
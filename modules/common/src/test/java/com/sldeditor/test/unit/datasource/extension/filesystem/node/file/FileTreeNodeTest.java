@@ -23,6 +23,7 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
 
 import java.io.File;
 import java.io.FileNotFoundException;
@@ -35,6 +36,7 @@ import java.util.Map;
 import org.junit.Ignore;
 import org.junit.Test;
 
+import com.sldeditor.common.watcher.FileSystemWatcher;
 import com.sldeditor.datasource.extension.filesystem.dataflavour.DataFlavourManager;
 import com.sldeditor.datasource.extension.filesystem.node.file.FileHandlerInterface;
 import com.sldeditor.datasource.extension.filesystem.node.file.FileTreeNode;
@@ -120,4 +122,120 @@ public class FileTreeNodeTest {
         }
     }
 
+    /**
+     * Creates the file handler map containing the dummy file handler.
+     *
+     * @return the file handler map
+     */
+    private Map<String, FileHandlerInterface> createFileHandlerMap() {
+        Map<String, FileHandlerInterface> fileHandlerMap = new LinkedHashMap<String, FileHandlerInterface>();
+
+        FileHandlerInterface fileHandler = new DummyFileHandler();
+        for(String fileExtension : fileHandler.getFileExtensionList())
+        {
+            fileHandlerMap.put(fileExtension, fileHandler);
+        }
+        return fileHandlerMap;
+    }
+
+    /**
+     * Delete a temporary folder and its contents.
+     *
+     * @param folder the folder
+     */
+    private void deleteFolder(File folder) {
+        File[] files = folder.listFiles();
+        if(files != null)
+        {
+            for(File f : files)
+            {
+                if(f.isDirectory())
+                {
+                    deleteFolder(f);
+                }
+                else
+                {
+                    f.delete();
+                }
+            }
+        }
+        folder.delete();
+    }
+
+    /**
+     * Test method for {@link com.sldeditor.datasource.extension.filesystem.node.file.FileTreeNode#populateDirectories(boolean)}.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    @Test
+    public void testNamesDifferingByCase() throws IOException {
+        File folder = Files.createTempDirectory("sldeditor").toFile();
+        try {
+            new File(folder, "a.test").createNewFile();
+            new File(folder, "A.test").createNewFile();
+            new File(folder, "b.test").createNewFile();
+
+            // Only applies to case sensitive file systems
+            assumeTrue(folder.list().length == 3);
+
+            FileTreeNode.setFileHandlerMap(createFileHandlerMap());
+            FileTreeNode node = new FileTreeNode(folder.getParentFile(), folder.getName());
+            node.populateDirectories(true);
+
+            assertEquals(3, node.getChildCount());
+            assertEquals("A.test", ((FileTreeNode)node.getChildAt(0)).getName());
+            assertEquals("a.test", ((FileTreeNode)node.getChildAt(1)).getName());
+            assertEquals("b.test", ((FileTreeNode)node.getChildAt(2)).getName());
+
+            node.releaseContents();
+        } finally {
+            deleteFolder(folder);
+        }
+    }
+
+    /**
+     * Test method for {@link com.sldeditor.datasource.extension.filesystem.node.file.FileTreeNode#releaseContents()}.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    @Test
+    public void testReleaseContents() throws IOException {
+        File folder = Files.createTempDirectory("sldeditor").toFile();
+        try {
+            File subFolder = new File(folder, "sub");
+            subFolder.mkdir();
+            new File(subFolder, "x.test").createNewFile();
+
+            FileTreeNode.setFileHandlerMap(createFileHandlerMap());
+            FileTreeNode node = new FileTreeNode(folder.getParentFile(), folder.getName());
+
+            // Not read yet
+            assertFalse(node.releaseContents());
+
+            node.populateDirectories(true);
+            assertEquals(1, node.getChildCount());
+            FileTreeNode child = (FileTreeNode) node.getChildAt(0);
+            child.populateDirectories(true);
+            assertEquals(1, child.getChildCount());
+
+            FileSystemWatcher watcher = FileSystemWatcher.getInstance();
+            assertTrue(watcher.isWatched(node));
+            assertTrue(watcher.isWatched(child));
+
+            // Collapsed, the folder and the folders below it are no longer watched
+            assertTrue(node.releaseContents());
+            assertEquals(0, node.getChildCount());
+            assertFalse(watcher.isWatched(node));
+            assertFalse(watcher.isWatched(child));
+
+            // Expanded again
+            node.populateDirectories(true);
+            assertEquals(1, node.getChildCount());
+            assertTrue(watcher.isWatched(node));
+
+            node.releaseContents();
+        } finally {
+            deleteFolder(folder);
+        }
+    }
 }
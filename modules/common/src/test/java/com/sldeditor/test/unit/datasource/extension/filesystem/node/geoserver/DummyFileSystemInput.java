@@ -68,6 +68,17 @@ public class DummyFileSystemInput implements FileSystemInterface
         return false;
     }
 
+    /**
+     * Tree collapsed.
+     *
+     * @param selectedItem the selected item
+     * @return true, if successful
+     */
+    @Override
+    public boolean treeCollapsed(Object selectedItem) {
+        return false;
+    }
+
     /**
      * Right mouse button.
      *
@@ -128,6 +128,11 @@ public class DataSourceFactoryTest {
             return null;
         }
 
+        @Override
+        public long getRevision() {
+            return 0;
+        }
+
         @Override
         public FeatureSource<SimpleFeatureType, SimpleFeature> getExampleFeatureSource() {
             return null;
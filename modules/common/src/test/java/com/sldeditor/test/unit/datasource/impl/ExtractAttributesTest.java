@@ -18,6 +18,7 @@
  */
 package com.sldeditor.test.unit.datasource.impl;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
@@ -30,6 +31,7 @@ import org.junit.Test;
 import org.opengis.feature.simple.SimpleFeatureType;
 import org.opengis.feature.type.PropertyDescriptor;
 
+import com.sldeditor.common.DataSourceFieldInterface;
 import com.sldeditor.datasource.impl.ExtractAttributes;
 import com.vividsolutions.jts.geom.Point;
 
@@ -94,4 +96,62 @@ public class ExtractAttributesTest {
         assertTrue(expectedFieldList.size() == count);
     }
 
+    /**
+     * Test method for {@link com.sldeditor.datasource.impl.ExtractAttributes#addDefaultFields(org.geotools.feature.simple.SimpleFeatureTypeBuilder, java.lang.String)}.
+     * <p>Check duplicate property names are only added once and that nested functions are handled.
+     */
+    @Test
+    public void testAddDefaultFieldsNestedFunctions() {
+        String sldContents = "<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?>" +
+                "<StyledLayerDescriptor version=\"1.0.0\" " +
+                "    xmlns=\"http://www.opengis.net/sld\" " +
+                "    xmlns:ogc=\"http://www.opengis.net/ogc\">" +
+                "  <NamedLayer>" +
+                "    <UserStyle>" +
+                "      <FeatureTypeStyle>" +
+                "        <Rule>" +
+                "          <ogc:Filter>" +
+                "            <ogc:PropertyIsLessThan>" +
+                "              <ogc:PropertyName>pop</ogc:PropertyName>" +
+                "              <ogc:Literal>50000</ogc:Literal>" +
+                "            </ogc:PropertyIsLessThan>" +
+                "          </ogc:Filter>" +
+                "          <TextSymbolizer>" +
+                "            <Label>" +
+                "              <ogc:Function name=\"strLength\">" +
+                "                <ogc:Function name=\"if_then_else\">" +
+                "                  <ogc:Literal>true</ogc:Literal>" +
+                "                  <ogc:PropertyName>nested</ogc:PropertyName>" +
+                "                  <ogc:Literal>x</ogc:Literal>" +
+                "                </ogc:Function>" +
+                "              </ogc:Function>" +
+                "              <ogc:PropertyName> pop </ogc:PropertyName>" +
+                "              <ogc:PropertyName>name</ogc:PropertyName>" +
+                "            </Label>" +
+                "          </TextSymbolizer>" +
+                "        </Rule>" +
+                "      </FeatureTypeStyle>" +
+                "    </UserStyle>" +
+                "  </NamedLayer>" +
+                "</StyledLayerDescriptor>";
+
+        SimpleFeatureTypeBuilder b = new SimpleFeatureTypeBuilder();
+        b.setName("test");
+
+        List<DataSourceFieldInterface> fieldList = ExtractAttributes.addDefaultFields(b, sldContents);
+
+        assertEquals(3, fieldList.size());
+        assertEquals("pop", fieldList.get(0).getName());
+        assertEquals(String.class, fieldList.get(0).getFieldType());
+        assertEquals("nested", fieldList.get(1).getName());
+        assertEquals(Integer.class, fieldList.get(1).getFieldType());
+        assertEquals("name", fieldList.get(2).getName());
+        assertEquals(String.class, fieldList.get(2).getFieldType());
+
+        assertEquals(3, b.buildFeatureType().getAttributeCount());
+
+        // No sld
+        fieldList = ExtractAttributes.addDefaultFields(new SimpleFeatureTypeBuilder(), null);
+        assertTrue(fieldList.isEmpty());
+    }
 }
@@ -0,0 +1,126 @@
+/*
+ * SLD Editor - The Open Source Java SLD Editor
+ *
+ * Copyright (C) 2016, SCISYS UK Limited
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sldeditor.test.unit.tool.html;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Color;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.sldeditor.common.SLDDataInterface;
+import com.sldeditor.common.data.SLDData;
+import com.sldeditor.common.data.StyleWrapper;
+import com.sldeditor.tool.html.ExportHTML;
+
+/**
+ * Unit test for ExportHTML class.
+ * <p>{@link com.sldeditor.tool.html.ExportHTML}
+ *
+ * @author Robert Ward (SCISYS)
+ */
+public class ExportHTMLTest {
+
+    /** The html template. */
+    private static final String TEMPLATE = "<html><body><table>\n<!-- SLD Editor insert -->\n</table></body></html>";
+
+    /** The test sld. */
+    private static final String TEST_SLD = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+            + "<StyledLayerDescriptor version=\"1.0.0\" xmlns=\"http://www.opengis.net/sld\" xmlns:ogc=\"http://www.opengis.net/ogc\">"
+            + "<NamedLayer><Name>%s</Name>"
+            + "<UserStyle><Name>style</Name><FeatureTypeStyle><Rule><Name>Rule</Name>"
+            + "<PolygonSymbolizer><Fill><CssParameter name=\"fill\">%s</CssParameter></Fill></PolygonSymbolizer>"
+            + "</Rule></FeatureTypeStyle></UserStyle>"
+            + "</NamedLayer>"
+            + "</StyledLayerDescriptor>";
+
+    /**
+     * Creates the sld data.
+     *
+     * @param name the name
+     * @param colour the fill colour
+     * @return the sld data
+     */
+    private static SLDDataInterface createSLDData(String name, String colour) {
+        return new SLDData(new StyleWrapper("workspace", name), String.format(TEST_SLD, name, colour));
+    }
+
+    /**
+     * Test method for {@link com.sldeditor.tool.html.ExportHTML#save(java.lang.String, java.io.File, java.lang.String, java.util.List, java.awt.Color)}.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    @Test
+    public void testSave() throws IOException {
+        File folder = Files.createTempDirectory("exporthtml").toFile();
+
+        int noOfLayers = 30;
+        List<SLDDataInterface> sldDataList = new ArrayList<SLDDataInterface>();
+        for(int index = 0; index < noOfLayers; index ++)
+        {
+            sldDataList.add(createSLDData("layer" + index, "#0000FF"));
+        }
+
+        assertEquals(noOfLayers, ExportHTML.save(TEMPLATE, folder, "index.html", sldDataList, Color.WHITE));
+
+        File htmlFile = new File(folder, "index.html");
+        String html = new String(Files.readAllBytes(htmlFile.toPath()), StandardCharsets.UTF_8);
+        assertTrue(html.startsWith("<html><body><table>\n"));
+        assertTrue(html.trim().endsWith("</table></body></html>"));
+
+        // Rows in the order the layers were supplied
+        int lastIndex = -1;
+        for(int index = 0; index < noOfLayers; index ++)
+        {
+            String legendFilename = new File(folder, "layer" + index + ".png").getAbsolutePath();
+            int rowIndex = html.indexOf(String.format("<td>layer%d</td>", index));
+            assertTrue(rowIndex > lastIndex);
+            assertTrue(html.contains(String.format("<img src=\"%s\"", legendFilename)));
+            assertTrue(new File(legendFilename).exists());
+            lastIndex = rowIndex;
+        }
+
+        // Nothing has changed so no legends are generated
+        assertEquals(0, ExportHTML.save(TEMPLATE, folder, "index.html", sldDataList, Color.WHITE));
+        assertEquals(html, new String(Files.readAllBytes(htmlFile.toPath()), StandardCharsets.UTF_8));
+
+        // One layer changed
+        sldDataList.set(5, createSLDData("layer5", "#FF0000"));
+        assertEquals(1, ExportHTML.save(TEMPLATE, folder, "index.html", sldDataList, Color.WHITE));
+
+        // Different background colour, all legends generated
+        assertEquals(noOfLayers, ExportHTML.save(TEMPLATE, folder, "index.html", sldDataList, Color.BLACK));
+
+        // Only the html, manifest and legends remain
+        assertEquals(noOfLayers + 2, folder.listFiles().length);
+
+        for(File file : folder.listFiles())
+        {
+            file.delete();
+        }
+        folder.delete();
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * SLD Editor - The Open Source Java SLD Editor
+ *
+ * Copyright (C) 2016, SCISYS UK Limited
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sldeditor.test.unit.tool.legendpanel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.imageio.ImageIO;
+
+import org.geotools.styling.NamedLayer;
+import org.geotools.styling.Style;
+import org.geotools.styling.StyledLayerDescriptor;
+import org.junit.Test;
+
+import com.sldeditor.common.data.SLDData;
+import com.sldeditor.common.data.SLDUtils;
+import com.sldeditor.tool.legendpanel.BufferedImageLegendGraphicBuilder;
+import com.sldeditor.tool.legendpanel.LegendManager;
+import com.sldeditor.tool.legendpanel.LegendManager.StyleLegend;
+import com.sldeditor.tool.legendpanel.LegendRequest;
+
+/**
+ * Unit test for LegendManager and BufferedImageLegendGraphicBuilder classes.
+ * <p>{@link com.sldeditor.tool.legendpanel.LegendManager}
+ *
+ * @author Robert Ward (SCISYS)
+ */
+public class LegendManagerTest {
+
+    /** The test sld, contains 3 styles using point, line and polygon symbolizers. */
+    private static final String TEST_SLD = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+            + "<StyledLayerDescriptor version=\"1.0.0\" xmlns=\"http://www.opengis.net/sld\" xmlns:ogc=\"http://www.opengis.net/ogc\">"
+            + "<NamedLayer><Name>layer</Name>"
+            + "<UserStyle><Name>point</Name><FeatureTypeStyle><Rule><Name>Point</Name>"
+            + "<PointSymbolizer><Graphic><Mark><WellKnownName>circle</WellKnownName>"
+            + "<Fill><CssParameter name=\"fill\">#FF0000</CssParameter></Fill></Mark><Size>12</Size></Graphic></PointSymbolizer>"
+            + "</Rule></FeatureTypeStyle></UserStyle>"
+            + "<UserStyle><Name>line</Name><FeatureTypeStyle><Rule><Name>Line</Name>"
+            + "<LineSymbolizer><Stroke><CssParameter name=\"stroke\">#00FF00</CssParameter>"
+            + "<CssParameter name=\"stroke-width\">3</CssParameter></Stroke></LineSymbolizer>"
+            + "</Rule></FeatureTypeStyle></UserStyle>"
+            + "<UserStyle><Name>polygon</Name><FeatureTypeStyle><Rule><Name>Polygon</Name>"
+            + "<PolygonSymbolizer><Fill><CssParameter name=\"fill\">#0000FF</CssParameter></Fill></PolygonSymbolizer>"
+            + "</Rule><Rule><Name>Polygon2</Name>"
+            + "<PolygonSymbolizer><Fill><CssParameter name=\"fill\">#00FFFF</CssParameter></Fill></PolygonSymbolizer>"
+            + "</Rule></FeatureTypeStyle></UserStyle>"
+            + "</NamedLayer>"
+            + "</StyledLayerDescriptor>";
+
+    /**
+     * Check two images have the same size and pixels.
+     *
+     * @param expected the expected image
+     * @param actual the actual image
+     */
+    private static void assertSameImage(BufferedImage expected, BufferedImage actual) {
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+
+        for(int y = 0; y < expected.getHeight(); y ++)
+        {
+            for(int x = 0; x < expected.getWidth(); x ++)
+            {
+                assertEquals(expected.getRGB(x, y), actual.getRGB(x, y));
+            }
+        }
+    }
+
+    /**
+     * Test method for {@link com.sldeditor.tool.legendpanel.BufferedImageLegendGraphicBuilder#buildLegendGraphic(com.sldeditor.tool.legendpanel.LegendRequest, org.geotools.styling.Style, boolean)}.
+     * <p>A single builder used on several threads creates the same images as when used on one.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void testBuildLegendGraphicConcurrently() throws Exception {
+        StyledLayerDescriptor sld = SLDUtils.createSLDFromString(new SLDData(null, TEST_SLD));
+        final List<Style> styleList = ((NamedLayer) sld.layers().get(0)).styles();
+
+        final BufferedImageLegendGraphicBuilder builder = new BufferedImageLegendGraphicBuilder();
+        final LegendRequest request = new LegendRequest();
+        request.setWidth(LegendRequest.DEFAULT_WIDTH);
+        request.setHeight(LegendRequest.DEFAULT_HEIGHT);
+
+        List<BufferedImage> expectedList = new ArrayList<BufferedImage>();
+        for(Style style : styleList)
+        {
+            expectedList.add(builder.buildLegendGraphic(request, style, false).get(null));
+        }
+
+        int noOfTasks = 60;
+        ExecutorService executor = Executors.newFixedThreadPool(6);
+        List<Future<BufferedImage>> futureList = new ArrayList<Future<BufferedImage>>();
+        for(int index = 0; index < noOfTasks; index ++)
+        {
+            final Style style = styleList.get(index % styleList.size());
+            futureList.add(executor.submit(new Callable<BufferedImage>() {
+                @Override
+                public BufferedImage call() throws Exception {
+                    return builder.buildLegendGraphic(request, style, false).get(null);
+                }
+            }));
+        }
+
+        for(int index = 0; index < noOfTasks; index ++)
+        {
+            assertSameImage(expectedList.get(index % styleList.size()), futureList.get(index).get());
+        }
+        executor.shutdown();
+    }
+
+    /**
+     * Test method for {@link com.sldeditor.tool.legendpanel.LegendManager#createLegends(java.awt.Color, org.geotools.styling.StyledLayerDescriptor, java.lang.String, java.lang.String, boolean)}.
+     */
+    @Test
+    public void testCreateLegends() {
+        StyledLayerDescriptor sld = SLDUtils.createSLDFromString(new SLDData(null, TEST_SLD));
+
+        List<StyleLegend> legendList = LegendManager.getInstance().createLegends(Color.WHITE, sld, null, null, true);
+        assertEquals(3, legendList.size());
+        assertEquals("point", legendList.get(0).getStyleName());
+        assertEquals("line", legendList.get(1).getStyleName());
+        assertEquals("polygon", legendList.get(2).getStyleName());
+        assertEquals(2, legendList.get(2).getImageMap().size());
+
+        // The last style is returned when a single legend is requested
+        Map<String, BufferedImage> imageMap = LegendManager.getInstance().createLegend(Color.WHITE, sld, null, null, true);
+        assertEquals(legendList.get(2).getImageMap().keySet(), imageMap.keySet());
+
+        assertTrue(LegendManager.getInstance().createLegends(Color.WHITE, null, null, null, false).isEmpty());
+    }
+
+    /**
+     * Test method for {@link com.sldeditor.tool.legendpanel.LegendManager#saveLegendImage(java.awt.Color, org.geotools.styling.StyledLayerDescriptor, java.io.File, java.lang.String, java.lang.String, java.lang.String, java.util.List)}.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    @Test
+    public void testSaveLegendImage() throws IOException {
+        StyledLayerDescriptor sld = SLDUtils.createSLDFromString(new SLDData(null, TEST_SLD));
+        File folder = Files.createTempDirectory("legend").toFile();
+
+        List<String> filenameList = new ArrayList<String>();
+        assertTrue(LegendManager.getInstance().saveLegendImage(Color.WHITE, sld, folder, "layer", null, null, filenameList));
+
+        assertEquals(3, filenameList.size());
+        String[] expectedNames = {"layer_point.png", "layer_line.png", "layer_polygon.png"};
+        for(int index = 0; index < expectedNames.length; index ++)
+        {
+            File file = new File(filenameList.get(index));
+            assertEquals(expectedNames[index], file.getName());
+            assertTrue(file.exists());
+            assertNotNull(ImageIO.read(file));
+            file.delete();
+        }
+        folder.delete();
+    }
+}
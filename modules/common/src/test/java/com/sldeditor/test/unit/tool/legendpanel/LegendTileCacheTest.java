@@ -0,0 +1,168 @@
+/*
+ * SLD Editor - The Open Source Java SLD Editor
+ *
+ * Copyright (C) 2016, SCISYS UK Limited
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sldeditor.test.unit.tool.legendpanel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.styling.NamedLayer;
+import org.geotools.styling.PolygonSymbolizer;
+import org.geotools.styling.Rule;
+import org.geotools.styling.Style;
+import org.geotools.styling.StyledLayerDescriptor;
+import org.junit.Test;
+
+import com.sldeditor.common.data.SLDData;
+import com.sldeditor.common.data.SLDUtils;
+import com.sldeditor.tool.legendpanel.BufferedImageLegendGraphicBuilder;
+import com.sldeditor.tool.legendpanel.LegendRequest;
+import com.sldeditor.tool.legendpanel.LegendTileCache;
+
+/**
+ * Unit test for LegendTileCache class.
+ * <p>{@link com.sldeditor.tool.legendpanel.LegendTileCache}
+ *
+ * @author Robert Ward (SCISYS)
+ */
+public class LegendTileCacheTest {
+
+    /** The test sld. */
+    private static final String TEST_SLD = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+            + "<StyledLayerDescriptor version=\"1.0.0\" xmlns=\"http://www.opengis.net/sld\" xmlns:ogc=\"http://www.opengis.net/ogc\">"
+            + "<NamedLayer><Name>layer</Name>"
+            + "<UserStyle><Name>style</Name><FeatureTypeStyle>"
+            + "<Rule><Name>Rule1</Name><Title>Rule 1</Title>"
+            + "<PolygonSymbolizer><Fill><CssParameter name=\"fill\">#0000FF</CssParameter></Fill></PolygonSymbolizer></Rule>"
+            + "<Rule><Name>Rule2</Name><Title>Rule 2</Title>"
+            + "<PolygonSymbolizer><Fill><CssParameter name=\"fill\">#00FF00</CssParameter></Fill></PolygonSymbolizer></Rule>"
+            + "<Rule><Name>Rule3</Name><Title>Rule 3</Title>"
+            + "<PolygonSymbolizer><Fill><CssParameter name=\"fill\">#FF0000</CssParameter></Fill></PolygonSymbolizer></Rule>"
+            + "</FeatureTypeStyle></UserStyle>"
+            + "</NamedLayer>"
+            + "</StyledLayerDescriptor>";
+
+    /**
+     * Creates the legend request.
+     *
+     * @param dpi the dpi
+     * @return the legend request
+     */
+    private static LegendRequest createRequest(int dpi) {
+        Map<String, String> legendOptions = new HashMap<String, String>();
+        legendOptions.put("bgColor", "#FFFFFF");
+        legendOptions.put("dpi", String.valueOf(dpi));
+        legendOptions.put("forceLabels", "true");
+
+        LegendRequest request = new LegendRequest();
+        request.setWidth(LegendRequest.DEFAULT_WIDTH);
+        request.setHeight(LegendRequest.DEFAULT_HEIGHT);
+        request.setLegendOptions(legendOptions);
+        return request;
+    }
+
+    /**
+     * Checks if two images have the same size and pixels.
+     *
+     * @param expected the expected image
+     * @param actual the actual image
+     * @return true, if the images are the same
+     */
+    private static boolean sameImage(BufferedImage expected, BufferedImage actual) {
+        if((expected.getWidth() != actual.getWidth()) || (expected.getHeight() != actual.getHeight()))
+        {
+            return false;
+        }
+
+        for(int y = 0; y < expected.getHeight(); y ++)
+        {
+            for(int x = 0; x < expected.getWidth(); x ++)
+            {
+                if(expected.getRGB(x, y) != actual.getRGB(x, y))
+                {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Test method for {@link com.sldeditor.tool.legendpanel.BufferedImageLegendGraphicBuilder#buildLegendGraphic(com.sldeditor.tool.legendpanel.LegendRequest, org.geotools.styling.Style, boolean)}.
+     */
+    @Test
+    public void testCachedTiles() {
+        StyledLayerDescriptor sld = SLDUtils.createSLDFromString(new SLDData(null, TEST_SLD));
+        Style style = ((NamedLayer) sld.layers().get(0)).styles().get(0);
+
+        BufferedImageLegendGraphicBuilder builder = new BufferedImageLegendGraphicBuilder();
+        LegendTileCache cache = builder.getTileCache();
+        LegendRequest request = createRequest(96);
+
+        BufferedImage firstImage = builder.buildLegendGraphic(request, style, false).get(null);
+        assertEquals(3, cache.getMissCount());
+        assertEquals(0, cache.getHitCount());
+        assertEquals(3, cache.size());
+
+        // Drawing on the returned image does not affect the cache
+        BufferedImage expectedImage = new BufferedImage(firstImage.getColorModel(), firstImage.copyData(null),
+                firstImage.isAlphaPremultiplied(), null);
+        Graphics2D g = firstImage.createGraphics();
+        g.setColor(Color.BLACK);
+        g.fillRect(0, 0, firstImage.getWidth(), firstImage.getHeight());
+        g.dispose();
+
+        // Unchanged style, all tiles reused
+        BufferedImage secondImage = builder.buildLegendGraphic(request, style, false).get(null);
+        assertEquals(3, cache.getMissCount());
+        assertEquals(3, cache.getHitCount());
+        assertTrue(sameImage(expectedImage, secondImage));
+
+        // Edit one rule, only that tile is rendered again
+        Rule rule = style.featureTypeStyles().get(0).rules().get(1);
+        PolygonSymbolizer symbolizer = (PolygonSymbolizer) rule.symbolizers().get(0);
+        symbolizer.getFill().setColor(CommonFactoryFinder.getFilterFactory().literal("#FF00FF"));
+
+        BufferedImage editedImage = builder.buildLegendGraphic(request, style, false).get(null);
+        assertEquals(4, cache.getMissCount());
+        assertEquals(5, cache.getHitCount());
+        assertEquals(4, cache.size());
+        assertFalse(sameImage(expectedImage, editedImage));
+
+        // Separate legends are created from the same tiles
+        Map<String, BufferedImage> separateMap = builder.buildLegendGraphic(request, style, true);
+        assertEquals(3, separateMap.size());
+        assertEquals(4, cache.getMissCount());
+
+        // Different legend options, tiles rendered again
+        builder.buildLegendGraphic(createRequest(300), style, false);
+        assertEquals(7, cache.getMissCount());
+
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getMissCount());
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * SLD Editor - The Open Source Java SLD Editor
+ *
+ * Copyright (C) 2016, SCISYS UK Limited
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sldeditor.test.unit.tool.raster;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.image.DataBuffer;
+import java.awt.image.PixelInterleavedSampleModel;
+import java.awt.image.RenderedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.media.jai.TiledImage;
+
+import org.junit.Test;
+
+import com.sldeditor.tool.raster.RasterStatistics;
+import com.sldeditor.tool.raster.UniqueValueSet;
+
+/**
+ * Unit test for RasterStatistics class.
+ * <p>{@link com.sldeditor.tool.raster.RasterStatistics}
+ *
+ * @author Robert Ward (SCISYS)
+ */
+public class RasterStatisticsTest {
+
+    /**
+     * Test method for {@link com.sldeditor.tool.raster.RasterStatistics#calculateUniqueValues(java.awt.image.RenderedImage, int, long)}.
+     */
+    @Test
+    public void testCalculateUniqueValues() {
+        // Width and height are not multiples of the tile size
+        TiledImage image = createImage(70, 45, 16);
+
+        UniqueValueSet uniqueValues = RasterStatistics.calculateUniqueValues(image, 0, 0);
+
+        // Values in the same order as a column by column scan
+        List<Integer> expectedList = new ArrayList<Integer>();
+        for(int x = 0; x < image.getWidth(); x++)
+        {
+            for(int y = 0; y < image.getHeight(); y++)
+            {
+                int value = image.getSample(x, y, 0);
+                if(!expectedList.contains(value))
+                {
+                    expectedList.add(value);
+                }
+            }
+        }
+
+        int[] expectedValues = new int[expectedList.size()];
+        for(int index = 0; index < expectedValues.length; index ++)
+        {
+            expectedValues[index] = expectedList.get(index);
+        }
+
+        assertArrayEquals(expectedValues, uniqueValues.getValues());
+        assertEquals(expectedValues.length, uniqueValues.size());
+        assertEquals(70L * 45L, uniqueValues.getTotalCount());
+
+        // Histogram
+        long count = 0;
+        for(int value : uniqueValues.getValues())
+        {
+            count += uniqueValues.getCount(value);
+        }
+        assertEquals(uniqueValues.getTotalCount(), count);
+        assertEquals(0, uniqueValues.getCount(-1));
+
+        // Same result when the image is a single tile
+        TiledImage singleTileImage = createImage(70, 45, 128);
+        assertArrayEquals(expectedValues, RasterStatistics.calculateUniqueValues(singleTileImage, 0, 0).getValues());
+    }
+
+    /**
+     * Test method for {@link com.sldeditor.tool.raster.RasterStatistics#calculateUniqueValues(java.awt.image.RenderedImage, int, long)}.
+     */
+    @Test
+    public void testCalculateUniqueValuesSampled() {
+        RenderedImage image = createImage(100, 100, 32);
+
+        assertEquals(1, RasterStatistics.getSampleStep(100, 100, 0));
+        assertEquals(1, RasterStatistics.getSampleStep(100, 100, 10000));
+        assertEquals(2, RasterStatistics.getSampleStep(100, 100, 2500));
+        assertEquals(4, RasterStatistics.getSampleStep(100, 100, 1000));
+
+        UniqueValueSet uniqueValues = RasterStatistics.calculateUniqueValues(image, 0, 2500);
+        assertEquals(2500, uniqueValues.getTotalCount());
+
+        UniqueValueSet allValues = RasterStatistics.calculateUniqueValues(image, 0, 0);
+        assertTrue(uniqueValues.size() <= allValues.size());
+        for(int value : uniqueValues.getValues())
+        {
+            assertTrue(allValues.contains(value));
+        }
+    }
+
+    /**
+     * Test method for {@link com.sldeditor.tool.raster.UniqueValueSet#addAll(com.sldeditor.tool.raster.UniqueValueSet)}.
+     */
+    @Test
+    public void testUniqueValueSet() {
+        UniqueValueSet set1 = new UniqueValueSet();
+        for(int index = 0; index < 1000; index ++)
+        {
+            set1.add(index * 7, 1000 + index);
+        }
+        assertEquals(1000, set1.size());
+        assertTrue(set1.contains(7));
+        assertFalse(set1.contains(8));
+
+        UniqueValueSet set2 = new UniqueValueSet();
+        set2.add(14, 5);
+        set2.add(-3, 10);
+        set2.add(-3, 11);
+
+        set1.addAll(set2);
+        set1.addAll(null);
+        assertEquals(1001, set1.size());
+        assertEquals(1003, set1.getTotalCount());
+        assertEquals(2, set1.getCount(14));
+        assertEquals(2, set1.getCount(-3));
+
+        int[] values = set1.getValues();
+        assertEquals(14, values[0]);
+        assertEquals(-3, values[1]);
+        assertEquals(0, values[2]);
+    }
+
+    /**
+     * Creates a single band tiled image.
+     *
+     * @param width the width
+     * @param height the height
+     * @param tileSize the tile size
+     * @return the tiled image
+     */
+    private TiledImage createImage(int width, int height, int tileSize) {
+        PixelInterleavedSampleModel sampleModel = new PixelInterleavedSampleModel(DataBuffer.TYPE_INT,
+                tileSize, tileSize, 1, tileSize, new int[] {0});
+        TiledImage image = new TiledImage(0, 0, width, height, 0, 0, sampleModel, null);
+
+        for(int y = 0; y < height; y++)
+        {
+            for(int x = 0; x < width; x++)
+            {
+                image.setSample(x, y, 0, ((x * 31) + (y * 17)) % 97);
+            }
+        }
+        return image;
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * SLD Editor - The Open Source Java SLD Editor
+ *
+ * Copyright (C) 2016, SCISYS UK Limited
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sldeditor.test.unit.tool.savesld;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.sldeditor.common.SLDDataInterface;
+import com.sldeditor.common.data.SLDData;
+import com.sldeditor.common.data.SLDUtils;
+import com.sldeditor.common.data.StyleWrapper;
+import com.sldeditor.tool.savesld.SaveSLDExporter;
+
+/**
+ * Unit test for SaveSLDExporter class.
+ * <p>{@link com.sldeditor.tool.savesld.SaveSLDExporter}
+ *
+ * @author Robert Ward (SCISYS)
+ */
+public class SaveSLDExporterTest {
+
+    /** The test sld. */
+    private static final String TEST_SLD = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+            + "<StyledLayerDescriptor version=\"1.0.0\" xmlns=\"http://www.opengis.net/sld\" xmlns:ogc=\"http://www.opengis.net/ogc\">"
+            + "<NamedLayer><Name>%s</Name>"
+            + "<UserStyle><Name>style</Name>"
+            + "<FeatureTypeStyle><Rule><Name>\u00c9tiquette</Name>"
+            + "<PointSymbolizer><Graphic><Size>%d</Size></Graphic></PointSymbolizer></Rule>"
+            + "</FeatureTypeStyle>"
+            + "</UserStyle></NamedLayer>"
+            + "</StyledLayerDescriptor>";
+
+    /**
+     * Creates the sld data.
+     *
+     * @param name the name
+     * @param size the point size
+     * @return the sld data
+     */
+    private static SLDDataInterface createSLDData(String name, int size) {
+        return new SLDData(new StyleWrapper("workspace", name), String.format(TEST_SLD, name, size));
+    }
+
+    /**
+     * Creates a temporary folder.
+     *
+     * @return the folder
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private static File createTempFolder() throws IOException {
+        File folder = Files.createTempDirectory("savesld").toFile();
+        folder.deleteOnExit();
+        return folder;
+    }
+
+    /**
+     * Delete the folder and its contents.
+     *
+     * @param folder the folder
+     */
+    private static void deleteFolder(File folder) {
+        File[] files = folder.listFiles();
+        if(files != null)
+        {
+            for(File file : files)
+            {
+                file.delete();
+            }
+        }
+        folder.delete();
+    }
+
+    /**
+     * Test method for {@link com.sldeditor.tool.savesld.SaveSLDExporter#export(java.util.List, java.io.File)}.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    @Test
+    public void testExport() throws IOException {
+        File folder = createTempFolder();
+
+        List<SLDDataInterface> sldDataList = new ArrayList<SLDDataInterface>();
+        int noOfSLDs = 40;
+        for(int index = 0; index < noOfSLDs; index ++)
+        {
+            sldDataList.add(createSLDData("layer" + index, 1));
+        }
+        // Duplicate name, the last one is saved
+        sldDataList.add(createSLDData("layer0", 7));
+
+        SaveSLDExporter exporter = new SaveSLDExporter(4);
+        assertEquals(noOfSLDs, exporter.export(sldDataList, folder));
+        assertEquals(noOfSLDs, exporter.getProcessedCount());
+
+        // No temporary files left behind
+        File[] files = folder.listFiles();
+        assertEquals(noOfSLDs, files.length);
+
+        for(int index = 0; index < noOfSLDs; index ++)
+        {
+            File file = new File(folder, "layer" + index + ".sld");
+            assertTrue(file.exists());
+
+            String contents = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+            assertTrue(contents.contains("\u00c9tiquette"));
+            assertTrue(SLDUtils.createSLDFromString(new SLDData(new StyleWrapper("workspace", "layer" + index), contents)) != null);
+        }
+
+        String contents = new String(Files.readAllBytes(new File(folder, "layer0.sld").toPath()), StandardCharsets.UTF_8);
+        assertTrue(contents.contains(">7<"));
+
+        deleteFolder(folder);
+    }
+
+    /**
+     * Test method for {@link com.sldeditor.tool.savesld.SaveSLDExporter#cancel()}.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    @Test
+    public void testCancel() throws IOException {
+        File folder = createTempFolder();
+
+        List<SLDDataInterface> sldDataList = new ArrayList<SLDDataInterface>();
+        sldDataList.add(createSLDData("layer", 1));
+
+        SaveSLDExporter exporter = new SaveSLDExporter(2);
+        exporter.cancel();
+        assertTrue(exporter.isCancelled());
+        assertEquals(0, exporter.export(sldDataList, folder));
+        assertEquals(0, folder.listFiles().length);
+
+        deleteFolder(folder);
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * SLD Editor - The Open Source Java SLD Editor
+ *
+ * Copyright (C) 2016, SCISYS UK Limited
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sldeditor.test.unit.tool.scale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.SwingUtilities;
+
+import org.junit.Test;
+
+import com.sldeditor.common.SLDDataInterface;
+import com.sldeditor.common.data.SLDData;
+import com.sldeditor.common.data.StyleWrapper;
+import com.sldeditor.common.output.SLDWriterInterface;
+import com.sldeditor.common.output.impl.SLDWriterFactory;
+import com.sldeditor.tool.scale.ScalePanelUtils;
+import com.sldeditor.tool.scale.ScaleSLDData;
+import com.sldeditor.tool.scale.ScaleSLDModel;
+import com.sldeditor.tool.scale.ScaleSLDScanner;
+
+/**
+ * Unit test for ScalePanelUtils class.
+ * <p>{@link com.sldeditor.tool.scale.ScalePanelUtils}
+ *
+ * @author Robert Ward (SCISYS)
+ */
+public class ScalePanelUtilsTest {
+
+    /** The test sld, the user layer is ignored. */
+    private static final String TEST_SLD = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+            + "<StyledLayerDescriptor version=\"1.0.0\" xmlns=\"http://www.opengis.net/sld\" xmlns:ogc=\"http://www.opengis.net/ogc\">"
+            + "<UserLayer><Name>user</Name><UserStyle><Name>userStyle</Name><FeatureTypeStyle><Rule><Name>ignored</Name>"
+            + "<MinScaleDenominator>5</MinScaleDenominator></Rule></FeatureTypeStyle></UserStyle></UserLayer>"
+            + "<NamedLayer><Name>layer1</Name>"
+            + "<UserStyle><Name>style1</Name>"
+            + "<FeatureTypeStyle><Name>fts1</Name>"
+            + "<Rule><Name>Large</Name><MaxScaleDenominator>160000000</MaxScaleDenominator>"
+            + "<PointSymbolizer><Graphic><Size>12</Size></Graphic></PointSymbolizer></Rule>"
+            + "<Rule><Name>Medium</Name><MinScaleDenominator>160000000</MinScaleDenominator>"
+            + "<MaxScaleDenominator>320000000</MaxScaleDenominator>"
+            + "<PointSymbolizer><Graphic><Size>8</Size></Graphic></PointSymbolizer></Rule>"
+            + "</FeatureTypeStyle>"
+            + "<FeatureTypeStyle><Name>fts2</Name>"
+            + "<Rule><Name>Small</Name><MinScaleDenominator>320000000</MinScaleDenominator>"
+            + "<PointSymbolizer><Graphic><Size>4</Size></Graphic></PointSymbolizer></Rule>"
+            + "<Rule><Name>NoScale</Name>"
+            + "<PointSymbolizer><Graphic><Size>2</Size></Graphic></PointSymbolizer></Rule>"
+            + "</FeatureTypeStyle>"
+            + "</UserStyle></NamedLayer>"
+            + "</StyledLayerDescriptor>";
+
+    /**
+     * Creates the sld data.
+     *
+     * @param name the name
+     * @param sld the sld
+     * @return the sld data
+     */
+    private static SLDDataInterface createSLDData(String name, String sld) {
+        return new SLDData(new StyleWrapper("workspace", name), sld);
+    }
+
+    /**
+     * Test method for {@link com.sldeditor.tool.scale.ScalePanelUtils#readScales(com.sldeditor.common.SLDDataInterface)}.
+     */
+    @Test
+    public void testReadScales() {
+        SLDDataInterface sldData = createSLDData("test", TEST_SLD);
+
+        List<ScaleSLDData> expectedList = ScalePanelUtils.containsScales(sldData);
+        List<ScaleSLDData> actualList = ScalePanelUtils.readScales(sldData);
+
+        assertEquals(4, expectedList.size());
+        assertEquals(expectedList.size(), actualList.size());
+
+        for(int index = 0; index < expectedList.size(); index ++)
+        {
+            ScaleSLDData expected = expectedList.get(index);
+            ScaleSLDData actual = actualList.get(index);
+
+            assertEquals(expected.getWorkspace(), actual.getWorkspace());
+            assertEquals(expected.getName(), actual.getName());
+            assertEquals(expected.getNamedLayer(), actual.getNamedLayer());
+            assertEquals(expected.getStyle(), actual.getStyle());
+            assertEquals(expected.getFeatureTypeStyle(), actual.getFeatureTypeStyle());
+            assertEquals(expected.getRuleName(), actual.getRuleName());
+            assertEquals(expected.getMinScaleString(), actual.getMinScaleString());
+            assertEquals(expected.getMaxScaleString(), actual.getMaxScaleString());
+            assertEquals(expected.isMinScaleSet(), actual.isMinScaleSet());
+            assertEquals(expected.isMaxScaleSet(), actual.isMaxScaleSet());
+
+            // Rule found when needed
+            assertNotNull(actual.getRule());
+            assertEquals(expected.getRule().getName(), actual.getRule().getName());
+        }
+
+        assertNull(ScalePanelUtils.readScales(null));
+        assertNull(ScalePanelUtils.readScales(createSLDData("empty",
+                "<StyledLayerDescriptor xmlns=\"http://www.opengis.net/sld\"/>")));
+    }
+
+    /**
+     * Test method for {@link com.sldeditor.tool.scale.ScaleSLDData#updateScales(com.sldeditor.common.output.SLDWriterInterface)}.
+     */
+    @Test
+    public void testUpdateScales() {
+        SLDDataInterface sldData = createSLDData("test", TEST_SLD);
+
+        List<ScaleSLDData> actualList = ScalePanelUtils.readScales(sldData);
+
+        // Update two rules from the same sld
+        actualList.get(0).setMaxScaleString("1:1000");
+        actualList.get(3).setMinScaleString("1:2000");
+
+        SLDWriterInterface sldWriter = SLDWriterFactory.createSLDWriter(null);
+        actualList.get(0).updateScales(sldWriter);
+        actualList.get(3).updateScales(sldWriter);
+
+        List<ScaleSLDData> updatedList = ScalePanelUtils.containsScales(sldData);
+        assertEquals(1000.0, updatedList.get(0).getMaxScale(), 0.001);
+        assertEquals(2000.0, updatedList.get(3).getMinScale(), 0.001);
+
+        // Unchanged
+        assertEquals(160000000.0, updatedList.get(1).getMinScale(), 0.001);
+    }
+
+    /**
+     * Test method for {@link com.sldeditor.tool.scale.ScaleSLDScanner#scan(java.util.List, com.sldeditor.tool.scale.ScaleSLDModel)}.
+     *
+     * @throws InterruptedException the interrupted exception
+     * @throws InvocationTargetException the invocation target exception
+     */
+    @Test
+    public void testScan() throws InterruptedException, InvocationTargetException {
+        List<SLDDataInterface> sldDataList = new ArrayList<SLDDataInterface>();
+        int noOfSLDs = 50;
+        for(int index = 0; index < noOfSLDs; index ++)
+        {
+            sldDataList.add(createSLDData("sld" + index, TEST_SLD));
+        }
+
+        ScaleSLDModel model = new ScaleSLDModel();
+        ScaleSLDScanner scanner = new ScaleSLDScanner(4);
+        scanner.scan(sldDataList, model);
+
+        assertTrue(scanner.awaitCompletion(60, TimeUnit.SECONDS));
+        assertEquals(noOfSLDs, scanner.getCompletedCount());
+
+        // Wait for the rows to be added on the event dispatch thread
+        SwingUtilities.invokeAndWait(new Runnable() {
+            @Override
+            public void run() {
+            }
+        });
+
+        assertEquals(noOfSLDs * 4, model.getRowCount());
+
+        // Rows in the order the slds were supplied
+        for(int index = 0; index < noOfSLDs; index ++)
+        {
+            assertEquals("sld" + index, model.getValueAt(index * 4, 1));
+            assertEquals("Large", model.getValueAt(index * 4, 5));
+            assertEquals("NoScale", model.getValueAt((index * 4) + 3, 5));
+        }
+    }
+}
@@ -206,7 +206,17 @@ public class FileSystemExtension implements ExtensionInterface
             } 
 
             public void treeCollapsed(TreeExpansionEvent evt) {
-                // Nothing to do 
+                TreePath path = evt.getPath(); 
+
+                Object selectedItem = path.getLastPathComponent();
+
+                for(FileSystemInterface extension : extensionList)
+                {
+                    if(extension.treeCollapsed(selectedItem))
+                    {
+                        ((DefaultTreeModel)tree.getModel()).nodeStructureChanged((TreeNode)selectedItem);
+                    }
+                }
             } 
 
         }); 
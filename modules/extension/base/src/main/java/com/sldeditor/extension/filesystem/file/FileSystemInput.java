@@ -187,9 +187,9 @@ public class FileSystemInput implements FileSystemInterface
         if(selectedItem instanceof FileTreeNode)
         {
             // Get the last component of the path and
-            // arrange to have it fully populated.
+            // arrange to have it populated in the background.
             FileTreeNode node = (FileTreeNode)selectedItem;
-            if (node.populateDirectories(true)) {
+            if (node.populateDirectoriesInBackground()) {
                 changed = true;
             } 
         }
@@ -197,6 +197,22 @@ public class FileSystemInput implements FileSystemInterface
         return changed;
     }
 
+    /* (non-Javadoc)
+     * @see com.sldeditor.extension.input.FileSystemInterface#treeCollapsed(java.lang.Object)
+     */
+    @Override
+    public boolean treeCollapsed(Object selectedItem)
+    {
+        if(selectedItem instanceof FileTreeNode)
+        {
+            // Drop the contents and stop watching, they are read again when next expanded
+            FileTreeNode node = (FileTreeNode)selectedItem;
+            return node.releaseContents();
+        }
+
+        return false;
+    }
+
     /* (non-Javadoc)
      * @see com.sldeditor.extension.input.FileSystemInterface#rightMouseButton(java.lang.Object, java.awt.event.MouseEvent)
      */
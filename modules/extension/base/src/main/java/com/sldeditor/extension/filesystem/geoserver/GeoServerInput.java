@@ -57,6 +57,7 @@ import com.sldeditor.datasource.extension.filesystem.node.geoserver.GeoServerSty
 import com.sldeditor.datasource.extension.filesystem.node.geoserver.GeoServerWorkspaceNode;
 import com.sldeditor.extension.filesystem.geoserver.client.GeoServerClient;
 import com.sldeditor.extension.filesystem.geoserver.client.GeoServerClientInterface;
+import com.sldeditor.extension.filesystem.geoserver.client.GeoServerStyleUploadReport;
 import com.sldeditor.tool.ToolManager;
 import com.sldeditor.tool.connectionlist.GeoServerConnectionListTool;
 import com.sldeditor.tool.geoserverconnection.GeoServerConnectStateInterface;
@@ -249,6 +250,15 @@ public class GeoServerInput implements FileSystemInterface, GeoServerConnectUpda
         return false;
     }
 
+    /* (non-Javadoc)
+     * @see com.sldeditor.extension.input.FileSystemInterface#treeCollapsed(java.lang.Object)
+     */
+    @Override
+    public boolean treeCollapsed(Object selectedItem)
+    {
+        return false;
+    }
+
     /* (non-Javadoc)
      * @see com.sldeditor.extension.input.FileSystemInterface#rightMouseButton(java.lang.Object, java.awt.event.MouseEvent)
      */
@@ -697,16 +707,21 @@ public class GeoServerInput implements FileSystemInterface, GeoServerConnectUpda
             }
             else
             {
+                List<SLDDataInterface> sldDataList = new ArrayList<SLDDataInterface>();
                 for(NodeInterface key : droppedDataMap.keySet())
                 {
                     for(SLDDataInterface sldData : droppedDataMap.get(key))
                     {
                         StyleWrapper styleWrapper = sldData.getStyle();
                         styleWrapper.setWorkspace(workspaceNode.getWorkspaceName());
-                        client.uploadSLD(styleWrapper, sldData.getSld());
+                        sldDataList.add(sldData);
                     }
                 }
 
+                GeoServerStyleUploadReport report = client.uploadSLDs(sldDataList);
+
+                reportUploadFailures(report);
+
                 client.refreshWorkspace(workspaceNode.getWorkspaceName());
             }
 
@@ -715,6 +730,28 @@ public class GeoServerInput implements FileSystemInterface, GeoServerConnectUpda
         return false;
     }
 
+    /**
+     * Report the styles that failed to upload to the user.
+     *
+     * @param report the upload report
+     */
+    private void reportUploadFailures(GeoServerStyleUploadReport report)
+    {
+        if((report == null) || (report.getFailureCount() == 0))
+        {
+            return;
+        }
+
+        for(GeoServerStyleUploadReport.Result result : report.getResultList())
+        {
+            if(!result.isSuccess())
+            {
+                ConsoleManager.getInstance().error(this, "Failed to upload style : " + result.toString());
+            }
+        }
+        ConsoleManager.getInstance().error(this, report.getSummary());
+    }
+
     /* (non-Javadoc)
      * @see com.sldeditor.extension.input.FileSystemInterface#deleteNodes(com.sldeditor.extension.input.NodeInterface, java.util.List)
      */
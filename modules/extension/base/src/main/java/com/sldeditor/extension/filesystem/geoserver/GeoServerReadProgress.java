@@ -19,10 +19,12 @@
 package com.sldeditor.extension.filesystem.geoserver;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 import javax.swing.JTree;
+import javax.swing.SwingUtilities;
 import javax.swing.tree.DefaultMutableTreeNode;
 import javax.swing.tree.DefaultTreeModel;
 import javax.swing.tree.TreeNode;
@@ -83,6 +85,16 @@ public class GeoServerReadProgress implements GeoServerReadProgressInterface
             styleComplete = true;
         }
 
+        /**
+         * Checks if the layers are complete.
+         *
+         * @return true, if the layers are complete
+         */
+        public boolean isLayersComplete()
+        {
+            return layersComplete;
+        }
+
         /**
          * Checks if is complete.
          *
@@ -398,6 +410,99 @@ public class GeoServerReadProgress implements GeoServerReadProgressInterface
         showProgress(connection);
     }
 
+    /* (non-Javadoc)
+     * @see com.sldeditor.extension.filesystem.geoserver.GeoServerReadProgressInterface#readLayersPartial(com.sldeditor.common.data.GeoServerConnection, java.lang.String, java.util.List)
+     */
+    @Override
+    public void readLayersPartial(final GeoServerConnection connection, final String workspaceName, final List<GeoServerLayer> layerList)
+    {
+        Map<String, List<GeoServerLayer>> layerMap = geoServerLayerMap.get(connection);
+
+        if(layerMap == null)
+        {
+            layerMap = new LinkedHashMap<String, List<GeoServerLayer>>();
+            geoServerLayerMap.put(connection, layerMap);
+        }
+
+        layerMap.put(workspaceName, layerList);
+
+        if(SwingUtilities.isEventDispatchThread())
+        {
+            populateWorkspaceLayers(connection, workspaceName, layerList);
+        }
+        else
+        {
+            SwingUtilities.invokeLater(new Runnable()
+            {
+                public void run()
+                {
+                    populateWorkspaceLayers(connection, workspaceName, layerList);
+                }
+            });
+        }
+    }
+
+    /**
+     * Adds or replaces the layer nodes of a single workspace as soon as
+     * that workspace has been read, must be called on the event dispatch thread.
+     *
+     * @param connection the connection
+     * @param workspaceName the workspace name
+     * @param layerList the layer list
+     */
+    private void populateWorkspaceLayers(GeoServerConnection connection, String workspaceName, List<GeoServerLayer> layerList)
+    {
+        GeoServerNode geoServerNode = nodeMap.get(connection);
+
+        if((geoServerNode == null) || (treeModel == null) || (layerList == null))
+        {
+            return;
+        }
+
+        // Once all the layers have been read the complete tree is populated
+        PopulateState state = populateStateMap.get(connection);
+
+        if((state != null) && state.isLayersComplete())
+        {
+            return;
+        }
+
+        DefaultMutableTreeNode layersNode = getNode(geoServerNode, LAYERS_NODE_TITLE);
+
+        if(layersNode == null)
+        {
+            layersNode = new GeoServerLayerHeadingNode(this.handler, connection, LAYERS_NODE_TITLE);
+
+            // It is key to invoke this on the TreeModel, and NOT DefaultMutableTreeNode
+            treeModel.insertNodeInto(layersNode, geoServerNode, geoServerNode.getChildCount());
+        }
+
+        for(int index = 0; index < layersNode.getChildCount(); index ++)
+        {
+            DefaultMutableTreeNode node = (DefaultMutableTreeNode)layersNode.getChildAt(index);
+            if(workspaceName.equals(node.getUserObject()))
+            {
+                treeModel.removeNodeFromParent(node);
+                break;
+            }
+        }
+
+        GeoServerWorkspaceNode workspaceNode = new GeoServerWorkspaceNode(this.handler, connection, workspaceName, false);
+
+        // It is key to invoke this on the TreeModel, and NOT DefaultMutableTreeNode
+        treeModel.insertNodeInto(workspaceNode, layersNode, layersNode.getChildCount());
+
+        for(GeoServerLayer layer : layerList)
+        {
+            GeoServerLayerNode childNode = new GeoServerLayerNode(this.handler, layer);
+
+            treeModel.insertNodeInto(childNode, workspaceNode, 
+                    workspaceNode.getChildCount());
+        }
+
+        showProgress(connection);
+    }
+
     /* (non-Javadoc)
      * @see com.sldeditor.extension.input.GeoServerInputInterface#populateLayers(com.sldeditor.extension.input.GeoServerConnection, java.util.Map)
      */
@@ -439,6 +544,9 @@ public class GeoServerReadProgress implements GeoServerReadProgressInterface
         removeNode(geoServerNode, STYLES_NODE_TITLE);
         removeNode(geoServerNode, LAYERS_NODE_TITLE);
 
+        // Layers are added as each workspace is read
+        geoServerLayerMap.remove(connection);
+
         PopulateState state = populateStateMap.get(connection);
 
         if(state != null)
@@ -66,6 +66,15 @@ public interface GeoServerReadProgressInterface
      */
     void readLayersComplete(GeoServerConnection connection, Map<String, List<GeoServerLayer>> layerMap);
 
+    /**
+     * All the layers in a workspace have been read, called before read layers complete.
+     *
+     * @param connection the connection
+     * @param workspaceName the workspace name
+     * @param layerList the layers in the workspace
+     */
+    void readLayersPartial(GeoServerConnection connection, String workspaceName, List<GeoServerLayer> layerList);
+
     /**
      * Read layers progress.
      *
@@ -0,0 +1,995 @@
+/*
+ * SLD Editor - The Open Source Java SLD Editor
+ *
+ * Copyright (C) 2016, SCISYS UK Limited
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sldeditor.extension.filesystem.geoserver.client;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import com.sldeditor.common.console.ConsoleManager;
+import com.sldeditor.common.data.GeoServerConnection;
+import com.sldeditor.common.data.GeoServerLayer;
+import com.sldeditor.common.data.StyleWrapper;
+
+/**
+ * Local store of the styles, layers and SLD bodies read from a GeoServer instance.
+ * <p>One folder is written per GeoServer connection, keyed on the url and user name.
+ * The connection details, including the password, are not written to the folder.
+ * <p>The styles and layers are written to a versioned properties file once per
+ * catalogue update. Each SLD body is written to its own file, with the ETag and
+ * Last-Modified headers that GeoServer returned so that it can be revalidated
+ * with a conditional request.
+ *
+ * @author Robert Ward (SCISYS)
+ */
+public class GeoServerCatalogueCache
+{
+    /** The Constant CACHE_VERSION, increment when the file format changes. */
+    public static final String CACHE_VERSION = "1";
+
+    /** The Constant CACHE_FOLDER_NAME. */
+    private static final String CACHE_FOLDER_NAME = "geoservercache";
+
+    /** The Constant CATALOGUE_FILENAME. */
+    private static final String CATALOGUE_FILENAME = "catalogue.properties";
+
+    /** The Constant STYLE_FOLDER_NAME. */
+    private static final String STYLE_FOLDER_NAME = "styles";
+
+    /** The Constant SLD_FILE_EXTENSION. */
+    private static final String SLD_FILE_EXTENSION = ".sld";
+
+    /** The Constant PROPERTIES_FILE_EXTENSION. */
+    private static final String PROPERTIES_FILE_EXTENSION = ".properties";
+
+    /** The Constant TMP_FILE_EXTENSION. */
+    private static final String TMP_FILE_EXTENSION = ".tmp";
+
+    /** The Constant STYLE_KEY_SEPARATOR. */
+    private static final String STYLE_KEY_SEPARATOR = ":";
+
+    /** The Constant VERSION_KEY. */
+    private static final String VERSION_KEY = "version";
+
+    /** The Constant STYLE_GROUP_KEY. */
+    private static final String STYLE_GROUP_KEY = "style.group";
+
+    /** The Constant LAYER_GROUP_KEY. */
+    private static final String LAYER_GROUP_KEY = "layer.group";
+
+    /** The Constant COUNT_KEY. */
+    private static final String COUNT_KEY = ".count";
+
+    /** The Constant WORKSPACE_KEY. */
+    private static final String WORKSPACE_KEY = ".workspace";
+
+    /** The Constant NAME_KEY. */
+    private static final String NAME_KEY = ".name";
+
+    /** The Constant STYLE_WORKSPACE_KEY. */
+    private static final String STYLE_WORKSPACE_KEY = ".style.workspace";
+
+    /** The Constant STYLE_NAME_KEY. */
+    private static final String STYLE_NAME_KEY = ".style.name";
+
+    /** The Constant STYLE_FILE_WORKSPACE_KEY. */
+    private static final String STYLE_FILE_WORKSPACE_KEY = "workspace";
+
+    /** The Constant STYLE_FILE_NAME_KEY. */
+    private static final String STYLE_FILE_NAME_KEY = "name";
+
+    /** The Constant ETAG_KEY. */
+    private static final String ETAG_KEY = "etag";
+
+    /** The Constant LAST_MODIFIED_KEY. */
+    private static final String LAST_MODIFIED_KEY = "lastModified";
+
+    /**
+     * Layer details written to the cache.
+     */
+    private static class CachedLayer
+    {
+        /** The layer workspace. */
+        private String layerWorkspace;
+
+        /** The layer name. */
+        private String layerName;
+
+        /** The default style. */
+        private StyleWrapper style;
+    }
+
+    /**
+     * SLD body written to the cache.
+     */
+    public static class CachedStyle
+    {
+        /** The sld body, null until read from the style file. */
+        private String sld;
+
+        /** The ETag header. */
+        private String eTag;
+
+        /** The Last-Modified header. */
+        private String lastModified;
+
+        /** The validated flag, true once checked against GeoServer this session. */
+        private boolean validated = false;
+
+        /**
+         * Gets the sld body.
+         *
+         * @return the sld
+         */
+        public String getSld()
+        {
+            return sld;
+        }
+
+        /**
+         * Gets the ETag header.
+         *
+         * @return the ETag, null if not supplied
+         */
+        public String getETag()
+        {
+            return eTag;
+        }
+
+        /**
+         * Gets the Last-Modified header.
+         *
+         * @return the last modified, null if not supplied
+         */
+        public String getLastModified()
+        {
+            return lastModified;
+        }
+
+        /**
+         * Checks if the sld body has been checked against GeoServer since the cache was loaded.
+         *
+         * @return true, if validated
+         */
+        public boolean isValidated()
+        {
+            return validated;
+        }
+    }
+
+    /** The connection. */
+    private GeoServerConnection connection = null;
+
+    /** The folder holding this connection's cache. */
+    private File connectionFolder = null;
+
+    /** The catalogue file. */
+    private File cacheFile = null;
+
+    /** The folder holding the sld bodies. */
+    private File styleFolder = null;
+
+    /** The style map, null if the catalogue has not been read. */
+    private Map<String, List<StyleWrapper>> styleMap = null;
+
+    /** The layer map, null if the catalogue has not been read. */
+    private Map<String, List<CachedLayer>> layerMap = null;
+
+    /** The sld bodies keyed on workspace and style name. */
+    private Map<String, CachedStyle> styleBodyMap = new HashMap<String, CachedStyle>();
+
+    /** The dirty flag, true if the catalogue has changed since it was written. */
+    private boolean catalogueDirty = false;
+
+    /** The loaded flag. */
+    private boolean loaded = false;
+
+    /**
+     * Instantiates a new GeoServer catalogue cache.
+     *
+     * @param cacheFolder the cache folder
+     * @param connection the connection
+     */
+    public GeoServerCatalogueCache(File cacheFolder, GeoServerConnection connection)
+    {
+        this.connection = connection;
+        this.connectionFolder = new File(cacheFolder, createKey(connection));
+        this.cacheFile = new File(connectionFolder, CATALOGUE_FILENAME);
+        this.styleFolder = new File(connectionFolder, STYLE_FOLDER_NAME);
+    }
+
+    /**
+     * Gets the default cache folder, within the user's application data folder.
+     *
+     * @return the default cache folder
+     */
+    public static File getDefaultCacheFolder()
+    {
+        String appData = System.getenv("APPDATA");
+        File appDataFolder;
+        if(appData != null)
+        {
+            appDataFolder = new File(appData, "SLDEditor");
+        }
+        else
+        {
+            appDataFolder = new File(System.getProperty("user.home"), ".sldeditor");
+        }
+        return new File(appDataFolder, CACHE_FOLDER_NAME);
+    }
+
+    /**
+     * Creates the key identifying the GeoServer instance.
+     *
+     * @param connection the connection
+     * @return the key
+     */
+    private static String createKey(GeoServerConnection connection)
+    {
+        return createDigest(((connection.getUrl() == null) ? "" : connection.getUrl().toExternalForm()) +
+                "|" + ((connection.getUserName() == null) ? "" : connection.getUserName()));
+    }
+
+    /**
+     * Creates a digest of a string that can be used as a filename.
+     *
+     * @param key the key
+     * @return the digest
+     */
+    private static String createDigest(String key)
+    {
+        try
+        {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] hash = digest.digest(key.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder();
+            for(byte b : hash)
+            {
+                sb.append(String.format("%02x", b));
+            }
+            return sb.toString();
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            return Integer.toHexString(key.hashCode());
+        }
+    }
+
+    /**
+     * Gets the catalogue file.
+     *
+     * @return the cache file
+     */
+    public File getCacheFile()
+    {
+        return cacheFile;
+    }
+
+    /**
+     * Read the catalogue and sld headers if they have not already been read.
+     * <p>The sld bodies are read when first requested.
+     */
+    public synchronized void load()
+    {
+        if(loaded)
+        {
+            return;
+        }
+        loaded = true;
+
+        if(!cacheFile.exists())
+        {
+            return;
+        }
+
+        try
+        {
+            Properties properties = readProperties(cacheFile);
+            if(!CACHE_VERSION.equals(properties.getProperty(VERSION_KEY)))
+            {
+                // From an incompatible version, start again
+                clear();
+                return;
+            }
+            styleMap = readStyleMap(properties);
+            layerMap = readLayerMap(properties);
+            readStyleHeaders();
+        }
+        catch (IOException e)
+        {
+            clear();
+        }
+        catch (NumberFormatException e)
+        {
+            clear();
+        }
+    }
+
+    /**
+     * Read the styles from the catalogue properties.
+     *
+     * @param properties the properties
+     * @return the style map
+     */
+    private static Map<String, List<StyleWrapper>> readStyleMap(Properties properties)
+    {
+        Map<String, List<StyleWrapper>> map = new LinkedHashMap<String, List<StyleWrapper>>();
+        int groupCount = Integer.parseInt(properties.getProperty(STYLE_GROUP_KEY + COUNT_KEY, "0"));
+        for(int groupIndex = 0; groupIndex < groupCount; groupIndex ++)
+        {
+            String groupKey = STYLE_GROUP_KEY + "." + groupIndex;
+            List<StyleWrapper> styleList = new ArrayList<StyleWrapper>();
+            int count = Integer.parseInt(properties.getProperty(groupKey + COUNT_KEY, "0"));
+            for(int index = 0; index < count; index ++)
+            {
+                String key = groupKey + "." + index;
+                styleList.add(new StyleWrapper(properties.getProperty(key + WORKSPACE_KEY),
+                        properties.getProperty(key + NAME_KEY)));
+            }
+            map.put(properties.getProperty(groupKey + NAME_KEY), styleList);
+        }
+        return map;
+    }
+
+    /**
+     * Read the layers from the catalogue properties.
+     *
+     * @param properties the properties
+     * @return the layer map
+     */
+    private static Map<String, List<CachedLayer>> readLayerMap(Properties properties)
+    {
+        Map<String, List<CachedLayer>> map = new LinkedHashMap<String, List<CachedLayer>>();
+        int groupCount = Integer.parseInt(properties.getProperty(LAYER_GROUP_KEY + COUNT_KEY, "0"));
+        for(int groupIndex = 0; groupIndex < groupCount; groupIndex ++)
+        {
+            String groupKey = LAYER_GROUP_KEY + "." + groupIndex;
+            List<CachedLayer> layerList = new ArrayList<CachedLayer>();
+            int count = Integer.parseInt(properties.getProperty(groupKey + COUNT_KEY, "0"));
+            for(int index = 0; index < count; index ++)
+            {
+                String key = groupKey + "." + index;
+                CachedLayer cachedLayer = new CachedLayer();
+                cachedLayer.layerWorkspace = properties.getProperty(key + WORKSPACE_KEY);
+                cachedLayer.layerName = properties.getProperty(key + NAME_KEY);
+                String styleName = properties.getProperty(key + STYLE_NAME_KEY);
+                if(styleName != null)
+                {
+                    cachedLayer.style = new StyleWrapper(properties.getProperty(key + STYLE_WORKSPACE_KEY), styleName);
+                }
+                layerList.add(cachedLayer);
+            }
+            map.put(properties.getProperty(groupKey + NAME_KEY), layerList);
+        }
+        return map;
+    }
+
+    /**
+     * Read the headers of the cached sld bodies.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private void readStyleHeaders() throws IOException
+    {
+        File[] files = styleFolder.listFiles();
+        if(files == null)
+        {
+            return;
+        }
+
+        for(File file : files)
+        {
+            if(!file.getName().endsWith(PROPERTIES_FILE_EXTENSION))
+            {
+                continue;
+            }
+
+            Properties properties = readProperties(file);
+            String styleName = properties.getProperty(STYLE_FILE_NAME_KEY);
+            if(!CACHE_VERSION.equals(properties.getProperty(VERSION_KEY)) || (styleName == null))
+            {
+                continue;
+            }
+
+            StyleWrapper styleWrapper = new StyleWrapper(properties.getProperty(STYLE_FILE_WORKSPACE_KEY), styleName);
+            CachedStyle cachedStyle = new CachedStyle();
+            cachedStyle.eTag = properties.getProperty(ETAG_KEY);
+            cachedStyle.lastModified = properties.getProperty(LAST_MODIFIED_KEY);
+            styleBodyMap.put(createStyleKey(styleWrapper), cachedStyle);
+        }
+    }
+
+    /**
+     * Write the catalogue file if the styles or layers have changed.
+     * <p>The sld bodies are written as they are stored so are not written here.
+     */
+    public synchronized void save()
+    {
+        if(!catalogueDirty)
+        {
+            return;
+        }
+
+        Properties properties = new Properties();
+        properties.setProperty(VERSION_KEY, CACHE_VERSION);
+
+        if(styleMap != null)
+        {
+            int groupIndex = 0;
+            for(String workspaceName : styleMap.keySet())
+            {
+                String groupKey = STYLE_GROUP_KEY + "." + groupIndex;
+                setProperty(properties, groupKey + NAME_KEY, workspaceName);
+                List<StyleWrapper> styleList = styleMap.get(workspaceName);
+                properties.setProperty(groupKey + COUNT_KEY, String.valueOf(styleList.size()));
+                for(int index = 0; index < styleList.size(); index ++)
+                {
+                    String key = groupKey + "." + index;
+                    setProperty(properties, key + WORKSPACE_KEY, styleList.get(index).getWorkspace());
+                    setProperty(properties, key + NAME_KEY, styleList.get(index).getStyle());
+                }
+                groupIndex ++;
+            }
+            properties.setProperty(STYLE_GROUP_KEY + COUNT_KEY, String.valueOf(groupIndex));
+        }
+
+        if(layerMap != null)
+        {
+            int groupIndex = 0;
+            for(String workspaceName : layerMap.keySet())
+            {
+                String groupKey = LAYER_GROUP_KEY + "." + groupIndex;
+                setProperty(properties, groupKey + NAME_KEY, workspaceName);
+                List<CachedLayer> layerList = layerMap.get(workspaceName);
+                properties.setProperty(groupKey + COUNT_KEY, String.valueOf(layerList.size()));
+                for(int index = 0; index < layerList.size(); index ++)
+                {
+                    String key = groupKey + "." + index;
+                    CachedLayer cachedLayer = layerList.get(index);
+                    setProperty(properties, key + WORKSPACE_KEY, cachedLayer.layerWorkspace);
+                    setProperty(properties, key + NAME_KEY, cachedLayer.layerName);
+                    if(cachedLayer.style != null)
+                    {
+                        setProperty(properties, key + STYLE_WORKSPACE_KEY, cachedLayer.style.getWorkspace());
+                        setProperty(properties, key + STYLE_NAME_KEY, cachedLayer.style.getStyle());
+                    }
+                }
+                groupIndex ++;
+            }
+            properties.setProperty(LAYER_GROUP_KEY + COUNT_KEY, String.valueOf(groupIndex));
+        }
+
+        try
+        {
+            writeProperties(cacheFile, properties);
+            catalogueDirty = false;
+        }
+        catch (IOException e)
+        {
+            ConsoleManager.getInstance().exception(this, e);
+        }
+    }
+
+    /**
+     * Sets a property, null values are not written.
+     *
+     * @param properties the properties
+     * @param key the key
+     * @param value the value
+     */
+    private static void setProperty(Properties properties, String key, String value)
+    {
+        if(value != null)
+        {
+            properties.setProperty(key, value);
+        }
+    }
+
+    /**
+     * Read a properties file.
+     *
+     * @param file the file
+     * @return the properties
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private static Properties readProperties(File file) throws IOException
+    {
+        Properties properties = new Properties();
+        InputStream inputStream = new BufferedInputStream(new FileInputStream(file));
+        try
+        {
+            properties.load(inputStream);
+        }
+        catch (IllegalArgumentException e)
+        {
+            throw new IOException(e);
+        }
+        finally
+        {
+            inputStream.close();
+        }
+        return properties;
+    }
+
+    /**
+     * Write a properties file, replacing the existing file once written.
+     *
+     * @param file the file
+     * @param properties the properties
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private static void writeProperties(File file, Properties properties) throws IOException
+    {
+        File tmpFile = createTmpFile(file);
+        OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(tmpFile));
+        try
+        {
+            properties.store(outputStream, null);
+        }
+        finally
+        {
+            outputStream.close();
+        }
+        Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Creates the temporary file written before replacing a file, creating the folder if required.
+     *
+     * @param file the file
+     * @return the temporary file
+     */
+    private static File createTmpFile(File file)
+    {
+        File folder = file.getParentFile();
+        if((folder != null) && !folder.exists())
+        {
+            folder.mkdirs();
+        }
+        return new File(folder, file.getName() + TMP_FILE_EXTENSION);
+    }
+
+    /**
+     * Delete the cache folder and clear the cached data.
+     */
+    public synchronized void clear()
+    {
+        styleMap = null;
+        layerMap = null;
+        styleBodyMap.clear();
+        catalogueDirty = false;
+        deleteFolder(connectionFolder);
+    }
+
+    /**
+     * Delete a folder and its contents.
+     *
+     * @param folder the folder
+     */
+    private static void deleteFolder(File folder)
+    {
+        File[] files = folder.listFiles();
+        if(files != null)
+        {
+            for(File file : files)
+            {
+                if(file.isDirectory())
+                {
+                    deleteFolder(file);
+                }
+                else
+                {
+                    file.delete();
+                }
+            }
+        }
+        folder.delete();
+    }
+
+    /**
+     * Checks whether the styles and layers have been cached.
+     *
+     * @return true, if the catalogue has been cached
+     */
+    public synchronized boolean hasCatalogue()
+    {
+        return (styleMap != null) && (layerMap != null);
+    }
+
+    /**
+     * Gets a copy of the cached style map.
+     *
+     * @return the style map
+     */
+    public synchronized Map<String, List<StyleWrapper>> getStyleMap()
+    {
+        Map<String, List<StyleWrapper>> copyStyleMap = new LinkedHashMap<String, List<StyleWrapper>>();
+
+        if(styleMap != null)
+        {
+            for(String workspaceName : styleMap.keySet())
+            {
+                List<StyleWrapper> styleList = new ArrayList<StyleWrapper>();
+                for(StyleWrapper styleWrapper : styleMap.get(workspaceName))
+                {
+                    styleList.add(new StyleWrapper(styleWrapper.getWorkspace(), styleWrapper.getStyle()));
+                }
+                copyStyleMap.put(workspaceName, styleList);
+            }
+        }
+        return copyStyleMap;
+    }
+
+    /**
+     * Gets the cached layer map, the layers refer to the cache's connection.
+     *
+     * @return the layer map
+     */
+    public synchronized Map<String, List<GeoServerLayer>> getLayerMap()
+    {
+        Map<String, List<GeoServerLayer>> copyLayerMap = new LinkedHashMap<String, List<GeoServerLayer>>();
+
+        if(layerMap != null)
+        {
+            for(String workspaceName : layerMap.keySet())
+            {
+                List<GeoServerLayer> layerList = new ArrayList<GeoServerLayer>();
+                for(CachedLayer cachedLayer : layerMap.get(workspaceName))
+                {
+                    GeoServerLayer layer = new GeoServerLayer();
+                    layer.setLayerWorkspace(cachedLayer.layerWorkspace);
+                    layer.setLayerName(cachedLayer.layerName);
+                    layer.setConnection(connection);
+                    if(cachedLayer.style != null)
+                    {
+                        layer.setStyle(new StyleWrapper(cachedLayer.style.getWorkspace(), cachedLayer.style.getStyle()));
+                    }
+                    layerList.add(layer);
+                }
+                copyLayerMap.put(workspaceName, layerList);
+            }
+        }
+        return copyLayerMap;
+    }
+
+    /**
+     * Update the cached styles and layers, the catalogue file is written by {@link #save()}.
+     * <p>SLD bodies for styles that no longer exist are removed.
+     *
+     * @param newStyleMap the style map
+     * @param newLayerMap the layer map
+     * @return true, if the styles or layers differ from those cached
+     */
+    public synchronized boolean updateCatalogue(Map<String, List<StyleWrapper>> newStyleMap,
+            Map<String, List<GeoServerLayer>> newLayerMap)
+    {
+        Map<String, List<StyleWrapper>> copyStyleMap = new LinkedHashMap<String, List<StyleWrapper>>();
+        for(String workspaceName : newStyleMap.keySet())
+        {
+            List<StyleWrapper> styleList = new ArrayList<StyleWrapper>();
+            for(StyleWrapper styleWrapper : newStyleMap.get(workspaceName))
+            {
+                styleList.add(new StyleWrapper(styleWrapper.getWorkspace(), styleWrapper.getStyle()));
+            }
+            copyStyleMap.put(workspaceName, styleList);
+        }
+
+        Map<String, List<CachedLayer>> copyLayerMap = new LinkedHashMap<String, List<CachedLayer>>();
+        for(String workspaceName : newLayerMap.keySet())
+        {
+            List<CachedLayer> layerList = new ArrayList<CachedLayer>();
+            for(GeoServerLayer layer : newLayerMap.get(workspaceName))
+            {
+                CachedLayer cachedLayer = new CachedLayer();
+                cachedLayer.layerWorkspace = layer.getLayerWorkspace();
+                cachedLayer.layerName = layer.getLayerName();
+                StyleWrapper style = layer.getStyle();
+                if(style != null)
+                {
+                    cachedLayer.style = new StyleWrapper(style.getWorkspace(), style.getStyle());
+                }
+                layerList.add(cachedLayer);
+            }
+            copyLayerMap.put(workspaceName, layerList);
+        }
+
+        boolean changed = !hasCatalogue() ||
+                !getStyleSignature(styleMap).equals(getStyleSignature(copyStyleMap)) ||
+                !getLayerSignature(layerMap).equals(getLayerSignature(copyLayerMap));
+
+        styleMap = copyStyleMap;
+        layerMap = copyLayerMap;
+
+        if(changed)
+        {
+            catalogueDirty = true;
+
+            // Remove sld bodies for styles that have been deleted
+            List<String> existingKeyList = new ArrayList<String>();
+            for(List<StyleWrapper> styleList : copyStyleMap.values())
+            {
+                for(StyleWrapper styleWrapper : styleList)
+                {
+                    existingKeyList.add(createStyleKey(styleWrapper));
+                }
+            }
+
+            for(String styleKey : new ArrayList<String>(styleBodyMap.keySet()))
+            {
+                if(!existingKeyList.contains(styleKey))
+                {
+                    removeStyleFiles(styleKey);
+                }
+            }
+        }
+
+        return changed;
+    }
+
+    /**
+     * Update the cached styles of a single workspace, the catalogue file is written by {@link #save()}.
+     *
+     * @param workspaceName the workspace name
+     * @param styleList the style list
+     */
+    public synchronized void updateWorkspaceStyles(String workspaceName, List<StyleWrapper> styleList)
+    {
+        if(styleMap != null)
+        {
+            List<StyleWrapper> newStyleList = new ArrayList<StyleWrapper>();
+            for(StyleWrapper styleWrapper : styleList)
+            {
+                newStyleList.add(new StyleWrapper(styleWrapper.getWorkspace(), styleWrapper.getStyle()));
+            }
+            styleMap.put(workspaceName, newStyleList);
+            catalogueDirty = true;
+        }
+    }
+
+    /**
+     * Gets the signature of the style map used to detect changes.
+     *
+     * @param styleMap the style map
+     * @return the signature
+     */
+    private static List<String> getStyleSignature(Map<String, List<StyleWrapper>> styleMap)
+    {
+        List<String> signature = new ArrayList<String>();
+        if(styleMap != null)
+        {
+            for(String workspaceName : styleMap.keySet())
+            {
+                signature.add(workspaceName);
+                for(StyleWrapper styleWrapper : styleMap.get(workspaceName))
+                {
+                    signature.add(createStyleKey(styleWrapper));
+                }
+            }
+        }
+        return signature;
+    }
+
+    /**
+     * Gets the signature of the layer map used to detect changes.
+     *
+     * @param layerMap the layer map
+     * @return the signature
+     */
+    private static List<String> getLayerSignature(Map<String, List<CachedLayer>> layerMap)
+    {
+        List<String> signature = new ArrayList<String>();
+        if(layerMap != null)
+        {
+            for(String workspaceName : layerMap.keySet())
+            {
+                signature.add(workspaceName);
+                for(CachedLayer layer : layerMap.get(workspaceName))
+                {
+                    signature.add(layer.layerWorkspace + STYLE_KEY_SEPARATOR + layer.layerName + "|" +
+                            ((layer.style == null) ? "" : createStyleKey(layer.style)));
+                }
+            }
+        }
+        return signature;
+    }
+
+    /**
+     * Creates the key for a style.
+     *
+     * @param styleWrapper the style wrapper
+     * @return the key
+     */
+    private static String createStyleKey(StyleWrapper styleWrapper)
+    {
+        return styleWrapper.getWorkspace() + STYLE_KEY_SEPARATOR + styleWrapper.getStyle();
+    }
+
+    /**
+     * Gets the file an sld body is written to.
+     *
+     * @param styleKey the style key
+     * @param extension the file extension
+     * @return the file
+     */
+    private File getStyleFile(String styleKey, String extension)
+    {
+        return new File(styleFolder, createDigest(styleKey) + extension);
+    }
+
+    /**
+     * Gets the cached sld body, the body is read from its file when first requested.
+     *
+     * @param styleWrapper the style wrapper
+     * @return the cached style, null if not cached
+     */
+    public synchronized CachedStyle getStyle(StyleWrapper styleWrapper)
+    {
+        if(styleWrapper == null)
+        {
+            return null;
+        }
+
+        String styleKey = createStyleKey(styleWrapper);
+        CachedStyle cachedStyle = styleBodyMap.get(styleKey);
+        if((cachedStyle != null) && (cachedStyle.sld == null))
+        {
+            try
+            {
+                cachedStyle.sld = new String(Files.readAllBytes(getStyleFile(styleKey, SLD_FILE_EXTENSION).toPath()),
+                        StandardCharsets.UTF_8);
+            }
+            catch (IOException e)
+            {
+                removeStyleFiles(styleKey);
+                return null;
+            }
+        }
+        return cachedStyle;
+    }
+
+    /**
+     * Store an sld body, the body and headers are written to the style's own file.
+     *
+     * @param styleWrapper the style wrapper
+     * @param sld the sld body
+     * @param eTag the ETag header, can be null
+     * @param lastModified the Last-Modified header, can be null
+     */
+    public synchronized void putStyle(StyleWrapper styleWrapper, String sld, String eTag, String lastModified)
+    {
+        if((styleWrapper == null) || (sld == null))
+        {
+            return;
+        }
+
+        CachedStyle cachedStyle = new CachedStyle();
+        cachedStyle.sld = sld;
+        cachedStyle.eTag = eTag;
+        cachedStyle.lastModified = lastModified;
+        cachedStyle.validated = true;
+
+        String styleKey = createStyleKey(styleWrapper);
+        styleBodyMap.put(styleKey, cachedStyle);
+
+        Properties properties = new Properties();
+        properties.setProperty(VERSION_KEY, CACHE_VERSION);
+        setProperty(properties, STYLE_FILE_WORKSPACE_KEY, styleWrapper.getWorkspace());
+        setProperty(properties, STYLE_FILE_NAME_KEY, styleWrapper.getStyle());
+        setProperty(properties, ETAG_KEY, eTag);
+        setProperty(properties, LAST_MODIFIED_KEY, lastModified);
+
+        try
+        {
+            File sldFile = getStyleFile(styleKey, SLD_FILE_EXTENSION);
+            File tmpFile = createTmpFile(sldFile);
+            Files.write(tmpFile.toPath(), sld.getBytes(StandardCharsets.UTF_8));
+            Files.move(tmpFile.toPath(), sldFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+            writeProperties(getStyleFile(styleKey, PROPERTIES_FILE_EXTENSION), properties);
+        }
+        catch (IOException e)
+        {
+            ConsoleManager.getInstance().exception(this, e);
+        }
+    }
+
+    /**
+     * Mark a cached sld body as checked against GeoServer.
+     *
+     * @param styleWrapper the style wrapper
+     */
+    public synchronized void setValidated(StyleWrapper styleWrapper)
+    {
+        if(styleWrapper != null)
+        {
+            CachedStyle cachedStyle = styleBodyMap.get(createStyleKey(styleWrapper));
+            if(cachedStyle != null)
+            {
+                cachedStyle.validated = true;
+            }
+        }
+    }
+
+    /**
+     * Remove an sld body and its file.
+     *
+     * @param styleWrapper the style wrapper
+     */
+    public synchronized void removeStyle(StyleWrapper styleWrapper)
+    {
+        if(styleWrapper != null)
+        {
+            removeStyleFiles(createStyleKey(styleWrapper));
+        }
+    }
+
+    /**
+     * Remove an sld body and delete its files.
+     *
+     * @param styleKey the style key
+     */
+    private void removeStyleFiles(String styleKey)
+    {
+        if(styleBodyMap.remove(styleKey) != null)
+        {
+            getStyleFile(styleKey, PROPERTIES_FILE_EXTENSION).delete();
+            getStyleFile(styleKey, SLD_FILE_EXTENSION).delete();
+        }
+    }
+
+    /**
+     * Gets the styles that have cached sld bodies.
+     *
+     * @return the style list
+     */
+    public synchronized List<StyleWrapper> getCachedStyleList()
+    {
+        List<StyleWrapper> styleList = new ArrayList<StyleWrapper>();
+        if(styleMap != null)
+        {
+            for(List<StyleWrapper> workspaceStyleList : styleMap.values())
+            {
+                for(StyleWrapper styleWrapper : workspaceStyleList)
+                {
+                    if(styleBodyMap.containsKey(createStyleKey(styleWrapper)))
+                    {
+                        styleList.add(new StyleWrapper(styleWrapper.getWorkspace(), styleWrapper.getStyle()));
+                    }
+                }
+            }
+        }
+        return styleList;
+    }
+}
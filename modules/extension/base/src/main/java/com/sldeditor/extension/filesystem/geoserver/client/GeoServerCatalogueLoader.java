@@ -0,0 +1,769 @@
+/*
+ * SLD Editor - The Open Source Java SLD Editor
+ *
+ * Copyright (C) 2016, SCISYS UK Limited
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sldeditor.extension.filesystem.geoserver.client;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import com.sldeditor.common.console.ConsoleManager;
+import com.sldeditor.common.data.GeoServerConnection;
+import com.sldeditor.common.data.GeoServerLayer;
+import com.sldeditor.common.data.StyleWrapper;
+import com.sldeditor.common.property.PropertyManagerFactory;
+import com.sldeditor.common.utils.DaemonThreadFactory;
+import com.sldeditor.extension.filesystem.geoserver.GeoServerReadProgressInterface;
+
+/**
+ * Loads the layer catalogue of a GeoServer instance using the REST interface.
+ * <p>The workspace a layer belongs to is determined from one listing call per
+ * workspace rather than probing every workspace for every layer. If the listings
+ * include the default style of a layer it is used directly, only the layers whose
+ * style is not listed are read individually using a bounded pool of HTTP workers.
+ * <p>Results are passed to the GeoServerReadProgressInterface as each workspace
+ * completes and the load can be cancelled at any time. A loader is used for a single load.
+ *
+ * @author Robert Ward (SCISYS)
+ */
+public class GeoServerCatalogueLoader
+{
+    /** The Constant DEFAULT_MAX_CONNECTIONS. */
+    public static final int DEFAULT_MAX_CONNECTIONS = 4;
+
+    /** The Constant MAX_CONNECTIONS_FIELD, the property holding the maximum number of concurrent connections. */
+    private static final String MAX_CONNECTIONS_FIELD = "GeoServer.maxConnections";
+
+    /** The Constant POLL_INTERVAL in milliseconds, how often waiting tasks check for cancellation. */
+    private static final long POLL_INTERVAL = 100L;
+
+    /** The Constant WORKSPACE_SEPARATOR. */
+    private static final String WORKSPACE_SEPARATOR = ":";
+
+    /** The pattern to extract the workspace from a resource link. */
+    private static final Pattern WORKSPACE_LINK_PATTERN = Pattern.compile("/workspaces/([^/]+)/");
+
+    /** The connection. */
+    private GeoServerConnection connection = null;
+
+    /** The default workspace name. */
+    private String defaultWorkspaceName = null;
+
+    /** The parent object. */
+    private GeoServerReadProgressInterface parentObj = null;
+
+    /** The maximum number of concurrent connections. */
+    private int maxConnections = DEFAULT_MAX_CONNECTIONS;
+
+    /** The executor. */
+    private volatile ExecutorService executor = null;
+
+    /** The executor running a load started in the background. */
+    private volatile ExecutorService startExecutor = null;
+
+    /** The thread factory naming the loader threads. */
+    private final ThreadFactory threadFactory = new DaemonThreadFactory("GeoServerCatalogueLoader");
+
+    /** The cancelled flag. */
+    private volatile boolean cancelled = false;
+
+    /** The REST request. */
+    private GeoServerRESTRequest request = null;
+
+    /** The elapsed time of the last load in milliseconds. */
+    private long elapsedTime = 0;
+
+    /**
+     * The details of a layer read from GeoServer.
+     */
+    private static class LayerDetails
+    {
+        /** The workspace the layer belongs to, null if not known. */
+        private String workspace = null;
+
+        /** The layer name without workspace prefix. */
+        private String name = null;
+
+        /** The index within the workspace. */
+        private int index = 0;
+
+        /** The default style name from the layer listing, null if not listed. */
+        private String listedStyleName = null;
+
+        /** The default style workspace from the layer listing, null if not listed. */
+        private String listedStyleWorkspace = null;
+
+        /** The layer. */
+        private GeoServerLayer layer = null;
+    }
+
+    /**
+     * An entry in a layer listing.
+     */
+    private static class ListingEntry
+    {
+        /** The layer name. */
+        private String name = null;
+
+        /** The default style name, null if not listed. */
+        private String styleName = null;
+
+        /** The default style workspace, null if not listed. */
+        private String styleWorkspace = null;
+    }
+
+    /**
+     * Instantiates a new GeoServer catalogue loader.
+     *
+     * @param connection the connection
+     * @param defaultWorkspaceName the default workspace name
+     * @param parentObj the object to report progress to, can be null
+     * @param maxConnections the maximum number of concurrent connections
+     */
+    public GeoServerCatalogueLoader(GeoServerConnection connection,
+            String defaultWorkspaceName,
+            GeoServerReadProgressInterface parentObj,
+            int maxConnections)
+    {
+        this.connection = connection;
+        this.defaultWorkspaceName = defaultWorkspaceName;
+        this.parentObj = parentObj;
+        this.maxConnections = Math.max(1, maxConnections);
+        this.request = new GeoServerRESTRequest(connection);
+    }
+
+    /**
+     * Load the layers in a background thread.
+     *
+     * @param workspaceList the workspace list
+     */
+    public void start(final List<String> workspaceList)
+    {
+        ExecutorService loadExecutor = Executors.newSingleThreadExecutor(threadFactory);
+        startExecutor = loadExecutor;
+        loadExecutor.submit(new Runnable() {
+            public void run() {
+                loadLayers(workspaceList);
+            }
+        });
+        loadExecutor.shutdown();
+    }
+
+    /**
+     * Gets the configured maximum number of concurrent connections to a GeoServer instance.
+     *
+     * @return the maximum number of connections
+     */
+    public static int getConfiguredMaxConnections()
+    {
+        int maxConnections = (int) PropertyManagerFactory.getInstance().getDoubleValue(MAX_CONNECTIONS_FIELD, DEFAULT_MAX_CONNECTIONS);
+
+        return Math.max(1, maxConnections);
+    }
+
+    /**
+     * Load the layers, blocks until complete or cancelled.
+     *
+     * @param workspaceList the workspace list
+     * @return the layer map keyed by workspace name, null if cancelled
+     */
+    public Map<String, List<GeoServerLayer>> loadLayers(List<String> workspaceList)
+    {
+        long startTime = System.currentTimeMillis();
+        request.resetRequestCount();
+
+        ExecutorService pool = Executors.newFixedThreadPool(maxConnections, threadFactory);
+        executor = pool;
+
+        Map<String, List<GeoServerLayer>> layerMap = null;
+        try
+        {
+            if(!cancelled)
+            {
+                layerMap = internal_loadLayers(pool, (workspaceList == null) ? new ArrayList<String>() : workspaceList);
+            }
+        }
+        catch (InterruptedException e)
+        {
+            // Cancelled
+            layerMap = null;
+        }
+        finally
+        {
+            pool.shutdownNow();
+            elapsedTime = System.currentTimeMillis() - startTime;
+        }
+
+        if(cancelled || (layerMap == null))
+        {
+            return null;
+        }
+
+        ConsoleManager.getInstance().information(this,
+                String.format("%s : %d layers, %d requests, %d ms",
+                        connection.getConnectionName(), getLayerCount(layerMap), request.getRequestCount(), elapsedTime));
+
+        if(parentObj != null)
+        {
+            synchronized(parentObj)
+            {
+                parentObj.readLayersComplete(connection, layerMap);
+            }
+        }
+        return layerMap;
+    }
+
+    /**
+     * Read the layer lists and layer details.
+     *
+     * @param pool the pool
+     * @param workspaceList the workspace list
+     * @return the layer map
+     * @throws InterruptedException the interrupted exception
+     */
+    private Map<String, List<GeoServerLayer>> internal_loadLayers(ExecutorService pool,
+            List<String> workspaceList) throws InterruptedException
+    {
+        // Read the list of all layers
+        List<ListingEntry> allLayerList = readListing("layers.xml");
+        if(allLayerList == null)
+        {
+            allLayerList = new ArrayList<ListingEntry>();
+        }
+
+        // Read the layer names in each workspace concurrently
+        Map<String, Future<List<ListingEntry>>> workspaceFutureMap = new LinkedHashMap<String, Future<List<ListingEntry>>>();
+        for(final String workspaceName : workspaceList)
+        {
+            if(workspaceName != null)
+            {
+                workspaceFutureMap.put(workspaceName, pool.submit(new Callable<List<ListingEntry>>() {
+                    @Override
+                    public List<ListingEntry> call() {
+                        return readListing("workspaces/" + GeoServerRESTRequest.encode(workspaceName) + "/layers.xml");
+                    }
+                }));
+            }
+        }
+
+        Map<String, String> layerWorkspaceMap = new HashMap<String, String>();
+        Map<String, ListingEntry> workspaceEntryMap = new HashMap<String, ListingEntry>();
+        for(String workspaceName : workspaceFutureMap.keySet())
+        {
+            List<ListingEntry> workspaceLayerList = getResult(workspaceFutureMap.get(workspaceName));
+            if(workspaceLayerList != null)
+            {
+                for(ListingEntry entry : workspaceLayerList)
+                {
+                    layerWorkspaceMap.put(entry.name, workspaceName);
+                    workspaceEntryMap.put(workspaceName + WORKSPACE_SEPARATOR + entry.name, entry);
+                }
+            }
+        }
+
+        // Work out which workspace each layer is in and how many layers are in each workspace
+        Map<String, Integer> workspaceLayerCountMap = new HashMap<String, Integer>();
+        List<LayerDetails> layerDetailsList = new ArrayList<LayerDetails>();
+        for(ListingEntry layerEntry : allLayerList)
+        {
+            String fullLayerName = layerEntry.name;
+            LayerDetails details = new LayerDetails();
+            int separator = fullLayerName.indexOf(WORKSPACE_SEPARATOR);
+            if(separator > 0)
+            {
+                details.workspace = fullLayerName.substring(0, separator);
+                details.name = fullLayerName.substring(separator + 1);
+            }
+            else
+            {
+                details.name = fullLayerName;
+                details.workspace = layerWorkspaceMap.get(fullLayerName);
+            }
+
+            // Use the default style from the listings if they include it
+            ListingEntry styleEntry = (details.workspace == null) ? null : workspaceEntryMap.get(details.workspace + WORKSPACE_SEPARATOR + details.name);
+            if((styleEntry == null) || (styleEntry.styleName == null))
+            {
+                styleEntry = layerEntry;
+            }
+            details.listedStyleName = styleEntry.styleName;
+            details.listedStyleWorkspace = styleEntry.styleWorkspace;
+
+            if(details.workspace != null)
+            {
+                Integer count = workspaceLayerCountMap.get(details.workspace);
+                details.index = (count == null) ? 0 : count.intValue();
+                workspaceLayerCountMap.put(details.workspace, details.index + 1);
+            }
+            layerDetailsList.add(details);
+        }
+
+        // Read the layer details concurrently
+        CompletionService<LayerDetails> completionService = new ExecutorCompletionService<LayerDetails>(pool);
+        for(final LayerDetails details : layerDetailsList)
+        {
+            completionService.submit(new Callable<LayerDetails>() {
+                @Override
+                public LayerDetails call() {
+                    readLayer(details);
+                    return details;
+                }
+            });
+        }
+
+        Map<String, GeoServerLayer[]> workspaceLayerMap = new HashMap<String, GeoServerLayer[]>();
+        Map<String, Integer> workspaceRemainingMap = new HashMap<String, Integer>(workspaceLayerCountMap);
+        List<GeoServerLayer> unknownWorkspaceLayerList = new ArrayList<GeoServerLayer>();
+
+        int total = layerDetailsList.size();
+        for(int count = 1; count <= total; count ++)
+        {
+            if(cancelled)
+            {
+                throw new InterruptedException();
+            }
+
+            Future<LayerDetails> future = null;
+            while(future == null)
+            {
+                if(cancelled)
+                {
+                    throw new InterruptedException();
+                }
+                future = completionService.poll(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+            }
+
+            LayerDetails details = getResult(future);
+            if(details == null)
+            {
+                throw new InterruptedException();
+            }
+
+            if(details.layer != null)
+            {
+                if(workspaceRemainingMap.containsKey(details.workspace))
+                {
+                    GeoServerLayer[] layerArray = workspaceLayerMap.get(details.workspace);
+                    if(layerArray == null)
+                    {
+                        layerArray = new GeoServerLayer[workspaceLayerCountMap.get(details.workspace)];
+                        workspaceLayerMap.put(details.workspace, layerArray);
+                    }
+                    layerArray[details.index] = details.layer;
+                }
+                else
+                {
+                    unknownWorkspaceLayerList.add(details.layer);
+                }
+            }
+
+            if(workspaceRemainingMap.containsKey(details.workspace))
+            {
+                int remaining = workspaceRemainingMap.get(details.workspace) - 1;
+                workspaceRemainingMap.put(details.workspace, remaining);
+
+                if(remaining == 0)
+                {
+                    reportWorkspace(details.workspace, workspaceLayerMap.get(details.workspace));
+                }
+            }
+
+            if(parentObj != null)
+            {
+                synchronized(parentObj)
+                {
+                    parentObj.readLayersProgress(connection, count, total);
+                }
+            }
+        }
+
+        return createLayerMap(workspaceList, workspaceLayerMap, unknownWorkspaceLayerList);
+    }
+
+    /**
+     * Report the layers of a workspace that has been read.
+     *
+     * @param workspaceName the workspace name
+     * @param layerArray the layer array
+     */
+    private void reportWorkspace(String workspaceName, GeoServerLayer[] layerArray)
+    {
+        if(parentObj != null)
+        {
+            synchronized(parentObj)
+            {
+                parentObj.readLayersPartial(connection, workspaceName, toList(layerArray));
+            }
+        }
+    }
+
+    /**
+     * Creates the layer map, workspaces are in the order supplied with
+     * the default workspace last.
+     *
+     * @param workspaceList the workspace list
+     * @param workspaceLayerMap the workspace layer map
+     * @param otherLayerList the layers not found in a workspace
+     * @return the layer map
+     */
+    private Map<String, List<GeoServerLayer>> createLayerMap(List<String> workspaceList,
+            Map<String, GeoServerLayer[]> workspaceLayerMap,
+            List<GeoServerLayer> otherLayerList)
+    {
+        Map<String, List<GeoServerLayer>> layerMap = new LinkedHashMap<String, List<GeoServerLayer>>();
+
+        for(String workspaceName : workspaceList)
+        {
+            GeoServerLayer[] layerArray = workspaceLayerMap.remove(workspaceName);
+            if(layerArray != null)
+            {
+                layerMap.put(workspaceName, toList(layerArray));
+            }
+        }
+
+        // Workspaces not in the supplied list
+        for(String workspaceName : workspaceLayerMap.keySet())
+        {
+            layerMap.put(workspaceName, toList(workspaceLayerMap.get(workspaceName)));
+        }
+
+        if(!otherLayerList.isEmpty())
+        {
+            for(GeoServerLayer layer : otherLayerList)
+            {
+                layer.setLayerWorkspace(defaultWorkspaceName);
+            }
+            layerMap.put(defaultWorkspaceName, otherLayerList);
+        }
+        return layerMap;
+    }
+
+    /**
+     * Read the details of a single layer.
+     *
+     * @param details the layer details
+     */
+    private void readLayer(LayerDetails details)
+    {
+        if(cancelled)
+        {
+            return;
+        }
+
+        if(details.listedStyleName != null)
+        {
+            createLayer(details, details.listedStyleName, details.listedStyleWorkspace);
+            return;
+        }
+
+        String layerPath = (details.workspace == null) ? GeoServerRESTRequest.encode(details.name) :
+            GeoServerRESTRequest.encode(details.workspace) + WORKSPACE_SEPARATOR + GeoServerRESTRequest.encode(details.name);
+
+        Document document = readDocument("layers/" + layerPath + ".xml");
+        if(document == null)
+        {
+            return;
+        }
+
+        Element layerElement = document.getDocumentElement();
+
+        // Layers not found in a workspace listing, e.g. older versions of
+        // GeoServer, take the workspace from the resource
+        if(details.workspace == null)
+        {
+            Element resourceElement = getChildElement(layerElement, "resource");
+            String resourceName = getChildText(resourceElement, "name");
+            if((resourceName != null) && resourceName.contains(WORKSPACE_SEPARATOR))
+            {
+                details.workspace = resourceName.substring(0, resourceName.indexOf(WORKSPACE_SEPARATOR));
+            }
+            else
+            {
+                Element linkElement = getChildElement(resourceElement, "atom:link");
+                if(linkElement != null)
+                {
+                    Matcher matcher = WORKSPACE_LINK_PATTERN.matcher(linkElement.getAttribute("href"));
+                    if(matcher.find())
+                    {
+                        details.workspace = matcher.group(1);
+                    }
+                }
+            }
+        }
+
+        Element defaultStyleElement = getChildElement(layerElement, "defaultStyle");
+
+        createLayer(details, getChildText(defaultStyleElement, "name"), getChildText(defaultStyleElement, "workspace"));
+    }
+
+    /**
+     * Creates the layer once its default style is known.
+     *
+     * @param details the layer details
+     * @param styleName the default style name
+     * @param styleWorkspace the default style workspace, can be null
+     */
+    private void createLayer(LayerDetails details, String styleName, String styleWorkspace)
+    {
+        GeoServerLayer geoServerlayer = new GeoServerLayer();
+        geoServerlayer.setLayerWorkspace((details.workspace == null) ? defaultWorkspaceName : details.workspace);
+        geoServerlayer.setLayerName(details.name);
+        geoServerlayer.setConnection(connection);
+
+        if((styleName != null) && (styleWorkspace == null) && styleName.contains(WORKSPACE_SEPARATOR))
+        {
+            styleWorkspace = styleName.substring(0, styleName.indexOf(WORKSPACE_SEPARATOR));
+            styleName = styleName.substring(styleName.indexOf(WORKSPACE_SEPARATOR) + 1);
+        }
+
+        StyleWrapper styleWrapper = new StyleWrapper();
+        styleWrapper.setStyle(styleName);
+        styleWrapper.setWorkspace((styleWorkspace == null) ? defaultWorkspaceName : styleWorkspace);
+
+        geoServerlayer.setStyle(styleWrapper);
+
+        details.layer = geoServerlayer;
+    }
+
+    /**
+     * Read the entries of a REST layer listing, including the default style if listed.
+     *
+     * @param path the path relative to the REST end point
+     * @return the entry list, null if the request failed
+     */
+    private List<ListingEntry> readListing(String path)
+    {
+        Document document = readDocument(path);
+        if(document == null)
+        {
+            return null;
+        }
+
+        List<ListingEntry> entryList = new ArrayList<ListingEntry>();
+        for(Node child = document.getDocumentElement().getFirstChild(); child != null; child = child.getNextSibling())
+        {
+            if((child.getNodeType() == Node.ELEMENT_NODE) && "layer".equals(child.getNodeName()))
+            {
+                ListingEntry entry = new ListingEntry();
+                entry.name = getChildText((Element) child, "name");
+
+                if(entry.name != null)
+                {
+                    Element defaultStyleElement = getChildElement((Element) child, "defaultStyle");
+                    entry.styleName = getChildText(defaultStyleElement, "name");
+                    entry.styleWorkspace = getChildText(defaultStyleElement, "workspace");
+                    entryList.add(entry);
+                }
+            }
+        }
+        return entryList;
+    }
+
+    /**
+     * Perform a GET request and parse the response.
+     *
+     * @param path the path relative to the REST end point
+     * @return the document, null if the request failed or the load is cancelled
+     */
+    private Document readDocument(String path)
+    {
+        if(cancelled)
+        {
+            return null;
+        }
+        return request.getDocument(path);
+    }
+
+    /**
+     * Gets the first child element with the given name.
+     *
+     * @param parent the parent
+     * @param elementName the element name
+     * @return the child element, null if not found
+     */
+    private static Element getChildElement(Element parent, String elementName)
+    {
+        if(parent != null)
+        {
+            for(Node child = parent.getFirstChild(); child != null; child = child.getNextSibling())
+            {
+                if((child.getNodeType() == Node.ELEMENT_NODE) && elementName.equals(child.getNodeName()))
+                {
+                    return (Element) child;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets the text of the first child element with the given name.
+     *
+     * @param parent the parent
+     * @param elementName the element name
+     * @return the text, null if not found
+     */
+    private static String getChildText(Element parent, String elementName)
+    {
+        Element element = getChildElement(parent, elementName);
+        if(element != null)
+        {
+            String text = element.getTextContent().trim();
+            if(!text.isEmpty())
+            {
+                return text;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets the result of a task, waits until the task completes or the load is cancelled.
+     *
+     * @param <T> the generic type
+     * @param future the future
+     * @return the result, null if the task failed
+     * @throws InterruptedException thrown if the load is cancelled
+     */
+    private <T> T getResult(Future<T> future) throws InterruptedException
+    {
+        while(!cancelled)
+        {
+            try
+            {
+                return future.get(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+            }
+            catch (TimeoutException e)
+            {
+                // Check whether cancelled and wait again
+            }
+            catch (ExecutionException e)
+            {
+                ConsoleManager.getInstance().exception(this, e);
+                return null;
+            }
+        }
+        throw new InterruptedException();
+    }
+
+    /**
+     * Convert a layer array to a list ignoring layers that could not be read.
+     *
+     * @param layerArray the layer array
+     * @return the list
+     */
+    private static List<GeoServerLayer> toList(GeoServerLayer[] layerArray)
+    {
+        List<GeoServerLayer> layerList = new ArrayList<GeoServerLayer>();
+        if(layerArray != null)
+        {
+            for(GeoServerLayer layer : layerArray)
+            {
+                if(layer != null)
+                {
+                    layerList.add(layer);
+                }
+            }
+        }
+        return layerList;
+    }
+
+    /**
+     * Gets the number of layers in a layer map.
+     *
+     * @param layerMap the layer map
+     * @return the layer count
+     */
+    private static int getLayerCount(Map<String, List<GeoServerLayer>> layerMap)
+    {
+        int count = 0;
+        for(List<GeoServerLayer> layerList : layerMap.values())
+        {
+            count += layerList.size();
+        }
+        return count;
+    }
+
+    /**
+     * Cancel the load, requests in progress are abandoned.
+     */
+    public void cancel()
+    {
+        cancelled = true;
+
+        ExecutorService pool = executor;
+        if(pool != null)
+        {
+            pool.shutdownNow();
+        }
+
+        ExecutorService loadExecutor = startExecutor;
+        if(loadExecutor != null)
+        {
+            loadExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Checks if the load has been cancelled.
+     *
+     * @return true, if cancelled
+     */
+    public boolean isCancelled()
+    {
+        return cancelled;
+    }
+
+    /**
+     * Gets the number of REST calls made by the last load.
+     *
+     * @return the request count
+     */
+    public int getRequestCount()
+    {
+        return request.getRequestCount();
+    }
+
+    /**
+     * Gets the wall clock time taken by the last load.
+     *
+     * @return the elapsed time in milliseconds
+     */
+    public long getElapsedTime()
+    {
+        return elapsedTime;
+    }
+}
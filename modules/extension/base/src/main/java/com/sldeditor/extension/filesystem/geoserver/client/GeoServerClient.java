@@ -18,13 +18,18 @@
  */
 package com.sldeditor.extension.filesystem.geoserver.client;
 
+import java.io.File;
 import java.io.Serializable;
+import java.net.HttpURLConnection;
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.regex.Pattern;
 
+import com.sldeditor.common.SLDDataInterface;
 import com.sldeditor.common.console.ConsoleManager;
 import com.sldeditor.common.data.GeoServerConnection;
 import com.sldeditor.common.data.GeoServerLayer;
@@ -34,10 +39,7 @@ import com.sldeditor.extension.filesystem.geoserver.GeoServerReadProgressInterfa
 import it.geosolutions.geoserver.rest.GeoServerRESTManager;
 import it.geosolutions.geoserver.rest.GeoServerRESTPublisher;
 import it.geosolutions.geoserver.rest.GeoServerRESTReader;
-import it.geosolutions.geoserver.rest.decoder.RESTLayer;
-import it.geosolutions.geoserver.rest.decoder.RESTLayerList;
 import it.geosolutions.geoserver.rest.decoder.RESTStyleList;
-import it.geosolutions.geoserver.rest.decoder.utils.NameLinkElem;
 import it.geosolutions.geoserver.rest.encoder.GSLayerEncoder;
 
 /**
@@ -65,6 +67,215 @@ public class GeoServerClient implements Serializable, GeoServerClientInterface
     /** The connected flag. */
     private boolean connected = false;
 
+    /** The catalogue loader reading the layers. */
+    private transient volatile GeoServerCatalogueLoader catalogueLoader = null;
+
+    /** The style uploader in progress. */
+    private transient volatile GeoServerStyleUploader styleUploader = null;
+
+    /** The catalogue refresh in progress. */
+    private transient volatile CatalogueRefresh catalogueRefresh = null;
+
+    /** The local cache of the catalogue and sld bodies. */
+    private transient GeoServerCatalogueCache cache = null;
+
+    /** The REST request used to read sld bodies. */
+    private transient GeoServerRESTRequest request = null;
+
+    /**
+     * Receives the styles and layers read from GeoServer, updates the cache
+     * and passes them on to the parent object.
+     * <p>If the tree has already been populated from the cache the progress
+     * is not shown and the parent is only updated if the catalogue has changed.
+     * Once the catalogue has been read the cached sld bodies are revalidated.
+     */
+    private class CatalogueRefresh implements GeoServerReadProgressInterface
+    {
+        /** The revalidating flag, true if the tree was populated from the cache. */
+        private boolean revalidating;
+
+        /** The style map read. */
+        private Map<String, List<StyleWrapper>> styleMap = null;
+
+        /** The layer map read. */
+        private Map<String, List<GeoServerLayer>> layerMap = null;
+
+        /** The pool revalidating sld bodies. */
+        private ExecutorService pool = null;
+
+        /** The cancelled flag. */
+        private boolean cancelled = false;
+
+        /**
+         * Instantiates a new catalogue refresh.
+         *
+         * @param revalidating the revalidating flag
+         */
+        CatalogueRefresh(boolean revalidating)
+        {
+            this.revalidating = revalidating;
+        }
+
+        /* (non-Javadoc)
+         * @see com.sldeditor.extension.filesystem.geoserver.GeoServerReadProgressInterface#startPopulating(com.sldeditor.common.data.GeoServerConnection)
+         */
+        @Override
+        public void startPopulating(GeoServerConnection connection)
+        {
+            // Do nothing
+        }
+
+        /* (non-Javadoc)
+         * @see com.sldeditor.extension.filesystem.geoserver.GeoServerReadProgressInterface#readStylesComplete(com.sldeditor.common.data.GeoServerConnection, java.util.Map, boolean)
+         */
+        @Override
+        public void readStylesComplete(GeoServerConnection connection, Map<String, List<StyleWrapper>> styleMap, boolean partialRefresh)
+        {
+            synchronized(this)
+            {
+                this.styleMap = styleMap;
+            }
+
+            if(!revalidating && (parentObj != null))
+            {
+                parentObj.readStylesComplete(connection, styleMap, partialRefresh);
+            }
+            checkComplete();
+        }
+
+        /* (non-Javadoc)
+         * @see com.sldeditor.extension.filesystem.geoserver.GeoServerReadProgressInterface#readStylesProgress(com.sldeditor.common.data.GeoServerConnection, int, int)
+         */
+        @Override
+        public void readStylesProgress(GeoServerConnection connection, int count, int total)
+        {
+            if(!revalidating && (parentObj != null))
+            {
+                parentObj.readStylesProgress(connection, count, total);
+            }
+        }
+
+        /* (non-Javadoc)
+         * @see com.sldeditor.extension.filesystem.geoserver.GeoServerReadProgressInterface#readLayersComplete(com.sldeditor.common.data.GeoServerConnection, java.util.Map)
+         */
+        @Override
+        public void readLayersComplete(GeoServerConnection connection, Map<String, List<GeoServerLayer>> layerMap)
+        {
+            synchronized(this)
+            {
+                this.layerMap = layerMap;
+            }
+
+            if(!revalidating && (parentObj != null))
+            {
+                parentObj.readLayersComplete(connection, layerMap);
+            }
+            checkComplete();
+        }
+
+        /* (non-Javadoc)
+         * @see com.sldeditor.extension.filesystem.geoserver.GeoServerReadProgressInterface#readLayersPartial(com.sldeditor.common.data.GeoServerConnection, java.lang.String, java.util.List)
+         */
+        @Override
+        public void readLayersPartial(GeoServerConnection connection, String workspaceName, List<GeoServerLayer> layerList)
+        {
+            if(!revalidating && (parentObj != null))
+            {
+                parentObj.readLayersPartial(connection, workspaceName, layerList);
+            }
+        }
+
+        /* (non-Javadoc)
+         * @see com.sldeditor.extension.filesystem.geoserver.GeoServerReadProgressInterface#readLayersProgress(com.sldeditor.common.data.GeoServerConnection, int, int)
+         */
+        @Override
+        public void readLayersProgress(GeoServerConnection connection, int count, int total)
+        {
+            if(!revalidating && (parentObj != null))
+            {
+                parentObj.readLayersProgress(connection, count, total);
+            }
+        }
+
+        /**
+         * Once both styles and layers have been read update the cache.
+         */
+        private void checkComplete()
+        {
+            Map<String, List<StyleWrapper>> completeStyleMap = null;
+            Map<String, List<GeoServerLayer>> completeLayerMap = null;
+
+            synchronized(this)
+            {
+                if(cancelled || (styleMap == null) || (layerMap == null))
+                {
+                    return;
+                }
+                completeStyleMap = styleMap;
+                completeLayerMap = layerMap;
+            }
+
+            boolean changed = cache.updateCatalogue(completeStyleMap, completeLayerMap);
+            cache.save();
+
+            if(revalidating && changed && (parentObj != null))
+            {
+                ConsoleManager.getInstance().information(GeoServerClient.this,
+                        String.format("%s : catalogue changed since last connection", connection.getConnectionName()));
+                parentObj.readStylesComplete(connection, completeStyleMap, false);
+                parentObj.readLayersComplete(connection, completeLayerMap);
+            }
+
+            revalidateStyles();
+        }
+
+        /**
+         * Revalidate the cached sld bodies in the background.
+         */
+        private void revalidateStyles()
+        {
+            final List<StyleWrapper> styleList = cache.getCachedStyleList();
+            if(styleList.isEmpty())
+            {
+                return;
+            }
+
+            final ExecutorService revalidatePool = Executors.newFixedThreadPool(GeoServerCatalogueLoader.getConfiguredMaxConnections());
+            synchronized(this)
+            {
+                if(cancelled)
+                {
+                    revalidatePool.shutdown();
+                    return;
+                }
+                pool = revalidatePool;
+            }
+
+            for(final StyleWrapper styleWrapper : styleList)
+            {
+                revalidatePool.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        revalidateStyle(styleWrapper);
+                    }
+                });
+            }
+            revalidatePool.shutdown();
+        }
+
+        /**
+         * Cancel the refresh.
+         */
+        public synchronized void cancel()
+        {
+            cancelled = true;
+            if(pool != null)
+            {
+                pool.shutdownNow();
+            }
+        }
+    }
+
     /**
      * Default constructor.
      */
@@ -83,6 +294,25 @@ public class GeoServerClient implements Serializable, GeoServerClientInterface
         this.parentObj = parent;
         this.connection = connection;
         GeoServerLayer.setDefaultWorkspaceName(DEFAULT_WORKSPACE_NAME);
+
+        if(connection != null)
+        {
+            this.request = new GeoServerRESTRequest(connection);
+            setCacheFolder(GeoServerCatalogueCache.getDefaultCacheFolder());
+        }
+    }
+
+    /**
+     * Sets the folder the catalogue cache is stored in.
+     *
+     * @param cacheFolder the cache folder
+     */
+    public void setCacheFolder(File cacheFolder)
+    {
+        if(connection != null)
+        {
+            this.cache = new GeoServerCatalogueCache(cacheFolder, connection);
+        }
     }
 
     /**
@@ -103,10 +333,34 @@ public class GeoServerClient implements Serializable, GeoServerClientInterface
                     parentObj.startPopulating(connection);
                 }
 
+                // Populate the tree from the cache, the catalogue is then revalidated in the background
+                boolean revalidating = false;
+                if(cache != null)
+                {
+                    cache.load();
+                    if(cache.hasCatalogue())
+                    {
+                        revalidating = true;
+                        if(parentObj != null)
+                        {
+                            parentObj.readStylesComplete(connection, cache.getStyleMap(), false);
+                            parentObj.readLayersComplete(connection, cache.getLayerMap());
+                        }
+                    }
+                }
+
+                GeoServerReadProgressInterface progress = parentObj;
+                cancelLoad();
+                if(cache != null)
+                {
+                    catalogueRefresh = new CatalogueRefresh(revalidating);
+                    progress = catalogueRefresh;
+                }
+
                 List<String> workspaceList = getWorkspaceList();
 
-                parseStyleList(reader, workspaceList);
-                parseLayerList(reader, workspaceList, null);
+                parseStyleList(reader, workspaceList, progress);
+                parseLayerList(workspaceList, progress);
             }
         }
     }
@@ -116,8 +370,10 @@ public class GeoServerClient implements Serializable, GeoServerClientInterface
      *
      * @param reader the reader
      * @param workspaceList the workspace list
+     * @param progress the object to report progress to
      */
-    private void parseStyleList(GeoServerRESTReader reader, List<String> workspaceList)
+    private void parseStyleList(GeoServerRESTReader reader, List<String> workspaceList,
+            GeoServerReadProgressInterface progress)
     {
         Thread t1 = new Thread(new Runnable() {
             public void run() {
@@ -127,19 +383,19 @@ public class GeoServerClient implements Serializable, GeoServerClientInterface
                 int count = 1;
                 List<StyleWrapper> styleList = new ArrayList<StyleWrapper>();
 
-                count = parseStyleInDefaultWorkspace(reader, count, styleList);
+                count = parseStyleInDefaultWorkspace(reader, count, styleList, progress);
 
                 styleMap.put(DEFAULT_WORKSPACE_NAME, styleList);
 
                 // Read styles from workspaces
                 for(String workspaceName : workspaceList)
                 {
-                    count = parseStyleInWorkspace(reader, styleMap, count, workspaceName);
+                    count = parseStyleInWorkspace(reader, styleMap, count, workspaceName, progress);
                 }
 
-                if(parentObj != null)
+                if(progress != null)
                 {
-                    parentObj.readStylesComplete(connection, styleMap, false);
+                    progress.readStylesComplete(connection, styleMap, false);
                 }
             }
         });  
@@ -147,93 +403,38 @@ public class GeoServerClient implements Serializable, GeoServerClientInterface
     }
 
     /**
-     * Parses the layer list.
+     * Parses the layer list in a background thread.
      *
-     * @param reader the reader
-     * @param existingWorkspaceList the existing workspace list
-     * @param workspaceName the workspace name
+     * @param workspaceList the workspace list
+     * @param progress the object to report progress to
      */
-    private void parseLayerList(GeoServerRESTReader reader, List<String> existingWorkspaceList, String workspaceName)
+    private void parseLayerList(List<String> workspaceList, GeoServerReadProgressInterface progress)
     {
-        Thread t1 = new Thread(new Runnable() {
-            public void run() {
-                List<String> workspaceList = null;
-
-                if(workspaceName == null)
-                {
-                    workspaceList = existingWorkspaceList;
-                    workspaceList.add(null); // Add the default workspace last
-                }
-
-                Map<String, List<GeoServerLayer>> layerMap = new LinkedHashMap<String, List<GeoServerLayer>>();
-                RESTLayerList layers = reader.getLayers();
+        GeoServerCatalogueLoader loader = new GeoServerCatalogueLoader(connection,
+                DEFAULT_WORKSPACE_NAME, progress, GeoServerCatalogueLoader.getConfiguredMaxConnections());
 
-                int count = 1;
-                int total = layers.size();
-
-                for(NameLinkElem featureTypeName : layers)
-                {
-                    @SuppressWarnings("deprecation")
-                    RESTLayer layer = reader.getLayer(featureTypeName.getName());
-
-                    if(layer != null)
-                    {
-                        String layerName = layer.getName();
-                        String workspace = null;
-                        for(String workspaceNameToTest : workspaceList)
-                        {
-                            if(reader.existsLayer(workspaceNameToTest, layerName, true))
-                            {
-                                if(workspaceNameToTest == null)
-                                {
-                                    workspace = DEFAULT_WORKSPACE_NAME;
-                                }
-                                else
-                                {
-                                    workspace = workspaceNameToTest;
-                                }
-
-                                break;
-                            }
-                        }
-                        GeoServerLayer geoServerlayer = new GeoServerLayer();
-                        geoServerlayer.setLayerWorkspace(workspace);
-                        geoServerlayer.setLayerName(layerName);
-                        geoServerlayer.setConnection(connection);
-
-                        StyleWrapper styleWrapper = new StyleWrapper();
-                        styleWrapper.setStyle(layer.getDefaultStyle());
-
-                        String styleWorkspace = layer.getDefaultStyleWorkspace();
-                        styleWrapper.setWorkspace((styleWorkspace == null) ? DEFAULT_WORKSPACE_NAME : styleWorkspace);
-
-                        geoServerlayer.setStyle(styleWrapper);
-
-                        List<GeoServerLayer> layerList = layerMap.get(workspace);
-
-                        if(layerList == null)
-                        {
-                            layerList = new ArrayList<GeoServerLayer>();
-                            layerMap.put(workspace, layerList);
-                        }
-                        layerList.add(geoServerlayer);
-
-                        if(parentObj != null)
-                        {
-                            parentObj.readLayersProgress(connection, count, total);
-                        }
-                    }
+        catalogueLoader = loader;
+        loader.start(new ArrayList<String>(workspaceList));
+    }
 
-                    count ++;
-                }
+    /**
+     * Cancel any catalogue load or revalidation in progress.
+     */
+    private void cancelLoad()
+    {
+        GeoServerCatalogueLoader loader = catalogueLoader;
+        if(loader != null)
+        {
+            loader.cancel();
+            catalogueLoader = null;
+        }
 
-                if(parentObj != null)
-                {
-                    parentObj.readLayersComplete(connection, layerMap);
-                }
-            }
-        });  
-        t1.start();
+        CatalogueRefresh refresh = catalogueRefresh;
+        if(refresh != null)
+        {
+            refresh.cancel();
+            catalogueRefresh = null;
+        }
     }
 
     /**
@@ -255,24 +456,92 @@ public class GeoServerClient implements Serializable, GeoServerClientInterface
             return null;
         }
 
-        GeoServerRESTManager manager = GeoServerRESTManagerFactory.getManager(connection);
-        if(manager != null)
+        // Styles are revalidated in the background after connecting, a cached copy
+        // that has not been revalidated yet is checked with a conditional request
+        if(cache != null)
         {
-            GeoServerRESTReader reader = manager.getReader();
-            if(reader != null)
+            cache.load();
+            GeoServerCatalogueCache.CachedStyle cachedStyle = cache.getStyle(styleWrapper);
+            if((cachedStyle != null) && !cachedStyle.isValidated())
             {
-                if(isDefaultWorkspace(styleWrapper.getWorkspace()))
-                {
-                    return reader.getSLD(styleWrapper.getStyle());
-                }
-                else
-                {
-                    return reader.getSLD(styleWrapper.getWorkspace(), styleWrapper.getStyle());
-                }
+                revalidateStyle(styleWrapper);
+                cachedStyle = cache.getStyle(styleWrapper);
+            }
+
+            if(cachedStyle != null)
+            {
+                return cachedStyle.getSld();
             }
         }
 
-        return null;
+        if(request == null)
+        {
+            return null;
+        }
+
+        GeoServerRESTRequest.Response response = request.get(getStylePath(styleWrapper), null, null);
+        if((response == null) || (response.getStatus() != HttpURLConnection.HTTP_OK))
+        {
+            return null;
+        }
+
+        String sld = response.getBodyString();
+        if(cache != null)
+        {
+            cache.putStyle(styleWrapper, sld, response.getETag(), response.getLastModified());
+        }
+        return sld;
+    }
+
+    /**
+     * Gets the REST path of the sld body of a style.
+     *
+     * @param styleWrapper the style wrapper
+     * @return the path relative to the REST end point
+     */
+    private String getStylePath(StyleWrapper styleWrapper)
+    {
+        if(isDefaultWorkspace(styleWrapper.getWorkspace()))
+        {
+            return "styles/" + GeoServerRESTRequest.encode(styleWrapper.getStyle()) + ".sld";
+        }
+        return "workspaces/" + GeoServerRESTRequest.encode(styleWrapper.getWorkspace()) +
+                "/styles/" + GeoServerRESTRequest.encode(styleWrapper.getStyle()) + ".sld";
+    }
+
+    /**
+     * Revalidate a cached sld body with a conditional request if the ETag or
+     * last modified date is known, otherwise the sld body is compared.
+     *
+     * @param styleWrapper the style wrapper
+     */
+    private void revalidateStyle(StyleWrapper styleWrapper)
+    {
+        GeoServerCatalogueCache.CachedStyle cachedStyle = cache.getStyle(styleWrapper);
+        if((cachedStyle == null) || cachedStyle.isValidated() || (request == null))
+        {
+            return;
+        }
+
+        GeoServerRESTRequest.Response response = request.get(getStylePath(styleWrapper),
+                cachedStyle.getETag(), cachedStyle.getLastModified());
+        if(response == null)
+        {
+            return;
+        }
+
+        if(response.getStatus() == HttpURLConnection.HTTP_OK)
+        {
+            cache.putStyle(styleWrapper, response.getBodyString(), response.getETag(), response.getLastModified());
+        }
+        else if(response.getStatus() == HttpURLConnection.HTTP_NOT_MODIFIED)
+        {
+            cache.setValidated(styleWrapper);
+        }
+        else if(response.getStatus() == HttpURLConnection.HTTP_NOT_FOUND)
+        {
+            cache.removeStyle(styleWrapper);
+        }
     }
 
     /**
@@ -317,6 +586,13 @@ public class GeoServerClient implements Serializable, GeoServerClientInterface
     @Override
     public void disconnect()
     {
+        cancelLoad();
+
+        GeoServerStyleUploader uploader = styleUploader;
+        if(uploader != null)
+        {
+            uploader.cancel();
+        }
         GeoServerRESTManagerFactory.deleteConnection(connection);
         connected = false;
     }
@@ -386,9 +662,47 @@ public class GeoServerClient implements Serializable, GeoServerClientInterface
             }
         }
 
+        if(result && (cache != null))
+        {
+            cache.removeStyle(styleWrapper);
+        }
+
         return result;
     }
 
+    /**
+     * Upload several slds, the styles are uploaded concurrently.
+     * <p>The number of concurrent connections, retries and retry delay are read from the properties.
+     *
+     * @param sldDataList the styles to upload
+     * @return the upload report
+     */
+    @Override
+    public GeoServerStyleUploadReport uploadSLDs(List<SLDDataInterface> sldDataList)
+    {
+        GeoServerStyleUploader uploader = new GeoServerStyleUploader(connection,
+                DEFAULT_WORKSPACE_NAME, GeoServerCatalogueLoader.getConfiguredMaxConnections());
+        uploader.setMaxRetries(GeoServerStyleUploader.getConfiguredMaxRetries());
+        uploader.setRetryDelay(GeoServerStyleUploader.getConfiguredRetryDelay());
+        styleUploader = uploader;
+
+        GeoServerStyleUploadReport report = uploader.upload(sldDataList);
+        styleUploader = null;
+
+        if(cache != null)
+        {
+            for(GeoServerStyleUploadReport.Result result : report.getResultList())
+            {
+                if(result.isSuccess())
+                {
+                    cache.removeStyle(result.getStyleWrapper());
+                }
+            }
+        }
+
+        return report;
+    }
+
     /**
      * Check if Workspace name is valid, e.g can't contain spaces.
      *
@@ -531,6 +845,11 @@ public class GeoServerClient implements Serializable, GeoServerClientInterface
             }
         }
 
+        if(result && (cache != null))
+        {
+            cache.removeStyle(styleToDelete);
+        }
+
         return result;
     }
 
@@ -573,10 +892,11 @@ public class GeoServerClient implements Serializable, GeoServerClientInterface
      * @param reader the reader
      * @param count the count
      * @param styleList the style list
+     * @param progress the object to report progress to
      * @return the int
      */
     private int parseStyleInDefaultWorkspace(GeoServerRESTReader reader,
-            int count, List<StyleWrapper> styleList)
+            int count, List<StyleWrapper> styleList, GeoServerReadProgressInterface progress)
     {
         // Read styles not in a workspace
         RESTStyleList geoServerStyleList = reader.getStyles();
@@ -586,9 +906,9 @@ public class GeoServerClient implements Serializable, GeoServerClientInterface
             StyleWrapper newStyleWrapper = new StyleWrapper(DEFAULT_WORKSPACE_NAME, style);
             styleList.add(newStyleWrapper);
 
-            if(parentObj != null)
+            if(progress != null)
             {
-                parentObj.readStylesProgress(connection, count, count);
+                progress.readStylesProgress(connection, count, count);
             }
             count ++;
         }
@@ -602,11 +922,12 @@ public class GeoServerClient implements Serializable, GeoServerClientInterface
      * @param styleMap the style map
      * @param count the count
      * @param workspaceName the workspace name
+     * @param progress the object to report progress to
      * @return the int
      */
     private int parseStyleInWorkspace(GeoServerRESTReader reader,
             Map<String, List<StyleWrapper>> styleMap, int count,
-            String workspaceName)
+            String workspaceName, GeoServerReadProgressInterface progress)
     {
         List<StyleWrapper> styleList;
         if(workspaceName != null)
@@ -620,9 +941,9 @@ public class GeoServerClient implements Serializable, GeoServerClientInterface
                 StyleWrapper newStyleWrapper = new StyleWrapper(workspaceName, style);
                 styleList.add(newStyleWrapper);
 
-                if(parentObj != null)
+                if(progress != null)
                 {
-                    parentObj.readStylesProgress(connection, count, count);
+                    progress.readStylesProgress(connection, count, count);
                 }
                 count ++;
             }
@@ -654,14 +975,20 @@ public class GeoServerClient implements Serializable, GeoServerClientInterface
 
                 if(workspaceName.compareTo(DEFAULT_WORKSPACE_NAME) == 0)
                 {
-                    count = parseStyleInDefaultWorkspace(reader, count, styleList);
+                    count = parseStyleInDefaultWorkspace(reader, count, styleList, parentObj);
 
                     styleMap.put(DEFAULT_WORKSPACE_NAME, styleList);
                 }
                 else
                 {
                     // Read styles from workspace
-                    count = parseStyleInWorkspace(reader, styleMap, count, workspaceName);
+                    count = parseStyleInWorkspace(reader, styleMap, count, workspaceName, parentObj);
+                }
+
+                if(cache != null)
+                {
+                    cache.updateWorkspaceStyles(workspaceName, styleMap.get(workspaceName));
+                    cache.save();
                 }
 
                 if(parentObj != null)
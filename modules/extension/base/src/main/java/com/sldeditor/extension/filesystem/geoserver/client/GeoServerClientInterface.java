@@ -20,6 +20,7 @@ package com.sldeditor.extension.filesystem.geoserver.client;
 
 import java.util.List;
 
+import com.sldeditor.common.SLDDataInterface;
 import com.sldeditor.common.data.GeoServerConnection;
 import com.sldeditor.common.data.GeoServerLayer;
 import com.sldeditor.common.data.StyleWrapper;
@@ -82,6 +83,14 @@ public interface GeoServerClientInterface {
      */
     boolean uploadSLD(StyleWrapper styleWrapper, String sldBody);
 
+    /**
+     * Upload several slds.
+     *
+     * @param sldDataList the styles to upload, the workspace of each style determines where it is uploaded
+     * @return the upload report
+     */
+    GeoServerStyleUploadReport uploadSLDs(List<SLDDataInterface> sldDataList);
+
     /**
      * Update layer styles.
      *
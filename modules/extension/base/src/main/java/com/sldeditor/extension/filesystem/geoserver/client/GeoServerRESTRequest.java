@@ -0,0 +1,410 @@
+/*
+ * SLD Editor - The Open Source Java SLD Editor
+ *
+ * Copyright (C) 2016, SCISYS UK Limited
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sldeditor.extension.filesystem.geoserver.client;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+import com.sldeditor.common.console.ConsoleManager;
+import com.sldeditor.common.data.GeoServerConnection;
+
+/**
+ * Performs requests on the REST interface of a GeoServer instance,
+ * keeping count of the number of requests made.
+ * <p>Connections are not explicitly disconnected so that they can be reused.
+ *
+ * @author Robert Ward (SCISYS)
+ */
+public class GeoServerRESTRequest
+{
+    /** The Constant CONNECT_TIMEOUT in milliseconds. */
+    private static final int CONNECT_TIMEOUT = 10000;
+
+    /** The Constant READ_TIMEOUT in milliseconds. */
+    private static final int READ_TIMEOUT = 30000;
+
+    /** The Constant REST_PATH. */
+    private static final String REST_PATH = "/rest/";
+
+    /** The Constant BUFFER_SIZE. */
+    private static final int BUFFER_SIZE = 8192;
+
+    /** The Constant DISALLOW_DOCTYPE_FEATURE, rejects documents containing a DOCTYPE declaration. */
+    private static final String DISALLOW_DOCTYPE_FEATURE = "http://apache.org/xml/features/disallow-doctype-decl";
+
+    /**
+     * The response to a request.
+     */
+    public static class Response
+    {
+        /** The HTTP status code. */
+        private int status;
+
+        /** The body, null if there is no body. */
+        private byte[] body;
+
+        /** The ETag header. */
+        private String eTag;
+
+        /** The Last-Modified header. */
+        private String lastModified;
+
+        /**
+         * Gets the HTTP status code.
+         *
+         * @return the status
+         */
+        public int getStatus()
+        {
+            return status;
+        }
+
+        /**
+         * Gets the body as a string.
+         *
+         * @return the body, null if there is no body
+         */
+        public String getBodyString()
+        {
+            return (body == null) ? null : new String(body, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Gets the ETag header.
+         *
+         * @return the ETag, null if not supplied
+         */
+        public String getETag()
+        {
+            return eTag;
+        }
+
+        /**
+         * Gets the Last-Modified header.
+         *
+         * @return the last modified, null if not supplied
+         */
+        public String getLastModified()
+        {
+            return lastModified;
+        }
+    }
+
+    /** The connection. */
+    private GeoServerConnection connection = null;
+
+    /** The number of requests made. */
+    private AtomicInteger requestCount = new AtomicInteger(0);
+
+    /**
+     * Instantiates a new GeoServer REST request.
+     *
+     * @param connection the connection
+     */
+    public GeoServerRESTRequest(GeoServerConnection connection)
+    {
+        this.connection = connection;
+    }
+
+    /**
+     * Perform a GET request.
+     * <p>If an ETag or last modified date is supplied the request is conditional
+     * and a status of HTTP_NOT_MODIFIED is returned if the resource has not changed.
+     *
+     * @param path the path relative to the REST end point
+     * @param eTag the ETag of the cached copy, can be null
+     * @param lastModified the last modified date of the cached copy, can be null
+     * @return the response, null if the request could not be made
+     */
+    public Response get(String path, String eTag, String lastModified)
+    {
+        return execute("GET", path, eTag, lastModified, null, null);
+    }
+
+    /**
+     * Perform a request sending a body, e.g. a POST or PUT.
+     *
+     * @param method the HTTP method
+     * @param path the path relative to the REST end point
+     * @param contentType the content type of the body
+     * @param body the body
+     * @return the response, null if the request could not be made
+     */
+    public Response send(String method, String path, String contentType, String body)
+    {
+        return execute(method, path, null, null, contentType, body);
+    }
+
+    /**
+     * Perform a request.
+     *
+     * @param method the HTTP method
+     * @param path the path relative to the REST end point
+     * @param eTag the ETag of the cached copy, can be null
+     * @param lastModified the last modified date of the cached copy, can be null
+     * @param contentType the content type of the body, can be null
+     * @param body the body to send, can be null
+     * @return the response, null if the request could not be made
+     */
+    private Response execute(String method, String path, String eTag, String lastModified,
+            String contentType, String body)
+    {
+        if((connection == null) || (connection.getUrl() == null))
+        {
+            return null;
+        }
+
+        try
+        {
+            String baseUrl = connection.getUrl().toExternalForm();
+            if(baseUrl.endsWith("/"))
+            {
+                baseUrl = baseUrl.substring(0, baseUrl.length() - 1);
+            }
+
+            URL url = new URL(baseUrl + REST_PATH + path);
+
+            requestCount.incrementAndGet();
+            HttpURLConnection httpConnection = (HttpURLConnection) url.openConnection();
+            httpConnection.setConnectTimeout(CONNECT_TIMEOUT);
+            httpConnection.setReadTimeout(READ_TIMEOUT);
+            httpConnection.setRequestMethod(method);
+
+            if(connection.getUserName() != null)
+            {
+                String credentials = connection.getUserName() + ":" +
+                        ((connection.getPassword() == null) ? "" : connection.getPassword());
+                httpConnection.setRequestProperty("Authorization", "Basic " +
+                        Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8)));
+            }
+
+            if(eTag != null)
+            {
+                httpConnection.setRequestProperty("If-None-Match", eTag);
+            }
+            if(lastModified != null)
+            {
+                httpConnection.setRequestProperty("If-Modified-Since", lastModified);
+            }
+
+            if(body != null)
+            {
+                byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+                httpConnection.setDoOutput(true);
+                httpConnection.setFixedLengthStreamingMode(bytes.length);
+                httpConnection.setRequestProperty("Content-Type", contentType);
+                OutputStream outputStream = httpConnection.getOutputStream();
+                try
+                {
+                    outputStream.write(bytes);
+                }
+                finally
+                {
+                    outputStream.close();
+                }
+            }
+
+            Response response = new Response();
+            response.status = httpConnection.getResponseCode();
+            response.eTag = httpConnection.getHeaderField("ETag");
+            response.lastModified = httpConnection.getHeaderField("Last-Modified");
+
+            // Always read the stream so the connection can be reused
+            boolean success = (response.status >= HttpURLConnection.HTTP_OK) &&
+                    (response.status < HttpURLConnection.HTTP_MULT_CHOICE);
+            InputStream inputStream = success ? httpConnection.getInputStream() : httpConnection.getErrorStream();
+            if(inputStream != null)
+            {
+                try
+                {
+                    byte[] responseBody = readFully(inputStream);
+                    if(success)
+                    {
+                        response.body = responseBody;
+                    }
+                }
+                finally
+                {
+                    inputStream.close();
+                }
+            }
+            return response;
+        }
+        catch (IOException e)
+        {
+            ConsoleManager.getInstance().exception(this, e);
+        }
+        return null;
+    }
+
+    /**
+     * Perform a GET request and parse the XML response.
+     *
+     * @param path the path relative to the REST end point
+     * @return the document, null if the request failed
+     */
+    public Document getDocument(String path)
+    {
+        Response response = get(path, null, null);
+
+        if((response == null) || (response.body == null))
+        {
+            return null;
+        }
+
+        try
+        {
+            // Server responses are not trusted, do not resolve DTDs or external entities
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setFeature(DISALLOW_DOCTYPE_FEATURE, true);
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            factory.setExpandEntityReferences(false);
+            factory.setXIncludeAware(false);
+            DocumentBuilder builder = factory.newDocumentBuilder();
+            return builder.parse(new ByteArrayInputStream(response.body));
+        }
+        catch (ParserConfigurationException e)
+        {
+            ConsoleManager.getInstance().exception(this, e);
+        }
+        catch (SAXException e)
+        {
+            ConsoleManager.getInstance().exception(this, e);
+        }
+        catch (IOException e)
+        {
+            ConsoleManager.getInstance().exception(this, e);
+        }
+        return null;
+    }
+
+    /**
+     * Perform a GET request and read the names of the items in a list,
+     * e.g. the workspace names from workspaces.xml.
+     *
+     * @param path the path relative to the REST end point
+     * @param elementName the element name of each item
+     * @return the name list, null if the request failed
+     */
+    public List<String> getNameList(String path, String elementName)
+    {
+        Document document = getDocument(path);
+        if(document == null)
+        {
+            return null;
+        }
+
+        List<String> nameList = new ArrayList<String>();
+        NodeList nodeList = document.getDocumentElement().getElementsByTagName(elementName);
+        for(int index = 0; index < nodeList.getLength(); index ++)
+        {
+            for(Node child = nodeList.item(index).getFirstChild(); child != null; child = child.getNextSibling())
+            {
+                if((child.getNodeType() == Node.ELEMENT_NODE) && "name".equals(child.getNodeName()))
+                {
+                    String name = child.getTextContent().trim();
+                    if(!name.isEmpty())
+                    {
+                        nameList.add(name);
+                    }
+                    break;
+                }
+            }
+        }
+        return nameList;
+    }
+
+    /**
+     * Read the contents of a stream.
+     *
+     * @param inputStream the input stream
+     * @return the contents
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private static byte[] readFully(InputStream inputStream) throws IOException
+    {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int bytesRead = inputStream.read(buffer);
+        while(bytesRead >= 0)
+        {
+            outputStream.write(buffer, 0, bytesRead);
+            bytesRead = inputStream.read(buffer);
+        }
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * Url encode a path segment.
+     *
+     * @param value the value
+     * @return the encoded string
+     */
+    public static String encode(String value)
+    {
+        try
+        {
+            return URLEncoder.encode(value, StandardCharsets.UTF_8.name()).replace("+", "%20");
+        }
+        catch (UnsupportedEncodingException e)
+        {
+            return value;
+        }
+    }
+
+    /**
+     * Gets the number of requests made.
+     *
+     * @return the request count
+     */
+    public int getRequestCount()
+    {
+        return requestCount.get();
+    }
+
+    /**
+     * Reset the request count.
+     */
+    public void resetRequestCount()
+    {
+        requestCount.set(0);
+    }
+}
@@ -0,0 +1,306 @@
+/*
+ * SLD Editor - The Open Source Java SLD Editor
+ *
+ * Copyright (C) 2016, SCISYS UK Limited
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sldeditor.extension.filesystem.geoserver.client;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.sldeditor.common.data.StyleWrapper;
+
+/**
+ * The outcome of uploading a set of styles to a GeoServer instance.
+ *
+ * @author Robert Ward (SCISYS)
+ */
+public class GeoServerStyleUploadReport
+{
+    /**
+     * The outcome of uploading a single style.
+     */
+    public static class Result
+    {
+        /** The style. */
+        private StyleWrapper styleWrapper;
+
+        /** The success flag. */
+        private boolean success = false;
+
+        /** The updated flag, true if the style already existed. */
+        private boolean updated = false;
+
+        /** The HTTP status of the last attempt, 0 if no response was received. */
+        private int status = 0;
+
+        /** The number of attempts made. */
+        private int attempts = 0;
+
+        /** The time taken in milliseconds including retries. */
+        private long elapsedTime = 0;
+
+        /** The failure message. */
+        private String message = null;
+
+        /**
+         * Instantiates a new result.
+         *
+         * @param styleWrapper the style wrapper
+         */
+        public Result(StyleWrapper styleWrapper)
+        {
+            this.styleWrapper = styleWrapper;
+        }
+
+        /**
+         * Gets the style.
+         *
+         * @return the style wrapper
+         */
+        public StyleWrapper getStyleWrapper()
+        {
+            return styleWrapper;
+        }
+
+        /**
+         * Checks if the style was uploaded successfully.
+         *
+         * @return true, if successful
+         */
+        public boolean isSuccess()
+        {
+            return success;
+        }
+
+        /**
+         * Checks if an existing style was updated rather than a new style created.
+         *
+         * @return true, if updated
+         */
+        public boolean isUpdated()
+        {
+            return updated;
+        }
+
+        /**
+         * Gets the HTTP status of the last attempt.
+         *
+         * @return the status, 0 if no response was received
+         */
+        public int getStatus()
+        {
+            return status;
+        }
+
+        /**
+         * Gets the number of attempts made.
+         *
+         * @return the attempts
+         */
+        public int getAttempts()
+        {
+            return attempts;
+        }
+
+        /**
+         * Gets the time taken including retries.
+         *
+         * @return the elapsed time in milliseconds
+         */
+        public long getElapsedTime()
+        {
+            return elapsedTime;
+        }
+
+        /**
+         * Gets the failure message.
+         *
+         * @return the message, null if successful
+         */
+        public String getMessage()
+        {
+            return message;
+        }
+
+        /**
+         * Sets the outcome.
+         *
+         * @param success the success flag
+         * @param updated the updated flag
+         * @param status the HTTP status of the last attempt
+         * @param attempts the number of attempts made
+         * @param elapsedTime the elapsed time in milliseconds
+         * @param message the failure message
+         */
+        public void setOutcome(boolean success, boolean updated, int status,
+                int attempts, long elapsedTime, String message)
+        {
+            this.success = success;
+            this.updated = updated;
+            this.status = status;
+            this.attempts = attempts;
+            this.elapsedTime = elapsedTime;
+            this.message = message;
+        }
+
+        /* (non-Javadoc)
+         * @see java.lang.Object#toString()
+         */
+        @Override
+        public String toString()
+        {
+            return String.format("%s:%s %s status=%d attempts=%d time=%dms%s",
+                    styleWrapper.getWorkspace(), styleWrapper.getStyle(),
+                    success ? (updated ? "updated" : "created") : "failed",
+                    status, attempts, elapsedTime,
+                    (message == null) ? "" : " " + message);
+        }
+    }
+
+    /** The results in the order the styles were supplied. */
+    private List<Result> resultList = new ArrayList<Result>();
+
+    /** The number of requests made. */
+    private int requestCount = 0;
+
+    /** The total time taken in milliseconds. */
+    private long elapsedTime = 0;
+
+    /** The cancelled flag. */
+    private boolean cancelled = false;
+
+    /**
+     * Adds a result.
+     *
+     * @param result the result
+     */
+    public void addResult(Result result)
+    {
+        resultList.add(result);
+    }
+
+    /**
+     * Gets the results in the order the styles were supplied.
+     *
+     * @return the result list
+     */
+    public List<Result> getResultList()
+    {
+        return Collections.unmodifiableList(resultList);
+    }
+
+    /**
+     * Gets the number of styles uploaded successfully.
+     *
+     * @return the success count
+     */
+    public int getSuccessCount()
+    {
+        int count = 0;
+        for(Result result : resultList)
+        {
+            if(result.isSuccess())
+            {
+                count ++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Gets the number of styles that failed to upload.
+     *
+     * @return the failure count
+     */
+    public int getFailureCount()
+    {
+        return resultList.size() - getSuccessCount();
+    }
+
+    /**
+     * Gets the number of requests made.
+     *
+     * @return the request count
+     */
+    public int getRequestCount()
+    {
+        return requestCount;
+    }
+
+    /**
+     * Sets the number of requests made.
+     *
+     * @param requestCount the new request count
+     */
+    public void setRequestCount(int requestCount)
+    {
+        this.requestCount = requestCount;
+    }
+
+    /**
+     * Gets the total time taken.
+     *
+     * @return the elapsed time in milliseconds
+     */
+    public long getElapsedTime()
+    {
+        return elapsedTime;
+    }
+
+    /**
+     * Sets the total time taken.
+     *
+     * @param elapsedTime the new elapsed time in milliseconds
+     */
+    public void setElapsedTime(long elapsedTime)
+    {
+        this.elapsedTime = elapsedTime;
+    }
+
+    /**
+     * Checks if the upload was cancelled.
+     *
+     * @return true, if cancelled
+     */
+    public boolean isCancelled()
+    {
+        return cancelled;
+    }
+
+    /**
+     * Sets the cancelled flag.
+     *
+     * @param cancelled the new cancelled flag
+     */
+    public void setCancelled(boolean cancelled)
+    {
+        this.cancelled = cancelled;
+    }
+
+    /**
+     * Gets a one line summary.
+     *
+     * @return the summary
+     */
+    public String getSummary()
+    {
+        return String.format("%d styles uploaded, %d failed, %d requests, %d ms%s",
+                getSuccessCount(), getFailureCount(), requestCount, elapsedTime,
+                cancelled ? ", cancelled" : "");
+    }
+}
@@ -0,0 +1,606 @@
+/*
+ * SLD Editor - The Open Source Java SLD Editor
+ *
+ * Copyright (C) 2016, SCISYS UK Limited
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sldeditor.extension.filesystem.geoserver.client;
+
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Pattern;
+
+import com.sldeditor.common.SLDDataInterface;
+import com.sldeditor.common.console.ConsoleManager;
+import com.sldeditor.common.data.GeoServerConnection;
+import com.sldeditor.common.data.StyleWrapper;
+import com.sldeditor.common.property.PropertyManagerFactory;
+import com.sldeditor.common.utils.DaemonThreadFactory;
+
+/**
+ * Uploads a set of styles to a GeoServer instance using the REST interface.
+ * <p>The existing styles in each workspace are read once before any style is
+ * uploaded, missing workspaces are created and the styles are then uploaded
+ * concurrently using a bounded pool of HTTP workers. Failed requests caused by
+ * connection errors or server errors are retried with an increasing delay.
+ * <p>An uploader is used for a single upload and can be cancelled at any time.
+ *
+ * @author Robert Ward (SCISYS)
+ */
+public class GeoServerStyleUploader
+{
+    /** The Constant DEFAULT_MAX_CONNECTIONS. */
+    public static final int DEFAULT_MAX_CONNECTIONS = 4;
+
+    /** The Constant DEFAULT_MAX_RETRIES. */
+    public static final int DEFAULT_MAX_RETRIES = 3;
+
+    /** The Constant DEFAULT_RETRY_DELAY in milliseconds, doubled on each retry. */
+    public static final long DEFAULT_RETRY_DELAY = 500L;
+
+    /** The Constant MAX_RETRIES_FIELD, the property holding the maximum number of retries for each style. */
+    private static final String MAX_RETRIES_FIELD = "GeoServer.upload.maxRetries";
+
+    /** The Constant RETRY_DELAY_FIELD, the property holding the delay before the first retry in milliseconds. */
+    private static final String RETRY_DELAY_FIELD = "GeoServer.upload.retryDelay";
+
+    /** The Constant POLL_INTERVAL in milliseconds, how often waiting tasks check for cancellation. */
+    private static final long POLL_INTERVAL = 100L;
+
+    /** The Constant SLD_CONTENT_TYPE. */
+    private static final String SLD_CONTENT_TYPE = "application/vnd.ogc.sld+xml";
+
+    /** The Constant XML_CONTENT_TYPE. */
+    private static final String XML_CONTENT_TYPE = "text/xml";
+
+    /** The Constant HTTP_TOO_MANY_REQUESTS. */
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+
+    /** The pattern a workspace name must match. */
+    private static final Pattern WORKSPACE_NAME_PATTERN = Pattern.compile("\\w+");
+
+    /** The connection. */
+    private GeoServerConnection connection = null;
+
+    /** The default workspace name. */
+    private String defaultWorkspaceName = null;
+
+    /** The maximum number of concurrent connections. */
+    private int maxConnections = DEFAULT_MAX_CONNECTIONS;
+
+    /** The maximum number of retries for each style. */
+    private int maxRetries = DEFAULT_MAX_RETRIES;
+
+    /** The delay before the first retry in milliseconds. */
+    private long retryDelay = DEFAULT_RETRY_DELAY;
+
+    /** The executor. */
+    private volatile ExecutorService executor = null;
+
+    /** The cancelled flag. */
+    private volatile boolean cancelled = false;
+
+    /** The REST request. */
+    private GeoServerRESTRequest request = null;
+
+    /**
+     * Instantiates a new GeoServer style uploader.
+     *
+     * @param connection the connection
+     * @param defaultWorkspaceName the default workspace name
+     * @param maxConnections the maximum number of concurrent connections
+     */
+    public GeoServerStyleUploader(GeoServerConnection connection,
+            String defaultWorkspaceName,
+            int maxConnections)
+    {
+        this.connection = connection;
+        this.defaultWorkspaceName = defaultWorkspaceName;
+        this.maxConnections = Math.max(1, maxConnections);
+        this.request = new GeoServerRESTRequest(connection);
+    }
+
+    /**
+     * Gets the configured maximum number of retries for each style.
+     *
+     * @return the maximum number of retries
+     */
+    public static int getConfiguredMaxRetries()
+    {
+        int configuredMaxRetries = (int) PropertyManagerFactory.getInstance().getDoubleValue(MAX_RETRIES_FIELD, DEFAULT_MAX_RETRIES);
+
+        return Math.max(0, configuredMaxRetries);
+    }
+
+    /**
+     * Gets the configured delay before the first retry.
+     *
+     * @return the retry delay in milliseconds
+     */
+    public static long getConfiguredRetryDelay()
+    {
+        long configuredRetryDelay = (long) PropertyManagerFactory.getInstance().getDoubleValue(RETRY_DELAY_FIELD, DEFAULT_RETRY_DELAY);
+
+        return Math.max(0, configuredRetryDelay);
+    }
+
+    /**
+     * Sets the maximum number of retries for each style.
+     *
+     * @param maxRetries the new maximum number of retries
+     */
+    public void setMaxRetries(int maxRetries)
+    {
+        this.maxRetries = Math.max(0, maxRetries);
+    }
+
+    /**
+     * Sets the delay before the first retry, the delay is doubled on each subsequent retry.
+     *
+     * @param retryDelay the new retry delay in milliseconds
+     */
+    public void setRetryDelay(long retryDelay)
+    {
+        this.retryDelay = Math.max(0, retryDelay);
+    }
+
+    /**
+     * Upload the styles, blocks until complete or cancelled.
+     * <p>The workspace of each style determines where it is uploaded.
+     *
+     * @param sldDataList the styles to upload
+     * @return the report containing a result for each style in the order supplied
+     */
+    public GeoServerStyleUploadReport upload(List<SLDDataInterface> sldDataList)
+    {
+        long startTime = System.currentTimeMillis();
+        request.resetRequestCount();
+
+        GeoServerStyleUploadReport report = new GeoServerStyleUploadReport();
+        if(sldDataList == null)
+        {
+            return report;
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(maxConnections, new DaemonThreadFactory("GeoServerStyleUploader"));
+        executor = pool;
+
+        try
+        {
+            internal_upload(pool, sldDataList, report);
+        }
+        catch (InterruptedException e)
+        {
+            // Cancelled
+        }
+        finally
+        {
+            pool.shutdownNow();
+        }
+
+        if(cancelled)
+        {
+            for(GeoServerStyleUploadReport.Result result : report.getResultList())
+            {
+                if(!result.isSuccess() && (result.getMessage() == null))
+                {
+                    result.setOutcome(false, result.isUpdated(), result.getStatus(),
+                            result.getAttempts(), result.getElapsedTime(), "Cancelled");
+                }
+            }
+        }
+
+        report.setCancelled(cancelled);
+        report.setRequestCount(request.getRequestCount());
+        report.setElapsedTime(System.currentTimeMillis() - startTime);
+
+        ConsoleManager.getInstance().information(this,
+                String.format("%s : %s", connection.getConnectionName(), report.getSummary()));
+        for(GeoServerStyleUploadReport.Result result : report.getResultList())
+        {
+            if(!result.isSuccess())
+            {
+                ConsoleManager.getInstance().error(this, result.toString());
+            }
+        }
+
+        return report;
+    }
+
+    /**
+     * Prefetch the existing styles and upload the styles.
+     *
+     * @param pool the pool
+     * @param sldDataList the styles to upload
+     * @param report the report to add results to
+     * @throws InterruptedException thrown if the upload is cancelled
+     */
+    private void internal_upload(ExecutorService pool, List<SLDDataInterface> sldDataList,
+            GeoServerStyleUploadReport report) throws InterruptedException
+    {
+        List<GeoServerStyleUploadReport.Result> resultList = new ArrayList<GeoServerStyleUploadReport.Result>();
+        Set<String> workspaceSet = new LinkedHashSet<String>();
+
+        for(SLDDataInterface sldData : sldDataList)
+        {
+            GeoServerStyleUploadReport.Result result = new GeoServerStyleUploadReport.Result(sldData.getStyle());
+            resultList.add(result);
+            report.addResult(result);
+
+            String workspaceName = sldData.getStyle().getWorkspace();
+            if(workspaceValid(workspaceName))
+            {
+                workspaceSet.add(workspaceName);
+            }
+            else
+            {
+                result.setOutcome(false, false, 0, 0, 0, "Invalid workspace name : " + workspaceName);
+            }
+        }
+
+        // Create any missing workspaces, the existing workspaces are read once
+        Set<String> newWorkspaceSet = new HashSet<String>();
+        Set<String> failedWorkspaceSet = new HashSet<String>();
+        List<String> existingWorkspaceList = null;
+        for(String workspaceName : workspaceSet)
+        {
+            if(isDefaultWorkspace(workspaceName))
+            {
+                continue;
+            }
+
+            if(existingWorkspaceList == null)
+            {
+                existingWorkspaceList = request.getNameList("workspaces.xml", "workspace");
+                if(existingWorkspaceList == null)
+                {
+                    existingWorkspaceList = new ArrayList<String>();
+                }
+            }
+
+            if(!existingWorkspaceList.contains(workspaceName) && !cancelled)
+            {
+                if(createWorkspace(workspaceName))
+                {
+                    newWorkspaceSet.add(workspaceName);
+                }
+                else
+                {
+                    ConsoleManager.getInstance().error(this, "Failed to create workspace : " + workspaceName);
+                    failedWorkspaceSet.add(workspaceName);
+                }
+            }
+        }
+
+        // Read the existing styles in each workspace concurrently
+        Map<String, Future<List<String>>> styleFutureMap = new HashMap<String, Future<List<String>>>();
+        for(final String workspaceName : workspaceSet)
+        {
+            if(newWorkspaceSet.contains(workspaceName) || failedWorkspaceSet.contains(workspaceName))
+            {
+                continue;
+            }
+
+            styleFutureMap.put(workspaceName, pool.submit(new Callable<List<String>>() {
+                @Override
+                public List<String> call() {
+                    return request.getNameList(getStyleListPath(workspaceName), "style");
+                }
+            }));
+        }
+
+        final Map<String, Set<String>> existingStyleMap = new HashMap<String, Set<String>>();
+        for(String workspaceName : workspaceSet)
+        {
+            Set<String> styleSet = Collections.synchronizedSet(new HashSet<String>());
+            Future<List<String>> future = styleFutureMap.get(workspaceName);
+            if(future != null)
+            {
+                List<String> styleList = getResult(future);
+                if(styleList != null)
+                {
+                    styleSet.addAll(styleList);
+                }
+            }
+            existingStyleMap.put(workspaceName, styleSet);
+        }
+
+        // Upload the styles
+        List<Future<?>> uploadFutureList = new ArrayList<Future<?>>();
+        for(int index = 0; index < sldDataList.size(); index ++)
+        {
+            final SLDDataInterface sldData = sldDataList.get(index);
+            final GeoServerStyleUploadReport.Result result = resultList.get(index);
+            final String workspaceName = sldData.getStyle().getWorkspace();
+
+            if(!workspaceSet.contains(workspaceName))
+            {
+                continue;
+            }
+
+            if(failedWorkspaceSet.contains(workspaceName))
+            {
+                result.setOutcome(false, false, 0, 0, 0, "Failed to create workspace : " + workspaceName);
+                continue;
+            }
+
+            uploadFutureList.add(pool.submit(new Runnable() {
+                @Override
+                public void run() {
+                    uploadStyle(sldData, existingStyleMap.get(workspaceName), result);
+                }
+            }));
+        }
+
+        for(Future<?> future : uploadFutureList)
+        {
+            getResult(future);
+        }
+    }
+
+    /**
+     * Upload a single style, retrying on connection or server errors.
+     *
+     * @param sldData the style to upload
+     * @param existingStyleSet the names of the styles already in the workspace
+     * @param result the result to update
+     */
+    private void uploadStyle(SLDDataInterface sldData, Set<String> existingStyleSet,
+            GeoServerStyleUploadReport.Result result)
+    {
+        long startTime = System.currentTimeMillis();
+        StyleWrapper styleWrapper = sldData.getStyle();
+        boolean updated = existingStyleSet.contains(styleWrapper.getStyle());
+
+        int attempts = 0;
+        int status = 0;
+        boolean success = false;
+        boolean retry = true;
+        while(retry && !cancelled)
+        {
+            attempts ++;
+
+            GeoServerRESTRequest.Response response;
+            if(updated)
+            {
+                response = request.send("PUT", getUpdateStylePath(styleWrapper), SLD_CONTENT_TYPE, sldData.getSld());
+            }
+            else
+            {
+                response = request.send("POST", getCreateStylePath(styleWrapper), SLD_CONTENT_TYPE, sldData.getSld());
+            }
+
+            status = (response == null) ? 0 : response.getStatus();
+            success = (status >= HttpURLConnection.HTTP_OK) && (status < HttpURLConnection.HTTP_MULT_CHOICE);
+
+            if(!success && !updated && (status == HttpURLConnection.HTTP_CONFLICT))
+            {
+                // Style created since the existing styles were read, update it instead
+                updated = true;
+                retry = (attempts <= maxRetries);
+            }
+            else
+            {
+                retry = !success && isRetryable(status) && (attempts <= maxRetries);
+                if(retry)
+                {
+                    try
+                    {
+                        Thread.sleep(retryDelay << (attempts - 1));
+                    }
+                    catch (InterruptedException e)
+                    {
+                        retry = false;
+                    }
+                }
+            }
+        }
+
+        if(success)
+        {
+            existingStyleSet.add(styleWrapper.getStyle());
+        }
+
+        String message = null;
+        if(!success)
+        {
+            if(cancelled)
+            {
+                message = "Cancelled";
+            }
+            else if(status == 0)
+            {
+                message = "No response";
+            }
+            else if(status == HttpURLConnection.HTTP_FORBIDDEN)
+            {
+                message = "Permission denied";
+            }
+            else
+            {
+                message = "Rejected by server";
+            }
+        }
+        result.setOutcome(success, updated, status, attempts, System.currentTimeMillis() - startTime, message);
+    }
+
+    /**
+     * Checks if a failed request is worth retrying.
+     *
+     * @param status the HTTP status, 0 if no response was received
+     * @return true, if retryable
+     */
+    private static boolean isRetryable(int status)
+    {
+        return (status == 0) ||
+                (status == HTTP_TOO_MANY_REQUESTS) ||
+                (status >= HttpURLConnection.HTTP_INTERNAL_ERROR);
+    }
+
+    /**
+     * Creates a workspace.
+     *
+     * @param workspaceName the workspace name
+     * @return true, if successful
+     */
+    private boolean createWorkspace(String workspaceName)
+    {
+        GeoServerRESTRequest.Response response = request.send("POST", "workspaces", XML_CONTENT_TYPE,
+                "<workspace><name>" + workspaceName + "</name></workspace>");
+
+        return (response != null) && (response.getStatus() == HttpURLConnection.HTTP_CREATED);
+    }
+
+    /**
+     * Gets the path listing the styles in a workspace.
+     *
+     * @param workspaceName the workspace name
+     * @return the path relative to the REST end point
+     */
+    private String getStyleListPath(String workspaceName)
+    {
+        if(isDefaultWorkspace(workspaceName))
+        {
+            return "styles.xml";
+        }
+        return "workspaces/" + GeoServerRESTRequest.encode(workspaceName) + "/styles.xml";
+    }
+
+    /**
+     * Gets the path to create a new style.
+     *
+     * @param styleWrapper the style wrapper
+     * @return the path relative to the REST end point
+     */
+    private String getCreateStylePath(StyleWrapper styleWrapper)
+    {
+        String name = GeoServerRESTRequest.encode(styleWrapper.getStyle());
+        if(isDefaultWorkspace(styleWrapper.getWorkspace()))
+        {
+            return "styles?name=" + name + "&raw=true";
+        }
+        return "workspaces/" + GeoServerRESTRequest.encode(styleWrapper.getWorkspace()) + "/styles?name=" + name + "&raw=true";
+    }
+
+    /**
+     * Gets the path to update an existing style.
+     *
+     * @param styleWrapper the style wrapper
+     * @return the path relative to the REST end point
+     */
+    private String getUpdateStylePath(StyleWrapper styleWrapper)
+    {
+        String name = GeoServerRESTRequest.encode(styleWrapper.getStyle());
+        if(isDefaultWorkspace(styleWrapper.getWorkspace()))
+        {
+            return "styles/" + name + "?raw=true";
+        }
+        return "workspaces/" + GeoServerRESTRequest.encode(styleWrapper.getWorkspace()) + "/styles/" + name + "?raw=true";
+    }
+
+    /**
+     * Checks if supplied workspace name is the default workspace.
+     *
+     * @param workspaceName the workspace name
+     * @return true, if is default workspace
+     */
+    private boolean isDefaultWorkspace(String workspaceName)
+    {
+        return (workspaceName == null) || workspaceName.equals(defaultWorkspaceName);
+    }
+
+    /**
+     * Check if workspace name is valid, e.g can't contain spaces.
+     *
+     * @param workspaceName the workspace name
+     * @return true, if valid
+     */
+    private boolean workspaceValid(String workspaceName)
+    {
+        if(isDefaultWorkspace(workspaceName))
+        {
+            return true;
+        }
+
+        return WORKSPACE_NAME_PATTERN.matcher(workspaceName).matches();
+    }
+
+    /**
+     * Gets the result of a task, waits until the task completes or the upload is cancelled.
+     *
+     * @param <T> the generic type
+     * @param future the future
+     * @return the result, null if the task failed
+     * @throws InterruptedException thrown if the upload is cancelled
+     */
+    private <T> T getResult(Future<T> future) throws InterruptedException
+    {
+        while(!cancelled)
+        {
+            try
+            {
+                return future.get(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+            }
+            catch (TimeoutException e)
+            {
+                // Check whether cancelled and wait again
+            }
+            catch (ExecutionException e)
+            {
+                ConsoleManager.getInstance().exception(this, e);
+                return null;
+            }
+        }
+        throw new InterruptedException();
+    }
+
+    /**
+     * Cancel the upload, styles not yet uploaded are reported as failed.
+     */
+    public void cancel()
+    {
+        cancelled = true;
+
+        ExecutorService pool = executor;
+        if(pool != null)
+        {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Checks if the upload has been cancelled.
+     *
+     * @return true, if cancelled
+     */
+    public boolean isCancelled()
+    {
+        return cancelled;
+    }
+}
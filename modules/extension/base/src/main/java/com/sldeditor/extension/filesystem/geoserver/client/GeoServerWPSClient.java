@@ -24,17 +24,33 @@ import java.net.URISyntaxException;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import org.eclipse.emf.common.util.EList;
 import org.geotools.data.wps.WebProcessingService;
 import org.geotools.data.wps.request.DescribeProcessRequest;
 import org.geotools.data.wps.response.DescribeProcessResponse;
 import org.geotools.ows.ServiceException;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
 
 import com.sldeditor.common.DataTypeEnum;
 import com.sldeditor.common.console.ConsoleManager;
 import com.sldeditor.common.data.GeoServerConnection;
+import com.sldeditor.common.utils.DaemonThreadFactory;
 
 import net.opengis.ows11.DomainMetadataType;
 import net.opengis.wps10.ComplexDataCombinationsType;
@@ -80,6 +96,45 @@ public class GeoServerWPSClient implements GeoServerWPSClientInterface {
     /** The raster geometry type list. */
     private static List<String> rasterGeometryTypeList = Arrays.asList(rasterGeometryTypeArray);
 
+    /** The Constant ALL_PROCESSES, the identifier requesting all process descriptions. */
+    private static final String ALL_PROCESSES = "ALL";
+
+    /** The Constant MAX_CONNECTIONS, the maximum number of concurrent DescribeProcess requests. */
+    private static final int MAX_CONNECTIONS = 8;
+
+    /** The Constant THREAD_KEEP_ALIVE, seconds an idle DescribeProcess thread is kept. */
+    private static final long THREAD_KEEP_ALIVE = 60L;
+
+    /** The Constant VERSION_PATH, the REST path describing the GeoServer build. */
+    private static final String VERSION_PATH = "about/version.xml";
+
+    /** The Constant GEOSERVER_RESOURCE_NAME, the version.xml resource describing GeoServer itself. */
+    private static final String GEOSERVER_RESOURCE_NAME = "GeoServer";
+
+    /**
+     * The process descriptions read from a GeoServer instance.
+     */
+    private static class ProcessCacheEntry
+    {
+        /** The GeoServer version and build, empty if not available. */
+        private String serverVersion;
+
+        /** The advertised process identifiers. */
+        private List<String> identifierList;
+
+        /** The process descriptions. */
+        private List<ProcessDescriptionType> processList;
+    }
+
+    /** The cached process descriptions, keyed on url and user name. */
+    private static Map<String, ProcessCacheEntry> processCache = new ConcurrentHashMap<String, ProcessCacheEntry>();
+
+    /** The thread factory naming the DescribeProcess threads. */
+    private static final ThreadFactory threadFactory = new DaemonThreadFactory("GeoServerWPSClient");
+
+    /** The pool issuing DescribeProcess requests, shared by all connections, idle threads exit. */
+    private static final ExecutorService describePool = createDescribePool();
+
     /** The GeoServer connection. */
     private GeoServerConnection connection = null;
 
@@ -96,8 +151,24 @@ public class GeoServerWPSClient implements GeoServerWPSClientInterface {
         this.connection = connection;
     }
 
+    /**
+     * Creates the pool issuing DescribeProcess requests.
+     *
+     * @return the executor service
+     */
+    private static ExecutorService createDescribePool()
+    {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(MAX_CONNECTIONS, MAX_CONNECTIONS,
+                THREAD_KEEP_ALIVE, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), threadFactory);
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
     /**
      * Gets the capabilities.
+     * <p>The process descriptions are cached per connection url and user and are
+     * reused while the advertised process identifiers and the GeoServer version
+     * and build are unchanged.
      *
      * @return returns true if capabilities read, false if error
      */
@@ -118,24 +189,35 @@ public class GeoServerWPSClient implements GeoServerWPSClientInterface {
 
             ProcessOfferingsType processOfferings = capabilities.getProcessOfferings();
 
+            List<String> identifierList = new ArrayList<String>();
             EList processObjList = processOfferings.getProcess();
             for(Object processObj : processObjList)
             {
                 ProcessBriefTypeImpl process = (ProcessBriefTypeImpl) processObj;
-                String functionIdentifier = process.getIdentifier().getValue();
+                identifierList.add(process.getIdentifier().getValue());
+            }
 
-                // create a WebProcessingService as shown above, then do a full describeprocess on my process
-                DescribeProcessRequest descRequest = wps.createDescribeProcessRequest();
-                descRequest.setIdentifier(functionIdentifier); // describe the double addition process
+            String cacheKey = connectionString + "|" + connection.getUserName();
+            String serverVersion = getServerVersion();
 
-                // send the request and get the ProcessDescriptionType bean to create a WPSFactory
-                DescribeProcessResponse descResponse = wps.issueRequest(descRequest);
-                ProcessDescriptionsType processDesc = descResponse.getProcessDesc();
-                ProcessDescriptionType pdt = (ProcessDescriptionType) processDesc.getProcessDescription().get(0);
+            ProcessCacheEntry cacheEntry = processCache.get(cacheKey);
+            if((cacheEntry != null) &&
+                    cacheEntry.serverVersion.equals(serverVersion) &&
+                    cacheEntry.identifierList.equals(identifierList))
+            {
+                processList.addAll(cacheEntry.processList);
+            }
+            else
+            {
+                processList.addAll(describeProcesses(wps, identifierList));
 
-                processList.add(pdt);
+                cacheEntry = new ProcessCacheEntry();
+                cacheEntry.serverVersion = serverVersion;
+                cacheEntry.identifierList = identifierList;
+                cacheEntry.processList = new ArrayList<ProcessDescriptionType>(processList);
+                processCache.put(cacheKey, cacheEntry);
             }
-            
+
             ok = true;
         }
         catch (URISyntaxException e) {
@@ -150,10 +232,189 @@ public class GeoServerWPSClient implements GeoServerWPSClientInterface {
         catch (IOException e) {
             ConsoleManager.getInstance().exception(this, e);
         }
-        
+
         return ok;
     }
 
+    /**
+     * Gets the GeoServer version and build from the REST interface.
+     * <p>The WPS capabilities only advertise the protocol version and rarely
+     * supply an update sequence so can not be used to detect a server upgrade.
+     *
+     * @return the server version, empty if not available
+     */
+    private String getServerVersion()
+    {
+        GeoServerRESTRequest request = new GeoServerRESTRequest(connection);
+        Document document = request.getDocument(VERSION_PATH);
+        if(document != null)
+        {
+            NodeList resourceList = document.getElementsByTagName("resource");
+            for(int index = 0; index < resourceList.getLength(); index ++)
+            {
+                Element resource = (Element) resourceList.item(index);
+                if(GEOSERVER_RESOURCE_NAME.equals(resource.getAttribute("name")))
+                {
+                    return resource.getTextContent().trim().replaceAll("\\s+", " ");
+                }
+            }
+        }
+        return "";
+    }
+
+    /**
+     * Read the process descriptions.
+     * <p>All processes are first requested in a single DescribeProcess request,
+     * any processes not returned are then requested concurrently.
+     *
+     * @param wps the web processing service
+     * @param identifierList the process identifiers in the order advertised
+     * @return the process descriptions in the order advertised
+     * @throws ServiceException the service exception
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private List<ProcessDescriptionType> describeProcesses(final WebProcessingService wps,
+            List<String> identifierList) throws ServiceException, IOException
+    {
+        Map<String, ProcessDescriptionType> processMap = new HashMap<String, ProcessDescriptionType>();
+
+        if(!identifierList.isEmpty())
+        {
+            try
+            {
+                for(ProcessDescriptionType pdt : describeProcess(wps, ALL_PROCESSES))
+                {
+                    processMap.put(pdt.getIdentifier().getValue(), pdt);
+                }
+            }
+            catch (ServiceException e)
+            {
+                logDescribeAllFailed(e);
+            }
+            catch (IOException e)
+            {
+                logDescribeAllFailed(e);
+            }
+        }
+
+        List<String> missingList = new ArrayList<String>();
+        for(String identifier : identifierList)
+        {
+            if(!processMap.containsKey(identifier))
+            {
+                missingList.add(identifier);
+            }
+        }
+
+        if(!missingList.isEmpty())
+        {
+            Map<String, Future<List<ProcessDescriptionType>>> futureMap = new LinkedHashMap<String, Future<List<ProcessDescriptionType>>>();
+            try
+            {
+                for(final String identifier : missingList)
+                {
+                    futureMap.put(identifier, describePool.submit(new Callable<List<ProcessDescriptionType>>() {
+                        @Override
+                        public List<ProcessDescriptionType> call() throws ServiceException, IOException {
+                            return describeProcess(wps, identifier);
+                        }
+                    }));
+                }
+
+                for(Map.Entry<String, Future<List<ProcessDescriptionType>>> entry : futureMap.entrySet())
+                {
+                    List<ProcessDescriptionType> pdtList = entry.getValue().get();
+                    if(!pdtList.isEmpty())
+                    {
+                        processMap.put(entry.getKey(), pdtList.get(0));
+                    }
+                }
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            }
+            catch (ExecutionException e)
+            {
+                if(e.getCause() instanceof ServiceException)
+                {
+                    throw (ServiceException) e.getCause();
+                }
+                throw new IOException(e.getCause());
+            }
+            finally
+            {
+                // Outstanding requests are no longer required if one has failed
+                for(Future<List<ProcessDescriptionType>> future : futureMap.values())
+                {
+                    future.cancel(true);
+                }
+            }
+        }
+
+        List<ProcessDescriptionType> pdtList = new ArrayList<ProcessDescriptionType>();
+        for(String identifier : identifierList)
+        {
+            ProcessDescriptionType pdt = processMap.get(identifier);
+            if(pdt != null)
+            {
+                pdtList.add(pdt);
+            }
+        }
+        return pdtList;
+    }
+
+    /**
+     * Log that all processes could not be described in one request.
+     *
+     * @param e the exception
+     */
+    private void logDescribeAllFailed(Exception e)
+    {
+        ConsoleManager.getInstance().information(this,
+                String.format("%s : DescribeProcess for all processes failed, describing each process : %s",
+                        connection.getConnectionName(), e.getMessage()));
+    }
+
+    /**
+     * Issue a DescribeProcess request.
+     *
+     * @param wps the web processing service
+     * @param identifier the process identifier
+     * @return the process descriptions returned
+     * @throws ServiceException the service exception
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private static List<ProcessDescriptionType> describeProcess(WebProcessingService wps, String identifier)
+            throws ServiceException, IOException
+    {
+        DescribeProcessRequest descRequest = wps.createDescribeProcessRequest();
+        descRequest.setIdentifier(identifier);
+
+        // send the request and get the ProcessDescriptionType beans
+        DescribeProcessResponse descResponse = wps.issueRequest(descRequest);
+
+        List<ProcessDescriptionType> pdtList = new ArrayList<ProcessDescriptionType>();
+        ProcessDescriptionsType processDesc = descResponse.getProcessDesc();
+        if(processDesc != null)
+        {
+            for(Object obj : processDesc.getProcessDescription())
+            {
+                pdtList.add((ProcessDescriptionType) obj);
+            }
+        }
+        return pdtList;
+    }
+
+    /**
+     * Clear the cached process descriptions for all connections.
+     */
+    public static void clearCache()
+    {
+        processCache.clear();
+    }
+
     /**
      * Gets the render transformations.
      *
@@ -77,6 +77,17 @@ public class FileSystemExtensionFactoryTest {
             return false;
         }
 
+        /**
+         * Tree collapsed.
+         *
+         * @param selectedItem the selected item
+         * @return true, if successful
+         */
+        @Override
+        public boolean treeCollapsed(Object selectedItem) {
+            return false;
+        }
+
         /**
          * Right mouse button.
          *
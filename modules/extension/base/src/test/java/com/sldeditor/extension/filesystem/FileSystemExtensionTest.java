@@ -83,6 +83,17 @@ public class FileSystemExtensionTest {
             return false;
         }
 
+        /**
+         * Tree collapsed.
+         *
+         * @param selectedItem the selected item
+         * @return true, if successful
+         */
+        @Override
+        public boolean treeCollapsed(Object selectedItem) {
+            return false;
+        }
+
         /**
          * Right mouse button.
          *
@@ -20,10 +20,12 @@ package com.sldeditor.extension.filesystem.geoserver;
 
 import java.util.List;
 
+import com.sldeditor.common.SLDDataInterface;
 import com.sldeditor.common.data.GeoServerConnection;
 import com.sldeditor.common.data.GeoServerLayer;
 import com.sldeditor.common.data.StyleWrapper;
 import com.sldeditor.extension.filesystem.geoserver.client.GeoServerClientInterface;
+import com.sldeditor.extension.filesystem.geoserver.client.GeoServerStyleUploadReport;
 
 /**
  * @author Robert Ward (SCISYS)
@@ -74,6 +76,21 @@ public class DummyGeoServerClient implements GeoServerClientInterface {
         return true;
     }
 
+    @Override
+    public GeoServerStyleUploadReport uploadSLDs(List<SLDDataInterface> sldDataList) {
+        GeoServerStyleUploadReport report = new GeoServerStyleUploadReport();
+        if(sldDataList != null)
+        {
+            for(SLDDataInterface sldData : sldDataList)
+            {
+                GeoServerStyleUploadReport.Result result = new GeoServerStyleUploadReport.Result(sldData.getStyle());
+                result.setOutcome(true, false, 201, 1, 0, null);
+                report.addResult(result);
+            }
+        }
+        return report;
+    }
+
     @Override
     public boolean updateLayerStyles(GeoServerLayer originalLayer) {
         return true;
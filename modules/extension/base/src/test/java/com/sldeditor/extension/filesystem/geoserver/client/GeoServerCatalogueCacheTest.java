@@ -0,0 +1,266 @@
+/*
+ * SLD Editor - The Open Source Java SLD Editor
+ *
+ * Copyright (C) 2016, SCISYS UK Limited
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sldeditor.extension.filesystem.geoserver.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sldeditor.common.data.GeoServerConnection;
+import com.sldeditor.common.data.GeoServerLayer;
+import com.sldeditor.common.data.StyleWrapper;
+
+/**
+ * Unit test for GeoServerCatalogueCache class.
+ * <p>{@link com.sldeditor.extension.filesystem.geoserver.client.GeoServerCatalogueCache}
+ *
+ * @author Robert Ward (SCISYS)
+ */
+public class GeoServerCatalogueCacheTest {
+
+    private static final String PASSWORD = "s3cr3tPassw0rd";
+
+    private File cacheFolder = null;
+
+    private GeoServerConnection connection = null;
+
+    /**
+     * Create a temporary cache folder.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    @Before
+    public void setUp() throws IOException {
+        cacheFolder = Files.createTempDirectory("geoservercache").toFile();
+
+        connection = new GeoServerConnection();
+        connection.setConnectionName("Test");
+        connection.setUrl(new URL("http://localhost:8080/geoserver"));
+        connection.setUserName("admin");
+        connection.setPassword(PASSWORD);
+    }
+
+    /**
+     * Delete the temporary cache folder.
+     */
+    @After
+    public void tearDown() {
+        new GeoServerCatalogueCache(cacheFolder, connection).clear();
+        cacheFolder.delete();
+    }
+
+    /**
+     * Creates the style map.
+     *
+     * @param styleNames the style names
+     * @return the style map
+     */
+    private Map<String, List<StyleWrapper>> createStyleMap(String... styleNames) {
+        Map<String, List<StyleWrapper>> styleMap = new LinkedHashMap<String, List<StyleWrapper>>();
+        List<StyleWrapper> styleList = new ArrayList<StyleWrapper>();
+        for(String styleName : styleNames)
+        {
+            styleList.add(new StyleWrapper("ws", styleName));
+        }
+        styleMap.put("ws", styleList);
+        return styleMap;
+    }
+
+    /**
+     * Creates the layer map.
+     *
+     * @return the layer map
+     */
+    private Map<String, List<GeoServerLayer>> createLayerMap() {
+        Map<String, List<GeoServerLayer>> layerMap = new LinkedHashMap<String, List<GeoServerLayer>>();
+        List<GeoServerLayer> layerList = new ArrayList<GeoServerLayer>();
+        GeoServerLayer layer = new GeoServerLayer("ws", "roads");
+        layer.setStyle(new StyleWrapper("ws", "line"));
+        layer.setConnection(connection);
+        layerList.add(layer);
+        layerMap.put("ws", layerList);
+        return layerMap;
+    }
+
+    /**
+     * Test method for {@link com.sldeditor.extension.filesystem.geoserver.client.GeoServerCatalogueCache#save()}.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    @Test
+    public void testSaveLoad() throws IOException {
+        GeoServerCatalogueCache cache = new GeoServerCatalogueCache(cacheFolder, connection);
+        cache.load();
+        assertFalse(cache.hasCatalogue());
+
+        assertTrue(cache.updateCatalogue(createStyleMap("line", "point"), createLayerMap()));
+        StyleWrapper lineStyle = new StyleWrapper("ws", "line");
+        cache.putStyle(lineStyle, "<sld/>", "\"abc\"", "Tue, 01 Mar 2016 10:00:00 GMT");
+        cache.save();
+
+        assertTrue(cache.getCacheFile().exists());
+        assertTrue(cache.getCacheFile().getAbsolutePath().startsWith(cacheFolder.getAbsolutePath()));
+
+        // The password must not be written to the cache
+        String contents = new String(Files.readAllBytes(cache.getCacheFile().toPath()), "ISO-8859-1");
+        assertFalse(contents.contains(PASSWORD));
+        assertTrue(contents.contains("version=" + GeoServerCatalogueCache.CACHE_VERSION));
+
+        GeoServerCatalogueCache reloaded = new GeoServerCatalogueCache(cacheFolder, connection);
+        reloaded.load();
+        assertTrue(reloaded.hasCatalogue());
+
+        Map<String, List<StyleWrapper>> styleMap = reloaded.getStyleMap();
+        assertEquals(2, styleMap.get("ws").size());
+        assertEquals("point", styleMap.get("ws").get(1).getStyle());
+
+        List<GeoServerLayer> layerList = reloaded.getLayerMap().get("ws");
+        assertEquals(1, layerList.size());
+        assertEquals("roads", layerList.get(0).getLayerName());
+        assertEquals("line", layerList.get(0).getStyle().getStyle());
+        assertEquals(connection, layerList.get(0).getConnection());
+
+        GeoServerCatalogueCache.CachedStyle cachedStyle = reloaded.getStyle(lineStyle);
+        assertNotNull(cachedStyle);
+        assertEquals("<sld/>", cachedStyle.getSld());
+        assertEquals("\"abc\"", cachedStyle.getETag());
+        assertEquals("Tue, 01 Mar 2016 10:00:00 GMT", cachedStyle.getLastModified());
+
+        // Not checked against GeoServer since the cache was read
+        assertFalse(cachedStyle.isValidated());
+        reloaded.setValidated(lineStyle);
+        assertTrue(reloaded.getStyle(lineStyle).isValidated());
+
+        // A different user gets a different cache
+        GeoServerConnection otherConnection = connection.duplicate();
+        otherConnection.setUserName("other");
+        GeoServerCatalogueCache otherCache = new GeoServerCatalogueCache(cacheFolder, otherConnection);
+        assertFalse(otherCache.getCacheFile().equals(cache.getCacheFile()));
+        otherCache.load();
+        assertFalse(otherCache.hasCatalogue());
+
+        reloaded.clear();
+        assertFalse(reloaded.hasCatalogue());
+    }
+
+    /**
+     * Test method for {@link com.sldeditor.extension.filesystem.geoserver.client.GeoServerCatalogueCache#updateCatalogue(java.util.Map, java.util.Map)}.
+     */
+    @Test
+    public void testUpdateCatalogue() {
+        GeoServerCatalogueCache cache = new GeoServerCatalogueCache(cacheFolder, connection);
+        cache.load();
+
+        assertTrue(cache.updateCatalogue(createStyleMap("line", "point"), createLayerMap()));
+        StyleWrapper pointStyle = new StyleWrapper("ws", "point");
+        cache.putStyle(pointStyle, "<point/>", null, null);
+
+        // Unchanged
+        assertFalse(cache.updateCatalogue(createStyleMap("line", "point"), createLayerMap()));
+        assertNotNull(cache.getStyle(pointStyle));
+        assertEquals(1, cache.getCachedStyleList().size());
+
+        // Style removed, cached body removed
+        assertTrue(cache.updateCatalogue(createStyleMap("line"), createLayerMap()));
+        assertNull(cache.getStyle(pointStyle));
+        assertTrue(cache.getCachedStyleList().isEmpty());
+
+        // Workspace refresh
+        List<StyleWrapper> styleList = new ArrayList<StyleWrapper>();
+        styleList.add(new StyleWrapper("ws", "polygon"));
+        cache.updateWorkspaceStyles("ws", styleList);
+        assertEquals("polygon", cache.getStyleMap().get("ws").get(0).getStyle());
+
+        // Style deleted
+        cache.removeStyle(pointStyle);
+        assertNull(cache.getStyle(pointStyle));
+    }
+
+    /**
+     * Test method for {@link com.sldeditor.extension.filesystem.geoserver.client.GeoServerCatalogueCache#putStyle(com.sldeditor.common.data.StyleWrapper, java.lang.String, java.lang.String, java.lang.String)}.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    @Test
+    public void testPutStyleDoesNotRewriteCatalogue() throws IOException {
+        GeoServerCatalogueCache cache = new GeoServerCatalogueCache(cacheFolder, connection);
+        cache.load();
+        cache.updateCatalogue(createStyleMap("line", "point"), createLayerMap());
+        cache.save();
+        assertTrue(cache.getCacheFile().delete());
+
+        // Sld bodies are written to their own files, the unchanged catalogue is not written again
+        StyleWrapper pointStyle = new StyleWrapper("ws", "point");
+        cache.putStyle(pointStyle, "<point/>", null, null);
+        cache.save();
+        assertFalse(cache.getCacheFile().exists());
+
+        // Catalogue changed
+        cache.updateCatalogue(createStyleMap("line", "point", "polygon"), createLayerMap());
+        cache.save();
+        assertTrue(cache.getCacheFile().exists());
+
+        GeoServerCatalogueCache reloaded = new GeoServerCatalogueCache(cacheFolder, connection);
+        reloaded.load();
+        assertEquals("<point/>", reloaded.getStyle(pointStyle).getSld());
+        assertEquals(3, reloaded.getStyleMap().get("ws").size());
+
+        // Removing the style deletes its file
+        reloaded.removeStyle(pointStyle);
+        GeoServerCatalogueCache reloadedAgain = new GeoServerCatalogueCache(cacheFolder, connection);
+        reloadedAgain.load();
+        assertNull(reloadedAgain.getStyle(pointStyle));
+    }
+
+    /**
+     * Test method for {@link com.sldeditor.extension.filesystem.geoserver.client.GeoServerCatalogueCache#load()}.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    @Test
+    public void testLoadCorrupt() throws IOException {
+        GeoServerCatalogueCache cache = new GeoServerCatalogueCache(cacheFolder, connection);
+        cache.getCacheFile().getParentFile().mkdirs();
+        Files.write(cache.getCacheFile().toPath(), "not a cache".getBytes("UTF-8"));
+
+        cache.load();
+        assertFalse(cache.hasCatalogue());
+        assertTrue(cache.updateCatalogue(createStyleMap("line"), createLayerMap()));
+        cache.save();
+
+        GeoServerCatalogueCache reloaded = new GeoServerCatalogueCache(cacheFolder, connection);
+        reloaded.load();
+        assertTrue(reloaded.hasCatalogue());
+    }
+}
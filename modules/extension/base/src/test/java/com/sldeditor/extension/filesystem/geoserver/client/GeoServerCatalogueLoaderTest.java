@@ -0,0 +1,387 @@
+/*
+ * SLD Editor - The Open Source Java SLD Editor
+ *
+ * Copyright (C) 2016, SCISYS UK Limited
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sldeditor.extension.filesystem.geoserver.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sldeditor.common.data.GeoServerConnection;
+import com.sldeditor.common.data.GeoServerLayer;
+import com.sldeditor.common.data.StyleWrapper;
+import com.sldeditor.extension.filesystem.geoserver.GeoServerReadProgressInterface;
+import com.sun.net.httpserver.HttpExchange;
+
+/**
+ * Unit test for GeoServerCatalogueLoader class using a local stub of the GeoServer REST interface.
+ * <p>{@link com.sldeditor.extension.filesystem.geoserver.client.GeoServerCatalogueLoader}
+ *
+ * @author Robert Ward (SCISYS)
+ */
+public class GeoServerCatalogueLoaderTest {
+
+    private static final String DEFAULT_WORKSPACE_NAME = "<Default Workspace>";
+
+    private static final int NO_OF_WORKSPACES = 5;
+
+    private static final int NO_OF_LAYERS_PER_WORKSPACE = 20;
+
+    private GeoServerStubServer server = null;
+
+    private GeoServerConnection connection = null;
+
+    private AtomicInteger requestCount = new AtomicInteger(0);
+
+    private volatile CountDownLatch blockLayerRequests = null;
+
+    private volatile boolean listStyles = false;
+
+    /**
+     * Progress class recording the callbacks.
+     */
+    class TestProgressClass implements GeoServerReadProgressInterface
+    {
+        private List<String> workspaceCompleteList = Collections.synchronizedList(new ArrayList<String>());
+        private int lastCount = 0;
+        private int total = 0;
+        private Map<String, List<GeoServerLayer>> layerMap = null;
+
+        @Override
+        public void startPopulating(GeoServerConnection connection) {
+        }
+
+        @Override
+        public void readStylesComplete(GeoServerConnection connection,
+                Map<String, List<StyleWrapper>> styleMap, boolean partialRefresh) {
+        }
+
+        @Override
+        public void readStylesProgress(GeoServerConnection connection, int count, int total) {
+        }
+
+        @Override
+        public void readLayersComplete(GeoServerConnection connection,
+                Map<String, List<GeoServerLayer>> layerMap) {
+            this.layerMap = layerMap;
+        }
+
+        @Override
+        public void readLayersPartial(GeoServerConnection connection, String workspaceName,
+                List<GeoServerLayer> layerList) {
+            assertEquals(NO_OF_LAYERS_PER_WORKSPACE, layerList.size());
+            workspaceCompleteList.add(workspaceName);
+        }
+
+        @Override
+        public void readLayersProgress(GeoServerConnection connection, int count, int total) {
+            assertEquals(lastCount + 1, count);
+            lastCount = count;
+            this.total = total;
+        }
+    }
+
+    /**
+     * Start the stub GeoServer REST server.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    @Before
+    public void setUp() throws IOException {
+        server = new GeoServerStubServer("/geoserver/rest/", new GeoServerStubServer.StubHandler() {
+            @Override
+            public GeoServerStubServer.StubResponse handle(HttpExchange exchange) throws IOException {
+                requestCount.incrementAndGet();
+                String response = createResponse(exchange.getRequestURI().getPath().substring("/geoserver/rest/".length()));
+
+                return new GeoServerStubServer.StubResponse((response == null) ? 404 : 200, response);
+            }
+        });
+
+        connection = server.createConnection();
+    }
+
+    /**
+     * Stop the stub server.
+     */
+    @After
+    public void tearDown() {
+        server.stop();
+    }
+
+    /**
+     * Creates the stub response.
+     *
+     * @param path the request path relative to the REST end point
+     * @return the response, null if not found
+     */
+    private String createResponse(String path) {
+        if(path.equals("layers.xml"))
+        {
+            StringBuilder sb = new StringBuilder("<layers>");
+            for(int ws = 0; ws < NO_OF_WORKSPACES; ws ++)
+            {
+                for(int index = 0; index < NO_OF_LAYERS_PER_WORKSPACE; index ++)
+                {
+                    sb.append(String.format("<layer><name>layer_%d_%d</name>%s</layer>", ws, index,
+                            createListedStyle(String.format("layer_%d_%d", ws, index), "ws" + ws)));
+                }
+            }
+            // Layer not in a workspace listing
+            sb.append("<layer><name>orphan</name>" + createListedStyle(null, null) + "</layer>");
+            sb.append("</layers>");
+            return sb.toString();
+        }
+        else if(path.startsWith("workspaces/") && path.endsWith("/layers.xml"))
+        {
+            String workspace = path.substring("workspaces/".length(), path.indexOf("/layers.xml"));
+            int ws = Integer.valueOf(workspace.substring("ws".length()));
+            StringBuilder sb = new StringBuilder("<layers>");
+            for(int index = 0; index < NO_OF_LAYERS_PER_WORKSPACE; index ++)
+            {
+                sb.append(String.format("<layer><name>layer_%d_%d</name>%s<atom:link xmlns:atom=\"http://www.w3.org/2005/Atom\" rel=\"alternate\" href=\"x\"/></layer>", ws, index,
+                        createListedStyle(String.format("layer_%d_%d", ws, index), workspace)));
+            }
+            sb.append("</layers>");
+            return sb.toString();
+        }
+        else if(path.startsWith("layers/"))
+        {
+            CountDownLatch latch = blockLayerRequests;
+            if(latch != null)
+            {
+                try {
+                    latch.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    // Ignore
+                }
+            }
+
+            String name = path.substring("layers/".length(), path.length() - ".xml".length());
+            if(name.equals("orphan"))
+            {
+                return "<layer><name>orphan</name><defaultStyle><name>line</name></defaultStyle>"
+                        + "<resource class=\"featureType\"><name>orphan</name></resource></layer>";
+            }
+            String layerName = name.substring(name.indexOf(':') + 1);
+            return String.format("<layer><name>%s</name><defaultStyle><name>style_%s</name><workspace>%s</workspace></defaultStyle></layer>",
+                    layerName, layerName, name.substring(0, name.indexOf(':')));
+        }
+        return null;
+    }
+
+    /**
+     * Creates the default style element included in a layer listing when styles are listed.
+     *
+     * @param layerName the layer name, null for the orphan layer
+     * @param workspace the workspace
+     * @return the default style element, empty if styles are not listed
+     */
+    private String createListedStyle(String layerName, String workspace) {
+        if(!listStyles)
+        {
+            return "";
+        }
+        if(layerName == null)
+        {
+            return "<defaultStyle><name>line</name></defaultStyle>";
+        }
+        return String.format("<defaultStyle><name>style_%s</name><workspace>%s</workspace></defaultStyle>", layerName, workspace);
+    }
+
+    /**
+     * Creates the workspace list.
+     *
+     * @return the list
+     */
+    private List<String> createWorkspaceList() {
+        List<String> workspaceList = new ArrayList<String>();
+        for(int ws = 0; ws < NO_OF_WORKSPACES; ws ++)
+        {
+            workspaceList.add("ws" + ws);
+        }
+        return workspaceList;
+    }
+
+    /**
+     * Test method for {@link com.sldeditor.extension.filesystem.geoserver.client.GeoServerCatalogueLoader#loadLayers(java.util.List)}.
+     */
+    @Test
+    public void testLoadLayers() {
+        TestProgressClass progress = new TestProgressClass();
+        GeoServerCatalogueLoader loader = new GeoServerCatalogueLoader(connection, DEFAULT_WORKSPACE_NAME, progress, 4);
+
+        List<String> workspaceList = createWorkspaceList();
+        Map<String, List<GeoServerLayer>> layerMap = loader.loadLayers(workspaceList);
+
+        // Workspaces in the order supplied, default workspace last
+        List<String> expectedWorkspaces = new ArrayList<String>(workspaceList);
+        expectedWorkspaces.add(DEFAULT_WORKSPACE_NAME);
+        assertEquals(expectedWorkspaces, new ArrayList<String>(layerMap.keySet()));
+        assertEquals(layerMap, progress.layerMap);
+
+        for(int ws = 0; ws < NO_OF_WORKSPACES; ws ++)
+        {
+            List<GeoServerLayer> layerList = layerMap.get("ws" + ws);
+            assertEquals(NO_OF_LAYERS_PER_WORKSPACE, layerList.size());
+            for(int index = 0; index < NO_OF_LAYERS_PER_WORKSPACE; index ++)
+            {
+                GeoServerLayer layer = layerList.get(index);
+                String expectedName = String.format("layer_%d_%d", ws, index);
+                assertEquals(expectedName, layer.getLayerName());
+                assertEquals("ws" + ws, layer.getLayerWorkspace());
+                assertEquals("style_" + expectedName, layer.getStyle().getStyle());
+                assertEquals("ws" + ws, layer.getStyle().getWorkspace());
+                assertEquals(connection, layer.getConnection());
+            }
+        }
+
+        List<GeoServerLayer> defaultLayerList = layerMap.get(DEFAULT_WORKSPACE_NAME);
+        assertEquals(1, defaultLayerList.size());
+        assertEquals("orphan", defaultLayerList.get(0).getLayerName());
+        assertEquals(DEFAULT_WORKSPACE_NAME, defaultLayerList.get(0).getStyle().getWorkspace());
+
+        // Incremental results
+        int totalLayers = (NO_OF_WORKSPACES * NO_OF_LAYERS_PER_WORKSPACE) + 1;
+        assertTrue(progress.workspaceCompleteList.containsAll(workspaceList));
+        assertEquals(totalLayers, progress.total);
+        assertEquals(totalLayers, progress.lastCount);
+
+        // 1 layer list, 1 listing per workspace, 1 call per layer
+        int expectedRequests = 1 + NO_OF_WORKSPACES + totalLayers;
+        assertEquals(expectedRequests, loader.getRequestCount());
+        assertEquals(expectedRequests, requestCount.get());
+        assertTrue(loader.getElapsedTime() >= 0);
+    }
+
+    /**
+     * Test method for {@link com.sldeditor.extension.filesystem.geoserver.client.GeoServerCatalogueLoader#loadLayers(java.util.List)}
+     * when the listings include the default style of each layer.
+     */
+    @Test
+    public void testLoadLayersFromListings() {
+        listStyles = true;
+
+        TestProgressClass progress = new TestProgressClass();
+        GeoServerCatalogueLoader loader = new GeoServerCatalogueLoader(connection, DEFAULT_WORKSPACE_NAME, progress, 2);
+
+        Map<String, List<GeoServerLayer>> layerMap = loader.loadLayers(createWorkspaceList());
+
+        for(int ws = 0; ws < NO_OF_WORKSPACES; ws ++)
+        {
+            List<GeoServerLayer> layerList = layerMap.get("ws" + ws);
+            assertEquals(NO_OF_LAYERS_PER_WORKSPACE, layerList.size());
+            for(int index = 0; index < NO_OF_LAYERS_PER_WORKSPACE; index ++)
+            {
+                GeoServerLayer layer = layerList.get(index);
+                String expectedName = String.format("layer_%d_%d", ws, index);
+                assertEquals(expectedName, layer.getLayerName());
+                assertEquals("style_" + expectedName, layer.getStyle().getStyle());
+                assertEquals("ws" + ws, layer.getStyle().getWorkspace());
+            }
+        }
+
+        List<GeoServerLayer> defaultLayerList = layerMap.get(DEFAULT_WORKSPACE_NAME);
+        assertEquals(1, defaultLayerList.size());
+        assertEquals("line", defaultLayerList.get(0).getStyle().getStyle());
+
+        // 1 layer list and 1 listing per workspace, no call per layer
+        int expectedRequests = 1 + NO_OF_WORKSPACES;
+        assertEquals(expectedRequests, loader.getRequestCount());
+        assertEquals(expectedRequests, requestCount.get());
+    }
+
+    /**
+     * Test method for {@link com.sldeditor.extension.filesystem.geoserver.client.GeoServerCatalogueLoader#start(java.util.List)}.
+     *
+     * @throws InterruptedException the interrupted exception
+     */
+    @Test
+    public void testStart() throws InterruptedException {
+        final CountDownLatch complete = new CountDownLatch(1);
+        final List<String> threadNameList = Collections.synchronizedList(new ArrayList<String>());
+
+        TestProgressClass progress = new TestProgressClass() {
+            @Override
+            public void readLayersComplete(GeoServerConnection connection,
+                    Map<String, List<GeoServerLayer>> layerMap) {
+                super.readLayersComplete(connection, layerMap);
+                threadNameList.add(Thread.currentThread().getName());
+                complete.countDown();
+            }
+        };
+        GeoServerCatalogueLoader loader = new GeoServerCatalogueLoader(connection, DEFAULT_WORKSPACE_NAME, progress, 2);
+        loader.start(createWorkspaceList());
+
+        assertTrue(complete.await(10, TimeUnit.SECONDS));
+        assertTrue(threadNameList.get(0).startsWith("GeoServerCatalogueLoader-"));
+    }
+
+    /**
+     * Test method for {@link com.sldeditor.extension.filesystem.geoserver.client.GeoServerCatalogueLoader#cancel()}.
+     *
+     * @throws InterruptedException the interrupted exception
+     */
+    @Test
+    public void testCancel() throws InterruptedException {
+        blockLayerRequests = new CountDownLatch(1);
+
+        TestProgressClass progress = new TestProgressClass();
+        final GeoServerCatalogueLoader loader = new GeoServerCatalogueLoader(connection, DEFAULT_WORKSPACE_NAME, progress, 2);
+
+        Thread cancelThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(500);
+                } catch (InterruptedException e) {
+                    // Ignore
+                }
+                loader.cancel();
+                blockLayerRequests.countDown();
+            }
+        });
+        cancelThread.start();
+
+        long startTime = System.currentTimeMillis();
+        assertNull(loader.loadLayers(createWorkspaceList()));
+        assertTrue(loader.isCancelled());
+        assertTrue((System.currentTimeMillis() - startTime) < 10000);
+        assertNull(progress.layerMap);
+
+        cancelThread.join();
+
+        // No more requests once cancelled
+        assertTrue(loader.getRequestCount() < (1 + NO_OF_WORKSPACES + 10));
+        assertEquals(Arrays.asList(new String[0]), progress.workspaceCompleteList);
+    }
+}
@@ -93,6 +93,12 @@ public class GeoServerClientTest {
             layersComplete = true;
         }
 
+        @Override
+        public void readLayersPartial(GeoServerConnection connection, String workspaceName,
+                List<GeoServerLayer> layerList) {
+            System.out.println(String.format("Workspace %s : %d layers", workspaceName, layerList.size()));
+        }
+
         @Override
         public void readLayersProgress(GeoServerConnection connection, int count, int total) {
             System.out.println(String.format("Layers : %d/%d", count, total));
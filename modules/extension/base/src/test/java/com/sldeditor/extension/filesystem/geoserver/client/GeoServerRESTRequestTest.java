@@ -0,0 +1,181 @@
+/*
+ * SLD Editor - The Open Source Java SLD Editor
+ *
+ * Copyright (C) 2016, SCISYS UK Limited
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sldeditor.extension.filesystem.geoserver.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.w3c.dom.Document;
+
+import com.sldeditor.common.data.GeoServerConnection;
+import com.sldeditor.common.data.StyleWrapper;
+import com.sun.net.httpserver.HttpExchange;
+
+/**
+ * Unit test for GeoServerRESTRequest class using a local stub of the GeoServer REST interface.
+ * <p>{@link com.sldeditor.extension.filesystem.geoserver.client.GeoServerRESTRequest}
+ *
+ * @author Robert Ward (SCISYS)
+ */
+public class GeoServerRESTRequestTest {
+
+    private static final String CURRENT_ETAG = "\"v2\"";
+
+    private static final String CURRENT_SLD = "<StyledLayerDescriptor version=\"v2\"/>";
+
+    private GeoServerStubServer server = null;
+
+    private GeoServerConnection connection = null;
+
+    private AtomicInteger requestCount = new AtomicInteger(0);
+
+    private File cacheFolder = null;
+
+    /**
+     * Start the stub GeoServer REST server.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    @Before
+    public void setUp() throws IOException {
+        server = new GeoServerStubServer("/geoserver/rest/", new GeoServerStubServer.StubHandler() {
+            @Override
+            public GeoServerStubServer.StubResponse handle(HttpExchange exchange) throws IOException {
+                requestCount.incrementAndGet();
+                String path = exchange.getRequestURI().getPath().substring("/geoserver/rest/".length());
+
+                String response = null;
+                int status = HttpURLConnection.HTTP_OK;
+                if(path.equals("doctype.xml"))
+                {
+                    response = "<?xml version=\"1.0\"?><!DOCTYPE names [<!ENTITY xxe SYSTEM \"file:///etc/passwd\">]>" +
+                            "<names><name>&xxe;</name></names>";
+                }
+                else if(path.equals("names.xml"))
+                {
+                    response = "<names><name>a</name><name>b</name></names>";
+                }
+                else if(path.startsWith("styles/"))
+                {
+                    if(CURRENT_ETAG.equals(exchange.getRequestHeaders().getFirst("If-None-Match")))
+                    {
+                        status = HttpURLConnection.HTTP_NOT_MODIFIED;
+                    }
+                    else
+                    {
+                        response = CURRENT_SLD;
+                        exchange.getResponseHeaders().add("ETag", CURRENT_ETAG);
+                    }
+                }
+                else
+                {
+                    status = HttpURLConnection.HTTP_NOT_FOUND;
+                }
+
+                return new GeoServerStubServer.StubResponse(status, response);
+            }
+        });
+
+        connection = server.createConnection();
+
+        cacheFolder = Files.createTempDirectory("geoservercache").toFile();
+    }
+
+    /**
+     * Stop the stub server and delete the temporary cache folder.
+     */
+    @After
+    public void tearDown() {
+        server.stop();
+        new GeoServerCatalogueCache(cacheFolder, connection).clear();
+        cacheFolder.delete();
+    }
+
+    /**
+     * Test method for {@link com.sldeditor.extension.filesystem.geoserver.client.GeoServerRESTRequest#getDocument(java.lang.String)}.
+     */
+    @Test
+    public void testGetDocument() {
+        GeoServerRESTRequest request = new GeoServerRESTRequest(connection);
+
+        Document document = request.getDocument("names.xml");
+        assertNotNull(document);
+        assertEquals(2, request.getNameList("names.xml", "name").size());
+
+        // Documents with a DOCTYPE are rejected so external entities are never resolved
+        assertNull(request.getDocument("doctype.xml"));
+    }
+
+    /**
+     * Test method for {@link com.sldeditor.extension.filesystem.geoserver.client.GeoServerRESTRequest#get(java.lang.String, java.lang.String, java.lang.String)}.
+     */
+    @Test
+    public void testConditionalGet() {
+        GeoServerRESTRequest request = new GeoServerRESTRequest(connection);
+
+        GeoServerRESTRequest.Response response = request.get("styles/point.sld", null, null);
+        assertEquals(HttpURLConnection.HTTP_OK, response.getStatus());
+        assertEquals(CURRENT_SLD, response.getBodyString());
+        assertEquals(CURRENT_ETAG, response.getETag());
+
+        response = request.get("styles/point.sld", CURRENT_ETAG, null);
+        assertEquals(HttpURLConnection.HTTP_NOT_MODIFIED, response.getStatus());
+    }
+
+    /**
+     * Test method for {@link com.sldeditor.extension.filesystem.geoserver.client.GeoServerClient#getStyle(com.sldeditor.common.data.StyleWrapper)}.
+     */
+    @Test
+    public void testGetStyleRevalidatesCachedStyle() {
+        GeoServerClient client = new GeoServerClient();
+        client.initialise(null, connection);
+        client.setCacheFolder(cacheFolder);
+
+        StyleWrapper currentStyle = new StyleWrapper(client.getDefaultWorkspaceName(), "point");
+        StyleWrapper staleStyle = new StyleWrapper(client.getDefaultWorkspaceName(), "line");
+
+        // Cache written by a previous session
+        GeoServerCatalogueCache previousCache = new GeoServerCatalogueCache(cacheFolder, connection);
+        previousCache.putStyle(currentStyle, CURRENT_SLD, CURRENT_ETAG, null);
+        previousCache.putStyle(staleStyle, "<StyledLayerDescriptor version=\"v1\"/>", "\"v1\"", null);
+
+        // Not modified, the cached copy is returned
+        requestCount.set(0);
+        assertEquals(CURRENT_SLD, client.getStyle(currentStyle));
+        assertEquals(1, requestCount.get());
+
+        // Modified since it was cached, the new copy is returned
+        assertEquals(CURRENT_SLD, client.getStyle(staleStyle));
+        assertEquals(2, requestCount.get());
+
+        // Revalidated once per session
+        assertEquals(CURRENT_SLD, client.getStyle(staleStyle));
+        assertEquals(2, requestCount.get());
+    }
+}
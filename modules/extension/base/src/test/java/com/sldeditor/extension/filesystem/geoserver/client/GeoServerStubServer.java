@@ -0,0 +1,201 @@
+/*
+ * SLD Editor - The Open Source Java SLD Editor
+ *
+ * Copyright (C) 2016, SCISYS UK Limited
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sldeditor.extension.filesystem.geoserver.client;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import com.sldeditor.common.data.GeoServerConnection;
+import com.sldeditor.common.utils.DaemonThreadFactory;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Local stub of a GeoServer instance used by the client unit tests.
+ * <p>The server owns the executor handling the requests and shuts it
+ * down when the server is stopped.
+ *
+ * @author Robert Ward (SCISYS)
+ */
+public class GeoServerStubServer {
+
+    /**
+     * Interface implemented by the tests to create the stub responses.
+     */
+    public interface StubHandler {
+
+        /**
+         * Creates the response to a request.
+         *
+         * @param exchange the exchange, extra response headers may be added to it
+         * @return the response
+         * @throws IOException Signals that an I/O exception has occurred.
+         */
+        StubResponse handle(HttpExchange exchange) throws IOException;
+    }
+
+    /**
+     * The HTTP status and optional XML body of a stub response.
+     */
+    public static class StubResponse {
+
+        /** The HTTP status. */
+        private int status;
+
+        /** The body, null if there is no body. */
+        private String body;
+
+        /**
+         * Instantiates a new stub response.
+         *
+         * @param status the HTTP status
+         * @param body the body, null if there is no body
+         */
+        public StubResponse(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+
+    /** The server. */
+    private HttpServer server = null;
+
+    /** The executor handling the requests. */
+    private ExecutorService executor = null;
+
+    /**
+     * Start a stub server on a free local port.
+     *
+     * @param contextPath the context path handled, e.g. /geoserver/rest/
+     * @param handler the handler creating the responses
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public GeoServerStubServer(String contextPath, final StubHandler handler) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext(contextPath, new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                try
+                {
+                    StubResponse response = handler.handle(exchange);
+                    sendResponse(exchange, response.status, response.body);
+                }
+                finally
+                {
+                    exchange.close();
+                }
+            }
+        });
+        executor = Executors.newCachedThreadPool(new DaemonThreadFactory("GeoServerStubServer"));
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /**
+     * Stop the server and shut down the executor handling the requests.
+     */
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+        try
+        {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        }
+        catch(InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Gets the port the server is listening on.
+     *
+     * @return the port
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Creates a connection to the stub server.
+     *
+     * @return the GeoServer connection
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public GeoServerConnection createConnection() throws IOException {
+        GeoServerConnection connection = new GeoServerConnection();
+        connection.setConnectionName("Stub");
+        connection.setUrl(new URL(String.format("http://localhost:%d/geoserver", getPort())));
+        connection.setUserName("admin");
+        connection.setPassword("geoserver");
+        return connection;
+    }
+
+    /**
+     * Read the request body.
+     *
+     * @param exchange the exchange
+     * @return the body
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public static String readBody(HttpExchange exchange) throws IOException {
+        InputStream inputStream = exchange.getRequestBody();
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int bytesRead;
+        while((bytesRead = inputStream.read(buffer)) >= 0)
+        {
+            outputStream.write(buffer, 0, bytesRead);
+        }
+        return new String(outputStream.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Send the response.
+     *
+     * @param exchange the exchange
+     * @param status the HTTP status
+     * @param response the response body, null if there is no body
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private static void sendResponse(HttpExchange exchange, int status, String response) throws IOException {
+        if(response == null)
+        {
+            exchange.sendResponseHeaders(status, -1);
+        }
+        else
+        {
+            byte[] bytes = response.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/xml");
+            exchange.sendResponseHeaders(status, bytes.length);
+            OutputStream os = exchange.getResponseBody();
+            os.write(bytes);
+            os.close();
+        }
+    }
+}
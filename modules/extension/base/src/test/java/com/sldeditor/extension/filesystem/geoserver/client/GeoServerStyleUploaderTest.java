@@ -0,0 +1,345 @@
+/*
+ * SLD Editor - The Open Source Java SLD Editor
+ *
+ * Copyright (C) 2016, SCISYS UK Limited
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sldeditor.extension.filesystem.geoserver.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sldeditor.common.SLDDataInterface;
+import com.sldeditor.common.data.GeoServerConnection;
+import com.sldeditor.common.data.SLDData;
+import com.sldeditor.common.data.StyleWrapper;
+import com.sun.net.httpserver.HttpExchange;
+
+/**
+ * Unit test for GeoServerStyleUploader class using a local stub of the GeoServer REST interface.
+ * <p>{@link com.sldeditor.extension.filesystem.geoserver.client.GeoServerStyleUploader}
+ *
+ * @author Robert Ward (SCISYS)
+ */
+public class GeoServerStyleUploaderTest {
+
+    private static final String DEFAULT_WORKSPACE_NAME = "<Default Workspace>";
+
+    private static final int NO_OF_STYLES = 20;
+
+    private GeoServerStubServer server = null;
+
+    private GeoServerConnection connection = null;
+
+    private AtomicInteger requestCount = new AtomicInteger(0);
+
+    /** The requests received, method followed by path and query. */
+    private List<String> requestList = Collections.synchronizedList(new ArrayList<String>());
+
+    /** The bodies of the styles received keyed on workspace:style. */
+    private Map<String, String> uploadedMap = new ConcurrentHashMap<String, String>();
+
+    /** The number of times a request for a style should fail before succeeding. */
+    private Map<String, AtomicInteger> failureMap = new ConcurrentHashMap<String, AtomicInteger>();
+
+    /**
+     * Start the stub GeoServer REST server.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    @Before
+    public void setUp() throws IOException {
+        server = new GeoServerStubServer("/geoserver/rest/", new GeoServerStubServer.StubHandler() {
+            @Override
+            public GeoServerStubServer.StubResponse handle(HttpExchange exchange) throws IOException {
+                requestCount.incrementAndGet();
+                String path = exchange.getRequestURI().getPath().substring("/geoserver/rest/".length());
+                String query = exchange.getRequestURI().getQuery();
+                String method = exchange.getRequestMethod();
+                requestList.add(method + " " + path + ((query == null) ? "" : "?" + query));
+
+                String body = GeoServerStubServer.readBody(exchange);
+                int status = createResponse(method, path, query, body);
+
+                String response = null;
+                if(method.equals("GET") && (status == 200))
+                {
+                    response = createListResponse(path);
+                }
+                return new GeoServerStubServer.StubResponse(status, response);
+            }
+        });
+
+        connection = server.createConnection();
+    }
+
+    /**
+     * Stop the stub server.
+     */
+    @After
+    public void tearDown() {
+        server.stop();
+    }
+
+    /**
+     * Creates the response status, recording uploaded styles.
+     *
+     * @param method the HTTP method
+     * @param path the request path relative to the REST end point
+     * @param query the query
+     * @param body the request body
+     * @return the HTTP status
+     */
+    private int createResponse(String method, String path, String query, String body) {
+        if(method.equals("GET"))
+        {
+            return (createListResponse(path) == null) ? 404 : 200;
+        }
+
+        if(method.equals("POST") && path.equals("workspaces"))
+        {
+            return body.contains("<name>newws</name>") ? 201 : 400;
+        }
+
+        String workspace = DEFAULT_WORKSPACE_NAME;
+        String style = null;
+        if(path.startsWith("workspaces/"))
+        {
+            workspace = path.substring("workspaces/".length(), path.indexOf("/styles"));
+        }
+
+        if(method.equals("POST"))
+        {
+            style = query.substring("name=".length()).split("&")[0];
+        }
+        else
+        {
+            style = path.substring(path.lastIndexOf('/') + 1);
+        }
+
+        if(style.equals("invalid"))
+        {
+            return 400;
+        }
+
+        if(style.equals("forbidden"))
+        {
+            return 403;
+        }
+
+        // Created by another client since the existing styles were read
+        if(style.equals("conflict") && method.equals("POST"))
+        {
+            return 409;
+        }
+
+        AtomicInteger failures = failureMap.get(style);
+        if((failures != null) && (failures.getAndDecrement() > 0))
+        {
+            return 503;
+        }
+
+        uploadedMap.put(workspace + ":" + style, method + " " + body);
+        return method.equals("POST") ? 201 : 200;
+    }
+
+    /**
+     * Creates the list responses.
+     *
+     * @param path the request path relative to the REST end point
+     * @return the response, null if not found
+     */
+    private String createListResponse(String path) {
+        if(path.equals("workspaces.xml"))
+        {
+            return "<workspaces><workspace><name>ws</name></workspace></workspaces>";
+        }
+        else if(path.equals("styles.xml"))
+        {
+            return "<styles><style><name>point</name></style></styles>";
+        }
+        else if(path.equals("workspaces/ws/styles.xml"))
+        {
+            return "<styles><style><name>style_1</name></style><style><name>style_3</name></style></styles>";
+        }
+        return null;
+    }
+
+    /**
+     * Creates the style to upload.
+     *
+     * @param workspace the workspace
+     * @param style the style
+     * @return the sld data
+     */
+    private SLDDataInterface createSLDData(String workspace, String style) {
+        return new SLDData(new StyleWrapper(workspace, style), "<sld>" + style + "</sld>");
+    }
+
+    /**
+     * Test method for {@link com.sldeditor.extension.filesystem.geoserver.client.GeoServerStyleUploader#upload(java.util.List)}.
+     */
+    @Test
+    public void testUpload() {
+        List<SLDDataInterface> sldDataList = new ArrayList<SLDDataInterface>();
+        for(int index = 0; index < NO_OF_STYLES; index ++)
+        {
+            sldDataList.add(createSLDData("ws", "style_" + index));
+        }
+        sldDataList.add(createSLDData(DEFAULT_WORKSPACE_NAME, "point"));
+        sldDataList.add(createSLDData(DEFAULT_WORKSPACE_NAME, "line"));
+        sldDataList.add(createSLDData("newws", "polygon"));
+        sldDataList.add(createSLDData("invalid workspace", "polygon"));
+        sldDataList.add(createSLDData("ws", "invalid"));
+
+        // Fail twice then succeed
+        failureMap.put("style_5", new AtomicInteger(2));
+
+        GeoServerStyleUploader uploader = new GeoServerStyleUploader(connection, DEFAULT_WORKSPACE_NAME, 4);
+        uploader.setRetryDelay(10);
+        GeoServerStyleUploadReport report = uploader.upload(sldDataList);
+
+        List<GeoServerStyleUploadReport.Result> resultList = report.getResultList();
+        assertEquals(sldDataList.size(), resultList.size());
+        assertEquals(NO_OF_STYLES + 3, report.getSuccessCount());
+        assertEquals(2, report.getFailureCount());
+        assertFalse(report.isCancelled());
+
+        // Results in the order supplied
+        for(int index = 0; index < sldDataList.size(); index ++)
+        {
+            assertEquals(sldDataList.get(index).getStyle(), resultList.get(index).getStyleWrapper());
+        }
+
+        // Existing styles are updated, new styles created
+        assertTrue(resultList.get(1).isUpdated());
+        assertEquals("PUT <sld>style_1</sld>", uploadedMap.get("ws:style_1"));
+        assertFalse(resultList.get(2).isUpdated());
+        assertEquals("POST <sld>style_2</sld>", uploadedMap.get("ws:style_2"));
+        assertTrue(resultList.get(NO_OF_STYLES).isUpdated());
+        assertEquals("PUT <sld>point</sld>", uploadedMap.get(DEFAULT_WORKSPACE_NAME + ":point"));
+        assertEquals("POST <sld>line</sld>", uploadedMap.get(DEFAULT_WORKSPACE_NAME + ":line"));
+
+        // Sld bodies sent unmodified to every workspace
+        for(String request : requestList)
+        {
+            if(request.startsWith("PUT") || (request.startsWith("POST") && !request.equals("POST workspaces")))
+            {
+                assertTrue(request, request.endsWith("raw=true"));
+            }
+        }
+
+        // New workspace created
+        assertTrue(requestList.contains("POST workspaces"));
+        assertEquals("POST <sld>polygon</sld>", uploadedMap.get("newws:polygon"));
+
+        // Retried after server errors
+        assertTrue(resultList.get(5).isSuccess());
+        assertEquals(3, resultList.get(5).getAttempts());
+
+        // Invalid workspace, no request made
+        GeoServerStyleUploadReport.Result invalidWorkspace = resultList.get(NO_OF_STYLES + 3);
+        assertFalse(invalidWorkspace.isSuccess());
+        assertEquals(0, invalidWorkspace.getAttempts());
+
+        // Rejected, not retried
+        GeoServerStyleUploadReport.Result rejected = resultList.get(NO_OF_STYLES + 4);
+        assertFalse(rejected.isSuccess());
+        assertEquals(400, rejected.getStatus());
+        assertEquals(1, rejected.getAttempts());
+
+        // Existing workspaces and styles read once
+        int listRequests = 0;
+        for(String request : requestList)
+        {
+            if(request.startsWith("GET"))
+            {
+                listRequests ++;
+            }
+        }
+        assertEquals(3, listRequests);
+
+        // 3 list requests, 1 create workspace, 1 per style, 2 retries, none for the invalid workspace
+        int expectedRequests = 3 + 1 + (sldDataList.size() - 1) + 2;
+        assertEquals(expectedRequests, report.getRequestCount());
+        assertEquals(expectedRequests, requestCount.get());
+        assertTrue(report.getElapsedTime() >= 0);
+    }
+
+    /**
+     * Test method for {@link com.sldeditor.extension.filesystem.geoserver.client.GeoServerStyleUploader#upload(java.util.List)}.
+     */
+    @Test
+    public void testCreateRejected() {
+        List<SLDDataInterface> sldDataList = new ArrayList<SLDDataInterface>();
+        sldDataList.add(createSLDData("ws", "conflict"));
+        sldDataList.add(createSLDData("ws", "forbidden"));
+
+        GeoServerStyleUploader uploader = new GeoServerStyleUploader(connection, DEFAULT_WORKSPACE_NAME, 2);
+        uploader.setRetryDelay(1);
+        GeoServerStyleUploadReport report = uploader.upload(sldDataList);
+
+        // Conflict, the style is updated instead
+        GeoServerStyleUploadReport.Result conflict = report.getResultList().get(0);
+        assertTrue(conflict.isSuccess());
+        assertTrue(conflict.isUpdated());
+        assertEquals(2, conflict.getAttempts());
+        assertEquals("PUT <sld>conflict</sld>", uploadedMap.get("ws:conflict"));
+
+        // Forbidden, reported as an error and not retried as an update
+        GeoServerStyleUploadReport.Result forbidden = report.getResultList().get(1);
+        assertFalse(forbidden.isSuccess());
+        assertFalse(forbidden.isUpdated());
+        assertEquals(403, forbidden.getStatus());
+        assertEquals("Permission denied", forbidden.getMessage());
+        assertEquals(1, forbidden.getAttempts());
+        assertFalse(requestList.contains("PUT workspaces/ws/styles/forbidden?raw=true"));
+    }
+
+    /**
+     * Test method for {@link com.sldeditor.extension.filesystem.geoserver.client.GeoServerStyleUploader#setMaxRetries(int)}.
+     */
+    @Test
+    public void testRetriesExhausted() {
+        failureMap.put("line", new AtomicInteger(10));
+
+        List<SLDDataInterface> sldDataList = new ArrayList<SLDDataInterface>();
+        sldDataList.add(createSLDData(DEFAULT_WORKSPACE_NAME, "line"));
+
+        GeoServerStyleUploader uploader = new GeoServerStyleUploader(connection, DEFAULT_WORKSPACE_NAME, 2);
+        uploader.setMaxRetries(2);
+        uploader.setRetryDelay(1);
+        GeoServerStyleUploadReport report = uploader.upload(sldDataList);
+
+        GeoServerStyleUploadReport.Result result = report.getResultList().get(0);
+        assertFalse(result.isSuccess());
+        assertEquals(503, result.getStatus());
+        assertEquals(3, result.getAttempts());
+        assertEquals(1, report.getFailureCount());
+    }
+}
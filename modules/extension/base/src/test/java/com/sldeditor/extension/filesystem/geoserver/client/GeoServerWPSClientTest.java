@@ -0,0 +1,260 @@
+/*
+ * SLD Editor - The Open Source Java SLD Editor
+ *
+ * Copyright (C) 2016, SCISYS UK Limited
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sldeditor.extension.filesystem.geoserver.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sldeditor.common.DataTypeEnum;
+import com.sldeditor.common.data.GeoServerConnection;
+import com.sun.net.httpserver.HttpExchange;
+
+/**
+ * Unit test for GeoServerWPSClient class using a local stub of the GeoServer WPS and REST interfaces.
+ * <p>{@link com.sldeditor.extension.filesystem.geoserver.client.GeoServerWPSClient}
+ *
+ * @author Robert Ward (SCISYS)
+ */
+public class GeoServerWPSClientTest {
+
+    private static final String WPS_NAMESPACES = "xmlns:wps=\"http://www.opengis.net/wps/1.0.0\" " +
+            "xmlns:ows=\"http://www.opengis.net/ows/1.1\" xmlns:xlink=\"http://www.w3.org/1999/xlink\"";
+
+    private GeoServerStubServer server = null;
+
+    private GeoServerConnection connection = null;
+
+    private AtomicInteger describeAllCount = new AtomicInteger(0);
+
+    private AtomicInteger describeSingleCount = new AtomicInteger(0);
+
+    private volatile boolean describeAllSupported = true;
+
+    private volatile List<String> identifierList = new ArrayList<String>(Arrays.asList("gs:A", "gs:B", "gs:C"));
+
+    private volatile String serverVersion = "2.9.1";
+
+    /**
+     * Start the stub GeoServer server.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    @Before
+    public void setUp() throws IOException {
+        GeoServerWPSClient.clearCache();
+
+        server = new GeoServerStubServer("/geoserver/", new GeoServerStubServer.StubHandler() {
+            @Override
+            public GeoServerStubServer.StubResponse handle(HttpExchange exchange) throws IOException {
+                String path = exchange.getRequestURI().getPath();
+                Map<String, String> parameterMap = getParameters(exchange.getRequestURI().getQuery());
+
+                int status = 200;
+                String response = null;
+                if(path.equals("/geoserver/rest/about/version.xml"))
+                {
+                    response = "<about><resource name=\"GeoServer\"><Version>" + serverVersion +
+                            "</Version></resource></about>";
+                }
+                else if("getcapabilities".equalsIgnoreCase(parameterMap.get("request")))
+                {
+                    response = createCapabilities();
+                }
+                else if("describeprocess".equalsIgnoreCase(parameterMap.get("request")))
+                {
+                    String identifier = parameterMap.get("identifier");
+                    if("ALL".equals(identifier))
+                    {
+                        describeAllCount.incrementAndGet();
+                        if(describeAllSupported)
+                        {
+                            response = createProcessDescriptions(identifierList);
+                        }
+                        else
+                        {
+                            status = 400;
+                            response = "<ows:ExceptionReport xmlns:ows=\"http://www.opengis.net/ows/1.1\" version=\"1.1.0\">" +
+                                    "<ows:Exception exceptionCode=\"InvalidParameterValue\" locator=\"identifier\">" +
+                                    "<ows:ExceptionText>No such process: ALL</ows:ExceptionText></ows:Exception></ows:ExceptionReport>";
+                        }
+                    }
+                    else
+                    {
+                        describeSingleCount.incrementAndGet();
+                        response = createProcessDescriptions(Arrays.asList(identifier));
+                    }
+                }
+
+                return new GeoServerStubServer.StubResponse((response == null) ? 404 : status, response);
+            }
+        });
+
+        connection = server.createConnection();
+    }
+
+    /**
+     * Stop the stub server.
+     */
+    @After
+    public void tearDown() {
+        server.stop();
+        GeoServerWPSClient.clearCache();
+    }
+
+    /**
+     * Gets the query parameters, the parameter names are converted to lower case.
+     *
+     * @param query the query
+     * @return the parameters
+     */
+    private static Map<String, String> getParameters(String query) {
+        Map<String, String> parameterMap = new HashMap<String, String>();
+        if(query != null)
+        {
+            for(String parameter : query.split("&"))
+            {
+                int index = parameter.indexOf('=');
+                if(index > 0)
+                {
+                    parameterMap.put(parameter.substring(0, index).toLowerCase(), parameter.substring(index + 1));
+                }
+            }
+        }
+        return parameterMap;
+    }
+
+    /**
+     * Creates the capabilities document advertising the processes.
+     *
+     * @return the capabilities
+     */
+    private String createCapabilities() {
+        String href = String.format("http://localhost:%d/geoserver/wps", server.getPort());
+        StringBuilder sb = new StringBuilder();
+        sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+        sb.append("<wps:Capabilities " + WPS_NAMESPACES + " service=\"WPS\" version=\"1.0.0\" xml:lang=\"en\">");
+        sb.append("<ows:ServiceIdentification><ows:Title>Stub</ows:Title>");
+        sb.append("<ows:ServiceType>WPS</ows:ServiceType><ows:ServiceTypeVersion>1.0.0</ows:ServiceTypeVersion>");
+        sb.append("</ows:ServiceIdentification>");
+        sb.append("<ows:OperationsMetadata>");
+        for(String operation : new String[] {"GetCapabilities", "DescribeProcess", "Execute"})
+        {
+            sb.append("<ows:Operation name=\"" + operation + "\"><ows:DCP><ows:HTTP>");
+            sb.append("<ows:Get xlink:href=\"" + href + "\"/><ows:Post xlink:href=\"" + href + "\"/>");
+            sb.append("</ows:HTTP></ows:DCP></ows:Operation>");
+        }
+        sb.append("</ows:OperationsMetadata>");
+        sb.append("<wps:ProcessOfferings>");
+        for(String identifier : identifierList)
+        {
+            sb.append("<wps:Process wps:processVersion=\"1.0.0\"><ows:Identifier>" + identifier +
+                    "</ows:Identifier><ows:Title>" + identifier + "</ows:Title></wps:Process>");
+        }
+        sb.append("</wps:ProcessOfferings>");
+        sb.append("<wps:Languages><wps:Default><ows:Language>en-US</ows:Language></wps:Default>");
+        sb.append("<wps:Supported><ows:Language>en-US</ows:Language></wps:Supported></wps:Languages>");
+        sb.append("</wps:Capabilities>");
+        return sb.toString();
+    }
+
+    /**
+     * Creates the process descriptions, each process outputs a feature collection.
+     *
+     * @param processIdentifierList the process identifier list
+     * @return the process descriptions
+     */
+    private static String createProcessDescriptions(List<String> processIdentifierList) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+        sb.append("<wps:ProcessDescriptions " + WPS_NAMESPACES + " service=\"WPS\" version=\"1.0.0\" xml:lang=\"en\">");
+        for(String identifier : processIdentifierList)
+        {
+            sb.append("<ProcessDescription wps:processVersion=\"1.0.0\" statusSupported=\"true\" storeSupported=\"true\">");
+            sb.append("<ows:Identifier>" + identifier + "</ows:Identifier><ows:Title>" + identifier + "</ows:Title>");
+            sb.append("<ProcessOutputs><Output><ows:Identifier>result</ows:Identifier><ows:Title>result</ows:Title>");
+            sb.append("<ComplexOutput><Default><Format><MimeType>text/xml; subtype=wfs-collection/1.0</MimeType></Format></Default>");
+            sb.append("<Supported><Format><MimeType>text/xml; subtype=wfs-collection/1.0</MimeType></Format></Supported>");
+            sb.append("</ComplexOutput></Output></ProcessOutputs></ProcessDescription>");
+        }
+        sb.append("</wps:ProcessDescriptions>");
+        return sb.toString();
+    }
+
+    /**
+     * Test method for {@link com.sldeditor.extension.filesystem.geoserver.client.GeoServerWPSClient#getCapabilities()}.
+     */
+    @Test
+    public void testGetCapabilitiesCached() {
+        GeoServerWPSClient client = new GeoServerWPSClient(connection);
+        assertTrue(client.getCapabilities());
+        assertEquals(3, client.getRenderTransformations(DataTypeEnum.E_VECTOR).size());
+        assertEquals(1, describeAllCount.get());
+        assertEquals(0, describeSingleCount.get());
+
+        // Unchanged, the cached descriptions are used
+        GeoServerWPSClient otherClient = new GeoServerWPSClient(connection);
+        assertTrue(otherClient.getCapabilities());
+        assertEquals(3, otherClient.getRenderTransformations(DataTypeEnum.E_VECTOR).size());
+        assertEquals(1, describeAllCount.get());
+
+        // GeoServer upgraded
+        serverVersion = "2.10.0";
+        assertTrue(client.getCapabilities());
+        assertEquals(2, describeAllCount.get());
+
+        // Process added
+        identifierList = new ArrayList<String>(Arrays.asList("gs:A", "gs:B", "gs:C", "gs:D"));
+        assertTrue(client.getCapabilities());
+        assertEquals(4, client.getRenderTransformations(DataTypeEnum.E_VECTOR).size());
+        assertEquals(3, describeAllCount.get());
+        assertEquals(0, describeSingleCount.get());
+    }
+
+    /**
+     * Test method for {@link com.sldeditor.extension.filesystem.geoserver.client.GeoServerWPSClient#getCapabilities()}.
+     */
+    @Test
+    public void testDescribeEachProcess() {
+        describeAllSupported = false;
+
+        GeoServerWPSClient client = new GeoServerWPSClient(connection);
+        assertTrue(client.getCapabilities());
+        assertEquals(3, client.getRenderTransformations(DataTypeEnum.E_VECTOR).size());
+        assertEquals(1, describeAllCount.get());
+        assertEquals(3, describeSingleCount.get());
+
+        // The shared DescribeProcess pool is reused
+        GeoServerWPSClient.clearCache();
+        assertTrue(client.getCapabilities());
+        assertEquals(3, client.getRenderTransformations(DataTypeEnum.E_VECTOR).size());
+        assertEquals(6, describeSingleCount.get());
+    }
+}
@@ -0,0 +1,551 @@
+/*
+ * SLD Editor - The Open Source Java SLD Editor
+ *
+ * Copyright (C) 2016, SCISYS UK Limited
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sldeditor.extension.filesystem.file.esri;
+
+import java.awt.Color;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.sldeditor.common.SLDDataInterface;
+import com.sldeditor.importdata.esri.symbols.PictureStore;
+import com.sldeditor.tool.html.ExportHTML;
+import com.sldeditor.tool.savesld.SaveSLDExporter;
+
+/**
+ * Command line tool that converts intermediate Esri MXD json files to SLD files without the user interface.
+ * <p>The layers of each file are converted in parallel and written to a folder per file,
+ * optionally with an html catalogue of the legends. A json summary of the conversion
+ * is written containing the timings and failure counts of each file.
+ * 
+ * @author Robert Ward (SCISYS)
+ */
+public class MXDBatchConverter
+{
+    /** The Constant EXIT_OK, all files converted. */
+    public static final int EXIT_OK = 0;
+
+    /** The Constant EXIT_FAILURES, some files or layers failed to convert. */
+    public static final int EXIT_FAILURES = 1;
+
+    /** The Constant EXIT_USAGE, the command line arguments are invalid. */
+    public static final int EXIT_USAGE = 2;
+
+    /** The Constant DEFAULT_SUMMARY_FILENAME. */
+    public static final String DEFAULT_SUMMARY_FILENAME = "conversion-summary.json";
+
+    /** The Constant IMAGE_FOLDER. */
+    private static final String IMAGE_FOLDER = "images";
+
+    /** The Constant HTML_FILENAME. */
+    private static final String HTML_FILENAME = "index.html";
+
+    /** The Constant INTERMEDIATE_FILE_EXTENSION. */
+    private static final String INTERMEDIATE_FILE_EXTENSION = ".json";
+
+    /** The Constant GLOB_CHARACTERS. */
+    private static final String GLOB_CHARACTERS = "*?[{";
+
+    /** The output folder. */
+    private File outputFolder = null;
+
+    /** The export html flag. */
+    private boolean exportHTML = false;
+
+    /** The sld exporter. */
+    private SaveSLDExporter exporter = new SaveSLDExporter();
+
+    /** The names of the folders already used for output. */
+    private Set<String> usedFolderNames = new HashSet<String>();
+
+    /**
+     * Instantiates a new MXD batch converter.
+     *
+     * @param outputFolder the output folder
+     * @param exportHTML the export html flag
+     */
+    public MXDBatchConverter(File outputFolder, boolean exportHTML)
+    {
+        this.outputFolder = outputFolder;
+        this.exportHTML = exportHTML;
+    }
+
+    /**
+     * Convert the intermediate files.
+     *
+     * @param fileList the file list
+     * @return the summary
+     */
+    public JsonObject convert(List<File> fileList)
+    {
+        long startTime = System.currentTimeMillis();
+
+        JsonArray resultArray = new JsonArray();
+        int failedFiles = 0;
+        int totalLayers = 0;
+        int failedLayers = 0;
+        int failedWrites = 0;
+
+        for(File file : fileList)
+        {
+            JsonObject result = convertFile(file);
+            resultArray.add(result);
+
+            if(!result.get("success").getAsBoolean())
+            {
+                failedFiles ++;
+            }
+            totalLayers += result.get("layers").getAsInt();
+            failedLayers += result.get("failedLayers").getAsInt();
+            failedWrites += result.get("failedWrites").getAsInt();
+        }
+
+        JsonObject summary = new JsonObject();
+        summary.addProperty("outputFolder", outputFolder.getAbsolutePath());
+        summary.addProperty("files", fileList.size());
+        summary.addProperty("failedFiles", failedFiles);
+        summary.addProperty("layers", totalLayers);
+        summary.addProperty("failedLayers", failedLayers);
+        summary.addProperty("failedWrites", failedWrites);
+        summary.addProperty("elapsedMs", System.currentTimeMillis() - startTime);
+        summary.add("results", resultArray);
+
+        return summary;
+    }
+
+    /**
+     * Convert a single intermediate file.
+     *
+     * @param file the file
+     * @return the result
+     */
+    private JsonObject convertFile(File file)
+    {
+        long startTime = System.currentTimeMillis();
+
+        JsonObject result = new JsonObject();
+        result.addProperty("file", file.getAbsolutePath());
+
+        int layerCount = 0;
+        int convertedCount = 0;
+        int savedCount = 0;
+        int failedWrites = 0;
+        int legendCount = 0;
+        long indexTime = 0L;
+        long convertTime = 0L;
+        long writeTime = 0L;
+        long htmlTime = 0L;
+        String error = null;
+
+        String filename = file.getAbsolutePath();
+        try
+        {
+            long stepTime = System.currentTimeMillis();
+            MXDInfo mxdInfo = MXDParser.readLayers(filename);
+            indexTime = System.currentTimeMillis() - stepTime;
+
+            if(mxdInfo == null)
+            {
+                error = "Not an intermediate mxd file";
+            }
+            else
+            {
+                result.addProperty("mxd", mxdInfo.getMxdFilename());
+                layerCount = mxdInfo.getLayerList().size();
+
+                stepTime = System.currentTimeMillis();
+                List<SLDDataInterface> sldDataList = MXDParser.convertLayers(filename, mxdInfo.getLayerList());
+                convertTime = System.currentTimeMillis() - stepTime;
+
+                List<SLDDataInterface> convertedList = new ArrayList<SLDDataInterface>();
+                if(sldDataList != null)
+                {
+                    for(SLDDataInterface sldData : sldDataList)
+                    {
+                        if((sldData != null) && (sldData.getSld() != null) && !sldData.getSld().isEmpty())
+                        {
+                            convertedList.add(sldData);
+                        }
+                    }
+                }
+                convertedCount = convertedList.size();
+
+                File destinationFolder = new File(outputFolder, getFolderName(file));
+                result.addProperty("outputFolder", destinationFolder.getAbsolutePath());
+
+                stepTime = System.currentTimeMillis();
+                savedCount = exporter.export(convertedList, destinationFolder);
+                writeTime = System.currentTimeMillis() - stepTime;
+
+                // Layers with the same name are written to the same file
+                Set<String> layerNameSet = new HashSet<String>();
+                for(SLDDataInterface sldData : convertedList)
+                {
+                    layerNameSet.add(sldData.getLayerName());
+                }
+                failedWrites = layerNameSet.size() - savedCount;
+
+                if(exportHTML && !convertedList.isEmpty())
+                {
+                    stepTime = System.currentTimeMillis();
+                    legendCount = ExportHTML.save(destinationFolder, HTML_FILENAME, convertedList, Color.WHITE);
+                    htmlTime = System.currentTimeMillis() - stepTime;
+                }
+            }
+        }
+        catch(RuntimeException e)
+        {
+            error = e.toString();
+        }
+        finally
+        {
+            MXDParser.release(filename);
+        }
+
+        result.addProperty("success", (error == null));
+        if(error != null)
+        {
+            result.addProperty("error", error);
+        }
+        result.addProperty("layers", layerCount);
+        result.addProperty("converted", convertedCount);
+        result.addProperty("saved", savedCount);
+        result.addProperty("failedLayers", layerCount - convertedCount);
+        result.addProperty("failedWrites", failedWrites);
+        if(exportHTML)
+        {
+            result.addProperty("legends", legendCount);
+        }
+        result.addProperty("indexMs", indexTime);
+        result.addProperty("convertMs", convertTime);
+        result.addProperty("writeMs", writeTime);
+        if(exportHTML)
+        {
+            result.addProperty("htmlMs", htmlTime);
+        }
+        result.addProperty("elapsedMs", System.currentTimeMillis() - startTime);
+
+        return result;
+    }
+
+    /**
+     * Gets the name of the output folder for a file, the file name without the extension
+     * made unique if more than one file has the same name.
+     *
+     * @param file the file
+     * @return the folder name
+     */
+    private String getFolderName(File file)
+    {
+        String name = file.getName();
+        if(name.toLowerCase().endsWith(INTERMEDIATE_FILE_EXTENSION))
+        {
+            name = name.substring(0, name.length() - INTERMEDIATE_FILE_EXTENSION.length());
+        }
+
+        String folderName = name;
+        int count = 2;
+        while(!usedFolderNames.add(folderName.toLowerCase()))
+        {
+            folderName = String.format("%s_%d", name, count);
+            count ++;
+        }
+        return folderName;
+    }
+
+    /**
+     * Expand the command line inputs into a list of files.
+     * <p>An input can be a file, a folder (all the json files in it), a glob pattern
+     * e.g. <code>maps/**&#47;*.json</code>, or <code>@listfile</code> where the list file contains
+     * one input per line.
+     *
+     * @param inputList the input list
+     * @return the file list, sorted within each input with duplicates removed
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public static List<File> expandInputs(List<String> inputList) throws IOException
+    {
+        Set<File> fileSet = new LinkedHashSet<File>();
+
+        for(String input : inputList)
+        {
+            expandInput(input.trim(), fileSet);
+        }
+        return new ArrayList<File>(fileSet);
+    }
+
+    /**
+     * Expand a single input.
+     *
+     * @param input the input
+     * @param fileSet the file set to add to
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private static void expandInput(String input, Set<File> fileSet) throws IOException
+    {
+        if(input.isEmpty() || input.startsWith("#"))
+        {
+            return;
+        }
+
+        if(input.startsWith("@"))
+        {
+            for(String line : Files.readAllLines(new File(input.substring(1)).toPath(), StandardCharsets.UTF_8))
+            {
+                expandInput(line.trim(), fileSet);
+            }
+            return;
+        }
+
+        int wildcardIndex = firstGlobCharacter(input);
+        if(wildcardIndex < 0)
+        {
+            File file = new File(input);
+            if(file.isDirectory())
+            {
+                expandGlob(file.toPath(), "*" + INTERMEDIATE_FILE_EXTENSION, fileSet);
+            }
+            else
+            {
+                fileSet.add(file.toPath().toAbsolutePath().normalize().toFile());
+            }
+            return;
+        }
+
+        // Split into the folder to search and the pattern to match within it
+        int separatorIndex = Math.max(input.lastIndexOf('/', wildcardIndex), input.lastIndexOf(File.separatorChar, wildcardIndex));
+        Path folder = (separatorIndex < 0) ? new File(".").toPath() : new File(input.substring(0, separatorIndex + 1)).toPath();
+        String pattern = input.substring(separatorIndex + 1);
+
+        expandGlob(folder, pattern, fileSet);
+    }
+
+    /**
+     * Add the files in a folder that match a glob pattern relative to the folder.
+     *
+     * @param folder the folder
+     * @param pattern the pattern
+     * @param fileSet the file set to add to
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private static void expandGlob(final Path folder, String pattern, Set<File> fileSet) throws IOException
+    {
+        if(!Files.isDirectory(folder))
+        {
+            return;
+        }
+
+        final PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+
+        // Only descend as far as the pattern needs to
+        int maxDepth = Integer.MAX_VALUE;
+        if(!pattern.contains("**"))
+        {
+            maxDepth = 1;
+            for(char c : pattern.toCharArray())
+            {
+                if((c == '/') || (c == File.separatorChar))
+                {
+                    maxDepth ++;
+                }
+            }
+        }
+
+        final List<File> matchList = new ArrayList<File>();
+        Files.walkFileTree(folder, EnumSet.noneOf(FileVisitOption.class), maxDepth, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if(attrs.isRegularFile() && matcher.matches(folder.relativize(file)))
+                {
+                    matchList.add(file.toAbsolutePath().normalize().toFile());
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                return FileVisitResult.CONTINUE;
+            }
+        });
+
+        Collections.sort(matchList);
+        fileSet.addAll(matchList);
+    }
+
+    /**
+     * Find the first glob character in the input.
+     *
+     * @param input the input
+     * @return the index, -1 if not a glob pattern
+     */
+    private static int firstGlobCharacter(String input)
+    {
+        int index = -1;
+        for(char c : GLOB_CHARACTERS.toCharArray())
+        {
+            int pos = input.indexOf(c);
+            if((pos >= 0) && ((index < 0) || (pos < index)))
+            {
+                index = pos;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Run the converter with command line arguments.
+     *
+     * @param args the arguments
+     * @param out the stream to write messages to
+     * @return the exit code
+     */
+    public static int run(String[] args, PrintStream out)
+    {
+        File outputFolder = new File(".");
+        File imageFolder = null;
+        File summaryFile = null;
+        boolean html = false;
+        List<String> inputList = new ArrayList<String>();
+
+        for(int index = 0; index < args.length; index ++)
+        {
+            String arg = args[index];
+            boolean hasValue = (index + 1) < args.length;
+
+            if(arg.equals("-o") && hasValue)
+            {
+                outputFolder = new File(args[++ index]);
+            }
+            else if(arg.equals("-images") && hasValue)
+            {
+                imageFolder = new File(args[++ index]);
+            }
+            else if(arg.equals("-summary") && hasValue)
+            {
+                summaryFile = new File(args[++ index]);
+            }
+            else if(arg.equals("-html"))
+            {
+                html = true;
+            }
+            else if(arg.startsWith("-"))
+            {
+                usage(out);
+                return EXIT_USAGE;
+            }
+            else
+            {
+                inputList.add(arg);
+            }
+        }
+
+        if(inputList.isEmpty())
+        {
+            usage(out);
+            return EXIT_USAGE;
+        }
+
+        List<File> fileList = null;
+        try
+        {
+            fileList = expandInputs(inputList);
+        }
+        catch (IOException e)
+        {
+            out.println("Failed to read inputs : " + e.getMessage());
+            return EXIT_USAGE;
+        }
+
+        outputFolder.mkdirs();
+        PictureStore.getInstance().setFolder((imageFolder == null) ? new File(outputFolder, IMAGE_FOLDER) : imageFolder);
+        if(summaryFile == null)
+        {
+            summaryFile = new File(outputFolder, DEFAULT_SUMMARY_FILENAME);
+        }
+
+        MXDBatchConverter converter = new MXDBatchConverter(outputFolder, html);
+        JsonObject summary = converter.convert(fileList);
+
+        try
+        {
+            Files.write(summaryFile.toPath(),
+                    new GsonBuilder().setPrettyPrinting().create().toJson(summary).getBytes(StandardCharsets.UTF_8));
+        }
+        catch (IOException e)
+        {
+            out.println("Failed to write summary : " + e.getMessage());
+            return EXIT_FAILURES;
+        }
+
+        int failedFiles = summary.get("failedFiles").getAsInt();
+        int failedLayers = summary.get("failedLayers").getAsInt();
+        int failedWrites = summary.get("failedWrites").getAsInt();
+        out.println(String.format("Converted %d files, %d layers, %d failed files, %d failed layers, %d failed writes in %d ms, summary : %s",
+                summary.get("files").getAsInt(),
+                summary.get("layers").getAsInt(),
+                failedFiles,
+                failedLayers,
+                failedWrites,
+                summary.get("elapsedMs").getAsLong(),
+                summaryFile.getAbsolutePath()));
+
+        return ((failedFiles == 0) && (failedLayers == 0) && (failedWrites == 0)) ? EXIT_OK : EXIT_FAILURES;
+    }
+
+    /**
+     * Write the usage message.
+     *
+     * @param out the stream to write to
+     */
+    private static void usage(PrintStream out)
+    {
+        out.println("MXDBatchConverter [-o <output folder>] [-html] [-images <image folder>] [-summary <summary file>] <file | folder | glob | @listfile> ...");
+    }
+
+    /**
+     * The main method.
+     *
+     * @param args the arguments
+     */
+    public static void main(String[] args)
+    {
+        System.setProperty("java.awt.headless", "true");
+
+        System.exit(run(args, System.out));
+    }
+}
@@ -80,6 +80,11 @@ public class MXDFileHandler implements FileHandlerInterface
             String filename = file.getAbsolutePath();
 
             MXDInfo mxdInfo = MXDParser.readLayers(filename);
+            if(mxdInfo == null)
+            {
+                // Not an intermediate mxd file
+                return false;
+            }
 
             MXDNode mxdNode = new MXDNode(inputInferface, mxdInfo);
             if(treeModel != null)
@@ -165,14 +170,7 @@ public class MXDFileHandler implements FileHandlerInterface
         {
             if(FileSystemUtils.isFileExtensionSupported(f, getFileExtensionList()))
             {
-                List<SLDDataInterface> list = new ArrayList<SLDDataInterface>();
-
-                for(String layerName : mxdInfo.getLayerList())
-                {
-                    SLDDataInterface sldData = MXDParser.readLayer(f.getAbsolutePath(), layerName);
-                    list.add(sldData);
-                }
-                return list;
+                return MXDParser.convertLayers(f.getAbsolutePath(), mxdInfo.getLayerList());
             }
         }
         return null;
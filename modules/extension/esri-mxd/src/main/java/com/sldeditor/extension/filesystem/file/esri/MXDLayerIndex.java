@@ -0,0 +1,433 @@
+/*
+ * SLD Editor - The Open Source Java SLD Editor
+ *
+ * Copyright (C) 2016, SCISYS UK Limited
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sldeditor.extension.filesystem.file.esri;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+
+/**
+ * Index of the layers in an intermediate Esri MXD json file.
+ * <p>The file is scanned once, without building any json objects, recording the name and the
+ * position in the file of each layer. A layer's json object is then read on demand
+ * so only the layers used are ever held in memory, e.g. the embedded images of a layer
+ * are only read and decoded when the layer is converted.
+ * 
+ * @author Robert Ward (SCISYS)
+ */
+public class MXDLayerIndex
+{
+    /** The Constant MXD_KEY. */
+    private static final String MXD_KEY = "mxd";
+
+    /** The Constant LAYERS_KEY. */
+    private static final String LAYERS_KEY = "layers";
+
+    /** The Constant NAME_KEY. */
+    private static final String NAME_KEY = "name";
+
+    /** The Constant BUFFER_SIZE. */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /** The Constant MAX_STRING_LENGTH, longer strings are not kept when scanning. */
+    private static final int MAX_STRING_LENGTH = 64 * 1024;
+
+    /** The json depth of the top level object. */
+    private static final int TOP_DEPTH = 1;
+
+    /** The json depth of the layer array. */
+    private static final int LAYER_ARRAY_DEPTH = 2;
+
+    /** The json depth of a layer object. */
+    private static final int LAYER_DEPTH = 3;
+
+    /**
+     * The position of a layer in the file.
+     */
+    private static class LayerPosition
+    {
+        /** The offset of the start of the layer object. */
+        private long start;
+
+        /** The offset after the end of the layer object. */
+        private long end;
+
+        /**
+         * Instantiates a new layer position.
+         *
+         * @param start the start
+         * @param end the end
+         */
+        LayerPosition(long start, long end)
+        {
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    /** The intermediate file. */
+    private File file = null;
+
+    /** The last modified time of the file when it was indexed. */
+    private long lastModified = 0L;
+
+    /** The length of the file when it was indexed. */
+    private long length = 0L;
+
+    /** The mxd filename. */
+    private String mxdFilename = null;
+
+    /** The layers array found flag. */
+    private boolean layersFound = false;
+
+    /** The layer names in file order. */
+    private List<String> layerNameList = new ArrayList<String>();
+
+    /** The layer position map. */
+    private Map<String, LayerPosition> layerPositionMap = new HashMap<String, LayerPosition>();
+
+    /**
+     * Instantiates a new MXD layer index.
+     *
+     * @param file the file
+     */
+    private MXDLayerIndex(File file)
+    {
+        this.file = file;
+        this.lastModified = file.lastModified();
+        this.length = file.length();
+    }
+
+    /**
+     * Index the layers in an intermediate mxd file.
+     *
+     * @param file the file
+     * @return the MXD layer index
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public static MXDLayerIndex build(File file) throws IOException
+    {
+        MXDLayerIndex index = new MXDLayerIndex(file);
+
+        try (InputStream inputStream = Files.newInputStream(file.toPath()))
+        {
+            index.scan(inputStream);
+        }
+        return index;
+    }
+
+    /**
+     * Scan the json recording the mxd filename and the name and position of each layer.
+     * <p>Json structural characters are all ASCII so the file can be scanned a byte at a time,
+     * strings are only kept if they are keys or values in the top level object or a layer object.
+     *
+     * @param inputStream the input stream
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private void scan(InputStream inputStream) throws IOException
+    {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        ByteArrayOutputStream stringBytes = new ByteArrayOutputStream();
+        boolean keepString = false;
+
+        long position = 0L;
+        int depth = 0;
+        boolean inString = false;
+        boolean escape = false;
+
+        String topKey = null;
+        boolean topExpectKey = false;
+
+        boolean inLayers = false;
+        long layerStart = -1L;
+        String layerName = null;
+        String layerKey = null;
+        boolean layerExpectKey = false;
+
+        int bytesRead = inputStream.read(buffer);
+        while(bytesRead >= 0)
+        {
+            for(int index = 0; index < bytesRead; index ++, position ++)
+            {
+                byte b = buffer[index];
+
+                if(inString)
+                {
+                    if(keepString)
+                    {
+                        if(stringBytes.size() < MAX_STRING_LENGTH)
+                        {
+                            stringBytes.write(b);
+                        }
+                        else
+                        {
+                            keepString = false;
+                        }
+                    }
+
+                    if(escape)
+                    {
+                        escape = false;
+                    }
+                    else if(b == '\\')
+                    {
+                        escape = true;
+                    }
+                    else if(b == '"')
+                    {
+                        inString = false;
+                        String value = keepString ? decodeString(stringBytes.toByteArray()) : null;
+
+                        if(depth == TOP_DEPTH)
+                        {
+                            if(topExpectKey)
+                            {
+                                topKey = value;
+                                topExpectKey = false;
+                            }
+                            else if(MXD_KEY.equals(topKey))
+                            {
+                                mxdFilename = value;
+                            }
+                        }
+                        else if(inLayers && (depth == LAYER_DEPTH))
+                        {
+                            if(layerExpectKey)
+                            {
+                                layerKey = value;
+                                layerExpectKey = false;
+                            }
+                            else if(NAME_KEY.equals(layerKey))
+                            {
+                                layerName = value;
+                            }
+                        }
+                    }
+                    continue;
+                }
+
+                switch(b)
+                {
+                case '"':
+                    inString = true;
+                    keepString = (depth == TOP_DEPTH) || (inLayers && (depth == LAYER_DEPTH));
+                    stringBytes.reset();
+                    if(keepString)
+                    {
+                        stringBytes.write(b);
+                    }
+                    break;
+                case '{':
+                case '[':
+                    if(depth == 0)
+                    {
+                        topExpectKey = (b == '{');
+                    }
+                    else if((depth == TOP_DEPTH) && (b == '[') && LAYERS_KEY.equals(topKey))
+                    {
+                        inLayers = true;
+                        layersFound = true;
+                    }
+                    else if(inLayers && (depth == LAYER_ARRAY_DEPTH) && (b == '{'))
+                    {
+                        layerStart = position;
+                        layerName = null;
+                        layerKey = null;
+                        layerExpectKey = true;
+                    }
+                    depth ++;
+                    break;
+                case '}':
+                case ']':
+                    depth --;
+                    if(inLayers && (depth == LAYER_ARRAY_DEPTH) && (layerStart >= 0))
+                    {
+                        addLayer(layerName, layerStart, position + 1);
+                        layerStart = -1L;
+                    }
+                    else if(inLayers && (depth == TOP_DEPTH))
+                    {
+                        inLayers = false;
+                    }
+                    break;
+                case ',':
+                    if(depth == TOP_DEPTH)
+                    {
+                        topExpectKey = true;
+                    }
+                    else if(inLayers && (depth == LAYER_DEPTH))
+                    {
+                        layerExpectKey = true;
+                    }
+                    break;
+                default:
+                    break;
+                }
+            }
+            bytesRead = inputStream.read(buffer);
+        }
+    }
+
+    /**
+     * Decode a json string including its quotes.
+     *
+     * @param quotedString the quoted string
+     * @return the string, null if it is not a valid json string
+     */
+    private static String decodeString(byte[] quotedString)
+    {
+        try
+        {
+            JsonElement element = new JsonParser().parse(new String(quotedString, StandardCharsets.UTF_8));
+            return element.isJsonPrimitive() ? element.getAsString() : null;
+        }
+        catch(JsonParseException e)
+        {
+            return null;
+        }
+    }
+
+    /**
+     * Adds the layer, layers without a name are ignored.
+     * If more than one layer has the same name the last one is used.
+     *
+     * @param layerName the layer name
+     * @param start the start
+     * @param end the end
+     */
+    private void addLayer(String layerName, long start, long end)
+    {
+        if(layerName != null)
+        {
+            layerNameList.add(layerName);
+            layerPositionMap.put(layerName, new LayerPosition(start, end));
+        }
+    }
+
+    /**
+     * Read the json object of a layer from the file.
+     *
+     * @param layerName the layer name
+     * @return the layer json object, null if the layer is not in the index
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public JsonObject readLayer(String layerName) throws IOException
+    {
+        LayerPosition layerPosition = layerPositionMap.get(layerName);
+        if(layerPosition == null)
+        {
+            return null;
+        }
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+        {
+            channel.position(layerPosition.start);
+
+            // Only the layer object is parsed, the rest of the file is not read
+            JsonReader reader = new JsonReader(new InputStreamReader(Channels.newInputStream(channel), StandardCharsets.UTF_8));
+            JsonElement element = new JsonParser().parse(reader);
+
+            return element.isJsonObject() ? element.getAsJsonObject() : null;
+        }
+        catch(JsonParseException e)
+        {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Checks if the file has changed since it was indexed.
+     *
+     * @return true, if the index is out of date
+     */
+    public boolean isStale()
+    {
+        return (file.lastModified() != lastModified) || (file.length() != length);
+    }
+
+    /**
+     * Checks if the file contained a layers array.
+     *
+     * @return true, if layers array found
+     */
+    public boolean hasLayers()
+    {
+        return layersFound;
+    }
+
+    /**
+     * Gets the layer names in the order they appear in the file.
+     *
+     * @return the layer name list
+     */
+    public List<String> getLayerNameList()
+    {
+        return Collections.unmodifiableList(layerNameList);
+    }
+
+    /**
+     * Gets the size in bytes of the layer json in the file.
+     *
+     * @param layerName the layer name
+     * @return the layer size, -1 if the layer is not in the index
+     */
+    public long getLayerSize(String layerName)
+    {
+        LayerPosition layerPosition = layerPositionMap.get(layerName);
+        return (layerPosition == null) ? -1L : (layerPosition.end - layerPosition.start);
+    }
+
+    /**
+     * Gets the mxd filename.
+     *
+     * @return the mxd filename, null if not present
+     */
+    public String getMxdFilename()
+    {
+        return mxdFilename;
+    }
+
+    /**
+     * Gets the intermediate file.
+     *
+     * @return the file
+     */
+    public File getFile()
+    {
+        return file;
+    }
+}
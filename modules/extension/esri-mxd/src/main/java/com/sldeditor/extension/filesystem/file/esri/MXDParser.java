@@ -20,15 +20,19 @@ package com.sldeditor.extension.filesystem.file.esri;
 
 import java.awt.image.Raster;
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
+import java.io.IOException;
 import java.sql.Blob;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import org.apache.log4j.Logger;
 import org.geotools.styling.FeatureTypeStyle;
@@ -41,7 +45,6 @@ import org.geotools.styling.StyledLayerDescriptor;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
 import com.sldeditor.common.DataSourceFieldInterface;
 import com.sldeditor.common.DataSourcePropertiesInterface;
 import com.sldeditor.common.SLDDataInterface;
@@ -63,6 +66,9 @@ import com.vividsolutions.jts.geom.Geometry;
 
 /**
  * Class that reads the intermediate Json file containing Esri MXD data and converts it to SLD data.
+ * <p>The file is indexed when it is read and each layer is only read from the file and converted
+ * when it is first requested, so large files do not have to be held in memory.
+ * A limited number of converted layers are cached, all the layers in a file can be converted in parallel.
  * 
  * @author Robert Ward (SCISYS)
  */
@@ -74,20 +80,54 @@ public class MXDParser
     /** The label renderer map. */
     private Map<String, EsriLabelRendererInterface> labelRendererMap = new HashMap<String, EsriLabelRendererInterface>();
 
-    /** The field type map. */
-    private static Map<String, Class<?> > fieldTypeMap = new HashMap<String, Class<?> >();
+    /** The Constant DEFAULT_MAX_CACHED_LAYERS. */
+    public static final int DEFAULT_MAX_CACHED_LAYERS = 64;
+
+    /** The field type map, read only once initialised so it can be shared between threads. */
+    private static final Map<String, Class<?> > fieldTypeMap;
+
+    static
+    {
+        Map<String, Class<?> > map = new HashMap<String, Class<?> >();
+        map.put("esriFieldTypeSmallInteger", Short.class);
+        map.put("esriFieldTypeInteger", Integer.class);
+        map.put("esriFieldTypeSingle", Float.class);
+        map.put("esriFieldTypeDouble", Double.class);
+        map.put("esriFieldTypeString", String.class);
+        map.put("esriFieldTypeDate", Date.class);
+        map.put("esriFieldTypeOID", Integer.class);
+        map.put("esriFieldTypeGeometry", Geometry.class);
+        map.put("esriFieldTypeBlob", Blob.class);
+        map.put("esriFieldTypeRaster", Raster.class);
+        map.put("esriFieldTypeGUID", String.class);
+        map.put("esriFieldTypeGlobalID", String.class);
+        fieldTypeMap = Collections.unmodifiableMap(map);
+    }
+
+    /** The maximum number of converted layers cached for each file. */
+    private static volatile int maxCachedLayers = DEFAULT_MAX_CACHED_LAYERS;
 
     /** The logger. */
     private static Logger logger = Logger.getLogger(MXDParser.class);
 
-    /** The mxd layer cache map. */
-    private Map<String, SLDDataInterface> mxdLayerCacheMap = new HashMap<String, SLDDataInterface>();
+    /** The mxd layer cache map, least recently used layers are evicted. */
+    private Map<String, SLDDataInterface> mxdLayerCacheMap = new LinkedHashMap<String, SLDDataInterface>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, SLDDataInterface> eldest) {
+            return size() > maxCachedLayers;
+        }
+    };
 
     /** The map of class instances. */
     private static Map<String, MXDParser> instanceMap = new HashMap<String, MXDParser>();
 
+    /** The index of the layers in the intermediate file. */
+    private MXDLayerIndex layerIndex = null;
+
     /** The sld writer. */
-    private SLDWriterInterface sldWriter = null;
+    private SLDWriterInterface sldWriter = SLDWriterFactory.createSLDWriter(null);
 
     /**
      * Default constructor
@@ -104,29 +144,14 @@ public class MXDParser
     {
         registerRenderers();
         registerLabelRenderers();
-
-        if(fieldTypeMap.isEmpty())
-        {
-            fieldTypeMap.put("esriFieldTypeSmallInteger", Short.class);
-            fieldTypeMap.put("esriFieldTypeInteger", Integer.class);
-            fieldTypeMap.put("esriFieldTypeSingle", Float.class);
-            fieldTypeMap.put("esriFieldTypeDouble", Double.class);
-            fieldTypeMap.put("esriFieldTypeString", String.class);
-            fieldTypeMap.put("esriFieldTypeDate", Date.class);
-            fieldTypeMap.put("esriFieldTypeOID", Integer.class);
-            fieldTypeMap.put("esriFieldTypeGeometry", Geometry.class);
-            fieldTypeMap.put("esriFieldTypeBlob", Blob.class);
-            fieldTypeMap.put("esriFieldTypeRaster", Raster.class);
-            fieldTypeMap.put("esriFieldTypeGUID", String.class);
-            fieldTypeMap.put("esriFieldTypeGlobalID", String.class);
-        }
     }
 
     /**
      * Read layers from intermediate mxd files.
+     * <p>Only the layer names are read, layers are converted when they are first requested.
      *
      * @param filename the filename
-     * @return the MXD info
+     * @return the MXD info, null if the file is not an intermediate mxd file
      */
     public static MXDInfo readLayers(String filename)
     {
@@ -143,16 +168,20 @@ public class MXDParser
 
         MXDParser parser = getInstance(filename);
 
+        MXDLayerIndex layerIndex = parser.indexLayers(intermediateFile);
+        if((layerIndex == null) || !layerIndex.hasLayers())
+        {
+            return null;
+        }
+
         MXDInfo mxdInfo = new MXDInfo();
         mxdInfo.setIntermediateFile(intermediateFile);
-        JsonObject mxdJSON = convertFileToJSON(filename);
 
         // Read mxd filename
         String mxdFilename = "";
-        JsonElement mxdFilenameJson = mxdJSON.get("mxd");
-        if(mxdFilenameJson != null)
+        if(layerIndex.getMxdFilename() != null)
         {
-            mxdFilename = mxdFilenameJson.getAsString();
+            mxdFilename = layerIndex.getMxdFilename();
             mxdInfo.setMxdFilename(mxdFilename);
         }
 
@@ -166,87 +195,249 @@ public class MXDParser
         mxdInfo.setMxdName(mxdName);
 
         // Read layers
-        JsonArray layerList = mxdJSON.getAsJsonArray("layers");
-        List<String> mxdLayerList = new ArrayList<String>();
+        mxdInfo.setLayerList(new ArrayList<String>(layerIndex.getLayerNameList()));
+
+        return mxdInfo;
+    }
 
-        for(int index = 0; index < layerList.size(); index ++)
+    /**
+     * Index the layers in the intermediate file, any previously converted layers are discarded.
+     *
+     * @param intermediateFile the intermediate file
+     * @return the MXD layer index, null if the file could not be read
+     */
+    private synchronized MXDLayerIndex indexLayers(File intermediateFile)
+    {
+        mxdLayerCacheMap.clear();
+        layerIndex = null;
+
+        try
         {
-            JsonObject layer = (JsonObject) layerList.get(index);
+            layerIndex = MXDLayerIndex.build(intermediateFile);
+        }
+        catch (IOException e)
+        {
+            ConsoleManager.getInstance().exception(MXDParser.class, e);
+        }
 
-            JsonElement layerNameElement = layer.get("name");
-            if(layerNameElement != null)
-            {
-                String layerName = layerNameElement.getAsString();
+        return layerIndex;
+    }
+
+    /**
+     * Read layer.
+     *
+     * @param filename the filename
+     * @param layerName the layer name
+     * @return the SLD data
+     */
+    public static SLDDataInterface readLayer(String filename, String layerName) {
+
+        MXDParser parser = getExistingInstance(filename);
+        if(parser == null)
+        {
+            return null;
+        }
+
+        return parser.getLayer(layerName);
+    }
+
+    /**
+     * Convert layers in parallel, layers are independent of each other
+     * so each one is converted on a separate task.
+     * <p>A pool is created for each batch and shut down once the batch has been converted.
+     *
+     * @param filename the filename
+     * @param layerNameList the layer name list
+     * @return the SLD data in the same order as the layer names, null entries for
+     * layers that could not be converted, null if the file has not been read
+     */
+    public static List<SLDDataInterface> convertLayers(String filename, List<String> layerNameList) {
+
+        final MXDParser parser = getExistingInstance(filename);
+        if((parser == null) || (layerNameList == null))
+        {
+            return null;
+        }
 
-                SLDDataInterface sldData = parser.importLayer(layer);
-                sldData.setSLDFile(intermediateFile);
+        List<SLDDataInterface> sldDataList = new ArrayList<SLDDataInterface>();
 
-                parser.addLayer(layerName, sldData);
-                mxdLayerList.add(layerName);
+        if(layerNameList.size() <= 1)
+        {
+            for(String layerName : layerNameList)
+            {
+                sldDataList.add(parser.getLayer(layerName));
             }
+            return sldDataList;
         }
 
-        mxdInfo.setLayerList(mxdLayerList);
+        List<Callable<SLDDataInterface>> taskList = new ArrayList<Callable<SLDDataInterface>>();
+        for(final String layerName : layerNameList)
+        {
+            taskList.add(new Callable<SLDDataInterface>() {
+                @Override
+                public SLDDataInterface call() throws Exception {
+                    return parser.getLayer(layerName);
+                }
+            });
+        }
 
-        return mxdInfo;
+        ForkJoinPool conversionPool = new ForkJoinPool(Math.min(Runtime.getRuntime().availableProcessors(), taskList.size()));
+        try
+        {
+            for(Future<SLDDataInterface> future : conversionPool.invokeAll(taskList))
+            {
+                SLDDataInterface sldData = null;
+                try
+                {
+                    sldData = future.get();
+                }
+                catch (ExecutionException e)
+                {
+                    ConsoleManager.getInstance().exception(MXDParser.class, e);
+                }
+                sldDataList.add(sldData);
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        finally
+        {
+            conversionPool.shutdownNow();
+        }
+
+        return sldDataList;
     }
 
     /**
-     * Adds the layer.
+     * Gets the layer, converting it the first time it is requested.
+     * <p>Layers are converted without holding the lock so different layers can be converted at the same time.
      *
      * @param layerName the layer name
-     * @param sldData the sld data
+     * @return the layer
      */
-    private void addLayer(String layerName, SLDDataInterface sldData)
+    private SLDDataInterface getLayer(String layerName)
     {
-        mxdLayerCacheMap.put(layerName, sldData);
+        MXDLayerIndex index = null;
+
+        synchronized(this)
+        {
+            SLDDataInterface sldData = mxdLayerCacheMap.get(layerName);
+            if(sldData != null)
+            {
+                return sldData;
+            }
+
+            if((layerIndex != null) && layerIndex.isStale())
+            {
+                indexLayers(layerIndex.getFile());
+            }
+            index = layerIndex;
+        }
+
+        if(index == null)
+        {
+            return null;
+        }
+
+        SLDDataInterface sldData = null;
+        try
+        {
+            JsonObject layer = index.readLayer(layerName);
+            if(layer != null)
+            {
+                sldData = importLayer(layer);
+                sldData.setSLDFile(index.getFile());
+            }
+        }
+        catch (IOException e)
+        {
+            ConsoleManager.getInstance().error(this, "Layer : " + layerName);
+            ConsoleManager.getInstance().exception(this, e);
+        }
+
+        if(sldData != null)
+        {
+            synchronized(this)
+            {
+                // Do not cache layers read from an index that has since been replaced
+                if(index == layerIndex)
+                {
+                    mxdLayerCacheMap.put(layerName, sldData);
+                }
+            }
+        }
+        return sldData;
     }
 
     /**
-     * Convert file to json.
+     * Gets the maximum number of converted layers cached for each file.
      *
-     * @param fileName the file name
-     * @return the json object
+     * @return the maximum number of cached layers
      */
-    private static JsonObject convertFileToJSON(String fileName)
+    public static int getMaxCachedLayers()
     {
-        // Read from File to String
-        JsonObject jsonObject = new JsonObject();
-
-        try {
-            JsonParser parser = new JsonParser();
-            JsonElement jsonElement = parser.parse(new FileReader(fileName));
-            jsonObject = jsonElement.getAsJsonObject();
-        } catch (FileNotFoundException e) {
-            ConsoleManager.getInstance().exception(MXDParser.class, e);
-        }
+        return maxCachedLayers;
+    }
 
-        return jsonObject;
+    /**
+     * Sets the maximum number of converted layers cached for each file,
+     * takes effect the next time a layer is cached.
+     *
+     * @param maxCachedLayers the maximum number of cached layers
+     */
+    public static void setMaxCachedLayers(int maxCachedLayers)
+    {
+        MXDParser.maxCachedLayers = Math.max(1, maxCachedLayers);
     }
 
     /**
-     * Read layer.
+     * Gets the number of converted layers cached for a file.
      *
      * @param filename the filename
-     * @param layerName the layer name
-     * @return the SLD data
+     * @return the cached layer count
      */
-    public static SLDDataInterface readLayer(String filename, String layerName) {
+    public static int getCachedLayerCount(String filename)
+    {
+        MXDParser parser = getExistingInstance(filename);
+        if(parser == null)
+        {
+            return 0;
+        }
 
-        MXDParser parser = getInstance(filename);
+        synchronized(parser)
+        {
+            return parser.mxdLayerCacheMap.size();
+        }
+    }
 
-        return parser.getLayer(layerName);
+    /**
+     * Release the index and cached layers of a file, e.g. once a batch conversion has finished with it.
+     *
+     * @param filename the filename
+     */
+    public static void release(String filename)
+    {
+        synchronized(instanceMap)
+        {
+            instanceMap.remove(filename);
+        }
     }
 
     /**
-     * Gets the layer.
+     * Gets the instance of MXDParser for a file that has already been read.
      *
-     * @param layerName the layer name
-     * @return the layer
+     * @param filename the filename
+     * @return the instance, null if the file has not been read
      */
-    private SLDDataInterface getLayer(String layerName)
+    private static MXDParser getExistingInstance(String filename)
     {
-        return mxdLayerCacheMap.get(layerName);
+        synchronized(instanceMap)
+        {
+            return instanceMap.get(filename);
+        }
     }
 
     /**
@@ -256,15 +447,18 @@ public class MXDParser
      */
     private static MXDParser getInstance(String filename)
     {
-        MXDParser instance = instanceMap.get(filename);
-        
-        if(instance == null)
+        synchronized(instanceMap)
         {
-            instance = new MXDParser();
-            instanceMap.put(filename, instance);
-        }
+            MXDParser instance = instanceMap.get(filename);
+
+            if(instance == null)
+            {
+                instance = new MXDParser();
+                instanceMap.put(filename, instance);
+            }
 
-        return instance;
+            return instance;
+        }
     }
 
     /**
@@ -298,11 +492,6 @@ public class MXDParser
         JsonElement dataSourcePropertiesElement = layer.get("dataSource");
         DataSourcePropertiesInterface dataSourceProperties = processDataSource(layerName, dataSourcePropertiesElement);
 
-        if(sldWriter  == null)
-        {
-            sldWriter = SLDWriterFactory.createSLDWriter(null);
-        }
-
         String sldContents = sldWriter.encodeSLD(sld);
 
         StyleWrapper styleWrapper = new StyleWrapper(layerName, layerName);
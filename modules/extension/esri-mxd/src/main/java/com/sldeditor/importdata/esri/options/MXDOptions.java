@@ -31,7 +31,7 @@ public class MXDOptions
     private static final String MXD_FONT_SIZE_FACTOR_FIELD = "MXD.fontSizeFactor";
 
     /** The font size factor. */
-    private double fontSizeFactor = 2.0;
+    private volatile double fontSizeFactor = 2.0;
     
     /** The instance. */
     private static MXDOptions instance = null;
@@ -49,7 +49,7 @@ public class MXDOptions
      *
      * @return single instance of MXDOptions
      */
-    public static MXDOptions getInstance()
+    public static synchronized MXDOptions getInstance()
     {
         if(instance == null)
         {
@@ -18,18 +18,10 @@
  */
 package com.sldeditor.importdata.esri.symbols;
 
-import java.awt.image.BufferedImage;
-import java.io.BufferedOutputStream;
-import java.io.ByteArrayInputStream;
-import java.io.File;
-import java.io.FileOutputStream;
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Base64;
 import java.util.List;
 
-import javax.imageio.ImageIO;
-
 import org.geotools.styling.AnchorPoint;
 import org.geotools.styling.Displacement;
 import org.geotools.styling.ExternalGraphic;
@@ -44,9 +36,7 @@ import org.opengis.style.GraphicalSymbol;
 
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
-import com.sldeditor.common.console.ConsoleManager;
 import com.sldeditor.common.data.SelectedSymbol;
-import com.sldeditor.common.utils.ColourUtils;
 import com.sldeditor.common.utils.ExternalFilenames;
 import com.sldeditor.importdata.esri.keys.symbols.CommonPictureKeys;
 import com.sldeditor.importdata.esri.keys.symbols.CommonSymbolKeys;
@@ -132,56 +122,17 @@ public class PictureFillSymbol extends BaseSymbol implements EsriSymbolInterface
                 
                 String imageType = getString(pictureObj, CommonPictureKeys.TYPE);
 
-                ByteArrayInputStream bis = new ByteArrayInputStream(decodedBytes);
-                BufferedImage image = null;
-                try
-                {
-                    image = ImageIO.read(bis);
-                    bis.close();
-                }
-                catch (IOException e1)
-                {
-                    e1.printStackTrace();
-                }
+                // Layers using the same picture and colours share the same image file
+                Expression foregroundColour = getColour(obj.get(CommonSymbolKeys.COLOUR));
+                Expression backgroundColour = getColour(obj.get(PictureFillSymbolKeys.BACKGROUND_COLOUR));
+                String imageURL = PictureStore.getInstance().store(decodedBytes, imageType, foregroundColour, backgroundColour);
 
-                if(image != null)
+                if(imageURL != null)
                 {
-                    String filename = String.format("%s.%s", layerName, imageType);
-                    File file = new File(filename);
-                    BufferedOutputStream buffOutStream = null;
-                    try {
-                        buffOutStream = new BufferedOutputStream(new FileOutputStream(file));
-                        
-                        Expression foregroundColour = getColour(obj.get(CommonSymbolKeys.COLOUR));
-                        Expression backgroundColour = getColour(obj.get(PictureFillSymbolKeys.BACKGROUND_COLOUR));
-                        if((foregroundColour != null) && (backgroundColour != null))
-                        {
-                            setForegroundColour(foregroundColour, backgroundColour, image);
-                        }
-                        ImageIO.write(image, imageType, buffOutStream);
-                    }
-                    catch (IOException e)
-                    {
-                        ConsoleManager.getInstance().exception(this, e);
-                    }            
-                    finally {
-                        if(buffOutStream != null)
-                        {
-                            try
-                            {
-                                buffOutStream.close();
-                            }
-                            catch (IOException e)
-                            {
-                                ConsoleManager.getInstance().exception(this, e);
-                            }
-                        }
-                    }
-
-                    String fileExtension = ExternalFilenames.getFileExtension(filename);
+                    String fileExtension = ExternalFilenames.getFileExtension(imageURL);
                     String imageFormat = ExternalFilenames.getImageFormat(fileExtension);
 
-                    ExternalGraphic externalGraphic = styleFactory.createExternalGraphic(file.toURI().toString(), imageFormat);
+                    ExternalGraphic externalGraphic = styleFactory.createExternalGraphic(imageURL, imageFormat);
                     List<GraphicalSymbol> symbols = SelectedSymbol.getInstance().getSymbolList(externalGraphic);
 
                     Expression size = null;
@@ -201,53 +152,6 @@ public class PictureFillSymbol extends BaseSymbol implements EsriSymbolInterface
         return fill;
     }
 
-    /**
-     * Sets the foreground colour.
-     *
-     * @param foregroundColourExpression the foreground colour expression
-     * @param backgroundColourExpression the background colour expression
-     * @param image the image
-     */
-    private void setForegroundColour(Expression foregroundColourExpression,
-        Expression backgroundColourExpression,
-        BufferedImage image)
-    {
-        List<Integer> palette = new ArrayList<Integer>();
-        
-        for(int x = 0; x < image.getWidth(); x ++)
-        {
-            for(int y = 0; y < image.getHeight(); y ++)
-            {
-                int colourValue = image.getRGB(x, y) & 0xFFFFFF;
-                
-                if(!palette.contains(colourValue))
-                {
-                    palette.add(colourValue);
-                }
-            }
-        }
-        
-        if(palette.size() == 2)
-        {
-            // Strip off the '#'
-            int backgroundColour = ColourUtils.getIntColour(backgroundColourExpression);
-            int foregroundColour = ColourUtils.getIntColour(foregroundColourExpression);
-
-            for(int x = 0; x < image.getWidth(); x ++)
-            {
-                for(int y = 0; y < image.getHeight(); y ++)
-                {
-                    int colourValue = image.getRGB(x, y) & 0xFFFFFF;
-                    
-                    if(colourValue != backgroundColour)
-                    {
-                        image.setRGB(x, y, foregroundColour);
-                    }
-                }
-            }
-        }
-    }
-
     /* (non-Javadoc)
      * @see com.sldeditor.convert.esri.symbols.EsriFillSymbolInterface#convertToFill(java.lang.String, com.google.gson.JsonElement, int)
      */
@@ -0,0 +1,390 @@
+/*
+ * SLD Editor - The Open Source Java SLD Editor
+ *
+ * Copyright (C) 2016, SCISYS UK Limited
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sldeditor.importdata.esri.symbols;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.imageio.ImageIO;
+
+import org.opengis.filter.expression.Expression;
+
+import com.sldeditor.common.console.ConsoleManager;
+import com.sldeditor.common.utils.ColourUtils;
+
+/**
+ * Content addressed store of the images embedded in Esri picture symbols.
+ * <p>Images are keyed by a hash of the image bytes, the image type and the colours used to
+ * recolour the image. Each unique image is only decoded, recoloured and written once,
+ * layers using the same picture share the same file.
+ * 
+ * @author Robert Ward (SCISYS)
+ */
+public class PictureStore {
+
+    /** The Constant DIGEST_ALGORITHM. */
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+
+    /** The singleton instance. */
+    private static PictureStore instance = null;
+
+    /** The folder the images are written to. */
+    private volatile File folder = new File(System.getProperty("user.dir"));
+
+    /** The map of image key to the image url, null if the image could not be stored. */
+    private ConcurrentHashMap<String, FutureTask<String>> imageMap = new ConcurrentHashMap<String, FutureTask<String>>();
+
+    /** The number of images requested. */
+    private AtomicInteger requestCount = new AtomicInteger(0);
+
+    /** The number of images written. */
+    private AtomicInteger writeCount = new AtomicInteger(0);
+
+    /**
+     * Gets the single instance of PictureStore.
+     *
+     * @return single instance of PictureStore
+     */
+    public static synchronized PictureStore getInstance()
+    {
+        if(instance == null)
+        {
+            instance = new PictureStore();
+        }
+
+        return instance;
+    }
+
+    /**
+     * Instantiates a new picture store.
+     */
+    private PictureStore()
+    {
+    }
+
+    /**
+     * Store an image, if the same image has already been stored with the same colours
+     * the url of the existing file is returned.
+     * <p>If a foreground and background colour are supplied and the image only contains two colours,
+     * every pixel that is not the background colour is set to the foreground colour.
+     *
+     * @param imageBytes the image bytes
+     * @param imageType the image type, e.g. png
+     * @param foregroundColour the foreground colour, can be null
+     * @param backgroundColour the background colour, can be null
+     * @return the url of the image file, null if the image could not be read or written
+     */
+    public String store(final byte[] imageBytes, final String imageType,
+            Expression foregroundColour, Expression backgroundColour)
+    {
+        if((imageBytes == null) || (imageType == null))
+        {
+            return null;
+        }
+
+        requestCount.incrementAndGet();
+
+        final boolean recolour = (foregroundColour != null) && (backgroundColour != null);
+        final int foreground = recolour ? ColourUtils.getIntColour(foregroundColour) : 0;
+        final int background = recolour ? ColourUtils.getIntColour(backgroundColour) : 0;
+
+        final String hash = calculateHash(imageBytes, imageType, recolour, foreground, background);
+        if(hash == null)
+        {
+            return null;
+        }
+
+        final File imageFolder = folder;
+        String key = imageFolder.getAbsolutePath() + File.pathSeparator + hash;
+
+        FutureTask<String> task = new FutureTask<String>(new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                return writeImage(imageFolder, hash, imageBytes, imageType, recolour, foreground, background);
+            }
+        });
+
+        FutureTask<String> existingTask = imageMap.putIfAbsent(key, task);
+        if(existingTask == null)
+        {
+            // First request for this image, any other requests wait for it to be written
+            task.run();
+        }
+        else
+        {
+            task = existingTask;
+        }
+
+        try
+        {
+            return task.get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        catch (ExecutionException e)
+        {
+            ConsoleManager.getInstance().exception(this, e);
+        }
+        return null;
+    }
+
+    /**
+     * Decode, recolour and write the image, the file is not written if it already exists.
+     *
+     * @param imageFolder the image folder
+     * @param hash the hash
+     * @param imageBytes the image bytes
+     * @param imageType the image type
+     * @param recolour the recolour flag
+     * @param foreground the foreground colour
+     * @param background the background colour
+     * @return the url of the image file, null if the image could not be read or written
+     */
+    private String writeImage(File imageFolder, String hash, byte[] imageBytes, String imageType,
+            boolean recolour, int foreground, int background)
+    {
+        File file = new File(imageFolder, String.format("%s.%s", hash, imageType));
+
+        if(!file.exists())
+        {
+            BufferedImage image = null;
+            try
+            {
+                image = ImageIO.read(new ByteArrayInputStream(imageBytes));
+            }
+            catch (IOException e)
+            {
+                ConsoleManager.getInstance().exception(this, e);
+            }
+
+            if(image == null)
+            {
+                return null;
+            }
+
+            if(recolour)
+            {
+                setForegroundColour(foreground, background, image);
+            }
+
+            Path tmpPath = null;
+            try
+            {
+                Files.createDirectories(imageFolder.toPath());
+                tmpPath = Files.createTempFile(imageFolder.toPath(), hash, ".tmp");
+
+                OutputStream outputStream = Files.newOutputStream(tmpPath);
+                try
+                {
+                    if(!ImageIO.write(image, imageType, outputStream))
+                    {
+                        ConsoleManager.getInstance().error(this, "Unsupported image type : " + imageType);
+                        return null;
+                    }
+                }
+                finally
+                {
+                    outputStream.close();
+                }
+
+                try
+                {
+                    Files.move(tmpPath, file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+                }
+                catch (AtomicMoveNotSupportedException e)
+                {
+                    Files.move(tmpPath, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                }
+                tmpPath = null;
+                writeCount.incrementAndGet();
+            }
+            catch (IOException e)
+            {
+                ConsoleManager.getInstance().exception(this, e);
+                return null;
+            }
+            finally
+            {
+                if(tmpPath != null)
+                {
+                    tmpPath.toFile().delete();
+                }
+            }
+        }
+
+        return file.toURI().toString();
+    }
+
+    /**
+     * Sets the foreground colour of a two colour image.
+     *
+     * @param foregroundColour the foreground colour
+     * @param backgroundColour the background colour
+     * @param image the image
+     */
+    private static void setForegroundColour(int foregroundColour, int backgroundColour, BufferedImage image)
+    {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] pixels = image.getRGB(0, 0, width, height, null, 0, width);
+
+        // Only recolour images containing exactly two colours
+        int colour1 = -1;
+        int colour2 = -1;
+        for(int pixel : pixels)
+        {
+            int colourValue = pixel & 0xFFFFFF;
+
+            if(colour1 < 0)
+            {
+                colour1 = colourValue;
+            }
+            else if((colourValue != colour1) && (colourValue != colour2))
+            {
+                if(colour2 >= 0)
+                {
+                    return;
+                }
+                colour2 = colourValue;
+            }
+        }
+
+        if(colour2 < 0)
+        {
+            return;
+        }
+
+        for(int index = 0; index < pixels.length; index ++)
+        {
+            if((pixels[index] & 0xFFFFFF) != backgroundColour)
+            {
+                pixels[index] = foregroundColour;
+            }
+        }
+        image.setRGB(0, 0, width, height, pixels, 0, width);
+    }
+
+    /**
+     * Calculate the hash identifying an image and the way it is recoloured.
+     *
+     * @param imageBytes the image bytes
+     * @param imageType the image type
+     * @param recolour the recolour flag
+     * @param foreground the foreground colour
+     * @param background the background colour
+     * @return the hash, null if it could not be calculated
+     */
+    private static String calculateHash(byte[] imageBytes, String imageType,
+            boolean recolour, int foreground, int background)
+    {
+        try
+        {
+            MessageDigest digest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+            digest.update(imageBytes);
+            String parameters = recolour ? String.format(":%s:%06x:%06x", imageType, foreground, background) :
+                String.format(":%s", imageType);
+            digest.update(parameters.getBytes("UTF-8"));
+
+            StringBuilder sb = new StringBuilder();
+            for(byte b : digest.digest())
+            {
+                sb.append(String.format("%02x", b));
+            }
+            return sb.toString();
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            ConsoleManager.getInstance().exception(PictureStore.class, e);
+        }
+        catch (IOException e)
+        {
+            ConsoleManager.getInstance().exception(PictureStore.class, e);
+        }
+        return null;
+    }
+
+    /**
+     * Gets the folder the images are written to.
+     *
+     * @return the folder
+     */
+    public File getFolder()
+    {
+        return folder;
+    }
+
+    /**
+     * Sets the folder the images are written to.
+     *
+     * @param folder the new folder
+     */
+    public void setFolder(File folder)
+    {
+        if(folder != null)
+        {
+            this.folder = folder;
+        }
+    }
+
+    /**
+     * Gets the number of images requested.
+     *
+     * @return the request count
+     */
+    public int getRequestCount()
+    {
+        return requestCount.get();
+    }
+
+    /**
+     * Gets the number of image files written.
+     *
+     * @return the write count
+     */
+    public int getWriteCount()
+    {
+        return writeCount.get();
+    }
+
+    /**
+     * Forget the images stored so far, files already written are left in place.
+     */
+    public void clear()
+    {
+        imageMap.clear();
+        requestCount.set(0);
+        writeCount.set(0);
+    }
+}
@@ -48,9 +48,6 @@ import com.sldeditor.importdata.esri.keys.symbols.SimpleMarkerSymbolKeys;
 public class SimpleMarkerSymbol extends BaseSymbol implements EsriSymbolInterface,
 EsriMarkSymbolInterface {
 
-    /** The style map. */
-    private static Map<Integer, String> styleMap = new HashMap<Integer, String>();
-
     // com.esri.arcgis.display.esriSimpleMarkerStyle constants
     private static final int esriSMSCircle   = 0;
     private static final int esriSMSSquare   = 1;
@@ -58,19 +55,23 @@ EsriMarkSymbolInterface {
     private static final int esriSMSX        = 3;
     private static final int esriSMSDiamond  = 4;
 
+    /** The style map, populated once so it can be read by symbols converted in parallel. */
+    private static final Map<Integer, String> styleMap = new HashMap<Integer, String>();
+
+    static
+    {
+        styleMap.put(esriSMSCircle, "circle");
+        styleMap.put(esriSMSCross, "cross");
+        styleMap.put(esriSMSDiamond, "circle");
+        styleMap.put(esriSMSSquare, "square");
+        styleMap.put(esriSMSX, "x");
+    }
+
     /**
      * Instantiates a new simple marker symbol.
      */
     public SimpleMarkerSymbol()
     {
-        if(styleMap.isEmpty())
-        {
-            styleMap.put(esriSMSCircle, "circle");
-            styleMap.put(esriSMSCross, "cross");
-            styleMap.put(esriSMSDiamond, "circle");
-            styleMap.put(esriSMSSquare, "square");
-            styleMap.put(esriSMSX, "x");
-        }
     }
 
     /**
@@ -35,6 +35,7 @@ import com.sldeditor.common.console.ConsoleManager;
 
 /**
  * Class that manages the conversion of all Esri symbols.
+ * <p>The symbol maps are only modified when the instance is created so symbols can be converted in parallel.
  * 
  * @author Robert Ward (SCISYS)
  */
@@ -66,7 +67,7 @@ public class SymbolManager {
      *
      * @return single instance of SymbolManager
      */
-    public static SymbolManager getInstance()
+    public static synchronized SymbolManager getInstance()
     {
         if(instance == null)
         {
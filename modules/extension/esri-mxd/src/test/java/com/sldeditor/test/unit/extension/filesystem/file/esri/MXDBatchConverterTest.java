@@ -0,0 +1,181 @@
+/*
+ * SLD Editor - The Open Source Java SLD Editor
+ *
+ * Copyright (C) 2016, SCISYS UK Limited
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sldeditor.test.unit.extension.filesystem.file.esri;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sldeditor.common.xml.ParseXML;
+import com.sldeditor.extension.filesystem.file.esri.MXDBatchConverter;
+
+/**
+ * Unit test for MXDBatchConverter class.
+ * <p>{@link com.sldeditor.extension.filesystem.file.esri.MXDBatchConverter}
+ * 
+ * @author Robert Ward (SCISYS)
+ *
+ */
+public class MXDBatchConverterTest {
+
+    private static final String EXPECTED_LAYER = "TEST_LAYER";
+    private static final String MXD_JSON = "/mxd.json";
+
+    /**
+     * Test method for {@link com.sldeditor.extension.filesystem.file.esri.MXDBatchConverter#expandInputs(java.util.List)}.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    @Test
+    public void testExpandInputs() throws IOException {
+        File folder = createTestFolder();
+        File a = new File(folder, "a.json").getAbsoluteFile();
+        File b = new File(folder, "b.json").getAbsoluteFile();
+        File c = new File(folder, "c.json").getAbsoluteFile();
+        File d = new File(folder, "sub" + File.separator + "d.json").getAbsoluteFile();
+
+        String prefix = folder.getAbsolutePath() + File.separator;
+
+        assertEquals(Arrays.asList(a, b, c), MXDBatchConverter.expandInputs(Arrays.asList(prefix + "*.json")));
+        assertEquals(Arrays.asList(a, b, c), MXDBatchConverter.expandInputs(Arrays.asList(folder.getAbsolutePath())));
+        assertEquals(Arrays.asList(a, b, c, d), MXDBatchConverter.expandInputs(Arrays.asList(prefix + "**.json")));
+        assertEquals(Arrays.asList(a), MXDBatchConverter.expandInputs(Arrays.asList(prefix + "a.json", prefix + "a.json")));
+
+        File listFile = new File(folder, "list.txt");
+        Files.write(listFile.toPath(), ("# Comment\n" + b.getAbsolutePath() + "\n\n" + prefix + "sub" + File.separator + "*.json\n").getBytes(StandardCharsets.UTF_8));
+        assertEquals(Arrays.asList(b, d), MXDBatchConverter.expandInputs(Arrays.asList("@" + listFile.getAbsolutePath())));
+
+        deleteFolder(folder);
+    }
+
+    /**
+     * Test method for {@link com.sldeditor.extension.filesystem.file.esri.MXDBatchConverter#run(java.lang.String[], java.io.PrintStream)}.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    @Test
+    public void testRun() throws IOException {
+        File folder = createTestFolder();
+        File outputFolder = new File(folder, "output");
+        String prefix = folder.getAbsolutePath() + File.separator;
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(bos);
+
+        assertEquals(MXDBatchConverter.EXIT_USAGE, MXDBatchConverter.run(new String[0], out));
+        assertEquals(MXDBatchConverter.EXIT_USAGE, MXDBatchConverter.run(new String[] {"-unknown", prefix + "a.json"}, out));
+
+        // Only valid files
+        String[] args = new String[] {"-o", outputFolder.getAbsolutePath(), prefix + "a.json", prefix + "b.json"};
+        assertEquals(MXDBatchConverter.EXIT_OK, MXDBatchConverter.run(args, out));
+        assertTrue(new File(outputFolder, "a" + File.separator + EXPECTED_LAYER + ".sld").exists());
+        assertTrue(new File(outputFolder, "b" + File.separator + EXPECTED_LAYER + ".sld").exists());
+
+        // c.json is not an intermediate mxd file
+        File summaryFile = new File(folder, "summary.json");
+        args = new String[] {"-o", outputFolder.getAbsolutePath(), "-summary", summaryFile.getAbsolutePath(), prefix + "*.json"};
+        assertEquals(MXDBatchConverter.EXIT_FAILURES, MXDBatchConverter.run(args, out));
+
+        JsonObject summary = new JsonParser().parse(new String(Files.readAllBytes(summaryFile.toPath()), StandardCharsets.UTF_8)).getAsJsonObject();
+        assertEquals(3, summary.get("files").getAsInt());
+        assertEquals(1, summary.get("failedFiles").getAsInt());
+        assertEquals(2, summary.get("layers").getAsInt());
+        assertEquals(0, summary.get("failedLayers").getAsInt());
+        assertEquals(0, summary.get("failedWrites").getAsInt());
+        assertTrue(summary.get("elapsedMs").getAsLong() >= 0);
+
+        JsonArray results = summary.getAsJsonArray("results");
+        assertEquals(3, results.size());
+        JsonObject result = results.get(0).getAsJsonObject();
+        assertTrue(result.get("success").getAsBoolean());
+        assertEquals(1, result.get("converted").getAsInt());
+        assertEquals(1, result.get("saved").getAsInt());
+        assertTrue(result.has("convertMs"));
+        assertFalse(result.has("legends"));
+
+        result = results.get(2).getAsJsonObject();
+        assertFalse(result.get("success").getAsBoolean());
+        assertTrue(result.has("error"));
+
+        out.close();
+        deleteFolder(folder);
+    }
+
+    /**
+     * Creates the test folder containing two intermediate files, a json file that is not
+     * an intermediate file and an intermediate file in a sub folder.
+     *
+     * @return the folder
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private File createTestFolder() throws IOException {
+        File folder = Files.createTempDirectory("test").toFile();
+        File subFolder = new File(folder, "sub");
+        subFolder.mkdirs();
+
+        for(File f : new File[] {new File(folder, "a.json"), new File(folder, "b.json"), new File(subFolder, "d.json")})
+        {
+            InputStream inputStream = ParseXML.class.getResourceAsStream(MXD_JSON);
+            Files.copy(inputStream, f.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            inputStream.close();
+        }
+        Files.write(new File(folder, "c.json").toPath(), "{}".getBytes(StandardCharsets.UTF_8));
+
+        return folder;
+    }
+
+    /**
+     * Delete folder and its contents.
+     *
+     * @param folder the folder
+     */
+    private void deleteFolder(File folder) {
+        File[] fileList = folder.listFiles();
+        if(fileList != null)
+        {
+            for(File f : fileList)
+            {
+                if(f.isDirectory())
+                {
+                    deleteFolder(f);
+                }
+                else
+                {
+                    f.delete();
+                }
+            }
+        }
+        folder.delete();
+    }
+}
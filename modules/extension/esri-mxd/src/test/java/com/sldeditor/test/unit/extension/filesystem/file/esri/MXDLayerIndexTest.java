@@ -0,0 +1,126 @@
+/*
+ * SLD Editor - The Open Source Java SLD Editor
+ *
+ * Copyright (C) 2016, SCISYS UK Limited
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sldeditor.test.unit.extension.filesystem.file.esri;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.google.gson.JsonObject;
+import com.sldeditor.extension.filesystem.file.esri.MXDLayerIndex;
+
+/**
+ * Unit test for MXDLayerIndex class.
+ * <p>{@link com.sldeditor.extension.filesystem.file.esri.MXDLayerIndex}
+ * 
+ * @author Robert Ward (SCISYS)
+ *
+ */
+public class MXDLayerIndexTest {
+
+    /**
+     * Test method for {@link com.sldeditor.extension.filesystem.file.esri.MXDLayerIndex#build(java.io.File)}.
+     * Test method for {@link com.sldeditor.extension.filesystem.file.esri.MXDLayerIndex#readLayer(java.lang.String)}.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    @Test
+    public void testBuild() throws IOException {
+        StringBuilder image = new StringBuilder();
+        for(int index = 0; index < 100000; index ++)
+        {
+            image.append("QUJD");
+        }
+
+        String json = "{\n" +
+                "  \"mxd\": \"D:\\\\Maps\\\\Test.mxd\",\n" +
+                "  \"layers\": [\n" +
+                "    {\n" +
+                "      \"renderer\": { \"name\": \"not a layer name\", \"text\": \"{[\\\"]},\" },\n" +
+                "      \"name\": \"Layer \\\"1\\\"\",\n" +
+                "      \"picture\": { \"image\": \"" + image + "\" }\n" +
+                "    },\n" +
+                "    { \"transparency\": 0 },\n" +
+                "    { \"name\": \"Layer \\u00c9\", \"fields\": [ { \"name\": \"x\" } ] }\n" +
+                "  ],\n" +
+                "  \"name\": \"not a layer\"\n" +
+                "}";
+
+        File f = File.createTempFile("test", ".json");
+        f.deleteOnExit();
+        Files.write(f.toPath(), json.getBytes(StandardCharsets.UTF_8));
+
+        MXDLayerIndex index = MXDLayerIndex.build(f);
+
+        assertTrue(index.hasLayers());
+        assertFalse(index.isStale());
+        assertEquals(f, index.getFile());
+        assertEquals("D:\\Maps\\Test.mxd", index.getMxdFilename());
+
+        // Layer without a name is ignored
+        assertEquals(Arrays.asList("Layer \"1\"", "Layer \u00c9"), index.getLayerNameList());
+
+        assertTrue(index.getLayerSize("Layer \"1\"") > image.length());
+        assertEquals(-1L, index.getLayerSize("not a layer"));
+        assertNull(index.readLayer("not a layer"));
+
+        JsonObject layer = index.readLayer("Layer \u00c9");
+        assertEquals("Layer \u00c9", layer.get("name").getAsString());
+        assertEquals(1, layer.getAsJsonArray("fields").size());
+
+        layer = index.readLayer("Layer \"1\"");
+        assertEquals("Layer \"1\"", layer.get("name").getAsString());
+        assertEquals(image.toString(), layer.getAsJsonObject("picture").get("image").getAsString());
+
+        // File changed after it was indexed
+        Files.write(f.toPath(), "{}".getBytes(StandardCharsets.UTF_8));
+        assertTrue(index.isStale());
+
+        f.delete();
+    }
+
+    /**
+     * Test method for {@link com.sldeditor.extension.filesystem.file.esri.MXDLayerIndex#hasLayers()}.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    @Test
+    public void testNotMXD() throws IOException {
+        File f = File.createTempFile("test", ".json");
+        f.deleteOnExit();
+        Files.write(f.toPath(), "{ \"data\": [ { \"layers\": [ { \"name\": \"x\" } ] } ] }".getBytes(StandardCharsets.UTF_8));
+
+        MXDLayerIndex index = MXDLayerIndex.build(f);
+
+        assertFalse(index.hasLayers());
+        assertTrue(index.getLayerNameList().isEmpty());
+        assertNull(index.getMxdFilename());
+
+        f.delete();
+    }
+}
@@ -30,9 +30,16 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.junit.Test;
 
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import com.sldeditor.common.SLDDataInterface;
 import com.sldeditor.common.xml.ParseXML;
 import com.sldeditor.extension.filesystem.file.esri.MXDInfo;
@@ -80,6 +87,60 @@ public class MXDParserTest {
         assertEquals(EXPECTED_LAYER, sldData.getLayerName());
     }
 
+    /**
+     * Test method for {@link com.sldeditor.extension.filesystem.file.esri.MXDParser#convertLayers(java.lang.String, java.util.List)}.
+     * Test method for {@link com.sldeditor.extension.filesystem.file.esri.MXDParser#setMaxCachedLayers(int)}.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    @Test
+    public void testConvertLayers() throws IOException {
+        File f = openTestFile();
+
+        // Create a file with many copies of the test layer
+        JsonObject mxd = new JsonParser().parse(new String(Files.readAllBytes(f.toPath()), StandardCharsets.UTF_8)).getAsJsonObject();
+        JsonObject testLayer = mxd.getAsJsonArray("layers").get(0).getAsJsonObject();
+        JsonArray layerArray = new JsonArray();
+        List<String> expectedLayerList = new ArrayList<String>();
+        for(int index = 0; index < 50; index ++)
+        {
+            String layerName = String.format("%s_%d", EXPECTED_LAYER, index);
+            JsonObject layer = new JsonParser().parse(testLayer.toString()).getAsJsonObject();
+            layer.addProperty("name", layerName);
+            layerArray.add(layer);
+            expectedLayerList.add(layerName);
+        }
+        mxd.add("layers", layerArray);
+        Files.write(f.toPath(), mxd.toString().getBytes(StandardCharsets.UTF_8));
+
+        MXDParser.setMaxCachedLayers(10);
+        assertEquals(10, MXDParser.getMaxCachedLayers());
+
+        MXDInfo mxdInfo = MXDParser.readLayers(f.getAbsolutePath());
+        assertEquals(expectedLayerList, mxdInfo.getLayerList());
+        assertEquals(0, MXDParser.getCachedLayerCount(f.getAbsolutePath()));
+
+        assertNull(MXDParser.convertLayers("different filename", expectedLayerList));
+        assertNull(MXDParser.convertLayers(f.getAbsolutePath(), null));
+
+        List<SLDDataInterface> sldDataList = MXDParser.convertLayers(f.getAbsolutePath(), mxdInfo.getLayerList());
+        assertEquals(expectedLayerList.size(), sldDataList.size());
+        for(int index = 0; index < expectedLayerList.size(); index ++)
+        {
+            assertEquals(expectedLayerList.get(index), sldDataList.get(index).getLayerName());
+            assertEquals(f, sldDataList.get(index).getSLDFile());
+        }
+
+        // Cache is bounded
+        assertEquals(10, MXDParser.getCachedLayerCount(f.getAbsolutePath()));
+
+        // Same as converting a layer on its own
+        SLDDataInterface sldData = MXDParser.readLayer(f.getAbsolutePath(), expectedLayerList.get(0));
+        assertEquals(sldDataList.get(0).getSld(), sldData.getSld());
+
+        MXDParser.setMaxCachedLayers(MXDParser.DEFAULT_MAX_CACHED_LAYERS);
+    }
+
     /**
      * Open test file.
      *
@@ -0,0 +1,119 @@
+/*
+ * SLD Editor - The Open Source Java SLD Editor
+ *
+ * Copyright (C) 2016, SCISYS UK Limited
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.sldeditor.test.unit.importdata.esri.symbols;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+
+import javax.imageio.ImageIO;
+
+import org.geotools.factory.CommonFactoryFinder;
+import org.junit.Test;
+import org.opengis.filter.FilterFactory;
+
+import com.sldeditor.importdata.esri.symbols.PictureStore;
+
+/**
+ * The unit test for PictureStore.
+ * <p>{@link com.sldeditor.importdata.esri.symbols.PictureStore}
+ *
+ * @author Robert Ward (SCISYS)
+ *
+ */
+public class PictureStoreTest {
+
+    /**
+     * Test method for {@link com.sldeditor.importdata.esri.symbols.PictureStore#store(byte[], java.lang.String, org.opengis.filter.expression.Expression, org.opengis.filter.expression.Expression)}.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    @Test
+    public void testStore() throws IOException {
+        FilterFactory ff = CommonFactoryFinder.getFilterFactory();
+        File folder = Files.createTempDirectory("test").toFile();
+
+        PictureStore store = PictureStore.getInstance();
+        File oldFolder = store.getFolder();
+        store.setFolder(folder);
+        store.clear();
+
+        // Two colour image, white background with a black pixel
+        BufferedImage image = new BufferedImage(4, 4, BufferedImage.TYPE_INT_RGB);
+        for(int x = 0; x < 4; x ++)
+        {
+            for(int y = 0; y < 4; y ++)
+            {
+                image.setRGB(x, y, 0xFFFFFF);
+            }
+        }
+        image.setRGB(1, 1, 0x000000);
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", bos);
+        byte[] imageBytes = bos.toByteArray();
+
+        String url1 = store.store(imageBytes, "png", ff.literal("#FF0000"), ff.literal("#FFFFFF"));
+        String url2 = store.store(imageBytes.clone(), "png", ff.literal("#FF0000"), ff.literal("#FFFFFF"));
+        assertEquals(url1, url2);
+        assertEquals(1, store.getWriteCount());
+
+        File file = new File(URI.create(url1));
+        assertEquals(folder, file.getParentFile());
+        assertTrue(file.getName().endsWith(".png"));
+
+        BufferedImage storedImage = ImageIO.read(file);
+        assertEquals(0xFF0000, storedImage.getRGB(1, 1) & 0xFFFFFF);
+        assertEquals(0xFFFFFF, storedImage.getRGB(0, 0) & 0xFFFFFF);
+
+        // Different colours are a different image
+        String url3 = store.store(imageBytes, "png", ff.literal("#0000FF"), ff.literal("#FFFFFF"));
+        assertFalse(url1.equals(url3));
+
+        // Not recoloured
+        String url4 = store.store(imageBytes, "png", null, null);
+        assertFalse(url1.equals(url4));
+        storedImage = ImageIO.read(new File(URI.create(url4)));
+        assertEquals(0x000000, storedImage.getRGB(1, 1) & 0xFFFFFF);
+
+        assertEquals(3, store.getWriteCount());
+        assertEquals(4, store.getRequestCount());
+
+        // Invalid images
+        assertNull(store.store(null, "png", null, null));
+        assertNull(store.store(imageBytes, null, null, null));
+        assertNull(store.store(new byte[] {1, 2, 3}, "png", null, null));
+
+        store.clear();
+        store.setFolder(oldFolder);
+
+        for(File f : folder.listFiles())
+        {
+            f.delete();
+        }
+        folder.delete();
+    }
+}